@@ -0,0 +1,186 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.oltpbenchmark;
+
+import com.oltpbenchmark.types.State;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The arrivals of one worker in a rate-limited phase when the workload uses worker pacing. Instead
+ * of the ThreadBench loop posting batches to a shared queue, each active worker generates its own
+ * share of the phase's rate and waits for its next arrival itself.
+ *
+ * <p>Arrival times are offsets from the start of the phase on the shared System.nanoTime() clock
+ * rather than from the previous wakeup, so a late wakeup or a slow transaction never shifts the
+ * arrivals after it: a worker that falls behind works off its backlog with the queue delay
+ * recorded, and arrivals beyond its share of the work queue limit are dropped, as they would be
+ * with the central queue. Random gaps are drawn in batches from a per-worker generator, so pacing
+ * touches no shared state. With a {@link LoadProfile}, each gap is scaled by the target rate at the
+ * time of the arrival before it.
+ */
+public final class ArrivalSchedule {
+
+  /** How rate-limited phases are paced, selected with the {@code <pacing>} config option. */
+  public enum Pacing {
+    /** The ThreadBench loop posts batches of arrivals to the workload's work queue (default). */
+    CENTRAL,
+    /** Every worker follows its own {@link ArrivalSchedule}. */
+    WORKER;
+
+    public static Pacing get(String name) {
+      return Pacing.valueOf(name.toUpperCase());
+    }
+  }
+
+  private static final int GAP_BATCH_SIZE = 1024;
+  // While a load profile's target rate is zero, look again this often
+  private static final double IDLE_STEP_NS = 10000000;
+
+  private final WorkloadState workloadState;
+  private final int backlogLimit;
+  private final SplittableRandom rng;
+  private final double[] gaps = new double[GAP_BATCH_SIZE];
+  private int nextGap = GAP_BATCH_SIZE;
+  private final ScheduleSlip slip = new ScheduleSlip();
+
+  private volatile Thread waiter = null;
+
+  // The phase the schedule was computed for
+  private Phase phase = null;
+  private long phaseStartNs;
+  private int activeTerminals;
+  // The next arrival, relative to phaseStartNs; infinite if the phase has no more arrivals
+  private double nextOffsetNs;
+
+  ArrivalSchedule(WorkloadState workloadState, int backlogLimit, SplittableRandom rng) {
+    this.workloadState = workloadState;
+    this.backlogLimit = backlogLimit;
+    this.rng = rng;
+  }
+
+  /** Returns how late this worker woke up for its arrivals while measuring. */
+  public ScheduleSlip getScheduleSlip() {
+    return slip;
+  }
+
+  /**
+   * Wait for this worker's next arrival in the given phase and copy it into {@code slot}.
+   *
+   * @return false if the phase changed or the benchmark finished while waiting
+   */
+  boolean next(Phase currentPhase, SubmittedProcedure slot) {
+    if (currentPhase != phase) {
+      startPhase(currentPhase);
+    }
+
+    long scheduledNs = getScheduledNs();
+    long now = System.nanoTime();
+    if (scheduledNs > now) {
+      waiter = Thread.currentThread();
+      try {
+        while (scheduledNs > now) {
+          if (workloadState.getCurrentPhase() != currentPhase
+              || WorkQueue.isFinished(workloadState.getBenchmarkState())) {
+            return false;
+          }
+          if (scheduledNs == Long.MAX_VALUE) {
+            LockSupport.park();
+          } else {
+            LockSupport.parkNanos(scheduledNs - now);
+          }
+          now = System.nanoTime();
+        }
+      } finally {
+        waiter = null;
+      }
+      if (workloadState.getGlobalState() == State.MEASURE) {
+        slip.record(now - scheduledNs);
+      }
+    } else {
+      // Behind schedule: keep at most this worker's share of the queue limit, like the work queue
+      double intervalNs = getIntervalNs(now);
+      long backlog = (long) ((now - scheduledNs) / intervalNs);
+      if (backlog > backlogLimit) {
+        long dropped = backlog - backlogLimit;
+        nextOffsetNs += dropped * intervalNs;
+        scheduledNs = getScheduledNs();
+        workloadState.dropArrivals(dropped);
+      }
+    }
+
+    slot.set(
+        currentPhase.chooseTransaction(workloadState.getGlobalState() == State.COLD_QUERY, rng),
+        scheduledNs);
+    advance(nextGap());
+    return true;
+  }
+
+  private long getScheduledNs() {
+    return Double.isInfinite(nextOffsetNs) ? Long.MAX_VALUE : phaseStartNs + (long) nextOffsetNs;
+  }
+
+  /** Returns this worker's mean time between arrivals at the given time, infinite at rate zero. */
+  private double getIntervalNs(long ns) {
+    return 1e9 * activeTerminals / workloadState.getTargetRate(phase, ns);
+  }
+
+  /** Move the next arrival {@code gap} mean inter-arrival times past the current one. */
+  private void advance(double gap) {
+    // The phase ends on its own timer, so stop looking a little after its planned end
+    double endOffsetNs = (phase.getWarmupTime() + phase.getTime() + 1) * 1e9;
+    double intervalNs = getIntervalNs(phaseStartNs + (long) nextOffsetNs);
+    while (Double.isInfinite(intervalNs) && nextOffsetNs < endOffsetNs) {
+      nextOffsetNs += IDLE_STEP_NS;
+      intervalNs = getIntervalNs(phaseStartNs + (long) nextOffsetNs);
+    }
+    nextOffsetNs = Double.isInfinite(intervalNs) ? intervalNs : nextOffsetNs + gap * intervalNs;
+  }
+
+  /** Make the worker re-check the phase and benchmark state if it is waiting for an arrival. */
+  void wake() {
+    Thread t = waiter;
+    if (t != null) {
+      LockSupport.unpark(t);
+    }
+  }
+
+  private void startPhase(Phase newPhase) {
+    phase = newPhase;
+    phaseStartNs = workloadState.getPhaseStartNs();
+    // Each active worker generates an equal share of the phase's rate
+    activeTerminals = Math.max(1, newPhase.getActiveTerminals());
+    nextGap = GAP_BATCH_SIZE;
+    // Spread the first arrivals of the workers over the first interval
+    nextOffsetNs = 0;
+    advance(newPhase.getArrival() == Phase.Arrival.REGULAR ? rng.nextDouble() : nextGap());
+  }
+
+  /** Returns the next gap between arrivals, in multiples of the mean interval. */
+  private double nextGap() {
+    if (phase.getArrival() == Phase.Arrival.REGULAR) {
+      return 1;
+    }
+    if (nextGap == GAP_BATCH_SIZE) {
+      for (int i = 0; i < GAP_BATCH_SIZE; i++) {
+        gaps[i] = phase.nextArrivalGap(rng);
+      }
+      nextGap = 0;
+    }
+    return gaps[nextGap++];
+  }
+}
@@ -17,9 +17,11 @@
 
 package com.oltpbenchmark;
 
+import com.oltpbenchmark.jfr.StateTransitionEvent;
 import com.oltpbenchmark.types.State;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,7 +32,7 @@ public final class BenchmarkState {
   private final long testStartNs;
   private final CountDownLatch startBarrier;
   private final AtomicInteger notDoneCount;
-  private volatile State state = State.WARMUP;
+  private final AtomicReference<Epoch> epoch = new AtomicReference<>(new Epoch(0, State.WARMUP));
 
   /**
    * @param numThreads number of threads involved in the test: including the master thread.
@@ -42,15 +44,39 @@ public final class BenchmarkState {
     testStartNs = System.nanoTime();
   }
 
-  // Protected by this
-
   public long getTestStartNs() {
     return testStartNs;
   }
 
+  /**
+   * Workers poll this several times per transaction, so it is a plain volatile read. Taking the
+   * monitor here would also pin terminals running on virtual threads to their carrier whenever the
+   * ThreadBench thread holds it.
+   */
   public State getState() {
-    synchronized (this) {
-      return state;
+    return epoch.get().state;
+  }
+
+  /**
+   * Returns the current epoch. A worker that sees the same epoch before and after a transaction
+   * knows that neither the state nor any workload's phase changed while it ran.
+   */
+  public Epoch getEpoch() {
+    return epoch.get();
+  }
+
+  /** Start a new epoch in the same state, because something else (like the phase) changed. */
+  public void advanceEpoch() {
+    epoch.updateAndGet(e -> new Epoch(e.number + 1, e.state));
+  }
+
+  private void setState(State state) {
+    Epoch previous = epoch.getAndUpdate(e -> new Epoch(e.number + 1, state));
+    StateTransitionEvent event = new StateTransitionEvent();
+    if (event.shouldCommit()) {
+      event.from = previous.state.name();
+      event.to = state.name();
+      event.commit();
     }
   }
 
@@ -66,33 +92,33 @@ public final class BenchmarkState {
   }
 
   public void startMeasure() {
-    state = State.MEASURE;
+    setState(State.MEASURE);
   }
 
   public void startColdQuery() {
-    state = State.COLD_QUERY;
+    setState(State.COLD_QUERY);
   }
 
   public void startHotQuery() {
-    state = State.MEASURE;
+    setState(State.MEASURE);
   }
 
   public void signalLatencyComplete() {
-    state = State.LATENCY_COMPLETE;
+    setState(State.LATENCY_COMPLETE);
   }
 
   public void ackLatencyComplete() {
-    state = State.MEASURE;
+    setState(State.MEASURE);
   }
 
   public void signalError() {
     // A thread died, decrement the count and set error state
     notDoneCount.decrementAndGet();
-    state = State.ERROR;
+    setState(State.ERROR);
   }
 
   public void startCoolDown() {
-    state = State.DONE;
+    setState(State.DONE);
 
     // The master thread must also signal that it is done
     signalDone();
@@ -109,8 +135,30 @@ public final class BenchmarkState {
     if (current == 0) {
       // We are the last thread to notice that we are done: wake any
       // blocked workers
-      this.state = State.EXIT;
+      setState(State.EXIT);
     }
     return current;
   }
+
+  /**
+   * An immutable snapshot of the global state. Every state change, and every phase change of any
+   * workload, publishes a new epoch.
+   */
+  public static final class Epoch {
+    private final long number;
+    private final State state;
+
+    private Epoch(long number, State state) {
+      this.number = number;
+      this.state = state;
+    }
+
+    public long getNumber() {
+      return number;
+    }
+
+    public State getState() {
+      return state;
+    }
+  }
 }
@@ -18,15 +18,22 @@
 package com.oltpbenchmark;
 
 import com.oltpbenchmark.api.BenchmarkModule;
+import com.oltpbenchmark.api.RetryPolicy;
 import com.oltpbenchmark.api.TransactionType;
 import com.oltpbenchmark.api.TransactionTypes;
 import com.oltpbenchmark.api.Worker;
+import com.oltpbenchmark.distributed.Agent;
+import com.oltpbenchmark.distributed.Coordinator;
+import com.oltpbenchmark.jdbc.FaultProfile;
+import com.oltpbenchmark.jdbc.Latency;
 import com.oltpbenchmark.types.DatabaseType;
 import com.oltpbenchmark.types.State;
+import com.oltpbenchmark.types.TransactionStatus;
 import com.oltpbenchmark.util.*;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Paths;
 import java.sql.SQLException;
 import java.util.*;
 import org.apache.commons.cli.*;
@@ -69,6 +76,10 @@ public class DBWorkload {
     if (argsLine.hasOption("h")) {
       printUsage(options);
       return;
+    } else if (argsLine.hasOption("agent")) {
+      // The coordinator sends the benchmark and its configuration
+      new Agent(argsLine.getOptionValue("agent")).run(pluginConfig, buildMonitorInfo(argsLine));
+      return;
     } else if (!argsLine.hasOption("c")) {
       LOG.error("Missing Configuration file");
       printUsage(options);
@@ -79,27 +90,7 @@ public class DBWorkload {
       return;
     }
 
-    // Monitoring setup.
-    ImmutableMonitorInfo.Builder builder = ImmutableMonitorInfo.builder();
-    if (argsLine.hasOption("im")) {
-      builder.monitoringInterval(Integer.parseInt(argsLine.getOptionValue("im")));
-    }
-    if (argsLine.hasOption("mt")) {
-      switch (argsLine.getOptionValue("mt")) {
-        case "advanced":
-          builder.monitoringType(MonitorInfo.MonitoringType.ADVANCED);
-          break;
-        case "throughput":
-          builder.monitoringType(MonitorInfo.MonitoringType.THROUGHPUT);
-          break;
-        default:
-          throw new ParseException(
-              "Monitoring type '"
-                  + argsLine.getOptionValue("mt")
-                  + "' is undefined, allowed values are: advanced/throughput");
-      }
-    }
-    MonitorInfo monitorInfo = builder.build();
+    MonitorInfo monitorInfo = buildMonitorInfo(argsLine);
 
     // -------------------------------------------------------------------
     // GET PLUGIN LIST
@@ -107,9 +98,6 @@ public class DBWorkload {
 
     String targetBenchmarks = argsLine.getOptionValue("b");
 
-    String[] targetList = targetBenchmarks.split(",");
-    List<BenchmarkModule> benchList = new ArrayList<>();
-
     // Use this list for filtering of the output
     List<TransactionType> activeTXTypes = new ArrayList<>();
 
@@ -117,6 +105,162 @@ public class DBWorkload {
 
     XMLConfiguration xmlConfig = buildConfiguration(configFile);
 
+    List<BenchmarkModule> benchList =
+        loadBenchmarks(
+            pluginConfig, targetBenchmarks, configFile, xmlConfig, monitorInfo, activeTXTypes);
+
+    // Export StatementDialects
+    if (isBooleanOptionSet(argsLine, "dialects-export")) {
+      BenchmarkModule bench = benchList.get(0);
+      if (bench.getStatementDialects() != null) {
+        LOG.info("Exporting StatementDialects for {}", bench);
+        String xml =
+            bench
+                .getStatementDialects()
+                .export(
+                    bench.getWorkloadConfiguration().getDatabaseType(),
+                    bench.getProcedures().values());
+        LOG.debug(xml);
+        System.exit(0);
+      }
+      throw new RuntimeException("No StatementDialects is available for " + bench);
+    }
+
+    // Create the Benchmark's Database
+    if (isBooleanOptionSet(argsLine, "create")) {
+      try {
+        for (BenchmarkModule benchmark : benchList) {
+          LOG.info("Creating new {} database...", benchmark.getBenchmarkName().toUpperCase());
+          runCreator(benchmark);
+          LOG.info(
+              "Finished creating new {} database...", benchmark.getBenchmarkName().toUpperCase());
+        }
+      } catch (Throwable ex) {
+        LOG.error("Unexpected error when creating benchmark database tables.", ex);
+        System.exit(1);
+      }
+    } else {
+      LOG.debug("Skipping creating benchmark database tables");
+    }
+
+    // Refresh the catalog.
+    for (BenchmarkModule benchmark : benchList) {
+      benchmark.refreshCatalog();
+    }
+
+    // Clear the Benchmark's Database
+    if (isBooleanOptionSet(argsLine, "clear")) {
+      try {
+        for (BenchmarkModule benchmark : benchList) {
+          LOG.info("Clearing {} database...", benchmark.getBenchmarkName().toUpperCase());
+          benchmark.refreshCatalog();
+          benchmark.clearDatabase();
+          benchmark.refreshCatalog();
+          LOG.info("Finished clearing {} database...", benchmark.getBenchmarkName().toUpperCase());
+        }
+      } catch (Throwable ex) {
+        LOG.error("Unexpected error when clearing benchmark database tables.", ex);
+        System.exit(1);
+      }
+    } else {
+      LOG.debug("Skipping clearing benchmark database tables");
+    }
+
+    // Execute Loader
+    if (isBooleanOptionSet(argsLine, "load")) {
+      try {
+        for (BenchmarkModule benchmark : benchList) {
+          LOG.info("Loading data into {} database...", benchmark.getBenchmarkName().toUpperCase());
+          runLoader(benchmark);
+          LOG.info(
+              "Finished loading data into {} database...",
+              benchmark.getBenchmarkName().toUpperCase());
+        }
+      } catch (Throwable ex) {
+        LOG.error("Unexpected error when loading benchmark database records.", ex);
+        System.exit(1);
+      }
+
+    } else {
+      LOG.debug("Skipping loading benchmark database records");
+    }
+
+    // Anonymize Datasets
+    // Currently, the system only parses the config but does not run any anonymization!
+    // Will be added in the future
+    if (isBooleanOptionSet(argsLine, "anonymize")) {
+      try {
+        if (xmlConfig.configurationsAt("/anonymization/table").size() > 0) {
+          applyAnonymization(xmlConfig, configFile);
+        }
+      } catch (Throwable ex) {
+        LOG.error("Unexpected error when anonymizing datasets", ex);
+        System.exit(1);
+      }
+    }
+
+    // Execute Workload
+    if (isBooleanOptionSet(argsLine, "execute")) {
+      // Bombs away!
+      try {
+        Results r;
+        if (argsLine.hasOption("coordinator")) {
+          r = runCoordinator(argsLine, benchList, xmlConfig);
+        } else {
+          r = runWorkload(benchList, monitorInfo);
+        }
+        writeOutputs(r, activeTXTypes, argsLine, xmlConfig);
+        writeHistograms(r);
+
+        if (argsLine.hasOption("json-histograms")) {
+          String histogram_json = writeJSONHistograms(r);
+          String fileName = argsLine.getOptionValue("json-histograms");
+          FileUtil.writeStringToFile(new File(fileName), histogram_json);
+          LOG.info("Histograms JSON Data: " + fileName);
+        }
+
+        if (r.getState() == State.ERROR) {
+          throw new RuntimeException(
+              "Errors encountered during benchmark execution. See output above for details.");
+        }
+      } catch (Throwable ex) {
+        LOG.error("Unexpected error when executing benchmarks.", ex);
+        System.exit(1);
+      }
+
+    } else {
+      LOG.info("Skipping benchmark workload execution");
+    }
+  }
+
+  /**
+   * Parse the workload configuration of each of the comma-separated benchmarks and create their
+   * modules.
+   *
+   * @param activeTXTypes filled with the transaction types of all the benchmarks
+   */
+  public static List<BenchmarkModule> loadBenchmarks(
+      XMLConfiguration pluginConfig,
+      String targetBenchmarks,
+      String configFile,
+      XMLConfiguration xmlConfig,
+      MonitorInfo monitorInfo,
+      List<TransactionType> activeTXTypes)
+      throws ParseException {
+    String[] targetList = targetBenchmarks.split(",");
+    List<BenchmarkModule> benchList = new ArrayList<>();
+
+    // Samples are spilled to one directory per run, shared by all the benchmarks
+    String sampleLogDirectory = null;
+    if (xmlConfig.getBoolean("spillSamples", false)) {
+      sampleLogDirectory =
+          Paths.get(
+                  xmlConfig.getString("spillSamples/@dir", "spill"),
+                  String.join("-", targetList) + "_" + TimeUtil.getCurrentTimeString())
+              .toString();
+      LOG.info("Spilling latency samples to {}", sampleLogDirectory);
+    }
+
     // Load the configuration for each benchmark
     int lastTxnId = 0;
     for (String plugin : targetList) {
@@ -140,8 +284,22 @@ public class DBWorkload {
       wrkld.setBatchSize(xmlConfig.getInt("batchsize", 128));
       wrkld.setMaxRetries(xmlConfig.getInt("retries", 3));
       wrkld.setNewConnectionPerTxn(xmlConfig.getBoolean("newConnectionPerTxn", false));
+      wrkld.setConnectParallelism(xmlConfig.getInt("connectParallelism", 8));
+      wrkld.setConnectionPoolSize(xmlConfig.getInt("connectionPool", 0));
+      wrkld.setConnectionMaxLifetime(xmlConfig.getInt("connectionPool/@maxLifetime", 0));
+      wrkld.setConnectionValidation(xmlConfig.getBoolean("connectionPool/@validate", false));
       wrkld.setReconnectOnConnectionFailure(
           xmlConfig.getBoolean("reconnectOnConnectionFailure", false));
+      wrkld.setWorkQueueType(WorkQueue.Type.get(xmlConfig.getString("workQueue", "lockfree")));
+      wrkld.setQueueDelayBound(xmlConfig.getInt("queueDelayBound", 1000));
+      wrkld.setVirtualThreads(xmlConfig.getBoolean("virtualThreads", false));
+      wrkld.setPacing(ArrivalSchedule.Pacing.get(xmlConfig.getString("pacing", "central")));
+      wrkld.setNanosecondLatencies(xmlConfig.getBoolean("nanosecondLatencies", false));
+      wrkld.setStatementCache(xmlConfig.getBoolean("statementCache", false));
+      wrkld.setInstrumentStatements(xmlConfig.getBoolean("instrumentStatements", false));
+      wrkld.setLatencyHistograms(xmlConfig.getBoolean("latencyHistograms", false));
+      wrkld.setLatencyHistogramWindow(xmlConfig.getInt("latencyHistograms/@window", 1));
+      wrkld.setSampleLogDirectory(sampleLogDirectory);
 
       int terminals = xmlConfig.getInt("terminals[not(@bench)]", 0);
       terminals = xmlConfig.getInt("terminals" + pluginTest, terminals);
@@ -204,6 +362,9 @@ public class DBWorkload {
       initDebug.put("Terminals", wrkld.getTerminals());
       initDebug.put("New Connection Per Txn", wrkld.getNewConnectionPerTxn());
       initDebug.put("Reconnect on Connection Failure", wrkld.getReconnectOnConnectionFailure());
+      initDebug.put("Work Queue", wrkld.getWorkQueueType());
+      initDebug.put("Virtual Threads", wrkld.getVirtualThreads());
+      initDebug.put("Pacing", wrkld.getPacing());
 
       if (selectivity != -1) {
         initDebug.put("Selectivity", selectivity);
@@ -226,6 +387,7 @@ public class DBWorkload {
 
       List<TransactionType> ttypes = new ArrayList<>();
       ttypes.add(TransactionType.INVALID);
+      Map<String, Integer> maxRetriesByType = new HashMap<>();
       int txnIdOffset = lastTxnId;
       for (int i = 1; i <= numTxnTypes; i++) {
         String key = "transactiontypes" + pluginTest + "/transactiontype[" + i + "]";
@@ -247,6 +409,10 @@ public class DBWorkload {
           postExecutionWait = xmlConfig.getLong(key + "/postExecutionWait");
         }
 
+        if (xmlConfig.containsKey(key + "/maxRetries")) {
+          maxRetriesByType.put(txnName, xmlConfig.getInt(key + "/maxRetries"));
+        }
+
         // After load
         if (xmlConfig.containsKey("afterload")) {
           bench.setAfterLoadScriptPath(xmlConfig.getString("afterload"));
@@ -269,6 +435,14 @@ public class DBWorkload {
       wrkld.setTransTypes(tt);
       LOG.debug("Using the following transaction types: {}", tt);
 
+      try {
+        wrkld.setRetryPolicy(parseRetryPolicy(xmlConfig, wrkld, maxRetriesByType));
+      } catch (IllegalArgumentException | NoSuchElementException e) {
+        LOG.error("Invalid retry policy: {}", e.getMessage());
+        System.exit(-1);
+      }
+      LOG.debug("Using the following retry policy: {}", wrkld.getRetryPolicy());
+
       // Read in the groupings of transactions (if any) defined for this
       // benchmark
       int numGroupings =
@@ -366,6 +540,13 @@ public class DBWorkload {
         String arrive = work.getString("@arrival", "regular");
         if (arrive.equalsIgnoreCase("POISSON")) {
           arrival = Phase.Arrival.POISSON;
+        } else if (arrive.equalsIgnoreCase("PARETO")) {
+          arrival = Phase.Arrival.PARETO;
+        }
+        double paretoShape = work.getDouble("@shape", Phase.DEFAULT_PARETO_SHAPE);
+        if (arrival == Phase.Arrival.PARETO && paretoShape <= 1) {
+          LOG.error("The shape of Pareto arrivals must be greater than 1");
+          System.exit(-1);
         }
 
         // We now have the option to run all queries exactly once in
@@ -431,6 +612,45 @@ public class DBWorkload {
               totalWeight);
         }
 
+        LoadProfile profile = LoadProfile.constant(rate);
+        if (rateLimited && work.containsKey("profile/@type")) {
+          try {
+            profile = parseLoadProfile(work, rate, time);
+          } catch (IllegalArgumentException | NoSuchElementException e) {
+            LOG.error(String.format("Invalid load profile in work %d: %s", i, e.getMessage()));
+            System.exit(-1);
+          }
+        }
+
+        SaturationSearch search = null;
+        if (work.containsKey("search/@slo")) {
+          if (!rateLimited || serial || !profile.isConstant()) {
+            LOG.error(
+                String.format(
+                    "The saturation search in work %d needs a fixed starting rate, no load profile"
+                        + " and a non-serial phase",
+                    i));
+            System.exit(-1);
+          }
+          try {
+            search = parseSaturationSearch(work, rate);
+          } catch (IllegalArgumentException e) {
+            LOG.error(String.format("Invalid saturation search in work %d: %s", i, e.getMessage()));
+            System.exit(-1);
+          }
+        }
+
+        FaultProfile faults = null;
+        List<HierarchicalConfiguration<ImmutableNode>> faultsConf = work.configurationsAt("faults");
+        if (!faultsConf.isEmpty()) {
+          try {
+            faults = parseFaultProfile(faultsConf.get(0));
+          } catch (IllegalArgumentException | NoSuchElementException e) {
+            LOG.error(String.format("Invalid faults in work %d: %s", i, e.getMessage()));
+            System.exit(-1);
+          }
+        }
+
         wrkld.addPhase(
             i,
             time,
@@ -442,7 +662,11 @@ public class DBWorkload {
             serial,
             timed,
             activeTerminals,
-            arrival);
+            arrival,
+            paretoShape,
+            profile,
+            search,
+            faults);
       }
 
       // CHECKING INPUT PHASES
@@ -465,124 +689,170 @@ public class DBWorkload {
       // Generate the dialect map
       wrkld.init();
     }
+    return benchList;
+  }
 
-    // Export StatementDialects
-    if (isBooleanOptionSet(argsLine, "dialects-export")) {
-      BenchmarkModule bench = benchList.get(0);
-      if (bench.getStatementDialects() != null) {
-        LOG.info("Exporting StatementDialects for {}", bench);
-        String xml =
-            bench
-                .getStatementDialects()
-                .export(
-                    bench.getWorkloadConfiguration().getDatabaseType(),
-                    bench.getProcedures().values());
-        LOG.debug(xml);
-        System.exit(0);
-      }
-      throw new RuntimeException("No StatementDialects is available for " + bench);
+  /**
+   * Parse the {@code <profile>} of a work block. The profile starts from the phase's rate, and a
+   * ramp spans the whole phase unless it has its own {@code over} time.
+   *
+   * @see LoadProfile
+   */
+  private static LoadProfile parseLoadProfile(
+      HierarchicalConfiguration<ImmutableNode> work, double rate, int time) {
+    LoadProfile.Type type = LoadProfile.Type.get(work.getString("profile/@type"));
+    return switch (type) {
+      case CONSTANT -> LoadProfile.constant(rate);
+      case RAMP ->
+          LoadProfile.ramp(
+              rate, work.getDouble("profile/@to"), work.getDouble("profile/@over", time));
+      case STEP ->
+          LoadProfile.step(
+              rate, work.getDouble("profile/@increment"), work.getDouble("profile/@every"));
+      case SINE ->
+          LoadProfile.sine(
+              rate, work.getDouble("profile/@amplitude"), work.getDouble("profile/@period"));
+      case ONOFF ->
+          LoadProfile.onOff(
+              rate,
+              work.getDouble("profile/@burst"),
+              work.getDouble("profile/@on"),
+              work.getDouble("profile/@off"));
+    };
+  }
+
+  /**
+   * Parse the {@code <search>} of a work block. The search starts from the phase's rate.
+   *
+   * @see SaturationSearch
+   */
+  private static SaturationSearch parseSaturationSearch(
+      HierarchicalConfiguration<ImmutableNode> work, double rate) {
+    return new SaturationSearch(
+        rate,
+        work.getDouble("search/@percentile", 99),
+        work.getDouble("search/@slo"),
+        work.getDouble("search/@probe", 10),
+        work.getDouble("search/@settle", 2),
+        work.getDouble("search/@tolerance", 0.05));
+  }
+
+  /**
+   * Parse the {@code <faults>} of a work block.
+   *
+   * @see FaultProfile
+   */
+  private static FaultProfile parseFaultProfile(HierarchicalConfiguration<ImmutableNode> faults) {
+    List<FaultProfile.SqlError> errors = new ArrayList<>();
+    for (HierarchicalConfiguration<ImmutableNode> error : faults.configurationsAt("error")) {
+      errors.add(
+          new FaultProfile.SqlError(
+              error.getDouble("@probability"),
+              error.getString("@sqlState"),
+              error.getInt("@errorCode", 0)));
     }
+    return new FaultProfile(
+        faults.getLong("@seed", 0),
+        faults.getDouble("delay/@probability", 0),
+        Latency.parse(faults.getString("delay/@latency", "0")),
+        faults.getDouble("drop/@probability", 0),
+        faults.getDouble("readOnly/@probability", 0),
+        errors);
+  }
 
-    // Create the Benchmark's Database
-    if (isBooleanOptionSet(argsLine, "create")) {
-      try {
-        for (BenchmarkModule benchmark : benchList) {
-          LOG.info("Creating new {} database...", benchmark.getBenchmarkName().toUpperCase());
-          runCreator(benchmark);
-          LOG.info(
-              "Finished creating new {} database...", benchmark.getBenchmarkName().toUpperCase());
+  /**
+   * Parse the {@code <retry>} policy. Its rules are checked in the order they are given, before the
+   * defaults for the database type unless {@code defaults} is false.
+   *
+   * @see RetryPolicy
+   */
+  private static RetryPolicy parseRetryPolicy(
+      XMLConfiguration xmlConfig,
+      WorkloadConfiguration wrkld,
+      Map<String, Integer> maxRetriesByType) {
+    List<RetryPolicy.Rule> rules = new ArrayList<>();
+    for (HierarchicalConfiguration<ImmutableNode> element : xmlConfig.configurationsAt("retry/*")) {
+      RetryPolicy.Action action;
+      switch (element.getRootElementName()) {
+        case "retryable" -> action = RetryPolicy.Action.RETRY;
+        case "readOnly" -> action = RetryPolicy.Action.READ_ONLY;
+        case "fatal" -> action = RetryPolicy.Action.FAIL;
+        case "backoff", "reconnectBackoff", "budget" -> {
+          continue;
         }
-      } catch (Throwable ex) {
-        LOG.error("Unexpected error when creating benchmark database tables.", ex);
-        System.exit(1);
+        default ->
+            throw new IllegalArgumentException(
+                "Unknown element <" + element.getRootElementName() + ">");
       }
-    } else {
-      LOG.debug("Skipping creating benchmark database tables");
+      rules.add(
+          new RetryPolicy.Rule(
+              element.getString("@sqlState"),
+              element.containsKey("@errorCode") ? element.getInt("@errorCode") : null,
+              action));
     }
-
-    // Refresh the catalog.
-    for (BenchmarkModule benchmark : benchList) {
-      benchmark.refreshCatalog();
+    if (xmlConfig.getBoolean("retry/@defaults", true)) {
+      rules.addAll(RetryPolicy.defaultRules(wrkld.getDatabaseType()));
     }
 
-    // Clear the Benchmark's Database
-    if (isBooleanOptionSet(argsLine, "clear")) {
-      try {
-        for (BenchmarkModule benchmark : benchList) {
-          LOG.info("Clearing {} database...", benchmark.getBenchmarkName().toUpperCase());
-          benchmark.refreshCatalog();
-          benchmark.clearDatabase();
-          benchmark.refreshCatalog();
-          LOG.info("Finished clearing {} database...", benchmark.getBenchmarkName().toUpperCase());
-        }
-      } catch (Throwable ex) {
-        LOG.error("Unexpected error when clearing benchmark database tables.", ex);
-        System.exit(1);
-      }
-    } else {
-      LOG.debug("Skipping clearing benchmark database tables");
+    RetryPolicy.Backoff backoff = RetryPolicy.Backoff.NONE;
+    if (xmlConfig.containsKey("retry/backoff/@base")
+        || xmlConfig.containsKey("retry/backoff/@cap")) {
+      backoff =
+          new RetryPolicy.Backoff(
+              xmlConfig.getLong("retry/backoff/@base"), xmlConfig.getLong("retry/backoff/@cap"));
     }
+    RetryPolicy.Backoff reconnectBackoff =
+        new RetryPolicy.Backoff(
+            xmlConfig.getLong("retry/reconnectBackoff/@base", 1000),
+            xmlConfig.getLong("retry/reconnectBackoff/@cap", 5000));
+
+    return new RetryPolicy(
+        rules,
+        backoff,
+        reconnectBackoff,
+        wrkld.getMaxRetries(),
+        maxRetriesByType,
+        xmlConfig.getDouble("retry/budget/@ratio", -1),
+        xmlConfig.getLong("retry/budget/@minimum", 0));
+  }
 
-    // Execute Loader
-    if (isBooleanOptionSet(argsLine, "load")) {
-      try {
-        for (BenchmarkModule benchmark : benchList) {
-          LOG.info("Loading data into {} database...", benchmark.getBenchmarkName().toUpperCase());
-          runLoader(benchmark);
-          LOG.info(
-              "Finished loading data into {} database...",
-              benchmark.getBenchmarkName().toUpperCase());
-        }
-      } catch (Throwable ex) {
-        LOG.error("Unexpected error when loading benchmark database records.", ex);
-        System.exit(1);
+  private static MonitorInfo buildMonitorInfo(CommandLine argsLine) throws ParseException {
+    // Monitoring setup.
+    ImmutableMonitorInfo.Builder builder = ImmutableMonitorInfo.builder();
+    if (argsLine.hasOption("im")) {
+      builder.monitoringInterval(Integer.parseInt(argsLine.getOptionValue("im")));
+      // Named like the other outputs, but from the start of the run
+      if (argsLine.hasOption("b")) {
+        String name = StringUtils.join(StringUtils.split(argsLine.getOptionValue("b"), ','), '-');
+        builder.intervalFile(
+            FileUtil.joinPath(
+                argsLine.getOptionValue("d", "results"),
+                name + "_" + TimeUtil.getCurrentTimeString() + ".intervals.csv"));
       }
-
-    } else {
-      LOG.debug("Skipping loading benchmark database records");
     }
-
-    // Anonymize Datasets
-    // Currently, the system only parses the config but does not run any anonymization!
-    // Will be added in the future
-    if (isBooleanOptionSet(argsLine, "anonymize")) {
-      try {
-        if (xmlConfig.configurationsAt("/anonymization/table").size() > 0) {
-          applyAnonymization(xmlConfig, configFile);
-        }
-      } catch (Throwable ex) {
-        LOG.error("Unexpected error when anonymizing datasets", ex);
-        System.exit(1);
+    if (argsLine.hasOption("metrics-port")) {
+      if (!argsLine.hasOption("im")) {
+        throw new ParseException("--metrics-port requires a monitoring interval (-im)");
       }
+      builder.metricsPort(Integer.parseInt(argsLine.getOptionValue("metrics-port")));
     }
-
-    // Execute Workload
-    if (isBooleanOptionSet(argsLine, "execute")) {
-      // Bombs away!
-      try {
-        Results r = runWorkload(benchList, monitorInfo);
-        writeOutputs(r, activeTXTypes, argsLine, xmlConfig);
-        writeHistograms(r);
-
-        if (argsLine.hasOption("json-histograms")) {
-          String histogram_json = writeJSONHistograms(r);
-          String fileName = argsLine.getOptionValue("json-histograms");
-          FileUtil.writeStringToFile(new File(fileName), histogram_json);
-          LOG.info("Histograms JSON Data: " + fileName);
-        }
-
-        if (r.getState() == State.ERROR) {
-          throw new RuntimeException(
-              "Errors encountered during benchmark execution. See output above for details.");
-        }
-      } catch (Throwable ex) {
-        LOG.error("Unexpected error when executing benchmarks.", ex);
-        System.exit(1);
+    if (argsLine.hasOption("mt")) {
+      switch (argsLine.getOptionValue("mt")) {
+        case "advanced":
+          builder.monitoringType(MonitorInfo.MonitoringType.ADVANCED);
+          break;
+        case "throughput":
+          builder.monitoringType(MonitorInfo.MonitoringType.THROUGHPUT);
+          break;
+        default:
+          throw new ParseException(
+              "Monitoring type '"
+                  + argsLine.getOptionValue("mt")
+                  + "' is undefined, allowed values are: advanced/throughput");
       }
-
-    } else {
-      LOG.info("Skipping benchmark workload execution");
     }
+    MonitorInfo monitorInfo = builder.build();
+    return monitorInfo;
   }
 
   private static Options buildOptions(XMLConfiguration pluginConfig) {
@@ -604,6 +874,11 @@ public class DBWorkload {
     options.addOption("s", "sample", true, "Sampling window");
     options.addOption("im", "interval-monitor", true, "Monitoring Interval in milliseconds");
     options.addOption("mt", "monitor-type", true, "Type of Monitoring (throughput/advanced)");
+    options.addOption(
+        null,
+        "metrics-port",
+        true,
+        "Serve live metrics in the Prometheus text format on this port (requires -im)");
     options.addOption(
         "d",
         "directory",
@@ -611,6 +886,19 @@ public class DBWorkload {
         "Base directory for the result files, default is current directory");
     options.addOption(null, "dialects-export", true, "Export benchmark SQL to a dialects file");
     options.addOption("jh", "json-histograms", true, "Export histograms to JSON file");
+    options.addOption(
+        null,
+        "coordinator",
+        true,
+        "Run the workload on agents that connect to this port instead of in this process");
+    options.addOption(
+        null, "agents", true, "Number of agents the coordinator waits for (default 1)");
+    options.addOption(
+        null,
+        "agent",
+        true,
+        "Run as an agent of the coordinator at host:port; the benchmark and its configuration"
+            + " come from the coordinator");
     return options;
   }
 
@@ -661,6 +949,23 @@ public class DBWorkload {
         .append(r.getUnknown())
         .append("\n\n");
 
+    if (r.getFaultStatistics() != null) {
+      sb.append(StringUtil.bold("Injected Faults (Server Retry):"))
+          .append("\n")
+          .append(r.getInjectedFaults(TransactionStatus.RETRY))
+          .append("\n\n");
+
+      sb.append(StringUtil.bold("Injected Faults (Retry Different):"))
+          .append("\n")
+          .append(r.getInjectedFaults(TransactionStatus.RETRY_DIFFERENT))
+          .append("\n\n");
+
+      sb.append(StringUtil.bold("Injected Faults (Unexpected SQL Errors):"))
+          .append("\n")
+          .append(r.getInjectedFaults(TransactionStatus.ERROR))
+          .append("\n\n");
+    }
+
     if (!r.getAbortMessages().isEmpty()) {
       sb.append("\n\n")
           .append(StringUtil.bold("User Aborts:"))
@@ -715,9 +1020,13 @@ public class DBWorkload {
     int windowSize = Integer.parseInt(argsLine.getOptionValue("s", "5"));
 
     String rawFileName = baseFileName + ".raw.csv";
-    try (PrintStream ps = new PrintStream(FileUtil.joinPath(outputDirectory, rawFileName))) {
-      LOG.info("Output Raw data into file: {}", rawFileName);
-      rw.writeRaw(activeTXTypes, ps);
+    if (!r.hasSamples()) {
+      LOG.info("Not writing {}: latencies were recorded as histograms", rawFileName);
+    } else {
+      try (PrintStream ps = new PrintStream(FileUtil.joinPath(outputDirectory, rawFileName))) {
+        LOG.info("Output Raw data into file: {}", rawFileName);
+        rw.writeRaw(activeTXTypes, ps);
+      }
     }
 
     String sampleFileName = baseFileName + ".samples.csv";
@@ -726,12 +1035,29 @@ public class DBWorkload {
       rw.writeSamples(ps);
     }
 
+    if (r.getStatementStatistics() != null) {
+      String statementsFileName = baseFileName + ".statements.csv";
+      try (PrintStream ps =
+          new PrintStream(FileUtil.joinPath(outputDirectory, statementsFileName))) {
+        LOG.info("Output statement statistics into file: {}", statementsFileName);
+        rw.writeStatements(ps);
+      }
+    }
+
     String summaryFileName = baseFileName + ".summary.json";
     try (PrintStream ps = new PrintStream(FileUtil.joinPath(outputDirectory, summaryFileName))) {
       LOG.info("Output summary data into file: {}", summaryFileName);
       rw.writeSummary(ps);
     }
 
+    if (!r.getSearchedPhases().isEmpty()) {
+      String searchFileName = baseFileName + ".saturation.json";
+      try (PrintStream ps = new PrintStream(FileUtil.joinPath(outputDirectory, searchFileName))) {
+        LOG.info("Output saturation search into file: {}", searchFileName);
+        rw.writeSaturationSearches(ps);
+      }
+    }
+
     String paramsFileName = baseFileName + ".params.json";
     try (PrintStream ps = new PrintStream(FileUtil.joinPath(outputDirectory, paramsFileName))) {
       LOG.info("Output DBMS parameters into file: {}", paramsFileName);
@@ -758,6 +1084,24 @@ public class DBWorkload {
       rw.writeResults(windowSize, ps);
     }
 
+    String responseTimesFileName = baseFileName + ".responsetimes.csv";
+    try (PrintStream ps =
+        new PrintStream(FileUtil.joinPath(outputDirectory, responseTimesFileName))) {
+      LOG.info(
+          "Output response times into file: {} with window size {}",
+          responseTimesFileName,
+          windowSize);
+      rw.writeResponseTimes(windowSize, ps);
+    }
+
+    if (r.getOfferedLoad() != null && r.getOfferedLoad().isRateLimited()) {
+      String ratesFileName = baseFileName + ".rates.csv";
+      try (PrintStream ps = new PrintStream(FileUtil.joinPath(outputDirectory, ratesFileName))) {
+        LOG.info("Output results by offered load into file: {}", ratesFileName);
+        rw.writeOfferedLoad(ps);
+      }
+    }
+
     for (TransactionType t : activeTXTypes) {
       String fileName = baseFileName + ".results." + t.getName() + ".csv";
       try (PrintStream ps = new PrintStream(FileUtil.joinPath(outputDirectory, fileName))) {
@@ -779,6 +1123,15 @@ public class DBWorkload {
 
   private static Results runWorkload(List<BenchmarkModule> benchList, MonitorInfo monitorInfo)
       throws IOException {
+    return runWorkload(benchList, monitorInfo, null);
+  }
+
+  /**
+   * @param phaseSync if not null, tells ThreadBench when to start, end the warmup and switch phases
+   */
+  public static Results runWorkload(
+      List<BenchmarkModule> benchList, MonitorInfo monitorInfo, PhaseSync phaseSync)
+      throws IOException {
     List<Worker<?>> workers = new ArrayList<>();
     List<WorkloadConfiguration> workConfs = new ArrayList<>();
     for (BenchmarkModule bench : benchList) {
@@ -792,12 +1145,32 @@ public class DBWorkload {
               bench.getBenchmarkName().toUpperCase(), num_phases, (num_phases > 1 ? "s" : "")));
       workConfs.add(bench.getWorkloadConfiguration());
     }
-    Results r = ThreadBench.runRateLimitedBenchmark(workers, workConfs, monitorInfo);
+    Results r = ThreadBench.runRateLimitedBenchmark(workers, workConfs, monitorInfo, phaseSync);
+    for (BenchmarkModule bench : benchList) {
+      bench.getConnectionManager().close();
+    }
     LOG.info(SINGLE_LINE);
     LOG.info("Rate limited reqs/s: {}", r);
     return r;
   }
 
+  private static Results runCoordinator(
+      CommandLine argsLine, List<BenchmarkModule> benchList, XMLConfiguration xmlConfig)
+      throws IOException, InterruptedException {
+    List<WorkloadConfiguration> workConfs = new ArrayList<>();
+    for (BenchmarkModule bench : benchList) {
+      workConfs.add(bench.getWorkloadConfiguration());
+    }
+    int port = Integer.parseInt(argsLine.getOptionValue("coordinator"));
+    int numAgents = Integer.parseInt(argsLine.getOptionValue("agents", "1"));
+    try (Coordinator coordinator = new Coordinator(port, numAgents)) {
+      Results r = coordinator.run(argsLine.getOptionValue("b"), xmlConfig, workConfs);
+      LOG.info(SINGLE_LINE);
+      LOG.info("Rate limited reqs/s across {} agents: {}", numAgents, r);
+      return r;
+    }
+  }
+
   private static void printUsage(Options options) {
     HelpFormatter hlpfrmt = new HelpFormatter();
     hlpfrmt.printHelp("benchbase", options);
@@ -94,6 +94,21 @@ public class DistributionStatistics {
         valuesAsMicroseconds.length, percentiles, average, standardDeviation);
   }
 
+  /** Computes distribution statistics over the values counted by a histogram. */
+  public static DistributionStatistics computeStatistics(LatencyHistogram histogram) {
+    long count = histogram.getCount();
+    long[] percentiles = new long[PERCENTILES.length];
+    for (int i = 0; i < percentiles.length; ++i) {
+      // Same rank as computeStatistics(int[]) selects
+      percentiles[i] = histogram.getValueAtRank((long) (PERCENTILES[i] * count));
+    }
+    return new DistributionStatistics(
+        (int) Math.min(count, Integer.MAX_VALUE),
+        percentiles,
+        histogram.getAverage(),
+        histogram.getStandardDeviation());
+  }
+
   public int getCount() {
     return count;
   }
@@ -170,16 +185,23 @@ public class DistributionStatistics {
   }
 
   public Map<String, Integer> toMap() {
+    return toMap("Latency");
+  }
+
+  /**
+   * @param metric the name of the measured quantity to use in the keys, e.g. "Response Time"
+   */
+  public Map<String, Integer> toMap(String metric) {
     Map<String, Integer> distMap = new LinkedHashMap<>();
-    distMap.put("Minimum Latency (microseconds)", (int) getMinimum());
-    distMap.put("25th Percentile Latency (microseconds)", (int) get25thPercentile());
-    distMap.put("Median Latency (microseconds)", (int) getMedian());
-    distMap.put("Average Latency (microseconds)", (int) getAverage());
-    distMap.put("75th Percentile Latency (microseconds)", (int) get75thPercentile());
-    distMap.put("90th Percentile Latency (microseconds)", (int) get90thPercentile());
-    distMap.put("95th Percentile Latency (microseconds)", (int) get95thPercentile());
-    distMap.put("99th Percentile Latency (microseconds)", (int) get99thPercentile());
-    distMap.put("Maximum Latency (microseconds)", (int) getMaximum());
+    distMap.put("Minimum " + metric + " (microseconds)", (int) getMinimum());
+    distMap.put("25th Percentile " + metric + " (microseconds)", (int) get25thPercentile());
+    distMap.put("Median " + metric + " (microseconds)", (int) getMedian());
+    distMap.put("Average " + metric + " (microseconds)", (int) getAverage());
+    distMap.put("75th Percentile " + metric + " (microseconds)", (int) get75thPercentile());
+    distMap.put("90th Percentile " + metric + " (microseconds)", (int) get90thPercentile());
+    distMap.put("95th Percentile " + metric + " (microseconds)", (int) get95thPercentile());
+    distMap.put("99th Percentile " + metric + " (microseconds)", (int) get99thPercentile());
+    distMap.put("Maximum " + metric + " (microseconds)", (int) getMaximum());
     return distMap;
   }
 }
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A log-linear histogram of latencies in microseconds, with the same buckets as {@link
+ * LiveHistogram}: values below 32 are counted exactly and larger values to within 1/32 of their
+ * magnitude. Unlike a LiveHistogram it only keeps counters for the range of buckets it has seen, so
+ * that thousands of them stay small. The count, minimum, maximum and average are exact.
+ *
+ * <p>Not thread-safe.
+ */
+public final class LatencyHistogram {
+  private static final long[] EMPTY = new long[0];
+
+  // counts[i] is the count of bucket offset + i
+  private long[] counts = EMPTY;
+  private int offset = 0;
+  private long count = 0;
+  private long sum = 0;
+  private double sumOfSquares = 0;
+  private int minimum = Integer.MAX_VALUE;
+  private int maximum = Integer.MIN_VALUE;
+
+  /** Count one value; negative values are counted as zero. */
+  public void record(int value) {
+    value = Math.max(0, value);
+    int index = LiveHistogram.index(value);
+    cover(index, index);
+    counts[index - offset]++;
+    count++;
+    sum += value;
+    sumOfSquares += (double) value * value;
+    minimum = Math.min(minimum, value);
+    maximum = Math.max(maximum, value);
+  }
+
+  /** Add everything counted by another histogram to this one. */
+  public void add(LatencyHistogram other) {
+    if (other.count == 0) {
+      return;
+    }
+    cover(other.offset, other.offset + other.counts.length - 1);
+    for (int i = 0; i < other.counts.length; i++) {
+      counts[other.offset + i - offset] += other.counts[i];
+    }
+    count += other.count;
+    sum += other.sum;
+    sumOfSquares += other.sumOfSquares;
+    minimum = Math.min(minimum, other.minimum);
+    maximum = Math.max(maximum, other.maximum);
+  }
+
+  /** Grow the counters to cover buckets low to high. Growing upwards leaves some room to spare. */
+  private void cover(int low, int high) {
+    if (counts.length == 0) {
+      counts = new long[8];
+      offset = low;
+    }
+    if (low >= offset && high < offset + counts.length) {
+      return;
+    }
+    int newOffset = Math.min(low, offset);
+    int end = offset + counts.length;
+    int newEnd = end;
+    if (high >= end) {
+      newEnd = Math.max(high + 1, Math.min(offset + counts.length * 2, LiveHistogram.NUM_BUCKETS));
+    }
+    long[] newCounts = new long[newEnd - newOffset];
+    System.arraycopy(counts, 0, newCounts, offset - newOffset, counts.length);
+    counts = newCounts;
+    offset = newOffset;
+  }
+
+  /** Write the histogram so that {@link #read} can restore it exactly. */
+  public void write(DataOutput out) throws IOException {
+    trim();
+    out.writeLong(count);
+    if (count == 0) {
+      return;
+    }
+    out.writeInt(offset);
+    out.writeInt(counts.length);
+    for (long c : counts) {
+      out.writeLong(c);
+    }
+    out.writeLong(sum);
+    out.writeDouble(sumOfSquares);
+    out.writeInt(minimum);
+    out.writeInt(maximum);
+  }
+
+  /** Read a histogram written by {@link #write}. */
+  public static LatencyHistogram read(DataInput in) throws IOException {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.count = in.readLong();
+    if (histogram.count == 0) {
+      return histogram;
+    }
+    histogram.offset = in.readInt();
+    histogram.counts = new long[in.readInt()];
+    for (int i = 0; i < histogram.counts.length; i++) {
+      histogram.counts[i] = in.readLong();
+    }
+    histogram.sum = in.readLong();
+    histogram.sumOfSquares = in.readDouble();
+    histogram.minimum = in.readInt();
+    histogram.maximum = in.readInt();
+    return histogram;
+  }
+
+  /** Drop the counters that were reserved but never used. */
+  public void trim() {
+    int first = 0;
+    while (first < counts.length && counts[first] == 0) {
+      first++;
+    }
+    if (first == counts.length) {
+      counts = EMPTY;
+      offset = 0;
+      return;
+    }
+    int last = counts.length - 1;
+    while (counts[last] == 0) {
+      last--;
+    }
+    counts = Arrays.copyOfRange(counts, first, last + 1);
+    offset += first;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public int getMinimum() {
+    return count == 0 ? -1 : minimum;
+  }
+
+  public int getMaximum() {
+    return count == 0 ? -1 : maximum;
+  }
+
+  public double getAverage() {
+    return count == 0 ? -1 : (double) sum / count;
+  }
+
+  /** Returns the sample standard deviation, or -1 if nothing was counted. */
+  public double getStandardDeviation() {
+    if (count == 0) {
+      return -1;
+    }
+    if (count == 1) {
+      return 0;
+    }
+    double average = (double) sum / count;
+    return Math.sqrt(Math.max(0, (sumOfSquares - average * sum) / (count - 1)));
+  }
+
+  /**
+   * Returns the value with the given rank (0 is the smallest), or -1 if nothing was counted. The
+   * smallest and largest values are exact; the others are rounded up to the top of their bucket.
+   */
+  public long getValueAtRank(long rank) {
+    if (count == 0) {
+      return -1;
+    }
+    if (rank <= 0) {
+      return minimum;
+    }
+    if (rank >= count - 1) {
+      return maximum;
+    }
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen > rank) {
+        return Math.min(maximum, LiveHistogram.highestValue(offset + i));
+      }
+    }
+    return maximum;
+  }
+}
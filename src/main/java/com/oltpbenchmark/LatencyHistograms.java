@@ -0,0 +1,332 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark;
+
+import com.oltpbenchmark.api.TransactionType;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latency, response time and retry wait histograms per time window and transaction type, as an
+ * alternative to keeping every sample. The memory used grows with the number of windows in the run,
+ * but not with the number of requests, and all end-of-run statistics can be computed by merging
+ * histograms.
+ *
+ * <p>Each worker records into its own instance, which holds the window it is currently in. When it
+ * moves on to a later window, what it has recorded is moved into a shared instance for the whole
+ * workload. Windows are counted from the start of the test, and a sample belongs to the window in
+ * which it started.
+ */
+public final class LatencyHistograms {
+  // Types with ids below this are looked up in an array while recording
+  private static final int MAX_INDEXED_TYPE = 1024;
+
+  private final long originNanosecond;
+  private final int windowSeconds;
+  private final long windowNanoseconds;
+  private final LatencyHistograms sink;
+
+  private final TreeMap<Key, Window> windows = new TreeMap<>();
+  private long count = 0;
+
+  // The window the owning worker records into, and its histograms by transaction type
+  private long currentWindow = Long.MIN_VALUE;
+  private Window[] currentByType = new Window[0];
+
+  /**
+   * @param originNanosecond the start of the first window
+   * @param windowSeconds the length of a window
+   */
+  public LatencyHistograms(long originNanosecond, int windowSeconds) {
+    this(originNanosecond, windowSeconds, null);
+  }
+
+  /**
+   * @param sink where to move the recorded histograms whenever a sample falls into a later window,
+   *     or null to keep them here
+   */
+  public LatencyHistograms(long originNanosecond, int windowSeconds, LatencyHistograms sink) {
+    if (windowSeconds <= 0) {
+      throw new IllegalArgumentException("windowSeconds must be positive: " + windowSeconds);
+    }
+    this.originNanosecond = originNanosecond;
+    this.windowSeconds = windowSeconds;
+    this.windowNanoseconds = windowSeconds * 1000000000L;
+    this.sink = sink;
+  }
+
+  public int getWindowSeconds() {
+    return windowSeconds;
+  }
+
+  /** Returns the number of samples recorded. */
+  public synchronized long getCount() {
+    return count;
+  }
+
+  public void record(
+      int transType, long startNanosecond, long endNanosecond, long queueDelayNanosecond) {
+    record(transType, startNanosecond, endNanosecond, queueDelayNanosecond, 0);
+  }
+
+  /**
+   * Record one sample, with the same arguments as {@link LatencyRecord#addLatency(int, long, long,
+   * int, int, long, long)} but for the worker and phase, which are not kept.
+   */
+  public void record(
+      int transType,
+      long startNanosecond,
+      long endNanosecond,
+      long queueDelayNanosecond,
+      long retryWaitNanosecond) {
+    long window = Math.floorDiv(startNanosecond - originNanosecond, windowNanoseconds);
+    if (window != currentWindow) {
+      if (sink != null) {
+        flush();
+      }
+      currentWindow = window;
+      Arrays.fill(currentByType, null);
+    }
+
+    Window w;
+    if (transType >= 0 && transType < MAX_INDEXED_TYPE) {
+      if (transType >= currentByType.length) {
+        currentByType = Arrays.copyOf(currentByType, transType + 1);
+      }
+      w = currentByType[transType];
+      if (w == null) {
+        w = windows.computeIfAbsent(new Key(window, transType), k -> new Window());
+        currentByType[transType] = w;
+      }
+    } else {
+      w = windows.computeIfAbsent(new Key(window, transType), k -> new Window());
+    }
+
+    long latencyNanoseconds = endNanosecond - startNanosecond;
+    int latencyMicroseconds = (int) ((latencyNanoseconds + 500) / 1000);
+    int queueDelayMicroseconds = (int) ((queueDelayNanosecond + 500) / 1000);
+    w.latencies.record(latencyMicroseconds);
+    w.responseTimes.record(queueDelayMicroseconds + latencyMicroseconds);
+    w.retryWaits.record((int) ((retryWaitNanosecond + 500) / 1000));
+    count++;
+  }
+
+  /** Move everything recorded here into the sink. */
+  public void flush() {
+    if (sink == null || windows.isEmpty()) {
+      return;
+    }
+    sink.add(this);
+    windows.clear();
+    count = 0;
+    Arrays.fill(currentByType, null);
+  }
+
+  /** Add the histograms of another instance with the same windows to this one. */
+  public synchronized void add(LatencyHistograms other) {
+    if (other.originNanosecond != originNanosecond || other.windowSeconds != windowSeconds) {
+      throw new IllegalArgumentException("Cannot add latency histograms with different windows");
+    }
+    for (Map.Entry<Key, Window> e : other.windows.entrySet()) {
+      Window w = windows.get(e.getKey());
+      if (w == null) {
+        w = new Window();
+        windows.put(e.getKey(), w);
+      }
+      w.add(e.getValue());
+      w.latencies.trim();
+      w.responseTimes.trim();
+      w.retryWaits.trim();
+    }
+    count += other.count;
+  }
+
+  /**
+   * Write the histograms for {@link #readAndMerge}, with the windows numbered from the given origin
+   * instead of this instance's, so that histograms recorded with different clocks can be lined up
+   * on a common event. Each window moves to the first window from the new origin that does not
+   * start before it, so that samples taken after the origin stay after it.
+   */
+  public synchronized void write(DataOutput out, long originNanosecond) throws IOException {
+    long shift = this.originNanosecond - originNanosecond;
+    out.writeInt(windowSeconds);
+    out.writeLong(count);
+    out.writeInt(windows.size());
+    for (Map.Entry<Key, Window> e : windows.entrySet()) {
+      long startNanosecond = e.getKey().window * windowNanoseconds + shift;
+      out.writeLong(Math.floorDiv(startNanosecond + windowNanoseconds - 1, windowNanoseconds));
+      out.writeInt(e.getKey().transactionType);
+      e.getValue().latencies.write(out);
+      e.getValue().responseTimes.write(out);
+      e.getValue().retryWaits.write(out);
+    }
+  }
+
+  /**
+   * Add histograms written by {@link #write} to this instance, numbering windows from its origin.
+   */
+  public synchronized void readAndMerge(DataInput in) throws IOException {
+    int otherWindowSeconds = in.readInt();
+    if (otherWindowSeconds != windowSeconds) {
+      throw new IOException(
+          "Cannot merge latency histograms with windows of "
+              + otherWindowSeconds
+              + " seconds into windows of "
+              + windowSeconds);
+    }
+    count += in.readLong();
+    int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      Key key = new Key(in.readLong(), in.readInt());
+      Window w = windows.computeIfAbsent(key, k -> new Window());
+      w.latencies.add(LatencyHistogram.read(in));
+      w.responseTimes.add(LatencyHistogram.read(in));
+      w.retryWaits.add(LatencyHistogram.read(in));
+    }
+  }
+
+  /** Returns the statistics over every sample. */
+  public synchronized DistributionStatistics getStatistics(boolean responseTimes) {
+    LatencyHistogram total = new LatencyHistogram();
+    for (Window w : windows.values()) {
+      total.add(responseTimes ? w.responseTimes : w.latencies);
+    }
+    return DistributionStatistics.computeStatistics(total);
+  }
+
+  /** Returns the statistics of the retry waits of every sample, including those that had none. */
+  public synchronized DistributionStatistics getRetryWaitStatistics() {
+    LatencyHistogram total = new LatencyHistogram();
+    for (Window w : windows.values()) {
+      total.add(w.retryWaits);
+    }
+    return DistributionStatistics.computeStatistics(total);
+  }
+
+  /**
+   * Returns the length of the windows that {@link #getWindowStatistics} reports for a requested
+   * length: the nearest whole number of windows, but at least one.
+   */
+  public int getReportedWindowSeconds(int requestedSeconds) {
+    return Math.max(1, Math.round((float) requestedSeconds / windowSeconds)) * windowSeconds;
+  }
+
+  /**
+   * Returns the statistics per reporting window, from the first window with a sample to the last.
+   * Windows in which the given type did not run are included with a count of zero.
+   *
+   * @param reportSeconds the length of a reporting window, see {@link #getReportedWindowSeconds}
+   * @param transactionType the type to report, or INVALID for every type
+   * @param responseTimes report response times instead of latencies
+   */
+  public synchronized List<DistributionStatistics> getWindowStatistics(
+      int reportSeconds, TransactionType transactionType, boolean responseTimes) {
+    List<DistributionStatistics> stats = new ArrayList<>();
+    if (windows.isEmpty()) {
+      return stats;
+    }
+    long windowsPerReport = getReportedWindowSeconds(reportSeconds) / windowSeconds;
+    long first = windows.firstKey().window;
+    long last = windows.lastKey().window;
+    for (long start = first; start <= last; start += windowsPerReport) {
+      LatencyHistogram merged = new LatencyHistogram();
+      Key from = new Key(start, Integer.MIN_VALUE);
+      Key to = new Key(start + windowsPerReport, Integer.MIN_VALUE);
+      for (Map.Entry<Key, Window> e : windows.subMap(from, to).entrySet()) {
+        if (transactionType.equals(TransactionType.INVALID)
+            || transactionType.getId() == e.getKey().transactionType) {
+          Window w = e.getValue();
+          merged.add(responseTimes ? w.responseTimes : w.latencies);
+        }
+      }
+      stats.add(DistributionStatistics.computeStatistics(merged));
+    }
+    return stats;
+  }
+
+  /** Returns the histograms of every transaction type together, by the start of their window. */
+  public synchronized Map<Long, Window> getWindowsByStart() {
+    Map<Long, Window> byStart = new TreeMap<>();
+    for (Map.Entry<Key, Window> e : windows.entrySet()) {
+      long startNanosecond = originNanosecond + e.getKey().window * windowNanoseconds;
+      byStart.computeIfAbsent(startNanosecond, k -> new Window()).add(e.getValue());
+    }
+    return byStart;
+  }
+
+  /** The latency, response time and retry wait histograms of one window. */
+  public static final class Window {
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LatencyHistogram responseTimes = new LatencyHistogram();
+    private final LatencyHistogram retryWaits = new LatencyHistogram();
+
+    public LatencyHistogram getLatencies() {
+      return latencies;
+    }
+
+    public LatencyHistogram getResponseTimes() {
+      return responseTimes;
+    }
+
+    public LatencyHistogram getRetryWaits() {
+      return retryWaits;
+    }
+
+    /** Add the histograms of another window to this one. */
+    public void add(Window other) {
+      latencies.add(other.latencies);
+      responseTimes.add(other.responseTimes);
+      retryWaits.add(other.retryWaits);
+    }
+  }
+
+  private static final class Key implements Comparable<Key> {
+    private final long window;
+    private final int transactionType;
+
+    private Key(long window, int transactionType) {
+      this.window = window;
+      this.transactionType = transactionType;
+    }
+
+    @Override
+    public int compareTo(Key other) {
+      int c = Long.compare(window, other.window);
+      if (c == 0) {
+        c = Integer.compare(transactionType, other.transactionType);
+      }
+      return c;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key && compareTo((Key) o) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(window) * 31 + transactionType;
+    }
+  }
+}
@@ -18,72 +18,357 @@
 package com.oltpbenchmark;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
-/** Efficiently stores a record of (start time, latency) pairs. */
+/**
+ * Efficiently stores a record of (start time, latency) pairs.
+ *
+ * <p>Samples are kept in columns of primitive arrays rather than as one object per transaction, so
+ * a long run at a high rate neither fills the heap with small objects nor makes the garbage
+ * collector pause in the middle of the measurement. Use {@link #cursor()} to read them back without
+ * allocating; {@link #iterator()} builds a {@link Sample} for every sample it returns.
+ *
+ * <p>A record can instead write its samples through to a {@link SampleLog}, which keeps them in
+ * memory-mapped files rather than on the heap.
+ */
 public class LatencyRecord implements Iterable<LatencyRecord.Sample> {
   /** Allocate space for 500k samples at a time */
   static final int ALLOC_SIZE = 500000;
 
   /**
-   * Contains (start time, latency, transactionType, workerid, phaseid) pentiplets in microsecond
-   * form. The start times are "compressed" by encoding them as increments, starting from startNs. A
-   * 32-bit integer provides sufficient resolution for an interval of 2146 seconds, or 35 minutes.
+   * The first chunks are smaller and double in size up to ALLOC_SIZE, so that thousands of mostly
+   * idle terminals do not each reserve space for 500k samples up front.
    */
-  private final ArrayList<Sample[]> values = new ArrayList<>();
+  static final int INITIAL_ALLOC_SIZE = 1024;
 
+  /** Marks a start time increment that does not fit in an int; it is kept in longDeltas instead. */
+  private static final int LONG_DELTA = Integer.MIN_VALUE;
+
+  /**
+   * Contains (start time, latency, transactionType, workerid, phaseid, queue delay, retry wait)
+   * columns. The start times are "compressed" by encoding them as increments, starting from
+   * startNanosecond, in microseconds unless nanosecond precision was asked for. An increment that
+   * does not fit in 32 bits (more than 35 minutes, or 2 seconds at nanosecond precision) is stored
+   * separately.
+   */
+  private final ArrayList<Chunk> chunks = new ArrayList<>();
+
+  private Chunk chunk;
   private int nextIndex;
+  private int size;
+  private long[] longDeltas = new long[0];
+  private int numLongDeltas;
 
   private final long startNanosecond;
   private long lastNanosecond;
+  private final boolean nanosecondPrecision;
+  private final long startUnitNanoseconds;
+  private final SampleLog log;
 
   public LatencyRecord(long startNanosecond) {
+    this(startNanosecond, false);
+  }
+
+  /**
+   * @param nanosecondPrecision if true, keep start times and latencies to the nanosecond rather
+   *     than rounding them to microseconds, at the cost of two more bytes per sample
+   */
+  public LatencyRecord(long startNanosecond, boolean nanosecondPrecision) {
+    this(startNanosecond, nanosecondPrecision, null);
+  }
+
+  /**
+   * @param log if not null, append the samples to this log instead of keeping them in memory. Start
+   *     times are then always kept to the nanosecond.
+   */
+  public LatencyRecord(long startNanosecond, boolean nanosecondPrecision, SampleLog log) {
     this.startNanosecond = startNanosecond;
     this.lastNanosecond = startNanosecond;
-    allocateChunk();
+    this.nanosecondPrecision = nanosecondPrecision;
+    this.startUnitNanoseconds = nanosecondPrecision ? 1 : 1000;
+    this.log = log;
+    if (log == null) {
+      allocateChunk();
+    }
   }
 
   public void addLatency(
       int transType, long startNanosecond, long endNanosecond, int workerId, int phaseId) {
+    addLatency(transType, startNanosecond, endNanosecond, workerId, phaseId, 0);
+  }
 
-    if (nextIndex == ALLOC_SIZE) {
-      allocateChunk();
+  /**
+   * @param queueDelayNanosecond how long the request waited between its scheduled arrival and
+   *     startNanosecond
+   */
+  public void addLatency(
+      int transType,
+      long startNanosecond,
+      long endNanosecond,
+      int workerId,
+      int phaseId,
+      long queueDelayNanosecond) {
+    addLatency(
+        transType, startNanosecond, endNanosecond, workerId, phaseId, queueDelayNanosecond, 0);
+  }
+
+  /**
+   * @param retryWaitNanosecond how much of the latency the worker spent sleeping between attempts
+   */
+  public void addLatency(
+      int transType,
+      long startNanosecond,
+      long endNanosecond,
+      int workerId,
+      int phaseId,
+      long queueDelayNanosecond,
+      long retryWaitNanosecond) {
+
+    if (log != null) {
+      long latencyNanoseconds = endNanosecond - startNanosecond;
+      int latencyMicroseconds = (int) ((latencyNanoseconds + 500) / 1000);
+      log.append(
+          transType,
+          startNanosecond,
+          latencyMicroseconds,
+          nanosecondPrecision ? (int) (latencyNanoseconds - latencyMicroseconds * 1000L) : 0,
+          workerId,
+          phaseId,
+          (int) ((queueDelayNanosecond + 500) / 1000),
+          (int) ((retryWaitNanosecond + 500) / 1000));
+      ++size;
+      return;
     }
-    Sample[] chunk = values.get(values.size() - 1);
 
-    long startOffsetNanosecond = (startNanosecond - lastNanosecond + 500);
+    if (nextIndex == chunk.capacity()) {
+      allocateChunk();
+    }
 
-    int latencyMicroseconds = (int) ((endNanosecond - startNanosecond + 500) / 1000);
+    // Round to the nearest unit, and keep lastNanosecond on the grid so errors do not add up
+    long startDelta =
+        Math.floorDiv(
+            startNanosecond - lastNanosecond + startUnitNanoseconds / 2, startUnitNanoseconds);
+    lastNanosecond += startDelta * startUnitNanoseconds;
+    if (startDelta >= 0 && startDelta <= Integer.MAX_VALUE) {
+      chunk.startDeltas[nextIndex] = (int) startDelta;
+    } else {
+      chunk.startDeltas[nextIndex] = LONG_DELTA;
+      if (numLongDeltas == longDeltas.length) {
+        longDeltas = Arrays.copyOf(longDeltas, Math.max(16, numLongDeltas * 2));
+      }
+      longDeltas[numLongDeltas++] = startDelta;
+    }
 
-    chunk[nextIndex] =
-        new Sample(transType, startOffsetNanosecond, latencyMicroseconds, workerId, phaseId);
+    long latencyNanoseconds = endNanosecond - startNanosecond;
+    int latencyMicroseconds = (int) ((latencyNanoseconds + 500) / 1000);
+    chunk.latencies[nextIndex] = latencyMicroseconds;
+    if (nanosecondPrecision) {
+      chunk.latencyRemainders[nextIndex] =
+          (short) (latencyNanoseconds - latencyMicroseconds * 1000L);
+    }
+    chunk.queueDelays[nextIndex] = (int) ((queueDelayNanosecond + 500) / 1000);
+    chunk.retryWaits[nextIndex] = (int) ((retryWaitNanosecond + 500) / 1000);
+    chunk.transactionTypes[nextIndex] = transType;
+    chunk.workerIds[nextIndex] = workerId;
+    chunk.phaseIds[nextIndex] = phaseId;
     ++nextIndex;
-
-    lastNanosecond += startOffsetNanosecond;
+    ++size;
   }
 
   private void allocateChunk() {
-    values.add(new Sample[ALLOC_SIZE]);
+    int capacity = chunk == null ? INITIAL_ALLOC_SIZE : Math.min(ALLOC_SIZE, chunk.capacity() * 2);
+    chunk = new Chunk(capacity, nanosecondPrecision);
+    chunks.add(chunk);
     nextIndex = 0;
   }
 
   /** Returns the number of recorded samples. */
   public int size() {
-    // Samples stored in full chunks
-    int samples = (values.size() - 1) * ALLOC_SIZE;
+    return size;
+  }
+
+  public boolean hasNanosecondPrecision() {
+    return nanosecondPrecision;
+  }
+
+  /** Returns the log the samples are written to, or null if they are kept in memory. */
+  public SampleLog getSampleLog() {
+    return log;
+  }
+
+  /** Finish writing the samples to the log, if there is one. */
+  public void close() {
+    if (log != null) {
+      log.close();
+    }
+  }
 
-    // Samples stored in the last not full chunk
-    samples += nextIndex;
-    return samples;
+  /** Returns a cursor positioned before the first sample. */
+  public Cursor cursor() {
+    return new Cursor();
   }
 
-  /** Stores the start time and latency for a single sample. Immutable. */
+  /** One chunk of samples, stored column by column. */
+  private static final class Chunk {
+    private final int[] startDeltas;
+    private final int[] latencies;
+    private final int[] queueDelays;
+    private final int[] retryWaits;
+    private final int[] transactionTypes;
+    private final int[] workerIds;
+    private final int[] phaseIds;
+    // The latency minus its rounded microseconds, in nanoseconds; only at nanosecond precision
+    private final short[] latencyRemainders;
+
+    private Chunk(int capacity, boolean nanosecondPrecision) {
+      this.startDeltas = new int[capacity];
+      this.latencies = new int[capacity];
+      this.queueDelays = new int[capacity];
+      this.retryWaits = new int[capacity];
+      this.transactionTypes = new int[capacity];
+      this.workerIds = new int[capacity];
+      this.phaseIds = new int[capacity];
+      this.latencyRemainders = nanosecondPrecision ? new short[capacity] : null;
+    }
+
+    private int capacity() {
+      return startDeltas.length;
+    }
+  }
+
+  /**
+   * Reads the samples in the order they were recorded, one at a time, without allocating. The
+   * getters describe the current sample, which is the one the last call to {@link #next()} moved
+   * to. Samples added after the cursor was created are not seen.
+   */
+  public final class Cursor {
+    private final int end = size;
+    private int position = 0;
+    private int chunkIndex = 0;
+    private int index = -1;
+    private int longDeltaIndex = 0;
+    private Chunk current;
+    private long currentStartNanosecond = startNanosecond;
+    // With a log, each sample is read into a chunk of one
+    private final SampleLog.Reader reader;
+
+    private Cursor() {
+      if (log == null) {
+        current = chunks.get(0);
+        reader = null;
+      } else {
+        current = new Chunk(1, true);
+        reader = SampleLog.read(log.getSegments());
+      }
+    }
+
+    public boolean hasNext() {
+      return position < end;
+    }
+
+    /** Move to the next sample. Returns false if there is none. */
+    public boolean next() {
+      if (position == end) {
+        return false;
+      }
+      ++position;
+      if (reader != null) {
+        reader.next();
+        index = 0;
+        current.latencies[0] = reader.getLatencyMicrosecond();
+        current.latencyRemainders[0] = (short) reader.getLatencyRemainderNanosecond();
+        current.queueDelays[0] = reader.getQueueDelayMicrosecond();
+        current.retryWaits[0] = reader.getRetryWaitMicrosecond();
+        current.transactionTypes[0] = reader.getTransactionType();
+        current.workerIds[0] = reader.getWorkerId();
+        current.phaseIds[0] = reader.getPhaseId();
+        currentStartNanosecond = reader.getStartNanosecond();
+        return true;
+      }
+      ++index;
+      if (index == current.capacity()) {
+        current = chunks.get(++chunkIndex);
+        index = 0;
+      }
+      int delta = current.startDeltas[index];
+      long startDelta = delta == LONG_DELTA ? longDeltas[longDeltaIndex++] : delta;
+      currentStartNanosecond += startDelta * startUnitNanoseconds;
+      return true;
+    }
+
+    public int getTransactionType() {
+      return current.transactionTypes[index];
+    }
+
+    public long getStartNanosecond() {
+      return currentStartNanosecond;
+    }
+
+    public int getLatencyMicrosecond() {
+      return current.latencies[index];
+    }
+
+    /** Returns the latency in nanoseconds; rounded to microseconds unless recorded precisely. */
+    public long getLatencyNanosecond() {
+      return current.latencies[index] * 1000L + getLatencyRemainderNanosecond();
+    }
+
+    private int getLatencyRemainderNanosecond() {
+      return current.latencyRemainders == null ? 0 : current.latencyRemainders[index];
+    }
+
+    public int getWorkerId() {
+      return current.workerIds[index];
+    }
+
+    public int getPhaseId() {
+      return current.phaseIds[index];
+    }
+
+    public int getQueueDelayMicrosecond() {
+      return current.queueDelays[index];
+    }
+
+    /** Returns the response time: queue delay plus service time. */
+    public int getResponseTimeMicrosecond() {
+      return current.queueDelays[index] + current.latencies[index];
+    }
+
+    public int getRetryWaitMicrosecond() {
+      return current.retryWaits[index];
+    }
+
+    /** Returns a copy of the current sample. */
+    public Sample toSample() {
+      return new Sample(
+          getTransactionType(),
+          getStartNanosecond(),
+          getLatencyMicrosecond(),
+          getWorkerId(),
+          getPhaseId(),
+          getQueueDelayMicrosecond(),
+          getLatencyRemainderNanosecond(),
+          getRetryWaitMicrosecond());
+    }
+  }
+
+  /**
+   * Stores the start time and latency for a single sample. Immutable. The latency is the service
+   * time (from when a worker started the transaction until it finished); the time the request spent
+   * waiting to be picked up after its scheduled arrival is kept separately as the queue delay. The
+   * retry wait is the part of the latency the worker spent backing off between attempts.
+   */
   public static final class Sample implements Comparable<Sample> {
     private final int transactionType;
-    private long startNanosecond;
+    private final long startNanosecond;
     private final int latencyMicrosecond;
     private final int workerId;
     private final int phaseId;
+    private final int queueDelayMicrosecond;
+    private final int latencyRemainderNanosecond;
+    private final int retryWaitMicrosecond;
 
     public Sample(
         int transactionType,
@@ -91,11 +376,66 @@ public class LatencyRecord implements Iterable<LatencyRecord.Sample> {
         int latencyMicrosecond,
         int workerId,
         int phaseId) {
+      this(transactionType, startNanosecond, latencyMicrosecond, workerId, phaseId, 0);
+    }
+
+    public Sample(
+        int transactionType,
+        long startNanosecond,
+        int latencyMicrosecond,
+        int workerId,
+        int phaseId,
+        int queueDelayMicrosecond) {
+      this(
+          transactionType,
+          startNanosecond,
+          latencyMicrosecond,
+          workerId,
+          phaseId,
+          queueDelayMicrosecond,
+          0);
+    }
+
+    /**
+     * @param latencyRemainderNanosecond the latency minus latencyMicrosecond microseconds, in
+     *     nanoseconds
+     */
+    public Sample(
+        int transactionType,
+        long startNanosecond,
+        int latencyMicrosecond,
+        int workerId,
+        int phaseId,
+        int queueDelayMicrosecond,
+        int latencyRemainderNanosecond) {
+      this(
+          transactionType,
+          startNanosecond,
+          latencyMicrosecond,
+          workerId,
+          phaseId,
+          queueDelayMicrosecond,
+          latencyRemainderNanosecond,
+          0);
+    }
+
+    public Sample(
+        int transactionType,
+        long startNanosecond,
+        int latencyMicrosecond,
+        int workerId,
+        int phaseId,
+        int queueDelayMicrosecond,
+        int latencyRemainderNanosecond,
+        int retryWaitMicrosecond) {
       this.transactionType = transactionType;
       this.startNanosecond = startNanosecond;
       this.latencyMicrosecond = latencyMicrosecond;
       this.workerId = workerId;
       this.phaseId = phaseId;
+      this.queueDelayMicrosecond = queueDelayMicrosecond;
+      this.latencyRemainderNanosecond = latencyRemainderNanosecond;
+      this.retryWaitMicrosecond = retryWaitMicrosecond;
     }
 
     public int getTransactionType() {
@@ -110,6 +450,11 @@ public class LatencyRecord implements Iterable<LatencyRecord.Sample> {
       return latencyMicrosecond;
     }
 
+    /** Returns the latency in nanoseconds; rounded to microseconds unless recorded precisely. */
+    public long getLatencyNanosecond() {
+      return latencyMicrosecond * 1000L + latencyRemainderNanosecond;
+    }
+
     public int getWorkerId() {
       return workerId;
     }
@@ -118,6 +463,19 @@ public class LatencyRecord implements Iterable<LatencyRecord.Sample> {
       return phaseId;
     }
 
+    public int getQueueDelayMicrosecond() {
+      return queueDelayMicrosecond;
+    }
+
+    /** Returns the response time: queue delay plus service time. */
+    public int getResponseTimeMicrosecond() {
+      return queueDelayMicrosecond + latencyMicrosecond;
+    }
+
+    public int getRetryWaitMicrosecond() {
+      return retryWaitMicrosecond;
+    }
+
     @Override
     public int compareTo(Sample other) {
       long diff = this.startNanosecond - other.startNanosecond;
@@ -135,37 +493,19 @@ public class LatencyRecord implements Iterable<LatencyRecord.Sample> {
   }
 
   private final class LatencyRecordIterator implements Iterator<Sample> {
-    private int chunkIndex = 0;
-    private int subIndex = 0;
-    private long lastIteratorNanosecond = startNanosecond;
+    private final Cursor cursor = cursor();
 
     @Override
     public boolean hasNext() {
-      if (chunkIndex < values.size() - 1) {
-        return true;
-      }
-      return subIndex < nextIndex;
+      return cursor.hasNext();
     }
 
     @Override
     public Sample next() {
-      Sample[] chunk = values.get(chunkIndex);
-      Sample s = chunk[subIndex];
-
-      // Iterate in chunk, and wrap to next one
-      ++subIndex;
-
-      if (subIndex == ALLOC_SIZE) {
-        chunkIndex += 1;
-        subIndex = 0;
+      if (!cursor.next()) {
+        throw new NoSuchElementException();
       }
-
-      // Previously, s.startNs was just an offset from the previous
-      // value.  Now we make it an absolute.
-      s.startNanosecond += lastIteratorNanosecond;
-      lastIteratorNanosecond = s.startNanosecond;
-
-      return s;
+      return cursor.toSample();
     }
 
     @Override
@@ -175,6 +515,9 @@ public class LatencyRecord implements Iterable<LatencyRecord.Sample> {
   }
 
   public Iterator<Sample> iterator() {
+    if (log != null) {
+      return SampleLog.samples(log.getSegments()).iterator();
+    }
     return new LatencyRecordIterator();
   }
 }
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A latency histogram that one worker records into while another thread drains it, so that
+ * percentiles can be computed while the benchmark is running.
+ *
+ * <p>Buckets are log-linear: values below 32 are counted exactly and larger values within 1/32 of
+ * their magnitude (about 3%), which covers every int in 864 counters. Recording is a single
+ * uncontended atomic increment.
+ */
+public final class LiveHistogram {
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  static final int NUM_BUCKETS = (Integer.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+
+  /** Count one value (typically in microseconds); negative values are counted as zero. */
+  public void record(int value) {
+    counts.getAndIncrement(index(Math.max(0, value)));
+  }
+
+  /** Move everything recorded since the last drain into the given snapshot. */
+  public void drainInto(Snapshot snapshot) {
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      if (counts.get(i) != 0) {
+        long count = counts.getAndSet(i, 0);
+        snapshot.counts[i] += count;
+        snapshot.count += count;
+      }
+    }
+  }
+
+  static int index(int value) {
+    if (value < SUB_BUCKETS) {
+      return value;
+    }
+    int magnitude = Integer.SIZE - 1 - Integer.numberOfLeadingZeros(value);
+    int shift = magnitude - SUB_BUCKET_BITS;
+    return ((shift + 1) << SUB_BUCKET_BITS) + ((value >>> shift) & (SUB_BUCKETS - 1));
+  }
+
+  /** Returns the largest value that is counted in the given bucket. */
+  static long highestValue(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = (index >> SUB_BUCKET_BITS) - 1;
+    long lowest = (long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+
+  /** Counts drained from one or more histograms. Not thread-safe. */
+  public static final class Snapshot {
+    private final long[] counts = new long[NUM_BUCKETS];
+    private long count = 0;
+
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * Returns the value at the given percentile (0-100], rounded up to the top of its bucket, or -1
+     * if nothing was counted.
+     */
+    public long getPercentile(double percentile) {
+      if (count == 0) {
+        return -1;
+      }
+      long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+      long seen = 0;
+      for (int i = 0; i < NUM_BUCKETS; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return highestValue(i);
+        }
+      }
+      return highestValue(NUM_BUCKETS - 1);
+    }
+
+    /** Add everything counted by another snapshot to this one. */
+    public void add(Snapshot other) {
+      for (int i = 0; i < NUM_BUCKETS; i++) {
+        counts[i] += other.counts[i];
+      }
+      count += other.count;
+    }
+
+    /**
+     * Count the values at or below each of the given ascending bounds. A bucket is counted for a
+     * bound once all of it is at or below that bound.
+     */
+    public void getCumulativeCounts(long[] upperBounds, long[] into) {
+      int bound = 0;
+      long seen = 0;
+      for (int i = 0; i < NUM_BUCKETS && bound < upperBounds.length; i++) {
+        while (bound < upperBounds.length && highestValue(i) > upperBounds[bound]) {
+          into[bound++] = seen;
+        }
+        seen += counts[i];
+      }
+      while (bound < upperBounds.length) {
+        into[bound++] = seen;
+      }
+    }
+
+    /** Returns the sum of the values, taking each to be in the middle of its bucket. */
+    public double getApproximateSum() {
+      double sum = 0;
+      for (int i = 0; i < NUM_BUCKETS; i++) {
+        if (counts[i] != 0) {
+          long lowest = i == 0 ? 0 : highestValue(i - 1) + 1;
+          sum += counts[i] * ((lowest + highestValue(i)) / 2.0);
+        }
+      }
+      return sum;
+    }
+
+    public void clear() {
+      Arrays.fill(counts, 0);
+      count = 0;
+    }
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.oltpbenchmark;
+
+/**
+ * How the target rate of a rate-limited phase changes over the phase, so that a single phase can
+ * follow a ramp, a ladder of steps, a diurnal curve or bursts without the queue resets and terminal
+ * interrupts of a phase switch. Time is measured in seconds from the start of the phase (for the
+ * first phase, from the end of its warmup, before which the rate stays at its initial value).
+ *
+ * <p>Profiles are selected with a {@code <profile>} element in a {@code <work>} block, relative to
+ * the phase's {@code <rate>}:
+ *
+ * <pre>
+ * &lt;profile type="ramp" to="5000"/&gt;                     linear from rate to 5000 over the phase
+ * &lt;profile type="step" increment="500" every="60"/&gt;    rate + 500 every 60 seconds
+ * &lt;profile type="sine" amplitude="400" period="600"/&gt;  rate +/- 400 with a 10 minute period
+ * &lt;profile type="onoff" burst="10000" on="5" off="25"/&gt; 5 s at 10000, then 25 s at rate
+ * </pre>
+ */
+public final class LoadProfile {
+
+  public enum Type {
+    CONSTANT,
+    RAMP,
+    STEP,
+    SINE,
+    ONOFF;
+
+    public static Type get(String name) {
+      return Type.valueOf(name.toUpperCase());
+    }
+  }
+
+  private final Type type;
+  private final double rate;
+  // RAMP: the final rate; STEP: the increment; SINE: the amplitude; ONOFF: the burst rate
+  private final double target;
+  // RAMP: the ramp duration; STEP: the step length; SINE: the period; ONOFF: the burst length
+  private final double seconds;
+  // ONOFF: the time between bursts
+  private final double offSeconds;
+
+  private LoadProfile(Type type, double rate, double target, double seconds, double offSeconds) {
+    this.type = type;
+    this.rate = rate;
+    this.target = target;
+    this.seconds = seconds;
+    this.offSeconds = offSeconds;
+  }
+
+  public static LoadProfile constant(double rate) {
+    return new LoadProfile(Type.CONSTANT, rate, rate, 0, 0);
+  }
+
+  /** A linear ramp from {@code from} to {@code to} over {@code seconds}, then constant. */
+  public static LoadProfile ramp(double from, double to, double seconds) {
+    if (seconds <= 0) {
+      throw new IllegalArgumentException("The ramp duration must be positive");
+    }
+    return new LoadProfile(Type.RAMP, from, to, seconds, 0);
+  }
+
+  /** Starts at {@code from} and adds {@code increment} every {@code everySeconds}. */
+  public static LoadProfile step(double from, double increment, double everySeconds) {
+    if (everySeconds <= 0) {
+      throw new IllegalArgumentException("The step length must be positive");
+    }
+    return new LoadProfile(Type.STEP, from, increment, everySeconds, 0);
+  }
+
+  /** Oscillates around {@code mean} by {@code amplitude}, starting upwards. */
+  public static LoadProfile sine(double mean, double amplitude, double periodSeconds) {
+    if (periodSeconds <= 0) {
+      throw new IllegalArgumentException("The period must be positive");
+    }
+    return new LoadProfile(Type.SINE, mean, amplitude, periodSeconds, 0);
+  }
+
+  /**
+   * Alternates between {@code onSeconds} at {@code burst} and {@code offSeconds} at {@code base}.
+   */
+  public static LoadProfile onOff(double base, double burst, double onSeconds, double offSeconds) {
+    if (onSeconds <= 0 || offSeconds < 0) {
+      throw new IllegalArgumentException("The burst length must be positive");
+    }
+    return new LoadProfile(Type.ONOFF, base, burst, onSeconds, offSeconds);
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public boolean isConstant() {
+    return type == Type.CONSTANT;
+  }
+
+  /** Returns the target rate (requests/second) at the given time, which is never negative. */
+  public double getRate(double time) {
+    double r =
+        switch (type) {
+          case CONSTANT -> rate;
+          case RAMP -> rate + (target - rate) * Math.min(1, Math.max(0, time) / seconds);
+          case STEP -> rate + target * Math.floor(Math.max(0, time) / seconds);
+          case SINE -> rate + target * Math.sin(2 * Math.PI * Math.max(0, time) / seconds);
+          case ONOFF -> Math.max(0, time) % (seconds + offSeconds) < seconds ? target : rate;
+        };
+    return Math.max(0, r);
+  }
+
+  /**
+   * Returns the time until which the rate stays what it is at the given time, or the given time
+   * itself if the rate changes continuously there.
+   */
+  public double getConstantUntil(double time) {
+    double t = Math.max(0, time);
+    return switch (type) {
+      case CONSTANT -> Double.POSITIVE_INFINITY;
+      case RAMP -> t >= seconds ? Double.POSITIVE_INFINITY : time;
+      case STEP -> (Math.floor(t / seconds) + 1) * seconds;
+      case SINE -> time;
+      case ONOFF -> {
+        double cycle = seconds + offSeconds;
+        double cycleStart = t - t % cycle;
+        yield t - cycleStart < seconds ? cycleStart + seconds : cycleStart + cycle;
+      }
+    };
+  }
+
+  /** Returns an upper bound of the target rate over the first {@code duration} seconds. */
+  public double getMaxRate(double duration) {
+    return switch (type) {
+      case CONSTANT -> rate;
+      case RAMP, STEP -> Math.max(getRate(0), getRate(duration));
+      case SINE -> rate + Math.abs(target);
+      case ONOFF -> Math.max(rate, target);
+    };
+  }
+
+  @Override
+  public String toString() {
+    return switch (type) {
+      case CONSTANT -> String.valueOf(rate);
+      case RAMP -> String.format("ramp(%s->%s over %ss)", rate, target, seconds);
+      case STEP -> String.format("step(%s+%s every %ss)", rate, target, seconds);
+      case SINE -> String.format("sine(%s+/-%s period %ss)", rate, target, seconds);
+      case ONOFF ->
+          String.format("onoff(%s for %ss, else %s for %ss)", target, seconds, rate, offSeconds);
+    };
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multi-producer/multi-consumer ring buffer (after Vyukov). Each slot carries a sequence
+ * number that tells producers and consumers whether it is free or full for the current lap, so
+ * neither side takes a lock. The slots are preallocated primitive arrays, and consumers copy the
+ * request into a {@link SubmittedProcedure} they own, so neither side allocates per request.
+ *
+ * <p>Producers claim a whole batch of slots with a single CAS on the tail. Consumers that find the
+ * queue empty park on a semaphore; producers release at most one permit per request added, and only
+ * when somebody is actually waiting.
+ */
+final class LockFreeWorkQueue extends WorkQueue {
+
+  /** How many times a consumer re-polls an empty queue before parking. */
+  private static final int SPIN_TRIES = 64;
+
+  private final int limit;
+  private final int capacity;
+  private final int mask;
+
+  private final AtomicLongArray sequences;
+  private final int[] types;
+  private final long[] startTimes;
+
+  private final AtomicLong head = new AtomicLong();
+  private final AtomicLong tail = new AtomicLong();
+
+  private final AtomicInteger waiting = new AtomicInteger();
+  // Bumped by wakeAll() so that consumers can tell a wake-up from a new request
+  private final AtomicLong wakeups = new AtomicLong();
+  private final Semaphore available = new Semaphore(0);
+
+  LockFreeWorkQueue(int limit) {
+    this.limit = limit;
+    this.capacity = Integer.highestOneBit(Math.max(2, limit) - 1) << 1;
+    this.mask = this.capacity - 1;
+    this.sequences = new AtomicLongArray(this.capacity);
+    this.types = new int[this.capacity];
+    this.startTimes = new long[this.capacity];
+    for (int i = 0; i < this.capacity; i++) {
+      this.sequences.set(i, i);
+    }
+  }
+
+  @Override
+  int add(Phase phase, int amount, long scheduledNs, long spacingNs) {
+    int added = 0;
+
+    while (added < amount) {
+      long t = tail.get();
+      int free = (int) Math.min(limit - (t - head.get()), amount - added);
+      if (free <= 0) {
+        // If we can't keep up with current rate, truncate transactions
+        break;
+      }
+      if (!tail.compareAndSet(t, t + free)) {
+        continue;
+      }
+
+      for (long pos = t; pos < t + free; pos++) {
+        int idx = (int) (pos & mask);
+        // A consumer may have claimed this slot on the previous lap but not copied it out yet.
+        while (sequences.get(idx) != pos) {
+          Thread.onSpinWait();
+        }
+        types[idx] = phase.chooseTransaction();
+        startTimes[idx] = scheduledNs + (added + pos - t) * spacingNs;
+        sequences.set(idx, pos + 1);
+      }
+      added += free;
+    }
+
+    if (added > 0) {
+      int toWake = Math.min(added, waiting.get());
+      if (toWake > 0) {
+        available.release(toWake);
+      }
+    }
+    return added;
+  }
+
+  /** Non-blocking removal; returns false if the queue is empty. */
+  boolean poll(SubmittedProcedure slot) {
+    while (true) {
+      long h = head.get();
+      int idx = (int) (h & mask);
+      long diff = sequences.get(idx) - (h + 1);
+      if (diff == 0) {
+        if (head.compareAndSet(h, h + 1)) {
+          slot.set(types[idx], startTimes[idx]);
+          sequences.set(idx, h + capacity);
+          return true;
+        }
+      } else if (diff < 0) {
+        return false;
+      }
+      // Otherwise another consumer got there first; try the next slot
+    }
+  }
+
+  @Override
+  SubmittedProcedure take(SubmittedProcedure slot, BenchmarkState benchmarkState) {
+    long wakeup = wakeups.get();
+    int tries = 0;
+    while (true) {
+      if (poll(slot)) {
+        return slot;
+      }
+      if (isFinished(benchmarkState) || wakeups.get() != wakeup) {
+        return null;
+      }
+      if (++tries < SPIN_TRIES) {
+        Thread.onSpinWait();
+        continue;
+      }
+
+      // Announce ourselves before the final check so a concurrent add() cannot miss us.
+      waiting.incrementAndGet();
+      if (size() > 0 || isFinished(benchmarkState) || wakeups.get() != wakeup) {
+        waiting.decrementAndGet();
+        continue;
+      }
+      try {
+        available.acquire();
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      } finally {
+        waiting.decrementAndGet();
+      }
+      tries = 0;
+    }
+  }
+
+  @Override
+  void clear() {
+    SubmittedProcedure scratch = new SubmittedProcedure();
+    while (poll(scratch)) {
+      // drain
+    }
+  }
+
+  @Override
+  void wakeAll() {
+    // Bump the counter before reading waiting: a consumer that registers too late to get a permit
+    // is then guaranteed to see the new value in its final check.
+    wakeups.incrementAndGet();
+    int toWake = waiting.get();
+    if (toWake > 0) {
+      available.release(toWake);
+    }
+  }
+
+  @Override
+  int size() {
+    return (int) Math.max(0, tail.get() - head.get());
+  }
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.oltpbenchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The target rate that was offered to the database over the measured part of a run, so that results
+ * can be grouped by offered load. This lets one run with a ramp, step or sine {@link LoadProfile}
+ * produce a latency versus load curve.
+ *
+ * <p>The offered rate at a point in time is the sum of the target rates of all rate-limited
+ * workloads, each following the profile of its current phase from the time that phase started.
+ * Requests are attributed to the rate at their scheduled arrival, not at the time a worker picked
+ * them up.
+ */
+public final class OfferedLoad {
+
+  /** The resolution at which the time spent at a continuously changing rate is measured. */
+  private static final long STEP_NS = 10000000;
+
+  /** Results are grouped into about this many buckets between zero and the highest rate. */
+  private static final int NUM_BUCKETS = 50;
+
+  private final double multiplier;
+  // The phases of each workload by their start
+  private final List<List<Segment>> workloads = new ArrayList<>();
+  private long startNs = Long.MAX_VALUE;
+  private long endNs = Long.MAX_VALUE;
+
+  public OfferedLoad() {
+    this(1);
+  }
+
+  /**
+   * @param multiplier how many times the configured load is offered, e.g. by several drivers
+   */
+  public OfferedLoad(double multiplier) {
+    this.multiplier = multiplier;
+  }
+
+  /**
+   * Record that the given workload started the given phase at startNs; null if it has no phase
+   * left. Phases of one workload must be recorded in order.
+   */
+  public void startPhase(int workload, long startNs, Phase phase) {
+    while (workloads.size() <= workload) {
+      workloads.add(new ArrayList<>());
+    }
+    boolean rateLimited =
+        phase != null && phase.isRateLimited() && !phase.isDisabled() && !phase.isSerial();
+    workloads.get(workload).add(new Segment(startNs, rateLimited ? phase : null));
+    this.startNs = Math.min(this.startNs, startNs);
+  }
+
+  /** Record the end of the measurement; required before {@link #bucket}. */
+  public void end(long endNs) {
+    this.endNs = endNs;
+  }
+
+  /** Returns true if any measured phase was rate limited. */
+  public boolean isRateLimited() {
+    for (List<Segment> segments : workloads) {
+      for (Segment segment : segments) {
+        if (segment.phase != null) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /** Returns the offered rate at the given time, or NaN if no phase was rate limited then. */
+  public double getTargetRate(long ns) {
+    double rate = Double.NaN;
+    for (List<Segment> segments : workloads) {
+      Segment segment = segments.isEmpty() ? null : segments.get(indexAt(segments, ns));
+      if (segment != null && segment.phase != null) {
+        double seconds = Math.max(0, ns - segment.startNs) / 1e9;
+        rate = (Double.isNaN(rate) ? 0 : rate) + segment.phase.getTargetRate(seconds);
+      }
+    }
+    return rate * multiplier;
+  }
+
+  /** Returns the index of the segment in effect at ns, or 0 if ns is before every segment. */
+  private static int indexAt(List<Segment> segments, long ns) {
+    int low = 0;
+    int high = segments.size() - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (segments.get(mid).startNs <= ns) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Walk the measurement in stretches over which the offered rate is constant, or of STEP_NS while
+   * it changes continuously, and pass each rate (NaN if nothing was rate limited) with the seconds
+   * it lasted.
+   */
+  private void forEachStretch(Stretch stretch) {
+    long ns = startNs;
+    while (ns < endNs) {
+      long nextNs = endNs;
+      double rate = Double.NaN;
+      for (List<Segment> segments : workloads) {
+        if (segments.isEmpty()) {
+          continue;
+        }
+        int index = indexAt(segments, ns);
+        Segment segment = segments.get(index);
+        if (segment.startNs > ns) {
+          nextNs = Math.min(nextNs, segment.startNs);
+        } else if (index + 1 < segments.size()) {
+          nextNs = Math.min(nextNs, segments.get(index + 1).startNs);
+        }
+        if (segment.phase != null) {
+          double seconds = Math.max(0, ns - segment.startNs) / 1e9;
+          rate = (Double.isNaN(rate) ? 0 : rate) + segment.phase.getTargetRate(seconds);
+          double until = segment.phase.getConstantRateUntil(seconds);
+          long untilNs =
+              until == Double.POSITIVE_INFINITY
+                  ? Long.MAX_VALUE
+                  : segment.startNs + (long) Math.ceil(until * 1e9);
+          nextNs = Math.min(nextNs, untilNs > ns ? untilNs : ns + STEP_NS);
+        }
+      }
+      nextNs = Math.min(nextNs, endNs);
+      stretch.accept(rate * multiplier, (nextNs - ns) / 1e9);
+      ns = nextNs;
+    }
+  }
+
+  /**
+   * Group the samples by the offered rate at their scheduled arrival.
+   *
+   * @return the buckets by their rate
+   */
+  public SortedMap<Double, Bucket> bucket(Iterable<LatencyRecord.Sample> samples) {
+    SortedMap<Double, Bucket> buckets = new TreeMap<>();
+    if (workloads.isEmpty() || endNs == Long.MAX_VALUE) {
+      return buckets;
+    }
+
+    // How long each rate was offered for
+    double[] maxRate = {0};
+    forEachStretch(
+        (rate, seconds) -> {
+          if (rate > maxRate[0]) {
+            maxRate[0] = rate;
+          }
+        });
+    if (maxRate[0] == 0) {
+      return buckets;
+    }
+    double width = bucketWidth(maxRate[0]);
+    forEachStretch(
+        (rate, seconds) -> {
+          if (!Double.isNaN(rate)) {
+            buckets.computeIfAbsent(round(rate, width), Bucket::new).seconds += seconds;
+          }
+        });
+
+    for (LatencyRecord.Sample s : samples) {
+      long arrivalNs = s.getStartNanosecond() - s.getQueueDelayMicrosecond() * 1000L;
+      double rate = getTargetRate(arrivalNs);
+      if (!Double.isNaN(rate)) {
+        buckets.computeIfAbsent(round(rate, width), Bucket::new).add(s);
+      }
+    }
+    return buckets;
+  }
+
+  /**
+   * Group latency histograms by the offered rate in the middle of their window. A whole window
+   * counts as time at that rate, so the buckets are only as fine as the windows: with a load
+   * profile that changes quickly, use short histogram windows.
+   */
+  public SortedMap<Double, Bucket> bucket(LatencyHistograms histograms) {
+    SortedMap<Double, Bucket> buckets = new TreeMap<>();
+    if (workloads.isEmpty() || endNs == Long.MAX_VALUE) {
+      return buckets;
+    }
+
+    long measureStartNs = startNs;
+    long windowNs = histograms.getWindowSeconds() * 1000000000L;
+    Map<Long, LatencyHistograms.Window> windows = histograms.getWindowsByStart();
+    double maxRate = 0;
+    for (long windowStartNs : windows.keySet()) {
+      double rate = getTargetRate(windowStartNs + windowNs / 2);
+      if (rate > maxRate) {
+        maxRate = rate;
+      }
+    }
+    if (maxRate == 0) {
+      return buckets;
+    }
+    double width = bucketWidth(maxRate);
+    for (Map.Entry<Long, LatencyHistograms.Window> e : windows.entrySet()) {
+      long windowStartNs = e.getKey();
+      double rate = getTargetRate(windowStartNs + windowNs / 2);
+      if (!Double.isNaN(rate)) {
+        Bucket bucket = buckets.computeIfAbsent(round(rate, width), Bucket::new);
+        long measuredNs =
+            Math.min(windowStartNs + windowNs, endNs) - Math.max(windowStartNs, measureStartNs);
+        bucket.seconds += Math.max(0, measuredNs) / 1e9;
+        bucket.add(e.getValue());
+      }
+    }
+    return buckets;
+  }
+
+  /** Returns a round bucket width (1, 2 or 5 times a power of ten) for about NUM_BUCKETS. */
+  static double bucketWidth(double maxRate) {
+    double raw = maxRate / NUM_BUCKETS;
+    double magnitude = Math.pow(10, Math.floor(Math.log10(raw)));
+    for (double factor : new double[] {1, 2, 5}) {
+      if (raw <= factor * magnitude) {
+        return factor * magnitude;
+      }
+    }
+    return 10 * magnitude;
+  }
+
+  private static double round(double rate, double width) {
+    return Math.round(rate / width) * width;
+  }
+
+  /** The requests whose offered rate fell into one bucket. */
+  public static final class Bucket {
+    private final double rate;
+    private double seconds = 0;
+    private int[] latencies = new int[16];
+    private int[] responseTimes = new int[16];
+    private int count = 0;
+    // Used instead of the arrays when the results were recorded as histograms
+    private LatencyHistograms.Window histograms = null;
+
+    private Bucket(double rate) {
+      this.rate = rate;
+    }
+
+    private void add(LatencyHistograms.Window window) {
+      if (histograms == null) {
+        histograms = new LatencyHistograms.Window();
+      }
+      histograms.add(window);
+      count = (int) histograms.getLatencies().getCount();
+    }
+
+    private void add(LatencyRecord.Sample s) {
+      if (count == latencies.length) {
+        latencies = Arrays.copyOf(latencies, count * 2);
+        responseTimes = Arrays.copyOf(responseTimes, count * 2);
+      }
+      latencies[count] = s.getLatencyMicrosecond();
+      responseTimes[count] = s.getResponseTimeMicrosecond();
+      count++;
+    }
+
+    /** Returns the offered rate (requests/second) of this bucket. */
+    public double getRate() {
+      return rate;
+    }
+
+    /** Returns how long this rate was offered during the measurement. */
+    public double getSeconds() {
+      return seconds;
+    }
+
+    public int getCount() {
+      return count;
+    }
+
+    public DistributionStatistics getLatencyStatistics() {
+      if (histograms != null) {
+        return DistributionStatistics.computeStatistics(histograms.getLatencies());
+      }
+      return DistributionStatistics.computeStatistics(Arrays.copyOf(latencies, count));
+    }
+
+    public DistributionStatistics getResponseTimeStatistics() {
+      if (histograms != null) {
+        return DistributionStatistics.computeStatistics(histograms.getResponseTimes());
+      }
+      return DistributionStatistics.computeStatistics(Arrays.copyOf(responseTimes, count));
+    }
+  }
+
+  private interface Stretch {
+    void accept(double rate, double seconds);
+  }
+
+  private static final class Segment {
+    private final long startNs;
+    // Null unless the phase was rate limited
+    private final Phase phase;
+
+    private Segment(long startNs, Phase phase) {
+      this.startNs = startNs;
+      this.phase = phase;
+    }
+  }
+}
@@ -17,24 +17,34 @@
 
 package com.oltpbenchmark;
 
+import com.oltpbenchmark.jdbc.FaultProfile;
 import com.oltpbenchmark.util.StringUtil;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 public class Phase {
   public enum Arrival {
     REGULAR,
     POISSON,
+    /** Heavy-tailed (Pareto) inter-arrival times, which produce bursty, self-similar traffic. */
+    PARETO,
   }
 
-  private final Random gen = new Random();
+  /** The default shape of Pareto inter-arrival times; smaller is burstier, and it must be > 1. */
+  public static final double DEFAULT_PARETO_SHAPE = 1.5;
+
   private final String benchmarkName;
   private final int id;
   private final int time;
   private final int warmupTime;
   private final double rate;
   private final Arrival arrival;
+  private final double paretoShape;
+  private final LoadProfile profile;
+  private final SaturationSearch search;
+  private final FaultProfile faults;
 
   private final boolean rateLimited;
   private final boolean disabled;
@@ -42,6 +52,10 @@ public class Phase {
   private final boolean timed;
   private final List<Double> weights;
   private final int weightCount;
+  private final double totalWeight;
+  // Walker's alias table over the weights: see chooseTransaction
+  private final double[] aliasProbability;
+  private final int[] alias;
   private final int activeTerminals;
   private int nextSerial;
 
@@ -58,6 +72,45 @@ public class Phase {
       boolean timed,
       int activeTerminals,
       Arrival a) {
+    this(
+        benchmarkName,
+        id,
+        t,
+        wt,
+        r,
+        weights,
+        rateLimited,
+        disabled,
+        serial,
+        timed,
+        activeTerminals,
+        a,
+        DEFAULT_PARETO_SHAPE,
+        LoadProfile.constant(r),
+        null,
+        null);
+  }
+
+  Phase(
+      String benchmarkName,
+      int id,
+      int t,
+      int wt,
+      double r,
+      List<Double> weights,
+      boolean rateLimited,
+      boolean disabled,
+      boolean serial,
+      boolean timed,
+      int activeTerminals,
+      Arrival a,
+      double paretoShape,
+      LoadProfile profile,
+      SaturationSearch search,
+      FaultProfile faults) {
+    if (a == Arrival.PARETO && paretoShape <= 1) {
+      throw new IllegalArgumentException("The Pareto shape must be greater than 1");
+    }
     this.benchmarkName = benchmarkName;
     this.id = id;
     this.time = t;
@@ -65,6 +118,14 @@ public class Phase {
     this.rate = r;
     this.weights = weights;
     this.weightCount = this.weights.size();
+    double total = 0.0;
+    for (Double d : weights) {
+      total += d;
+    }
+    this.totalWeight = total;
+    this.aliasProbability = new double[weightCount];
+    this.alias = new int[weightCount];
+    buildAliasTable();
     this.rateLimited = rateLimited;
     this.disabled = disabled;
     this.serial = serial;
@@ -72,6 +133,10 @@ public class Phase {
     this.nextSerial = 1;
     this.activeTerminals = activeTerminals;
     this.arrival = a;
+    this.paretoShape = paretoShape;
+    this.profile = profile;
+    this.search = search;
+    this.faults = faults;
   }
 
   public boolean isRateLimited() {
@@ -114,6 +179,10 @@ public class Phase {
     return id;
   }
 
+  public String getBenchmarkName() {
+    return benchmarkName;
+  }
+
   public int getTime() {
     return time;
   }
@@ -130,6 +199,54 @@ public class Phase {
     return arrival;
   }
 
+  public LoadProfile getLoadProfile() {
+    return profile;
+  }
+
+  /** Returns the saturation search that drives the rate of this phase, or null if there is none. */
+  public SaturationSearch getSaturationSearch() {
+    return search;
+  }
+
+  /**
+   * Returns the faults to inject into the database calls of this phase, or null if there are none.
+   */
+  public FaultProfile getFaults() {
+    return faults;
+  }
+
+  /**
+   * Returns the target rate {@code seconds} into the phase, following its saturation search or load
+   * profile.
+   */
+  public double getTargetRate(double seconds) {
+    return search != null ? search.getRate(seconds) : profile.getRate(seconds);
+  }
+
+  /**
+   * Returns how many seconds into the phase the target rate stays what it is {@code seconds} into
+   * it, or {@code seconds} itself if it may change at any time, as during a saturation search.
+   */
+  public double getConstantRateUntil(double seconds) {
+    return search != null ? seconds : profile.getConstantUntil(seconds);
+  }
+
+  /**
+   * Draws the time until the next arrival, in multiples of the mean inter-arrival time at the
+   * current target rate.
+   */
+  public double nextArrivalGap(RandomGenerator rng) {
+    return switch (arrival) {
+      case REGULAR -> 1;
+      case POISSON -> -Math.log(1 - rng.nextDouble());
+      case PARETO -> {
+        // Scale so that the mean is 1: mean = scale * shape / (shape - 1)
+        double scale = (paretoShape - 1) / paretoShape;
+        yield scale / Math.pow(1 - rng.nextDouble(), 1 / paretoShape);
+      }
+    };
+  }
+
   public List<Double> getWeights() {
     return (this.weights);
   }
@@ -140,11 +257,54 @@ public class Phase {
    * @return The total weight
    */
   public double totalWeight() {
-    double total = 0.0;
-    for (Double d : weights) {
-      total += d;
+    return totalWeight;
+  }
+
+  /**
+   * Build the alias table with Vose's method. Every column holds one or two transactions whose
+   * shares add up to exactly the average weight, so drawing a column and a point within it picks
+   * each transaction in proportion to its weight, fractional weights included.
+   */
+  private void buildAliasTable() {
+    if (totalWeight <= 0) {
+      return;
+    }
+    double[] scaled = new double[weightCount];
+    int[] small = new int[weightCount];
+    int[] large = new int[weightCount];
+    int numSmall = 0;
+    int numLarge = 0;
+    for (int i = 0; i < weightCount; i++) {
+      scaled[i] = weights.get(i) * weightCount / totalWeight;
+      if (scaled[i] < 1) {
+        small[numSmall++] = i;
+      } else {
+        large[numLarge++] = i;
+      }
+    }
+    while (numSmall > 0 && numLarge > 0) {
+      int less = small[--numSmall];
+      int more = large[--numLarge];
+      aliasProbability[less] = scaled[less];
+      alias[less] = more;
+      scaled[more] = scaled[more] + scaled[less] - 1;
+      if (scaled[more] < 1) {
+        small[numSmall++] = more;
+      } else {
+        large[numLarge++] = more;
+      }
+    }
+    // Whatever is left over is 1 up to rounding
+    while (numLarge > 0) {
+      int i = large[--numLarge];
+      aliasProbability[i] = 1;
+      alias[i] = i;
+    }
+    while (numSmall > 0) {
+      int i = small[--numSmall];
+      aliasProbability[i] = 1;
+      alias[i] = i;
     }
-    return total;
   }
 
   /**
@@ -158,6 +318,13 @@ public class Phase {
   }
 
   public int chooseTransaction(boolean isColdQuery) {
+    return chooseTransaction(isColdQuery, ThreadLocalRandom.current());
+  }
+
+  /**
+   * @param rng the caller's own generator; random phases take a single number from it
+   */
+  public int chooseTransaction(boolean isColdQuery, RandomGenerator rng) {
     if (isDisabled()) {
       return -1;
     }
@@ -189,15 +356,10 @@ public class Phase {
         }
       }
       return ret;
-    } else {
-      int randomPercentage = gen.nextInt((int) totalWeight()) + 1;
-      double weight = 0.0;
-      for (int i = 0; i < this.weightCount; i++) {
-        weight += weights.get(i);
-        if (randomPercentage <= weight) {
-          return i + 1;
-        }
-      }
+    } else if (totalWeight > 0) {
+      double column = rng.nextDouble() * weightCount;
+      int i = Math.min((int) column, weightCount - 1);
+      return (column - i < aliasProbability[i] ? i : alias[i]) + 1;
     }
 
     return -1;
@@ -218,10 +380,18 @@ public class Phase {
         inner.add("[Time=" + time + "]");
       }
       inner.add("[WarmupTime=" + warmupTime + "]");
-      inner.add("[Rate=" + (isRateLimited() ? rate : "unlimited") + "]");
-      inner.add("[Arrival=" + arrival + "]");
+      inner.add(
+          "[Rate=" + (isRateLimited() ? (search != null ? search : profile) : "unlimited") + "]");
+      inner.add(
+          "[Arrival="
+              + arrival
+              + (arrival == Arrival.PARETO ? "(shape=" + paretoShape + ")" : "")
+              + "]");
       inner.add("[Ratios=" + getWeights() + "]");
       inner.add("[ActiveWorkers=" + getActiveTerminals() + "]");
+      if (faults != null) {
+        inner.add("[Faults=" + faults + "]");
+      }
     }
 
     return StringUtil.bold("PHASE START") + " :: " + StringUtil.join(" ", inner);
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark;
+
+/**
+ * Lets something outside of ThreadBench decide when the run starts, when the warmup ends and when
+ * each phase is over, so that several drivers move through the benchmark together. ThreadBench
+ * polls it from its pacing loop instead of looking at its own clock.
+ */
+public interface PhaseSync {
+
+  /** Blocks until every driver is ready and the run may start. */
+  void awaitStart() throws InterruptedException;
+
+  /** Returns true once the warmup is over. */
+  boolean isWarmupComplete();
+
+  /** Returns the number of phases that are over. */
+  int getCompletedPhases();
+}
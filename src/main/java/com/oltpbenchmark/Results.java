@@ -18,9 +18,16 @@
 package com.oltpbenchmark;
 
 import com.oltpbenchmark.LatencyRecord.Sample;
+import com.oltpbenchmark.api.ConnectionManager;
+import com.oltpbenchmark.api.StageProfiler;
 import com.oltpbenchmark.api.TransactionType;
+import com.oltpbenchmark.jdbc.FaultInjector;
+import com.oltpbenchmark.jdbc.StatementStatistics;
 import com.oltpbenchmark.types.State;
+import com.oltpbenchmark.types.TransactionStatus;
 import com.oltpbenchmark.util.Histogram;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -32,7 +39,8 @@ public final class Results {
   private final long nanoseconds;
   private final int measuredRequests;
   private final DistributionStatistics distributionStatistics;
-  private final List<LatencyRecord.Sample> latencySamples;
+  private final DistributionStatistics responseTimeStatistics;
+  private final Iterable<LatencyRecord.Sample> latencySamples;
   private final Histogram<TransactionType> unknown = new Histogram<>(false);
   private final Histogram<TransactionType> success = new Histogram<>(true);
   private final Histogram<TransactionType> abort = new Histogram<>(false);
@@ -40,6 +48,27 @@ public final class Results {
   private final Histogram<TransactionType> error = new Histogram<>(false);
   private final Histogram<TransactionType> retryDifferent = new Histogram<>(false);
   private final Map<TransactionType, Histogram<String>> abortMessages = new HashMap<>();
+  private final Map<TransactionStatus, Histogram<TransactionType>> injectedFaults =
+      new EnumMap<>(TransactionStatus.class);
+  private FaultInjector.Statistics faultStatistics = null;
+  private LatencyHistogram retryWait = new LatencyHistogram();
+  private DistributionStatistics retryWaitStatistics = null;
+  private long retriesDenied = 0;
+  private long droppedArrivals = 0;
+  private long lateArrivals = 0;
+  private int queueDelayBound = 0;
+  private double carrierUtilization = -1;
+  private long clientCpuNanoseconds = -1;
+  private ConnectionManager.Statistics connectionStatistics = null;
+  private long statementCacheHits = -1;
+  private long statementCachePrepares = -1;
+  private ScheduleSlip scheduleSlip = new ScheduleSlip();
+  private OfferedLoad offeredLoad = null;
+  private LatencyHistograms latencyHistograms = null;
+  private StatementStatistics statementStatistics = null;
+  private StageProfiler stageProfile = null;
+  private Map<String, StageProfiler> workerStageProfiles = null;
+  private final List<Phase> searchedPhases = new ArrayList<>();
 
   public Results(
       State state,
@@ -47,19 +76,39 @@ public final class Results {
       long elapsedNanoseconds,
       int measuredRequests,
       DistributionStatistics distributionStatistics,
-      final List<LatencyRecord.Sample> latencySamples) {
+      final Iterable<LatencyRecord.Sample> latencySamples) {
+    this(
+        state,
+        startTimestampMs,
+        elapsedNanoseconds,
+        measuredRequests,
+        distributionStatistics,
+        distributionStatistics,
+        latencySamples);
+  }
+
+  /**
+   * @param distributionStatistics statistics over the service time of each request
+   * @param responseTimeStatistics statistics over the response time (queue delay plus service time)
+   *     of each request
+   * @param latencySamples the samples in order of their start time, or null if only latency
+   *     histograms were kept. They are not copied, so they can be a view that is read lazily.
+   */
+  public Results(
+      State state,
+      long startTimestampMs,
+      long elapsedNanoseconds,
+      int measuredRequests,
+      DistributionStatistics distributionStatistics,
+      DistributionStatistics responseTimeStatistics,
+      final Iterable<LatencyRecord.Sample> latencySamples) {
     this.startTimestampMs = startTimestampMs;
+    this.responseTimeStatistics = responseTimeStatistics;
     this.nanoseconds = elapsedNanoseconds;
     this.measuredRequests = measuredRequests;
     this.distributionStatistics = distributionStatistics;
     this.state = state;
-
-    if (distributionStatistics == null) {
-      this.latencySamples = null;
-    } else {
-      // defensive copy
-      this.latencySamples = List.copyOf(latencySamples);
-    }
+    this.latencySamples = distributionStatistics == null ? null : latencySamples;
   }
 
   public State getState() {
@@ -70,6 +119,136 @@ public final class Results {
     return distributionStatistics;
   }
 
+  public DistributionStatistics getResponseTimeStatistics() {
+    return responseTimeStatistics;
+  }
+
+  /** Returns the number of scheduled arrivals that were dropped because the queue was full. */
+  public long getDroppedArrivals() {
+    return droppedArrivals;
+  }
+
+  public void setDroppedArrivals(long droppedArrivals) {
+    this.droppedArrivals = droppedArrivals;
+  }
+
+  /** Returns the number of requests that waited in the queue for longer than the bound. */
+  public long getLateArrivals() {
+    return lateArrivals;
+  }
+
+  public void setLateArrivals(long lateArrivals) {
+    this.lateArrivals = lateArrivals;
+  }
+
+  /** Returns the queue delay in milliseconds above which a request counts as a late arrival. */
+  public int getQueueDelayBound() {
+    return queueDelayBound;
+  }
+
+  public void setQueueDelayBound(int queueDelayBound) {
+    this.queueDelayBound = queueDelayBound;
+  }
+
+  /**
+   * Returns the fraction of carrier thread time spent running terminals during the measurement, or
+   * -1 if the terminals did not run on virtual threads.
+   */
+  public double getCarrierUtilization() {
+    return carrierUtilization;
+  }
+
+  public void setCarrierUtilization(double carrierUtilization) {
+    this.carrierUtilization = carrierUtilization;
+  }
+
+  /**
+   * Returns the CPU time the whole benchmark process used during the measurement, or -1 if the JVM
+   * does not report it.
+   */
+  public long getClientCpuNanoseconds() {
+    return clientCpuNanoseconds;
+  }
+
+  public void setClientCpuNanoseconds(long clientCpuNanoseconds) {
+    this.clientCpuNanoseconds = clientCpuNanoseconds;
+  }
+
+  /** Returns how the workers' connections were opened and reused, or null if that is not known. */
+  public ConnectionManager.Statistics getConnectionStatistics() {
+    return connectionStatistics;
+  }
+
+  public void setConnectionStatistics(ConnectionManager.Statistics connectionStatistics) {
+    this.connectionStatistics = connectionStatistics;
+  }
+
+  /** Returns the statements taken from the workers' statement caches, or -1 if none was used. */
+  public long getStatementCacheHits() {
+    return statementCacheHits;
+  }
+
+  /**
+   * Returns the statements prepared through the workers' statement caches, or -1 if none was used.
+   */
+  public long getStatementCachePrepares() {
+    return statementCachePrepares;
+  }
+
+  public void setStatementCache(long hits, long prepares) {
+    this.statementCacheHits = hits;
+    this.statementCachePrepares = prepares;
+  }
+
+  /** Returns how late the pacing released arrivals during the measurement. */
+  public ScheduleSlip getScheduleSlip() {
+    return scheduleSlip;
+  }
+
+  public void setScheduleSlip(ScheduleSlip scheduleSlip) {
+    this.scheduleSlip = scheduleSlip;
+  }
+
+  /** Returns the target rate offered over the measurement, or null if it is not known. */
+  public OfferedLoad getOfferedLoad() {
+    return offeredLoad;
+  }
+
+  public void setOfferedLoad(OfferedLoad offeredLoad) {
+    this.offeredLoad = offeredLoad;
+  }
+
+  /** Returns the phases whose rate was set by a {@link SaturationSearch}. */
+  /**
+   * Returns the latency histograms the results were computed from, or null if they were computed
+   * from the latency samples.
+   */
+  public LatencyHistograms getLatencyHistograms() {
+    return latencyHistograms;
+  }
+
+  public void setLatencyHistograms(LatencyHistograms latencyHistograms) {
+    this.latencyHistograms = latencyHistograms;
+  }
+
+  /** Returns the executions of each SQL statement, or null if they were not instrumented. */
+  public StatementStatistics getStatementStatistics() {
+    return statementStatistics;
+  }
+
+  public void setStatementStatistics(StatementStatistics statementStatistics) {
+    this.statementStatistics = statementStatistics;
+  }
+
+  /** Returns true unless only latency histograms were recorded. */
+  public boolean hasSamples() {
+    return latencySamples != null;
+  }
+
+  public List<Phase> getSearchedPhases() {
+    return searchedPhases;
+  }
+
   public Histogram<TransactionType> getSuccess() {
     return success;
   }
@@ -98,6 +277,72 @@ public final class Results {
     return abortMessages;
   }
 
+  /**
+   * Returns the attempts that ended with the given status because of an injected fault; they are
+   * counted in the histogram of that status too.
+   */
+  public Histogram<TransactionType> getInjectedFaults(TransactionStatus status) {
+    return injectedFaults.computeIfAbsent(status, s -> new Histogram<>(false));
+  }
+
+  /**
+   * Returns how long the measured transactions that had to wait before a retry or a reconnect
+   * waited, in microseconds. This time is part of their latency.
+   */
+  public LatencyHistogram getRetryWait() {
+    return retryWait;
+  }
+
+  public void setRetryWait(LatencyHistogram retryWait) {
+    this.retryWait = retryWait;
+  }
+
+  /**
+   * Returns the statistics over the retry wait of each measured request, including those that did
+   * not wait, so that they line up with the latency distribution; or null if they were not kept.
+   */
+  public DistributionStatistics getRetryWaitStatistics() {
+    return retryWaitStatistics;
+  }
+
+  public void setRetryWaitStatistics(DistributionStatistics retryWaitStatistics) {
+    this.retryWaitStatistics = retryWaitStatistics;
+  }
+
+  /** Returns the retries that were not made because the retry budget of their phase was used up. */
+  public long getRetriesDenied() {
+    return retriesDenied;
+  }
+
+  public void setRetriesDenied(long retriesDenied) {
+    this.retriesDenied = retriesDenied;
+  }
+
+  /** Returns the faults injected into the database calls, or null if no phase had any. */
+  public FaultInjector.Statistics getFaultStatistics() {
+    return faultStatistics;
+  }
+
+  public void setFaultStatistics(FaultInjector.Statistics faultStatistics) {
+    this.faultStatistics = faultStatistics;
+  }
+
+  /** Returns where the transactions of all workers spent their time, or null if not profiled. */
+  public StageProfiler getStageProfile() {
+    return stageProfile;
+  }
+
+  /** Returns where the transactions of each worker spent their time, or null if not profiled. */
+  public Map<String, StageProfiler> getWorkerStageProfiles() {
+    return workerStageProfiles;
+  }
+
+  public void setStageProfile(
+      StageProfiler stageProfile, Map<String, StageProfiler> workerStageProfiles) {
+    this.stageProfile = stageProfile;
+    this.workerStageProfiles = workerStageProfiles;
+  }
+
   public double requestsPerSecondThroughput() {
     return (double) measuredRequests / (double) nanoseconds * 1e9;
   }
@@ -106,7 +351,7 @@ public final class Results {
     return (double) success.getSampleCount() / (double) nanoseconds * 1e9;
   }
 
-  public List<Sample> getLatencySamples() {
+  public Iterable<Sample> getLatencySamples() {
     return latencySamples;
   }
 
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * An append-only log of latency samples in memory-mapped files, so that a worker can keep every
+ * sample of a long run without holding them on the heap.
+ *
+ * <p>The log is a sequence of segment files named {@code <name>.<n>.samples}. Each starts with a
+ * 16-byte header: the magic number {@code BBS1}, the size of a record, and the number of records
+ * written so far, which is updated after every record. Then follow fixed-width 36-byte records of
+ * (start time in nanoseconds, latency and queue delay in microseconds, transaction type, worker id,
+ * phase id, the latency's remainder in nanoseconds, and retry wait in microseconds), in big-endian
+ * byte order. Since the operating system writes the mapped pages back on its own, the samples
+ * recorded before the process died can be read with {@link #read(List)}.
+ */
+public final class SampleLog implements AutoCloseable {
+  static final int MAGIC = 0x42425331;
+  static final int HEADER_BYTES = 16;
+  static final int RECORD_BYTES = 36;
+
+  /** 36 MB segments */
+  static final int DEFAULT_SEGMENT_RECORDS = 1 << 20;
+
+  private static final String SUFFIX = ".samples";
+  private static final int COUNT_OFFSET = 8;
+
+  private final Path directory;
+  private final String name;
+  private final int segmentRecords;
+  private final List<Path> segments = new ArrayList<>();
+
+  private MappedByteBuffer segment = null;
+  private int segmentCount = 0;
+  private long count = 0;
+
+  /**
+   * @param directory where to create the segment files; created if it does not exist
+   * @param name the prefix of the segment file names
+   */
+  public SampleLog(Path directory, String name) {
+    this(directory, name, DEFAULT_SEGMENT_RECORDS);
+  }
+
+  SampleLog(Path directory, String name, int segmentRecords) {
+    this.directory = directory;
+    this.name = name;
+    this.segmentRecords = segmentRecords;
+    try {
+      Files.createDirectories(directory);
+    } catch (IOException e) {
+      throw new RuntimeException("Could not create sample log directory " + directory, e);
+    }
+  }
+
+  public void append(
+      int transType,
+      long startNanosecond,
+      int latencyMicrosecond,
+      int latencyRemainderNanosecond,
+      int workerId,
+      int phaseId,
+      int queueDelayMicrosecond,
+      int retryWaitMicrosecond) {
+    if (segment == null || segmentCount == segmentRecords) {
+      nextSegment();
+    }
+    int position = HEADER_BYTES + segmentCount * RECORD_BYTES;
+    segment.putLong(position, startNanosecond);
+    segment.putInt(position + 8, latencyMicrosecond);
+    segment.putInt(position + 12, queueDelayMicrosecond);
+    segment.putInt(position + 16, transType);
+    segment.putInt(position + 20, workerId);
+    segment.putInt(position + 24, phaseId);
+    segment.putInt(position + 28, latencyRemainderNanosecond);
+    segment.putInt(position + 32, retryWaitMicrosecond);
+    segmentCount++;
+    count++;
+    // Only now is the record part of the log
+    segment.putLong(COUNT_OFFSET, segmentCount);
+  }
+
+  private void nextSegment() {
+    if (segment != null) {
+      segment.force();
+    }
+    Path path = directory.resolve(name + "." + segments.size() + SUFFIX);
+    long size = HEADER_BYTES + (long) segmentRecords * RECORD_BYTES;
+    // The mapping stays valid after the channel is closed
+    try (FileChannel channel =
+        FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    } catch (IOException e) {
+      throw new RuntimeException("Could not create sample log segment " + path, e);
+    }
+    segment.putInt(0, MAGIC);
+    segment.putInt(4, RECORD_BYTES);
+    segment.putLong(COUNT_OFFSET, 0);
+    segments.add(path);
+    segmentCount = 0;
+  }
+
+  /** Returns the number of samples in the log. */
+  public long getCount() {
+    return count;
+  }
+
+  /** Returns the segment files written so far, in order. */
+  public List<Path> getSegments() {
+    return List.copyOf(segments);
+  }
+
+  /** Write the last segment back to disk. The log can still be read afterwards. */
+  @Override
+  public void close() {
+    if (segment != null) {
+      segment.force();
+      segment = null;
+    }
+  }
+
+  /** Returns the segment files of the log with the given name in a directory, in order. */
+  public static List<Path> findSegments(Path directory, String name) {
+    Pattern pattern = Pattern.compile(Pattern.quote(name) + "\\.(\\d+)" + Pattern.quote(SUFFIX));
+    List<Path> found = new ArrayList<>();
+    try (Stream<Path> files = Files.list(directory)) {
+      files.forEach(
+          file -> {
+            if (pattern.matcher(file.getFileName().toString()).matches()) {
+              found.add(file);
+            }
+          });
+    } catch (IOException e) {
+      throw new RuntimeException("Could not list sample log directory " + directory, e);
+    }
+    found.sort(
+        (a, b) -> {
+          Matcher ma = pattern.matcher(a.getFileName().toString());
+          Matcher mb = pattern.matcher(b.getFileName().toString());
+          ma.matches();
+          mb.matches();
+          return Long.compare(Long.parseLong(ma.group(1)), Long.parseLong(mb.group(1)));
+        });
+    return found;
+  }
+
+  /** Returns a reader positioned before the first sample of the given segments. */
+  public static Reader read(List<Path> segments) {
+    return new Reader(segments);
+  }
+
+  /** Returns the samples of the given segments, in the order they were written. */
+  public static Iterable<LatencyRecord.Sample> samples(List<Path> segments) {
+    return () -> new SampleIterator(read(segments));
+  }
+
+  /**
+   * Reads a log one sample at a time. The getters describe the sample the last call to {@link
+   * #next()} moved to.
+   */
+  public static final class Reader {
+    private final List<Path> segments;
+    private int segmentIndex = -1;
+    private MappedByteBuffer segment = null;
+    private long segmentCount = 0;
+    private long index = -1;
+    private int position;
+
+    private Reader(List<Path> segments) {
+      this.segments = List.copyOf(segments);
+    }
+
+    /** Move to the next sample. Returns false if there is none. */
+    public boolean next() {
+      while (index + 1 >= segmentCount) {
+        if (segmentIndex + 1 == segments.size()) {
+          return false;
+        }
+        open(segments.get(++segmentIndex));
+      }
+      index++;
+      position = (int) (HEADER_BYTES + index * RECORD_BYTES);
+      return true;
+    }
+
+    private void open(Path path) {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        long size = channel.size();
+        if (size < HEADER_BYTES) {
+          throw new IOException("Truncated header");
+        }
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != RECORD_BYTES) {
+          throw new IOException("Not a sample log segment");
+        }
+        // A segment cut short can hold fewer records than its header says
+        segmentCount = Math.min(header.getLong(COUNT_OFFSET), (size - HEADER_BYTES) / RECORD_BYTES);
+        segment =
+            channel.map(
+                FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES + segmentCount * RECORD_BYTES);
+        index = -1;
+      } catch (IOException e) {
+        throw new RuntimeException("Could not read sample log segment " + path, e);
+      }
+    }
+
+    public long getStartNanosecond() {
+      return segment.getLong(position);
+    }
+
+    public int getLatencyMicrosecond() {
+      return segment.getInt(position + 8);
+    }
+
+    public int getQueueDelayMicrosecond() {
+      return segment.getInt(position + 12);
+    }
+
+    public int getTransactionType() {
+      return segment.getInt(position + 16);
+    }
+
+    public int getWorkerId() {
+      return segment.getInt(position + 20);
+    }
+
+    public int getPhaseId() {
+      return segment.getInt(position + 24);
+    }
+
+    public int getLatencyRemainderNanosecond() {
+      return segment.getInt(position + 28);
+    }
+
+    public int getRetryWaitMicrosecond() {
+      return segment.getInt(position + 32);
+    }
+
+    /** Returns a copy of the current sample. */
+    public LatencyRecord.Sample toSample() {
+      return new LatencyRecord.Sample(
+          getTransactionType(),
+          getStartNanosecond(),
+          getLatencyMicrosecond(),
+          getWorkerId(),
+          getPhaseId(),
+          getQueueDelayMicrosecond(),
+          getLatencyRemainderNanosecond(),
+          getRetryWaitMicrosecond());
+    }
+  }
+
+  private static final class SampleIterator implements Iterator<LatencyRecord.Sample> {
+    private final Reader reader;
+    private boolean hasNext;
+
+    private SampleIterator(Reader reader) {
+      this.reader = reader;
+      this.hasNext = reader.next();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return hasNext;
+    }
+
+    @Override
+    public LatencyRecord.Sample next() {
+      if (!hasNext) {
+        throw new NoSuchElementException();
+      }
+      LatencyRecord.Sample sample = reader.toSample();
+      hasNext = reader.next();
+      return sample;
+    }
+  }
+}
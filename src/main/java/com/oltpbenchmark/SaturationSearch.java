@@ -0,0 +1,317 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Searches for the highest rate a phase can sustain while a response time percentile stays under a
+ * target, instead of running the phase at a fixed rate.
+ *
+ * <p>The phase runs as a series of probes at constant rates. Each probe first settles for a while
+ * and then measures the percentile and the achieved throughput over the rest of the probe. A probe
+ * passes if the percentile is within the SLO and the achieved throughput is at least {@value
+ * #MIN_THROUGHPUT_FRACTION} of the target. The rate doubles until a probe fails and is then found
+ * by bisection, until the passing and failing rates are within the tolerance of each other.
+ *
+ * <p>{@link ThreadBench} feeds the search from the pacing loop; the workers only read the rate.
+ *
+ * <pre>
+ * &lt;work&gt;
+ *   &lt;time&gt;300&lt;/time&gt;
+ *   &lt;rate&gt;1000&lt;/rate&gt;
+ *   &lt;search slo="50" percentile="99" probe="10" settle="2" tolerance="0.05"/&gt;
+ *   ...
+ * </pre>
+ */
+public final class SaturationSearch {
+
+  /** A probe fails if it achieved less than this fraction of its target rate. */
+  public static final double MIN_THROUGHPUT_FRACTION = 0.9;
+
+  // Below this rate (requests/second) there is nothing left to search
+  private static final double MIN_RATE = 1;
+
+  private final double percentile;
+  private final double sloMilliseconds;
+  private final double probeSeconds;
+  private final double settleSeconds;
+  private final double tolerance;
+
+  private final List<Probe> probes = new CopyOnWriteArrayList<>();
+  private volatile Probe current;
+
+  // Only used by the pacing loop
+  private double highestPassed = 0;
+  private double lowestFailed = Double.POSITIVE_INFINITY;
+  private boolean settled = false;
+  private double measureStartSeconds = 0;
+  private double nextUpdateSeconds;
+  private boolean converged = false;
+
+  /**
+   * @param startRate the rate of the first probe (requests/second)
+   * @param percentile the response time percentile to keep under the SLO (0-100)
+   * @param sloMilliseconds the response time target
+   * @param probeSeconds how long each probe runs, including the settle time
+   * @param settleSeconds how long each probe runs before it starts measuring
+   * @param tolerance how close (as a fraction) the passing and failing rates must get
+   */
+  public SaturationSearch(
+      double startRate,
+      double percentile,
+      double sloMilliseconds,
+      double probeSeconds,
+      double settleSeconds,
+      double tolerance) {
+    if (startRate <= 0) {
+      throw new IllegalArgumentException("The search needs a positive starting rate");
+    }
+    if (percentile <= 0 || percentile > 100) {
+      throw new IllegalArgumentException("The percentile must be in (0, 100]");
+    }
+    if (sloMilliseconds <= 0) {
+      throw new IllegalArgumentException("The SLO must be positive");
+    }
+    if (settleSeconds < 0 || probeSeconds <= settleSeconds) {
+      throw new IllegalArgumentException("Probes must be longer than their settle time");
+    }
+    if (tolerance <= 0 || tolerance >= 1) {
+      throw new IllegalArgumentException("The tolerance must be in (0, 1)");
+    }
+    this.percentile = percentile;
+    this.sloMilliseconds = sloMilliseconds;
+    this.probeSeconds = probeSeconds;
+    this.settleSeconds = settleSeconds;
+    this.tolerance = tolerance;
+    startProbe(0, startRate);
+  }
+
+  /** Returns the target rate {@code seconds} into the phase. */
+  public double getRate(double seconds) {
+    Probe probe = current;
+    if (seconds >= probe.startSeconds) {
+      return probe.rate;
+    }
+    for (int i = probes.size() - 1; i > 0; i--) {
+      if (seconds >= probes.get(i).startSeconds) {
+        return probes.get(i).rate;
+      }
+    }
+    return probes.get(0).rate;
+  }
+
+  /** Returns when {@link #update} next needs to be called, in seconds into the phase. */
+  public double getNextUpdateSeconds() {
+    return converged ? Double.POSITIVE_INFINITY : nextUpdateSeconds;
+  }
+
+  /**
+   * Advance the search. At the end of a probe's settle time the samples are discarded; at the end
+   * of the probe they decide the next rate.
+   *
+   * @param seconds the time into the phase
+   * @param responseTimes the response times (in microseconds) that completed since the last update
+   * @return the probe that this update completed, if any
+   */
+  public Probe update(double seconds, LiveHistogram.Snapshot responseTimes) {
+    if (converged) {
+      return null;
+    }
+    if (!settled) {
+      settled = true;
+      measureStartSeconds = seconds;
+      nextUpdateSeconds = seconds + probeSeconds - settleSeconds;
+      return null;
+    }
+
+    Probe probe = current;
+    probe.measuredSeconds = seconds - measureStartSeconds;
+    probe.requests = responseTimes.getCount();
+    probe.percentileMilliseconds = responseTimes.getPercentile(percentile) / 1000.0;
+    probe.passed =
+        probe.requests > 0
+            && probe.percentileMilliseconds <= sloMilliseconds
+            && probe.getThroughput() >= MIN_THROUGHPUT_FRACTION * probe.rate;
+    probe.complete = true;
+
+    if (probe.passed) {
+      highestPassed = Math.max(highestPassed, probe.rate);
+    } else {
+      lowestFailed = Math.min(lowestFailed, probe.rate);
+    }
+    if (lowestFailed == Double.POSITIVE_INFINITY) {
+      startProbe(seconds, probe.rate * 2);
+    } else if (lowestFailed - highestPassed <= tolerance * lowestFailed
+        || lowestFailed < MIN_RATE) {
+      converged = true;
+    } else {
+      startProbe(seconds, (highestPassed + lowestFailed) / 2);
+    }
+    return probe;
+  }
+
+  private void startProbe(double seconds, double rate) {
+    Probe probe = new Probe(probes.size() + 1, seconds, rate);
+    probes.add(probe);
+    current = probe;
+    settled = false;
+    nextUpdateSeconds = seconds + settleSeconds;
+  }
+
+  /** Returns true once the passing and failing rates are within the tolerance. */
+  public boolean isConverged() {
+    return converged;
+  }
+
+  /** Returns the highest rate that passed, or 0 if none did. */
+  public double getSustainableRate() {
+    return highestPassed;
+  }
+
+  /** Returns the passing probe with the highest rate, or null if none passed. */
+  public Probe getSustainableProbe() {
+    Probe best = null;
+    for (Probe probe : probes) {
+      if (probe.passed && (best == null || probe.rate > best.rate)) {
+        best = probe;
+      }
+    }
+    return best;
+  }
+
+  public List<Probe> getProbes() {
+    return probes;
+  }
+
+  public double getPercentile() {
+    return percentile;
+  }
+
+  public double getSloMilliseconds() {
+    return sloMilliseconds;
+  }
+
+  public Map<String, Object> toMap() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("Percentile", percentile);
+    map.put("SLO (millisecond)", sloMilliseconds);
+    map.put("Converged", converged);
+    map.put("Sustainable Rate (requests/second)", highestPassed);
+    Probe best = getSustainableProbe();
+    if (best != null) {
+      map.put("Sustainable Throughput (requests/second)", best.getThroughput());
+      map.put(
+          String.format("Sustainable %s Response Time (millisecond)", percentileName()),
+          best.percentileMilliseconds);
+    }
+    List<Map<String, Object>> probeMaps = new ArrayList<>();
+    for (Probe probe : probes) {
+      if (probe.complete) {
+        probeMaps.add(probe.toMap());
+      }
+    }
+    map.put("Probes", probeMaps);
+    return map;
+  }
+
+  private String percentileName() {
+    if (percentile == Math.floor(percentile)) {
+      return "p" + (int) percentile;
+    }
+    return "p" + percentile;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "search(%s <= %.1f ms from %.1f)", percentileName(), sloMilliseconds, probes.get(0).rate);
+  }
+
+  /** One constant-rate step of the search. */
+  public final class Probe {
+    private final int number;
+    private final double startSeconds;
+    private final double rate;
+    private double measuredSeconds = 0;
+    private long requests = 0;
+    private double percentileMilliseconds = -1;
+    private boolean passed = false;
+    private boolean complete = false;
+
+    private Probe(int number, double startSeconds, double rate) {
+      this.number = number;
+      this.startSeconds = startSeconds;
+      this.rate = rate;
+    }
+
+    public int getNumber() {
+      return number;
+    }
+
+    public double getRate() {
+      return rate;
+    }
+
+    public double getThroughput() {
+      return measuredSeconds > 0 ? requests / measuredSeconds : 0;
+    }
+
+    public double getPercentileMilliseconds() {
+      return percentileMilliseconds;
+    }
+
+    public boolean isPassed() {
+      return passed;
+    }
+
+    /** Returns false if the phase ended before the probe did. */
+    public boolean isComplete() {
+      return complete;
+    }
+
+    public Map<String, Object> toMap() {
+      Map<String, Object> map = new LinkedHashMap<>();
+      map.put("Probe", number);
+      map.put("Start (seconds)", startSeconds);
+      map.put("Target Rate (requests/second)", rate);
+      map.put("Throughput (requests/second)", getThroughput());
+      map.put(
+          String.format("%s Response Time (millisecond)", percentileName()),
+          percentileMilliseconds);
+      map.put("Passed", passed);
+      return map;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "probe %d at %.1f req/s: %.1f req/s, %s %.3f ms -> %s",
+          number,
+          rate,
+          getThroughput(),
+          percentileName(),
+          percentileMilliseconds,
+          passed ? "pass" : "fail");
+    }
+  }
+}
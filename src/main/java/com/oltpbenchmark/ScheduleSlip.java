@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.oltpbenchmark;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * How late the pacing released scheduled arrivals compared to their schedule, for arrivals that
+ * were not held back by a busy terminal. With central pacing this is how late the ThreadBench loop
+ * woke up to post each batch; with worker pacing it is how late idle workers woke up for their next
+ * arrival. Large slip means the client, not the database, is limiting the achieved rate.
+ *
+ * <p>Instances are not thread-safe: each pacer keeps its own and they are merged at the end.
+ */
+public final class ScheduleSlip {
+  private long count = 0;
+  private long totalNs = 0;
+  private long maxNs = 0;
+
+  public void record(long slipNs) {
+    slipNs = Math.max(0, slipNs);
+    count++;
+    totalNs += slipNs;
+    maxNs = Math.max(maxNs, slipNs);
+  }
+
+  public void merge(ScheduleSlip other) {
+    count += other.count;
+    totalNs += other.totalNs;
+    maxNs = Math.max(maxNs, other.maxNs);
+  }
+
+  /** Returns the number of arrivals whose slip was recorded. */
+  public long getCount() {
+    return count;
+  }
+
+  public double getAverageMicroseconds() {
+    return count == 0 ? 0 : totalNs / (count * 1000.0);
+  }
+
+  public double getMaximumMicroseconds() {
+    return maxNs / 1000.0;
+  }
+
+  public Map<String, Object> toMap() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("Arrivals", count);
+    map.put("Average Slip (microseconds)", getAverageMicroseconds());
+    map.put("Maximum Slip (microseconds)", getMaximumMicroseconds());
+    return map;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "%d arrivals, average %.1f us, maximum %.1f us",
+        count, getAverageMicroseconds(), getMaximumMicroseconds());
+  }
+}
@@ -19,23 +19,36 @@ package com.oltpbenchmark;
 
 /**
  * This class is used for keeping track of the procedures that have been submitted to the system
- * when running a rate-limited benchmark.
+ * when running a rate-limited benchmark. Workers own a single instance that the work queue fills in
+ * for every request, so that fetching work does not allocate.
  *
  * @author breilly
  */
 public class SubmittedProcedure {
-  private final int type;
-  private final long startTime;
+  private int type;
+  private long startTime;
 
-  SubmittedProcedure(int type) {
+  /** Creates an empty slot to be filled by {@link WorkloadState#fetchWork(SubmittedProcedure)}. */
+  public SubmittedProcedure() {}
+
+  SubmittedProcedure(int type, long startTime) {
+    set(type, startTime);
+  }
+
+  final void set(int type, long startTime) {
     this.type = type;
-    this.startTime = System.nanoTime();
+    this.startTime = startTime;
   }
 
   public int getType() {
     return type;
   }
 
+  /**
+   * Returns the time (System.nanoTime()) at which this request was scheduled to arrive. For
+   * rate-limited phases this is the arrival time computed by ThreadBench, not the time a worker
+   * picked it up, so that queueing delay is not hidden from the latency measurements.
+   */
   public long getStartTime() {
     return startTime;
   }
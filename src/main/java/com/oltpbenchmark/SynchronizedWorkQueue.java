@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark;
+
+import java.util.LinkedList;
+
+/**
+ * The original work queue: a LinkedList guarded by a single monitor, with one notify() per request.
+ * Kept so that the lock-free queue can be compared against it.
+ */
+final class SynchronizedWorkQueue extends WorkQueue {
+
+  private final int limit;
+  private final LinkedList<SubmittedProcedure> workQueue = new LinkedList<>();
+  private int workersWaiting = 0;
+  private long wakeups = 0;
+
+  SynchronizedWorkQueue(int limit) {
+    this.limit = limit;
+  }
+
+  @Override
+  synchronized int add(Phase phase, int amount, long scheduledNs, long spacingNs) {
+    int workAdded = 0;
+
+    // Add the specified number of procedures to the end of the queue.
+    // If we can't keep up with current rate, truncate transactions
+    for (int i = 0; i < amount && workQueue.size() <= limit; ++i) {
+      workQueue.add(new SubmittedProcedure(phase.chooseTransaction(), scheduledNs + i * spacingNs));
+      workAdded++;
+    }
+
+    // Wake up sleeping workers to deal with the new work.
+    int numToWake = Math.min(workAdded, workersWaiting);
+    while (numToWake-- > 0) {
+      this.notify();
+    }
+    return workAdded;
+  }
+
+  @Override
+  synchronized SubmittedProcedure take(SubmittedProcedure slot, BenchmarkState benchmarkState) {
+    // Sleep until work is available.
+    if (workQueue.peek() == null) {
+      long wakeup = wakeups;
+      workersWaiting += 1;
+      while (workQueue.peek() == null) {
+        if (isFinished(benchmarkState) || wakeups != wakeup) {
+          workersWaiting -= 1;
+          return null;
+        }
+
+        try {
+          this.wait();
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+      workersWaiting -= 1;
+    }
+
+    SubmittedProcedure next = workQueue.remove();
+    slot.set(next.getType(), next.getStartTime());
+    return slot;
+  }
+
+  @Override
+  synchronized void clear() {
+    workQueue.clear();
+  }
+
+  @Override
+  synchronized void wakeAll() {
+    wakeups++;
+    if (workersWaiting > 0) {
+      this.notifyAll();
+    }
+  }
+
+  @Override
+  synchronized int size() {
+    return workQueue.size();
+  }
+}
@@ -15,16 +15,24 @@
 
 package com.oltpbenchmark;
 
-import com.oltpbenchmark.LatencyRecord.Sample;
 import com.oltpbenchmark.api.BenchmarkModule;
+import com.oltpbenchmark.api.ConnectionManager;
+import com.oltpbenchmark.api.StageProfiler;
 import com.oltpbenchmark.api.TransactionType;
 import com.oltpbenchmark.api.Worker;
 import com.oltpbenchmark.api.collectors.monitoring.Monitor;
 import com.oltpbenchmark.api.collectors.monitoring.MonitorGen;
+import com.oltpbenchmark.jdbc.FaultInjector;
+import com.oltpbenchmark.jdbc.StatementStatistics;
 import com.oltpbenchmark.types.State;
+import com.oltpbenchmark.types.TransactionStatus;
+import com.oltpbenchmark.util.CarrierUtilization;
+import com.oltpbenchmark.util.CollectionUtil;
 import com.oltpbenchmark.util.MonitorInfo;
 import com.oltpbenchmark.util.StringUtil;
+import java.lang.management.ManagementFactory;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 import org.apache.commons.collections4.map.ListOrderedMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,24 +42,34 @@ public class ThreadBench implements Thread.UncaughtExceptionHandler {
   // Determines how long (in ms) to wait until monitoring thread rejoins the
   // main thread.
   private static final int MONITOR_REJOIN_TIME = 60000;
+  // How often the pacing loop checks the phase sync while it waits for the next interval.
+  private static final long PHASE_SYNC_POLL_NS = 1000000;
+  // How often the main loop wakes up to keep time when every workload uses worker pacing.
+  private static final long WORKER_PACING_TICK_NS = 1000000;
+  // How often the main loop wakes up while a load profile is at rate zero.
+  private static final long IDLE_TICK_NS = 10000000;
 
   private final BenchmarkState testState;
   private final List<? extends Worker<? extends BenchmarkModule>> workers;
   private final ArrayList<Thread> workerThreads;
   private final List<WorkloadConfiguration> workConfs;
-  private final ArrayList<LatencyRecord.Sample> samples = new ArrayList<>();
   private final MonitorInfo monitorInfo;
+  private final PhaseSync phaseSync;
 
   private Monitor monitor = null;
+  // If true the workers generate their own arrivals and the main loop only keeps time
+  private boolean workerPacing = false;
 
   private ThreadBench(
       List<? extends Worker<? extends BenchmarkModule>> workers,
       List<WorkloadConfiguration> workConfs,
-      MonitorInfo monitorInfo) {
+      MonitorInfo monitorInfo,
+      PhaseSync phaseSync) {
     this.workers = workers;
     this.workConfs = workConfs;
     this.workerThreads = new ArrayList<>(workers.size());
     this.monitorInfo = monitorInfo;
+    this.phaseSync = phaseSync;
     this.testState = new BenchmarkState(workers.size() + 1);
   }
 
@@ -59,7 +77,19 @@ public class ThreadBench implements Thread.UncaughtExceptionHandler {
       List<Worker<? extends BenchmarkModule>> workers,
       List<WorkloadConfiguration> workConfs,
       MonitorInfo monitorInfo) {
-    ThreadBench bench = new ThreadBench(workers, workConfs, monitorInfo);
+    return runRateLimitedBenchmark(workers, workConfs, monitorInfo, null);
+  }
+
+  /**
+   * @param phaseSync if not null, decides when the run starts, the warmup ends and phases are over
+   *     instead of the configured times
+   */
+  public static Results runRateLimitedBenchmark(
+      List<Worker<? extends BenchmarkModule>> workers,
+      List<WorkloadConfiguration> workConfs,
+      MonitorInfo monitorInfo,
+      PhaseSync phaseSync) {
+    ThreadBench bench = new ThreadBench(workers, workConfs, monitorInfo, phaseSync);
     return bench.runRateLimitedMultiPhase();
   }
 
@@ -67,7 +97,12 @@ public class ThreadBench implements Thread.UncaughtExceptionHandler {
 
     for (Worker<?> worker : workers) {
       worker.initializeState();
-      Thread thread = new Thread(worker);
+      Thread thread;
+      if (worker.getWorkloadConfiguration().getVirtualThreads()) {
+        thread = Thread.ofVirtual().unstarted(worker);
+      } else {
+        thread = new Thread(worker);
+      }
       thread.setUncaughtExceptionHandler(this);
       thread.start();
       this.workerThreads.add(thread);
@@ -118,6 +153,36 @@ public class ThreadBench implements Thread.UncaughtExceptionHandler {
       workStates.add(workState.getWorkloadState());
     }
 
+    workerPacing = true;
+    for (WorkloadState workState : workStates) {
+      workerPacing = workerPacing && workState.usesWorkerPacing();
+    }
+    ScheduleSlip scheduleSlip = new ScheduleSlip();
+    OfferedLoad offeredLoad = new OfferedLoad();
+
+    CarrierUtilization carrierUtilization = null;
+    for (WorkloadConfiguration workConf : this.workConfs) {
+      if (workConf.getVirtualThreads()) {
+        carrierUtilization = new CarrierUtilization();
+        if (workConf.getWorkQueueType() == WorkQueue.Type.SYNCHRONIZED) {
+          LOG.warn(
+              "The synchronized work queue pins virtual threads to their carriers while they wait"
+                  + " for work; use the lockfree queue with virtualThreads");
+        }
+        if (workConf.getPacing() == ArrivalSchedule.Pacing.WORKER) {
+          LOG.warn(
+              "Worker pacing parks every virtual thread on a timer for each arrival, which the JDK"
+                  + " serves from a single unparker thread; use central pacing with"
+                  + " virtualThreads");
+        }
+      }
+    }
+    if (carrierUtilization != null) {
+      LOG.info(
+          "Running terminals on virtual threads with {} carrier threads",
+          CarrierUtilization.getParallelism());
+    }
+
     this.createWorkerThreads();
 
     // long measureStart = start;
@@ -144,21 +209,38 @@ public class ThreadBench implements Thread.UncaughtExceptionHandler {
       }
     }
 
+    if (phaseSync != null) {
+      try {
+        phaseSync.awaitStart();
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
     long startTs = System.currentTimeMillis();
     long start = System.nanoTime();
+    for (WorkloadState workState : workStates) {
+      workState.resetPhaseStart(start);
+    }
     long warmupStart = System.nanoTime();
     long warmup = warmupStart;
     long measureEnd = -1;
+    double carrierBusy = -1;
+    long measureCpuStart = -1;
+    long measureCpuEnd = -1;
 
-    long intervalNs = getInterval(lowestRate, phase.getArrival());
+    long intervalNs = getInterval(lowestRate, phase);
 
     long nextInterval = start + intervalNs;
+    // The time at which the next batch of requests is scheduled to arrive
+    long scheduledNs = start;
     int nextToAdd = 1;
     int rateFactor;
 
     boolean resetQueues = true;
 
     long delta = phase.getTime() * 1000000000L;
+    int completedPhases = 0;
     boolean lastEntry = false;
 
     // Initialize the Monitor
@@ -177,13 +259,22 @@ public class ThreadBench implements Thread.UncaughtExceptionHandler {
       // posting new work... and resetting the queue in case we have new
       // portion of the workload...
 
+      // Load profiles change the rates within a phase
+      lowestRate = getLowestTargetRate(workStates, scheduledNs);
       for (WorkloadState workState : workStates) {
-        if (workState.getCurrentPhase() != null) {
-          rateFactor = (int) (workState.getCurrentPhase().getRate() / lowestRate);
-        } else {
+        Phase current = workState.getCurrentPhase();
+        if (current == null) {
           rateFactor = 1;
+        } else if (lowestRate > 0) {
+          rateFactor = (int) (workState.getTargetRate(current, scheduledNs) / lowestRate);
+        } else {
+          rateFactor = 0;
+        }
+        int amount = nextToAdd * rateFactor;
+        if (amount > 0 || resetQueues) {
+          workState.addToQueue(
+              amount, resetQueues, scheduledNs, amount > 0 ? intervalNs / amount : 0);
         }
-        workState.addToQueue(nextToAdd * rateFactor, resetQueues);
       }
       resetQueues = false;
 
@@ -193,17 +284,29 @@ public class ThreadBench implements Thread.UncaughtExceptionHandler {
         warmup = warmupStart + phase.getWarmupTime() * 1000000000L;
       }
       long diff = nextInterval - now;
-      while (diff > 0) { // this can wake early: sleep multiple times to avoid that
-        long ms = diff / 1000000;
-        diff = diff % 1000000;
+      // this can wake early: sleep multiple times to avoid that
+      while (diff > 0 && !phaseSyncSignalled(completedPhases)) {
+        // With a phase sync, don't sleep through its signals (unlimited phases tick once a second)
+        long sleepNs = phaseSync != null ? Math.min(diff, PHASE_SYNC_POLL_NS) : diff;
         try {
-          Thread.sleep(ms, (int) diff);
+          Thread.sleep(sleepNs / 1000000, (int) (sleepNs % 1000000));
         } catch (InterruptedException e) {
           throw new RuntimeException(e);
         }
         now = System.nanoTime();
         diff = nextInterval - now;
       }
+      if (!workerPacing
+          && phase != null
+          && phase.isRateLimited()
+          && testState.getState() == State.MEASURE) {
+        scheduleSlip.record(now - nextInterval);
+      }
+
+      if (updateSaturationSearches(workStates, now) && phaseSync == null && start + delta > now) {
+        // The searches have found their rates: end the phase early
+        delta = now - start;
+      }
 
       boolean phaseComplete = false;
       if (phase != null) {
@@ -213,7 +316,11 @@ public class ThreadBench implements Thread.UncaughtExceptionHandler {
         {
           phaseComplete = testState.getState() == State.LATENCY_COMPLETE;
         } else {
-          phaseComplete = testState.getState() == State.MEASURE && (start + delta <= now);
+          boolean timeUp =
+              phaseSync != null
+                  ? phaseSync.getCompletedPhases() > completedPhases
+                  : start + delta <= now;
+          phaseComplete = testState.getState() == State.MEASURE && timeUp;
         }
       }
 
@@ -231,17 +338,27 @@ public class ThreadBench implements Thread.UncaughtExceptionHandler {
           if (phase.isLatencyRun()) {
             testState.ackLatencyComplete();
           }
-          for (WorkloadState workState : workStates) {
-            synchronized (workState) {
+          List<Integer> switched = new ArrayList<>();
+          for (int i = 0; i < workStates.size(); i++) {
+            WorkloadState workState = workStates.get(i);
+            workState.lock();
+            try {
+              Phase previous = workState.getCurrentPhase();
               workState.switchToNextPhase();
-              lowestRate = Integer.MAX_VALUE;
               phase = workState.getCurrentPhase();
+              if (phase != previous) {
+                switched.add(i);
+              }
               interruptWorkers();
               if (phase == null && !lastEntry) {
                 // Last phase
                 lastEntry = true;
                 testState.startCoolDown();
                 measureEnd = now;
+                if (carrierUtilization != null) {
+                  carrierBusy = carrierUtilization.stop();
+                }
+                measureCpuEnd = getProcessCpuTime();
                 LOG.info(
                     "{} :: Waiting for all terminals to finish ..", StringUtil.bold("TERMINATE"));
               } else if (phase != null) {
@@ -251,10 +368,24 @@ public class ThreadBench implements Thread.UncaughtExceptionHandler {
                   testState.startColdQuery();
                 }
                 LOG.info(phase.currentPhaseString());
-                if (phase.getRate() < lowestRate) {
-                  lowestRate = phase.getRate();
-                }
               }
+            } finally {
+              workState.unlock();
+            }
+          }
+          if (lastEntry) {
+            offeredLoad.end(measureEnd);
+          } else {
+            // Only the workloads that moved on restart their load profile
+            for (int i : switched) {
+              offeredLoad.startPhase(i, now, workStates.get(i).getCurrentPhase());
+            }
+          }
+          if (lastEntry) {
+            // Workers may have gone back to waiting between the final phase switch and the
+            // cool down; make sure they see the new state.
+            for (WorkloadState workState : workStates) {
+              workState.wakeWorkers();
             }
           }
           if (phase != null) {
@@ -264,6 +395,7 @@ public class ThreadBench implements Thread.UncaughtExceptionHandler {
             // intervalNs = (long) (1000000000. / (double)
             // lowestRate + 0.5);
             delta += phase.getTime() * 1000000000L;
+            completedPhases++;
           }
         }
       }
@@ -274,15 +406,17 @@ public class ThreadBench implements Thread.UncaughtExceptionHandler {
         intervalNs = 0;
         nextToAdd = 0;
         do {
-          intervalNs += getInterval(lowestRate, phase.getArrival());
+          intervalNs += getInterval(getLowestTargetRate(workStates, nextInterval), phase);
           nextToAdd++;
         } while ((-diff) > intervalNs && !lastEntry);
+        scheduledNs = nextInterval;
         nextInterval += intervalNs;
       }
 
       // Update the test state appropriately
       State state = testState.getState();
-      if (state == State.WARMUP && now >= warmup) {
+      boolean warmupDone = phaseSync != null ? phaseSync.isWarmupComplete() : now >= warmup;
+      if (state == State.WARMUP && warmupDone) {
         synchronized (testState) {
           if (phase != null && phase.isLatencyRun()) {
             testState.startColdQuery();
@@ -292,6 +426,16 @@ public class ThreadBench implements Thread.UncaughtExceptionHandler {
           interruptWorkers();
         }
         start = now;
+        for (WorkloadState workState : workStates) {
+          workState.resetProfileStart(now);
+        }
+        for (int i = 0; i < workStates.size(); i++) {
+          offeredLoad.startPhase(i, now, workStates.get(i).getCurrentPhase());
+        }
+        if (carrierUtilization != null) {
+          carrierUtilization.start();
+        }
+        measureCpuStart = getProcessCpuTime();
         LOG.info("{} :: Warmup complete, starting measurements.", StringUtil.bold("MEASURE"));
         // measureEnd = measureStart + measureSeconds * 1000000000L;
 
@@ -324,21 +468,66 @@ public class ThreadBench implements Thread.UncaughtExceptionHandler {
     try {
       int requests = finalizeWorkers(this.workerThreads);
 
-      // Combine all the latencies together in the most disgusting way
-      // possible: sorting!
-      for (Worker<?> w : workers) {
-        for (LatencyRecord.Sample sample : w.getLatencyRecords()) {
-          samples.add(sample);
+      // Workloads that record histograms have merged them as they went
+      LatencyHistograms histograms = null;
+      for (WorkloadState workState : workStates) {
+        if (workState.getLatencyHistograms() != null) {
+          if (histograms == null) {
+            histograms =
+                new LatencyHistograms(
+                    workState.getTestStartNs(),
+                    workState.getLatencyHistograms().getWindowSeconds());
+          }
+          histograms.add(workState.getLatencyHistograms());
         }
       }
-      Collections.sort(samples);
 
-      // Compute stats on all the latencies
-      int[] latencies = new int[samples.size()];
-      for (int i = 0; i < samples.size(); ++i) {
-        latencies[i] = samples.get(i).getLatencyMicrosecond();
+      // Each worker's samples are already in order of their start time, so they are merged as
+      // they are read rather than copied and sorted
+      List<Iterable<LatencyRecord.Sample>> workerSamples = new ArrayList<>();
+      boolean keptSamples = histograms == null;
+      for (Worker<?> w : workers) {
+        if (w.getSampleLog() != null) {
+          workerSamples.add(SampleLog.samples(w.getSampleLog().getSegments()));
+          keptSamples = true;
+        } else {
+          workerSamples.add(w.getLatencyRecords());
+        }
+      }
+      Iterable<LatencyRecord.Sample> samples =
+          keptSamples ? CollectionUtil.mergeSorted(workerSamples, Comparator.naturalOrder()) : null;
+
+      DistributionStatistics stats;
+      DistributionStatistics responseTimeStats;
+      DistributionStatistics retryWaitStats;
+      if (histograms != null) {
+        stats = histograms.getStatistics(false);
+        responseTimeStats = histograms.getStatistics(true);
+        retryWaitStats = histograms.getRetryWaitStatistics();
+      } else {
+        // Compute stats on all the latencies; their order does not matter
+        int[] latencies = new int[1024];
+        int[] responseTimes = new int[1024];
+        int[] retryWaits = new int[1024];
+        int count = 0;
+        for (Iterable<LatencyRecord.Sample> records : workerSamples) {
+          for (LatencyRecord.Sample sample : records) {
+            if (count == latencies.length) {
+              latencies = Arrays.copyOf(latencies, count * 2);
+              responseTimes = Arrays.copyOf(responseTimes, count * 2);
+              retryWaits = Arrays.copyOf(retryWaits, count * 2);
+            }
+            latencies[count] = sample.getLatencyMicrosecond();
+            responseTimes[count] = sample.getResponseTimeMicrosecond();
+            retryWaits[count] = sample.getRetryWaitMicrosecond();
+            count++;
+          }
+        }
+        stats = DistributionStatistics.computeStatistics(Arrays.copyOf(latencies, count));
+        responseTimeStats =
+            DistributionStatistics.computeStatistics(Arrays.copyOf(responseTimes, count));
+        retryWaitStats = DistributionStatistics.computeStatistics(Arrays.copyOf(retryWaits, count));
       }
-      DistributionStatistics stats = DistributionStatistics.computeStatistics(latencies);
 
       Results results =
           new Results(
@@ -349,8 +538,133 @@ public class ThreadBench implements Thread.UncaughtExceptionHandler {
               measureEnd - start,
               requests,
               stats,
+              responseTimeStats,
               samples);
 
+      long droppedArrivals = 0;
+      for (WorkloadState workState : workStates) {
+        droppedArrivals += workState.getDroppedArrivals();
+      }
+      long lateArrivals = 0;
+      for (Worker<?> w : workers) {
+        lateArrivals += w.getLateArrivals();
+      }
+      results.setDroppedArrivals(droppedArrivals);
+      results.setLateArrivals(lateArrivals);
+      // The bound is a global setting, so every workload has the same
+      results.setQueueDelayBound(workConfs.get(0).getQueueDelayBound());
+      for (Worker<?> w : workers) {
+        if (w.getScheduleSlip() != null) {
+          scheduleSlip.merge(w.getScheduleSlip());
+        }
+      }
+      results.setScheduleSlip(scheduleSlip);
+      LatencyHistogram retryWait = new LatencyHistogram();
+      for (Worker<?> w : workers) {
+        retryWait.add(w.getRetryWait());
+      }
+      results.setRetryWait(retryWait);
+      results.setRetryWaitStatistics(retryWaitStats);
+      long retriesDenied = 0;
+      for (WorkloadConfiguration workConf : workConfs) {
+        if (workConf.getRetryPolicy() != null) {
+          retriesDenied += workConf.getRetryPolicy().getRetriesDenied();
+        }
+      }
+      results.setRetriesDenied(retriesDenied);
+      if (retryWait.getCount() > 0 || retriesDenied > 0) {
+        LOG.info(
+            "Retries: {} measured transactions waited {} ms on average, {} retries denied by the"
+                + " budget",
+            retryWait.getCount(),
+            String.format("%.1f", Math.max(0, retryWait.getAverage()) / 1000),
+            retriesDenied);
+      }
+      results.setOfferedLoad(offeredLoad);
+      results.setLatencyHistograms(histograms);
+      StatementStatistics statementStatistics = null;
+      for (Worker<?> w : workers) {
+        if (w.getStatementStatistics() != null) {
+          if (statementStatistics == null) {
+            statementStatistics = new StatementStatistics();
+          }
+          statementStatistics.add(w.getStatementStatistics());
+        }
+      }
+      results.setStatementStatistics(statementStatistics);
+      if (StageProfiler.ENABLED) {
+        StageProfiler stageProfile = new StageProfiler();
+        Map<String, StageProfiler> workerStageProfiles = new LinkedHashMap<>();
+        for (Worker<?> w : workers) {
+          stageProfile.add(w.getStageProfiler());
+          workerStageProfiles.put(w.toString(), w.getStageProfiler());
+        }
+        results.setStageProfile(stageProfile, workerStageProfiles);
+        LOG.info("Client stages (ms): {}", stageProfile.totalsToMap());
+      }
+      long cacheHits = -1;
+      long cachePrepares = 0;
+      for (Worker<?> w : workers) {
+        if (w.getStatementCacheHits() >= 0) {
+          cacheHits = Math.max(cacheHits, 0) + w.getStatementCacheHits();
+          cachePrepares += w.getStatementCachePrepares();
+        }
+      }
+      if (cacheHits >= 0) {
+        LOG.info("Statement cache: {} hits, {} prepares", cacheHits, cachePrepares);
+        results.setStatementCache(cacheHits, cachePrepares);
+      }
+      Set<ConnectionManager> connectionManagers =
+          Collections.newSetFromMap(new IdentityHashMap<>());
+      for (Worker<?> w : workers) {
+        connectionManagers.add(w.getBenchmark().getConnectionManager());
+      }
+      ConnectionManager.Statistics connectionStatistics = new ConnectionManager.Statistics();
+      for (ConnectionManager manager : connectionManagers) {
+        connectionStatistics.add(manager.getStatistics());
+      }
+      results.setConnectionStatistics(connectionStatistics);
+      Set<FaultInjector> faultInjectors = Collections.newSetFromMap(new IdentityHashMap<>());
+      for (Worker<?> w : workers) {
+        if (w.getBenchmark().getFaultInjector() != null) {
+          faultInjectors.add(w.getBenchmark().getFaultInjector());
+        }
+      }
+      if (!faultInjectors.isEmpty()) {
+        FaultInjector.Statistics faultStatistics = new FaultInjector.Statistics();
+        for (FaultInjector injector : faultInjectors) {
+          faultStatistics.add(injector.getStatistics());
+        }
+        LOG.info("Injected faults: {}", faultStatistics.toMap());
+        results.setFaultStatistics(faultStatistics);
+      }
+      if (measureCpuStart >= 0 && measureCpuEnd >= 0) {
+        results.setClientCpuNanoseconds(measureCpuEnd - measureCpuStart);
+      }
+      for (WorkloadConfiguration workConf : workConfs) {
+        for (Phase p : workConf.getPhases()) {
+          SaturationSearch search = p.getSaturationSearch();
+          if (search != null) {
+            LOG.info(
+                "Saturation search of {} phase {}: sustainable rate {} req/s{}",
+                p.getBenchmarkName(),
+                p.getId(),
+                String.format("%.1f", search.getSustainableRate()),
+                search.isConverged() ? "" : " (did not converge before the phase ended)");
+            results.getSearchedPhases().add(p);
+          }
+        }
+      }
+      if (scheduleSlip.getCount() > 0) {
+        LOG.info("Schedule slip: {}", scheduleSlip);
+      }
+      if (carrierUtilization != null) {
+        LOG.info(
+            "Carrier threads were {}% busy running terminals during the measurement",
+            String.format("%.1f", carrierBusy * 100));
+        results.setCarrierUtilization(carrierBusy);
+      }
+
       // Compute transaction histogram
       Set<TransactionType> txnTypes = new HashSet<>();
       for (WorkloadConfiguration workConf : workConfs) {
@@ -372,6 +686,11 @@ public class ThreadBench implements Thread.UncaughtExceptionHandler {
         results.getAbort().putHistogram(w.getTransactionAbortHistogram());
         results.getError().putHistogram(w.getTransactionErrorHistogram());
         results.getRetryDifferent().putHistogram(w.getTransactionRetryDifferentHistogram());
+        if (results.getFaultStatistics() != null) {
+          for (TransactionStatus status : TransactionStatus.values()) {
+            results.getInjectedFaults(status).putHistogram(w.getInjectedFaultHistogram(status));
+          }
+        }
       }
 
       return (results);
@@ -380,13 +699,86 @@ public class ThreadBench implements Thread.UncaughtExceptionHandler {
     }
   }
 
-  private long getInterval(double lowestRate, Phase.Arrival arrival) {
-    // TODO Auto-generated method stub
-    if (arrival == Phase.Arrival.POISSON) {
-      return (long) ((-Math.log(1 - Math.random()) / lowestRate) * 1000000000.);
-    } else {
+  /**
+   * Feed the saturation searches of the current phases that are due with the response times the
+   * workers measured since the last update.
+   *
+   * @return true if any current phase has a search and all of them have converged
+   */
+  private boolean updateSaturationSearches(List<WorkloadState> workStates, long now) {
+    if (testState.getState() != State.MEASURE) {
+      return false;
+    }
+    boolean searching = false;
+    boolean converged = true;
+    for (WorkloadState workState : workStates) {
+      Phase current = workState.getCurrentPhase();
+      SaturationSearch search = current == null ? null : current.getSaturationSearch();
+      if (search == null) {
+        continue;
+      }
+      searching = true;
+      double seconds = workState.getProfileSeconds(now);
+      if (seconds >= search.getNextUpdateSeconds()) {
+        LiveHistogram.Snapshot responseTimes = new LiveHistogram.Snapshot();
+        for (Worker<?> w : workers) {
+          if (w.getWorkloadConfiguration().getWorkloadState() == workState) {
+            w.drainIntervalResponseTimes(responseTimes);
+          }
+        }
+        SaturationSearch.Probe probe = search.update(seconds, responseTimes);
+        if (probe != null) {
+          LOG.info("{} :: {}", StringUtil.bold("SEARCH"), probe);
+        }
+      }
+      converged = converged && search.isConverged();
+    }
+    return searching && converged;
+  }
+
+  /** Returns true if the phase sync has moved on since the pacing loop last looked at it. */
+  private boolean phaseSyncSignalled(int completedPhases) {
+    if (phaseSync == null) {
+      return false;
+    }
+    return phaseSync.getCompletedPhases() > completedPhases
+        || (testState.getState() == State.WARMUP && phaseSync.isWarmupComplete());
+  }
+
+  /** Returns the CPU time used by this process so far, or -1 if the JVM does not report it. */
+  private static long getProcessCpuTime() {
+    if (ManagementFactory.getOperatingSystemMXBean()
+        instanceof com.sun.management.OperatingSystemMXBean os) {
+      return os.getProcessCpuTime();
+    }
+    return -1;
+  }
+
+  private long getInterval(double lowestRate, Phase phase) {
+    if (workerPacing) {
+      return WORKER_PACING_TICK_NS;
+    }
+    if (lowestRate <= 0) {
+      // A load profile is at rate zero: just keep time until it picks up again
+      return IDLE_TICK_NS;
+    }
+    if (phase.getArrival() == Phase.Arrival.REGULAR) {
       return (long) (1000000000. / lowestRate + 0.5);
+    } else {
+      return (long) (phase.nextArrivalGap(ThreadLocalRandom.current()) / lowestRate * 1000000000.);
+    }
+  }
+
+  /** Returns the lowest target rate among the workloads' current phases at the given time. */
+  private static double getLowestTargetRate(List<WorkloadState> workStates, long ns) {
+    double lowest = Double.MAX_VALUE;
+    for (WorkloadState workState : workStates) {
+      Phase current = workState.getCurrentPhase();
+      if (current != null) {
+        lowest = Math.min(lowest, workState.getTargetRate(current, ns));
+      }
     }
+    return lowest;
   }
 
   @Override
@@ -399,131 +791,22 @@ public class ThreadBench implements Thread.UncaughtExceptionHandler {
     // and partial metrics will be reported (i.e., until failure happened).
     synchronized (testState) {
       for (WorkloadConfiguration workConf : this.workConfs) {
-        synchronized (workConf.getWorkloadState()) {
-          WorkloadState workState = workConf.getWorkloadState();
+        WorkloadState workState = workConf.getWorkloadState();
+        workState.lock();
+        try {
           Phase phase = workState.getCurrentPhase();
           while (phase != null) {
             workState.switchToNextPhase();
             phase = workState.getCurrentPhase();
           }
+        } finally {
+          workState.unlock();
         }
       }
       testState.signalError();
     }
   }
 
-  public static final class TimeBucketIterable implements Iterable<DistributionStatistics> {
-    private final Iterable<Sample> samples;
-    private final int windowSizeSeconds;
-    private final TransactionType transactionType;
-
-    /**
-     * @param samples
-     * @param windowSizeSeconds
-     * @param transactionType Allows to filter transactions by type
-     */
-    public TimeBucketIterable(
-        Iterable<Sample> samples, int windowSizeSeconds, TransactionType transactionType) {
-      this.samples = samples;
-      this.windowSizeSeconds = windowSizeSeconds;
-      this.transactionType = transactionType;
-    }
-
-    @Override
-    public Iterator<DistributionStatistics> iterator() {
-      return new TimeBucketIterator(samples.iterator(), windowSizeSeconds, transactionType);
-    }
-  }
-
-  private static final class TimeBucketIterator implements Iterator<DistributionStatistics> {
-    private final Iterator<Sample> samples;
-    private final int windowSizeSeconds;
-    private final TransactionType txType;
-
-    private Sample sample;
-    private long nextStartNanosecond;
-
-    private DistributionStatistics next;
-
-    /**
-     * @param samples
-     * @param windowSizeSeconds
-     * @param txType Allows to filter transactions by type
-     */
-    public TimeBucketIterator(
-        Iterator<LatencyRecord.Sample> samples, int windowSizeSeconds, TransactionType txType) {
-      this.samples = samples;
-      this.windowSizeSeconds = windowSizeSeconds;
-      this.txType = txType;
-
-      if (samples.hasNext()) {
-        sample = samples.next();
-        // TODO: To be totally correct, we would want this to be the
-        // timestamp of the start
-        // of the measurement interval. In most cases this won't matter.
-        nextStartNanosecond = sample.getStartNanosecond();
-        calculateNext();
-      }
-    }
-
-    private void calculateNext() {
-
-      // Collect all samples in the time window
-      ArrayList<Integer> latencies = new ArrayList<>();
-      long endNanoseconds = nextStartNanosecond + (windowSizeSeconds * 1000000000L);
-      while (sample != null && sample.getStartNanosecond() < endNanoseconds) {
-
-        // Check if a TX Type filter is set, in the default case,
-        // INVALID TXType means all should be reported, if a filter is
-        // set, only this specific transaction
-        if (txType.equals(TransactionType.INVALID)
-            || txType.getId() == sample.getTransactionType()) {
-          latencies.add(sample.getLatencyMicrosecond());
-        }
-
-        if (samples.hasNext()) {
-          sample = samples.next();
-        } else {
-          sample = null;
-        }
-      }
-
-      // Set up the next time window
-
-      nextStartNanosecond = endNanoseconds;
-
-      int[] l = new int[latencies.size()];
-      for (int i = 0; i < l.length; ++i) {
-        l[i] = latencies.get(i);
-      }
-
-      next = DistributionStatistics.computeStatistics(l);
-    }
-
-    @Override
-    public boolean hasNext() {
-      return next != null;
-    }
-
-    @Override
-    public DistributionStatistics next() {
-      if (next == null) {
-        throw new NoSuchElementException();
-      }
-      DistributionStatistics out = next;
-      next = null;
-      if (sample != null) {
-        calculateNext();
-      }
-      return out;
-    }
-
-    @Override
-    public void remove() {
-      throw new UnsupportedOperationException("unsupported");
-    }
-  }
-
   private class WatchDogThread extends Thread {
     {
       this.setDaemon(true);
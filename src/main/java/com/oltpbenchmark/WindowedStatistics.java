@@ -0,0 +1,171 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark;
+
+import com.oltpbenchmark.api.TransactionType;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * The statistics of every window of a run, for all transaction types together and for each type,
+ * over both latencies and response times. They are computed in a single pass over the samples: each
+ * window is collected into primitive arrays and handed to a fork-join pool to be sorted and
+ * summarised while the next window is read, so only a few windows are held in memory at once.
+ *
+ * <p>The first window starts with the first sample, and they continue up to the window of the last
+ * sample, including empty ones.
+ */
+public final class WindowedStatistics {
+  private static final DistributionStatistics EMPTY =
+      DistributionStatistics.computeStatistics(new int[0]);
+
+  private final List<Window> windows;
+
+  private WindowedStatistics(List<Window> windows) {
+    this.windows = windows;
+  }
+
+  /** Compute the statistics of samples sorted by start time in the common pool. */
+  public static WindowedStatistics compute(
+      Iterable<LatencyRecord.Sample> samples, int windowSizeSeconds) {
+    return compute(samples, windowSizeSeconds, ForkJoinPool.commonPool());
+  }
+
+  public static WindowedStatistics compute(
+      Iterable<LatencyRecord.Sample> samples, int windowSizeSeconds, ForkJoinPool pool) {
+    long windowNanoseconds = windowSizeSeconds * 1000000000L;
+    // Bound the windows waiting to be summarised so that reading does not run ahead
+    int maxPending = Math.max(2, pool.getParallelism() * 2);
+
+    List<Window> windows = new ArrayList<>();
+    ArrayDeque<ForkJoinTask<Window>> pending = new ArrayDeque<>();
+    Map<Integer, Values> current = new HashMap<>();
+    long firstNanosecond = 0;
+    long currentWindow = -1;
+    for (LatencyRecord.Sample sample : samples) {
+      if (currentWindow < 0) {
+        firstNanosecond = sample.getStartNanosecond();
+        currentWindow = 0;
+      }
+      long window = (sample.getStartNanosecond() - firstNanosecond) / windowNanoseconds;
+      while (currentWindow < window) {
+        Map<Integer, Values> values = current;
+        pending.add(pool.submit(() -> summarize(values)));
+        current = new HashMap<>();
+        currentWindow++;
+        while (pending.size() > maxPending) {
+          windows.add(pending.poll().join());
+        }
+      }
+      current
+          .computeIfAbsent(sample.getTransactionType(), k -> new Values())
+          .add(sample.getLatencyMicrosecond(), sample.getResponseTimeMicrosecond());
+    }
+    if (currentWindow >= 0) {
+      Map<Integer, Values> values = current;
+      pending.add(pool.submit(() -> summarize(values)));
+    }
+    while (!pending.isEmpty()) {
+      windows.add(pending.poll().join());
+    }
+    return new WindowedStatistics(windows);
+  }
+
+  private static Window summarize(Map<Integer, Values> values) {
+    int total = 0;
+    for (Values v : values.values()) {
+      total += v.size;
+    }
+    int[] latencies = new int[total];
+    int[] responseTimes = new int[total];
+    int offset = 0;
+    for (Values v : values.values()) {
+      System.arraycopy(v.latencies, 0, latencies, offset, v.size);
+      System.arraycopy(v.responseTimes, 0, responseTimes, offset, v.size);
+      offset += v.size;
+    }
+
+    Window window = new Window();
+    window.latencies = DistributionStatistics.computeStatistics(latencies);
+    window.responseTimes = DistributionStatistics.computeStatistics(responseTimes);
+    for (Map.Entry<Integer, Values> e : values.entrySet()) {
+      Values v = e.getValue();
+      window.latenciesByType.put(
+          e.getKey(), DistributionStatistics.computeStatistics(Arrays.copyOf(v.latencies, v.size)));
+      window.responseTimesByType.put(
+          e.getKey(),
+          DistributionStatistics.computeStatistics(Arrays.copyOf(v.responseTimes, v.size)));
+    }
+    return window;
+  }
+
+  public int size() {
+    return windows.size();
+  }
+
+  /**
+   * Returns the statistics of each window.
+   *
+   * @param transactionType the type to report, or INVALID for every type
+   * @param responseTimes report response times instead of latencies
+   */
+  public List<DistributionStatistics> get(TransactionType transactionType, boolean responseTimes) {
+    List<DistributionStatistics> stats = new ArrayList<>(windows.size());
+    for (Window w : windows) {
+      if (transactionType.equals(TransactionType.INVALID)) {
+        stats.add(responseTimes ? w.responseTimes : w.latencies);
+      } else {
+        Map<Integer, DistributionStatistics> byType =
+            responseTimes ? w.responseTimesByType : w.latenciesByType;
+        stats.add(byType.getOrDefault(transactionType.getId(), EMPTY));
+      }
+    }
+    return Collections.unmodifiableList(stats);
+  }
+
+  private static final class Window {
+    private DistributionStatistics latencies;
+    private DistributionStatistics responseTimes;
+    private final Map<Integer, DistributionStatistics> latenciesByType = new HashMap<>();
+    private final Map<Integer, DistributionStatistics> responseTimesByType = new HashMap<>();
+  }
+
+  /** The latencies and response times of one type in one window. */
+  private static final class Values {
+    private int[] latencies = new int[16];
+    private int[] responseTimes = new int[16];
+    private int size = 0;
+
+    private void add(int latency, int responseTime) {
+      if (size == latencies.length) {
+        latencies = Arrays.copyOf(latencies, size * 2);
+        responseTimes = Arrays.copyOf(responseTimes, size * 2);
+      }
+      latencies[size] = latency;
+      responseTimes[size] = responseTime;
+      size++;
+    }
+  }
+}
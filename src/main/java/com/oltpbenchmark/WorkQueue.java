@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark;
+
+import com.oltpbenchmark.types.State;
+
+/**
+ * The queue of pending requests shared by the workers of a single rate-limited workload. The
+ * ThreadBench loop produces work into it and the workers consume from it.
+ */
+abstract class WorkQueue {
+
+  /** Available queue implementations, selected with the {@code <workQueue>} config option. */
+  public enum Type {
+    /** Bounded lock-free ring buffer with parking consumers (default). */
+    LOCKFREE,
+    /** The original LinkedList guarded by a single monitor. */
+    SYNCHRONIZED;
+
+    public static Type get(String name) {
+      return Type.valueOf(name.toUpperCase());
+    }
+  }
+
+  static WorkQueue create(Type type, int limit) {
+    return switch (type) {
+      case LOCKFREE -> new LockFreeWorkQueue(limit);
+      case SYNCHRONIZED -> new SynchronizedWorkQueue(limit);
+    };
+  }
+
+  /**
+   * Add up to {@code amount} new requests for the given phase. Requests that do not fit because the
+   * queue is at its limit are dropped.
+   *
+   * @param scheduledNs the scheduled arrival time of the first request
+   * @param spacingNs the time between the scheduled arrivals of consecutive requests
+   * @return the number of requests actually added
+   */
+  abstract int add(Phase phase, int amount, long scheduledNs, long spacingNs);
+
+  /**
+   * Remove the next request into the caller-owned {@code slot}, blocking while the queue is empty.
+   *
+   * @return the filled slot, or null if the benchmark is over or {@link #wakeAll()} was called
+   *     while waiting
+   */
+  abstract SubmittedProcedure take(SubmittedProcedure slot, BenchmarkState benchmarkState);
+
+  /** Drop all pending requests. */
+  abstract void clear();
+
+  /**
+   * Make all consumers that are currently blocked in {@link #take} return, so that they re-check
+   * the benchmark state and the current phase.
+   */
+  abstract void wakeAll();
+
+  /** Returns the (approximate) number of pending requests. */
+  abstract int size();
+
+  static boolean isFinished(BenchmarkState benchmarkState) {
+    State state = benchmarkState.getState();
+    return state == State.EXIT || state == State.DONE;
+  }
+}
@@ -15,7 +15,9 @@
 
 package com.oltpbenchmark;
 
+import com.oltpbenchmark.api.RetryPolicy;
 import com.oltpbenchmark.api.TransactionTypes;
+import com.oltpbenchmark.jdbc.FaultProfile;
 import com.oltpbenchmark.types.DatabaseType;
 import com.oltpbenchmark.util.ThreadUtil;
 import java.sql.Connection;
@@ -50,6 +52,65 @@ public class WorkloadConfiguration {
   private String dataDir = null;
   private String ddlPath = null;
   private boolean advancedMonitoringEnabled = false;
+  private WorkQueue.Type workQueueType = WorkQueue.Type.LOCKFREE;
+
+  /**
+   * Requests that wait in the work queue for longer than this many milliseconds after their
+   * scheduled arrival are counted as late arrivals.
+   */
+  private int queueDelayBound = 1000;
+
+  /**
+   * If true, run each terminal on a virtual thread instead of a dedicated platform thread. This
+   * lets a single client simulate tens of thousands of mostly idle terminals.
+   */
+  private boolean virtualThreads = false;
+
+  /**
+   * How rate-limited phases are paced: by the central ThreadBench loop and a shared work queue, or
+   * by every worker following its own arrival schedule. Worker pacing scales to much higher rates.
+   */
+  private ArrivalSchedule.Pacing pacing = ArrivalSchedule.Pacing.CENTRAL;
+
+  /**
+   * If true, keep latencies and start times to the nanosecond instead of rounding them to
+   * microseconds. Every sample then takes two more bytes.
+   */
+  private boolean nanosecondLatencies = false;
+
+  /**
+   * If true, each worker keeps the statements its procedures prepare open for the next call on the
+   * same connection instead of preparing them again. Ignored with newConnectionPerTxn.
+   */
+  private boolean statementCache = false;
+
+  /**
+   * If true, every SQL statement the procedures prepare is wrapped to count its executions, rows
+   * and execute and fetch times, which are written to the statements output.
+   */
+  private boolean instrumentStatements = false;
+
+  /**
+   * How the workers classify and retry the SQL errors of their transactions. Null until set, in
+   * which case the workers use the defaults for the database type and maxRetries.
+   */
+  private RetryPolicy retryPolicy = null;
+
+  /**
+   * If true, workers record latencies into histograms per window of latencyHistogramWindow seconds
+   * instead of keeping every sample, so that the memory used does not grow with the number of
+   * requests. Statistics are then accurate to about 3%, and no raw samples are written.
+   */
+  private boolean latencyHistograms = false;
+
+  private int latencyHistogramWindow = 1;
+
+  /**
+   * If not null, every worker appends its samples to a memory-mapped {@link SampleLog} in this
+   * directory instead of keeping them on the heap. The statistics are then computed from latency
+   * histograms, while the raw samples are read back from the logs.
+   */
+  private String sampleLogDirectory = null;
 
   /**
    * If true, establish a new connection for each transaction, otherwise use one persistent
@@ -57,6 +118,22 @@ public class WorkloadConfiguration {
    */
   private boolean newConnectionPerTxn = false;
 
+  /** How many connections are opened at the same time when the workers are built. */
+  private int connectParallelism = 8;
+
+  /**
+   * How many spare connections to keep, 0 for none. With newConnectionPerTxn, the workers take
+   * their connections from this pool and hand them back after each transaction; otherwise the
+   * spares serve workers that reconnect.
+   */
+  private int connectionPoolSize = 0;
+
+  /** How long a spare connection may be used, in seconds since it was opened; 0 for ever. */
+  private int connectionMaxLifetime = 0;
+
+  /** If true, spare connections are checked with Connection.isValid() before they are used. */
+  private boolean connectionValidation = false;
+
   /**
    * If true, attempt to catch connection closed exceptions and reconnect. This allows the benchmark
    * to recover like a typical application would in the case of a replicated cluster
@@ -157,6 +234,50 @@ public class WorkloadConfiguration {
     this.newConnectionPerTxn = newConnectionPerTxn;
   }
 
+  /**
+   * @return @see connectParallelism member docs for behavior.
+   */
+  public int getConnectParallelism() {
+    return connectParallelism;
+  }
+
+  public void setConnectParallelism(int connectParallelism) {
+    this.connectParallelism = connectParallelism;
+  }
+
+  /**
+   * @return @see connectionPoolSize member docs for behavior.
+   */
+  public int getConnectionPoolSize() {
+    return connectionPoolSize;
+  }
+
+  public void setConnectionPoolSize(int connectionPoolSize) {
+    this.connectionPoolSize = connectionPoolSize;
+  }
+
+  /**
+   * @return @see connectionMaxLifetime member docs for behavior.
+   */
+  public int getConnectionMaxLifetime() {
+    return connectionMaxLifetime;
+  }
+
+  public void setConnectionMaxLifetime(int connectionMaxLifetime) {
+    this.connectionMaxLifetime = connectionMaxLifetime;
+  }
+
+  /**
+   * @return @see connectionValidation member docs for behavior.
+   */
+  public boolean getConnectionValidation() {
+    return connectionValidation;
+  }
+
+  public void setConnectionValidation(boolean connectionValidation) {
+    this.connectionValidation = connectionValidation;
+  }
+
   /**
    * @return @see reconnectOnConnectionFailure member docs for behavior.
    */
@@ -174,9 +295,132 @@ public class WorkloadConfiguration {
     this.reconnectOnConnectionFailure = reconnectOnConnectionFailure;
   }
 
+  /**
+   * @return the implementation of the queue that feeds rate-limited work to the workers.
+   */
+  public WorkQueue.Type getWorkQueueType() {
+    return workQueueType;
+  }
+
+  public void setWorkQueueType(WorkQueue.Type workQueueType) {
+    this.workQueueType = workQueueType;
+  }
+
+  /**
+   * @return @see queueDelayBound member docs for behavior.
+   */
+  public int getQueueDelayBound() {
+    return queueDelayBound;
+  }
+
+  public void setQueueDelayBound(int queueDelayBound) {
+    this.queueDelayBound = queueDelayBound;
+  }
+
+  /**
+   * @return @see virtualThreads member docs for behavior.
+   */
+  public boolean getVirtualThreads() {
+    return virtualThreads;
+  }
+
+  public void setVirtualThreads(boolean virtualThreads) {
+    this.virtualThreads = virtualThreads;
+  }
+
+  /**
+   * @return @see pacing member docs for behavior.
+   */
+  public ArrivalSchedule.Pacing getPacing() {
+    return pacing;
+  }
+
+  public void setPacing(ArrivalSchedule.Pacing pacing) {
+    this.pacing = pacing;
+  }
+
+  /**
+   * @return @see nanosecondLatencies member docs for behavior.
+   */
+  public boolean getNanosecondLatencies() {
+    return nanosecondLatencies;
+  }
+
+  public void setNanosecondLatencies(boolean nanosecondLatencies) {
+    this.nanosecondLatencies = nanosecondLatencies;
+  }
+
+  /**
+   * @return @see statementCache member docs for behavior.
+   */
+  public boolean getStatementCache() {
+    return statementCache;
+  }
+
+  public void setStatementCache(boolean statementCache) {
+    this.statementCache = statementCache;
+  }
+
+  /**
+   * @return @see instrumentStatements member docs for behavior.
+   */
+  public boolean getInstrumentStatements() {
+    return instrumentStatements;
+  }
+
+  public void setInstrumentStatements(boolean instrumentStatements) {
+    this.instrumentStatements = instrumentStatements;
+  }
+
+  /**
+   * @return @see retryPolicy member docs for behavior.
+   */
+  public RetryPolicy getRetryPolicy() {
+    return retryPolicy;
+  }
+
+  public void setRetryPolicy(RetryPolicy retryPolicy) {
+    this.retryPolicy = retryPolicy;
+  }
+
+  /**
+   * @return @see latencyHistograms member docs for behavior.
+   */
+  public boolean getLatencyHistograms() {
+    return latencyHistograms;
+  }
+
+  public void setLatencyHistograms(boolean latencyHistograms) {
+    this.latencyHistograms = latencyHistograms;
+  }
+
+  public int getLatencyHistogramWindow() {
+    return latencyHistogramWindow;
+  }
+
+  public void setLatencyHistogramWindow(int latencyHistogramWindow) {
+    this.latencyHistogramWindow = latencyHistogramWindow;
+  }
+
+  /**
+   * @return @see sampleLogDirectory member docs for behavior.
+   */
+  public String getSampleLogDirectory() {
+    return sampleLogDirectory;
+  }
+
+  public void setSampleLogDirectory(String sampleLogDirectory) {
+    this.sampleLogDirectory = sampleLogDirectory;
+  }
+
   /** Initiate a new benchmark and workload state */
   public void initializeState(BenchmarkState benchmarkState) {
-    this.workloadState = new WorkloadState(benchmarkState, phases, terminals);
+    LatencyHistograms histograms = null;
+    if (latencyHistograms || sampleLogDirectory != null) {
+      histograms = new LatencyHistograms(benchmarkState.getTestStartNs(), latencyHistogramWindow);
+    }
+    this.workloadState =
+        new WorkloadState(benchmarkState, phases, terminals, workQueueType, pacing, histograms);
   }
 
   public void addPhase(
@@ -191,6 +435,40 @@ public class WorkloadConfiguration {
       boolean timed,
       int active_terminals,
       Phase.Arrival arrival) {
+    addPhase(
+        id,
+        time,
+        warmup,
+        rate,
+        weights,
+        rateLimited,
+        disabled,
+        serial,
+        timed,
+        active_terminals,
+        arrival,
+        Phase.DEFAULT_PARETO_SHAPE,
+        LoadProfile.constant(rate),
+        null,
+        null);
+  }
+
+  public void addPhase(
+      int id,
+      int time,
+      int warmup,
+      double rate,
+      List<Double> weights,
+      boolean rateLimited,
+      boolean disabled,
+      boolean serial,
+      boolean timed,
+      int active_terminals,
+      Phase.Arrival arrival,
+      double paretoShape,
+      LoadProfile profile,
+      SaturationSearch search,
+      FaultProfile faults) {
     phases.add(
         new Phase(
             benchmarkName,
@@ -204,7 +482,11 @@ public class WorkloadConfiguration {
             serial,
             timed,
             active_terminals,
-            arrival));
+            arrival,
+            paretoShape,
+            profile,
+            search,
+            faults));
   }
 
   /**
@@ -270,6 +552,7 @@ public class WorkloadConfiguration {
   public int getYCSBkeys() {
     return this.ycsbkeys;
   }
+
   /**
    * Set the scale factor for the database A value of 1 means the default size. A value greater than
    * 1 means the database is larger A value less than 1 means the database is smaller
@@ -295,6 +578,7 @@ public class WorkloadConfiguration {
   public void setYCSBkeys(int ycsbkeys) {
     this.ycsbkeys = ycsbkeys;
   }
+
   /**
    * Return the number of phases specified in the config file
    *
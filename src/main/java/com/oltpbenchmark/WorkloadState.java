@@ -17,10 +17,15 @@
 
 package com.oltpbenchmark;
 
+import com.oltpbenchmark.jfr.PhaseTransitionEvent;
 import com.oltpbenchmark.types.State;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,21 +40,68 @@ public class WorkloadState {
   private static final Logger LOG = LoggerFactory.getLogger(WorkloadState.class);
 
   private final BenchmarkState benchmarkState;
-  private final LinkedList<SubmittedProcedure> workQueue = new LinkedList<>();
+  private final WorkQueue workQueue;
+  private final AtomicLong droppedArrivals = new AtomicLong();
   private final int num_terminals;
   private final Iterator<Phase> phaseIterator;
+  private final ArrivalSchedule.Pacing pacing;
+  private final List<ArrivalSchedule> arrivalSchedules = new CopyOnWriteArrayList<>();
+  private final SplittableRandom scheduleRandom = new SplittableRandom();
+  private final LatencyHistograms latencyHistograms;
 
-  private int workersWaiting = 0;
+  // Guards the serial-execution and sleeping-terminal handshakes below. This is a
+  // ReentrantLock rather than the object monitor so that terminals running on virtual threads
+  // unmount while they wait instead of pinning their carrier thread.
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition phaseChanged = lock.newCondition();
 
-  @SuppressWarnings("unused") // never read
-  private int workersWorking = 0;
+  private int workersWaiting = 0;
 
-  private int workerNeedSleep;
+  // Written under the lock; read without it so that active terminals don't take the lock
+  private volatile int workerNeedSleep;
 
-  private Phase currentPhase = null;
+  private volatile Phase currentPhase = null;
+  // When the current phase started; worker pacing schedules its arrivals from here
+  private volatile long phaseStartNs = System.nanoTime();
+  // Time zero of the current phase's load profile: the phase start, or the end of the warmup
+  private volatile long profileStartNs = phaseStartNs;
 
   public WorkloadState(BenchmarkState benchmarkState, List<Phase> works, int num_terminals) {
+    this(benchmarkState, works, num_terminals, WorkQueue.Type.LOCKFREE);
+  }
+
+  public WorkloadState(
+      BenchmarkState benchmarkState,
+      List<Phase> works,
+      int num_terminals,
+      WorkQueue.Type workQueueType) {
+    this(benchmarkState, works, num_terminals, workQueueType, ArrivalSchedule.Pacing.CENTRAL);
+  }
+
+  public WorkloadState(
+      BenchmarkState benchmarkState,
+      List<Phase> works,
+      int num_terminals,
+      WorkQueue.Type workQueueType,
+      ArrivalSchedule.Pacing pacing) {
+    this(benchmarkState, works, num_terminals, workQueueType, pacing, null);
+  }
+
+  /**
+   * @param latencyHistograms where the workers merge their latency histograms, or null if they keep
+   *     every sample
+   */
+  public WorkloadState(
+      BenchmarkState benchmarkState,
+      List<Phase> works,
+      int num_terminals,
+      WorkQueue.Type workQueueType,
+      ArrivalSchedule.Pacing pacing,
+      LatencyHistograms latencyHistograms) {
     this.benchmarkState = benchmarkState;
+    this.latencyHistograms = latencyHistograms;
+    this.pacing = pacing;
+    this.workQueue = WorkQueue.create(workQueueType, RATE_QUEUE_LIMIT);
     this.num_terminals = num_terminals;
     this.workerNeedSleep = num_terminals;
 
@@ -58,111 +110,220 @@ public class WorkloadState {
 
   /** Add a request to do work. */
   public void addToQueue(int amount, boolean resetQueues) {
-    int workAdded = 0;
+    addToQueue(amount, resetQueues, System.nanoTime(), 0);
+  }
 
-    synchronized (this) {
-      if (resetQueues) {
-        workQueue.clear();
-      }
+  /**
+   * Add a request to do work.
+   *
+   * @param scheduledNs the scheduled arrival time of the first request in this batch
+   * @param spacingNs the time between the scheduled arrivals of consecutive requests
+   */
+  public void addToQueue(int amount, boolean resetQueues, long scheduledNs, long spacingNs) {
+    if (resetQueues) {
+      workQueue.clear();
+    }
 
-      // Only use the work queue if the phase is enabled and rate limited.
-      if (currentPhase == null
-          || currentPhase.isDisabled()
-          || !currentPhase.isRateLimited()
-          || currentPhase.isSerial()) {
-        return;
-      }
+    // With worker pacing the workers generate their own arrivals.
+    if (pacing == ArrivalSchedule.Pacing.WORKER) {
+      return;
+    }
 
-      // Add the specified number of procedures to the end of the queue.
-      // If we can't keep up with current rate, truncate transactions
-      for (int i = 0; i < amount && workQueue.size() <= RATE_QUEUE_LIMIT; ++i) {
-        workQueue.add(new SubmittedProcedure(currentPhase.chooseTransaction()));
-        workAdded++;
-      }
+    // Only use the work queue if the phase is enabled and rate limited.
+    Phase phase = currentPhase;
+    if (phase == null || phase.isDisabled() || !phase.isRateLimited() || phase.isSerial()) {
+      return;
+    }
 
-      // Wake up sleeping workers to deal with the new work.
-      int numToWake = Math.min(workAdded, workersWaiting);
-      while (numToWake-- > 0) {
-        this.notify();
-      }
+    int added = workQueue.add(phase, amount, scheduledNs, spacingNs);
+
+    // Arrivals that did not fit in the queue never get executed, so they would silently
+    // disappear from the latency measurements. Count them instead.
+    if (added < amount && benchmarkState.getState() == State.MEASURE) {
+      droppedArrivals.addAndGet(amount - added);
+    }
+  }
+
+  /** Returns the number of measured arrivals dropped because the work queue was full. */
+  public long getDroppedArrivals() {
+    return droppedArrivals.get();
+  }
+
+  /** Count arrivals that a worker-paced worker skipped because it fell too far behind. */
+  void dropArrivals(long amount) {
+    if (benchmarkState.getState() == State.MEASURE) {
+      droppedArrivals.addAndGet(amount);
+    }
+  }
+
+  public boolean usesWorkerPacing() {
+    return pacing == ArrivalSchedule.Pacing.WORKER;
+  }
+
+  /**
+   * Create the arrival schedule for a worker of this workload.
+   *
+   * @return the schedule, or null if the workload uses central pacing
+   */
+  public ArrivalSchedule newArrivalSchedule() {
+    if (pacing != ArrivalSchedule.Pacing.WORKER) {
+      return null;
     }
+    // Each worker's share of the queue limit bounds how far behind it may fall
+    int backlogLimit = Math.max(1, RATE_QUEUE_LIMIT / Math.max(1, num_terminals));
+    SplittableRandom rng;
+    synchronized (scheduleRandom) {
+      rng = scheduleRandom.split();
+    }
+    ArrivalSchedule schedule = new ArrivalSchedule(this, backlogLimit, rng);
+    arrivalSchedules.add(schedule);
+    return schedule;
+  }
+
+  long getPhaseStartNs() {
+    return phaseStartNs;
+  }
+
+  /**
+   * Restart the clock of the current phase, once the benchmark actually starts. Its load profile
+   * holds its initial rate until {@link #resetProfileStart} is called at the end of the warmup.
+   */
+  void resetPhaseStart(long nowNs) {
+    phaseStartNs = nowNs;
+    profileStartNs = Long.MAX_VALUE;
+  }
+
+  void resetProfileStart(long nowNs) {
+    profileStartNs = nowNs;
+  }
+
+  /** Returns the target rate of the given phase at the given time, following its load profile. */
+  public double getTargetRate(Phase phase, long nowNs) {
+    return phase.getTargetRate(getProfileSeconds(nowNs));
+  }
+
+  /** Returns how far into its load profile the current phase is at the given time. */
+  public double getProfileSeconds(long nowNs) {
+    long start = profileStartNs;
+    return nowNs > start ? (nowNs - start) / 1e9 : 0;
+  }
+
+  BenchmarkState getBenchmarkState() {
+    return benchmarkState;
   }
 
   public void signalDone() {
     int current = this.benchmarkState.signalDone();
     if (current == 0) {
-      synchronized (this) {
+      lock.lock();
+      try {
         if (workersWaiting > 0) {
-          this.notifyAll();
+          phaseChanged.signalAll();
         }
+      } finally {
+        lock.unlock();
       }
+      wakeWorkers();
     }
   }
 
-  /** Called by ThreadPoolThreads when waiting for work. */
-  public SubmittedProcedure fetchWork() {
-    synchronized (this) {
-      if (currentPhase != null && currentPhase.isSerial()) {
-        ++workersWaiting;
-        while (getGlobalState() == State.LATENCY_COMPLETE) {
-          try {
-            this.wait();
-          } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-          }
-        }
-        --workersWaiting;
+  /**
+   * Called by ThreadPoolThreads when waiting for work. The next request is copied into the
+   * caller-owned {@code slot}.
+   *
+   * @return the filled slot, or null if the benchmark is over
+   */
+  public SubmittedProcedure fetchWork(SubmittedProcedure slot) {
+    return fetchWork(slot, null);
+  }
 
+  /**
+   * @param arrivals the caller's arrival schedule if the workload uses worker pacing, else null
+   */
+  public SubmittedProcedure fetchWork(SubmittedProcedure slot, ArrivalSchedule arrivals) {
+    while (true) {
+      // Only serial phases need the lock
+      Phase phase = currentPhase;
+      if (phase != null && phase.isSerial()) {
+        if (fetchSerialWork(slot)) {
+          return slot;
+        }
         if (getGlobalState() == State.EXIT || getGlobalState() == State.DONE) {
           return null;
         }
+        continue;
+      }
 
-        ++workersWorking;
-        return new SubmittedProcedure(
-            currentPhase.chooseTransaction(getGlobalState() == State.COLD_QUERY));
+      // Unlimited-rate phases don't use the work queue.
+      if (phase != null && !phase.isRateLimited()) {
+        slot.set(phase.chooseTransaction(getGlobalState() == State.COLD_QUERY), System.nanoTime());
+        return slot;
       }
-    }
 
-    // Unlimited-rate phases don't use the work queue.
-    if (currentPhase != null && !currentPhase.isRateLimited()) {
-      synchronized (this) {
-        ++workersWorking;
+      if (arrivals != null && phase != null && !phase.isDisabled()) {
+        if (arrivals.next(phase, slot)) {
+          return slot;
+        }
+      } else if (workQueue.take(slot, benchmarkState) != null) {
+        return slot;
+      }
+      if (WorkQueue.isFinished(benchmarkState)) {
+        return null;
       }
-      return new SubmittedProcedure(
-          currentPhase.chooseTransaction(getGlobalState() == State.COLD_QUERY));
+      // Woken up by a phase change: look at the new phase before waiting again
     }
+  }
 
-    synchronized (this) {
-      // Sleep until work is available.
-      if (workQueue.peek() == null) {
-        workersWaiting += 1;
-        while (workQueue.peek() == null) {
-          if (this.benchmarkState.getState() == State.EXIT
-              || this.benchmarkState.getState() == State.DONE) {
-            return null;
-          }
-
-          try {
-            this.wait();
-          } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-          }
+  /**
+   * Wait until the serial phase has a query for this worker.
+   *
+   * @return false if the run is over or the phase is no longer serial
+   */
+  private boolean fetchSerialWork(SubmittedProcedure slot) {
+    lock.lock();
+    try {
+      if (currentPhase == null || !currentPhase.isSerial()) {
+        return false;
+      }
+      ++workersWaiting;
+      while (getGlobalState() == State.LATENCY_COMPLETE) {
+        try {
+          phaseChanged.await();
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
         }
-        workersWaiting -= 1;
       }
+      --workersWaiting;
 
-      ++workersWorking;
+      if (getGlobalState() == State.EXIT || getGlobalState() == State.DONE) {
+        return false;
+      }
 
-      return workQueue.remove();
+      slot.set(
+          currentPhase.chooseTransaction(getGlobalState() == State.COLD_QUERY), System.nanoTime());
+      return true;
+    } finally {
+      lock.unlock();
     }
   }
 
-  public void finishedWork() {
-    synchronized (this) {
-      --workersWorking;
+  /** Make workers that are waiting for rate-limited work re-check the phase and global state. */
+  void wakeWorkers() {
+    workQueue.wakeAll();
+    for (ArrivalSchedule schedule : arrivalSchedules) {
+      schedule.wake();
     }
   }
 
+  public void finishedWork() {
+    // Nothing to do
+  }
+
+  /** Returns the number of requests waiting in the work queue. */
+  public int getQueueDepth() {
+    return workQueue.size();
+  }
+
   public Phase getNextPhase() {
     if (phaseIterator.hasNext()) {
       return phaseIterator.next();
@@ -171,33 +332,59 @@ public class WorkloadState {
   }
 
   public Phase getCurrentPhase() {
-    synchronized (benchmarkState) {
-      return currentPhase;
-    }
+    return currentPhase;
+  }
+
+  /**
+   * Acquire the lock that serialises phase switches against the workers. ThreadBench holds it while
+   * it moves to the next phase and updates the global state, so that a woken serial worker sees
+   * both changes together.
+   */
+  void lock() {
+    lock.lock();
+  }
+
+  void unlock() {
+    lock.unlock();
   }
 
   /*
    * Called by workers to ask if they should stay awake in this phase
    */
   public void stayAwake() {
-    synchronized (this) {
+    if (workerNeedSleep == 0) {
+      return;
+    }
+    lock.lock();
+    try {
       while (workerNeedSleep > 0) {
         workerNeedSleep--;
         try {
-          this.wait();
+          phaseChanged.await();
         } catch (InterruptedException e) {
           LOG.error(e.getMessage(), e);
         }
       }
+    } finally {
+      lock.unlock();
     }
   }
 
   public void switchToNextPhase() {
-    synchronized (this) {
+    lock.lock();
+    try {
+      this.phaseStartNs = System.nanoTime();
+      this.profileStartNs = this.phaseStartNs;
+      Phase previousPhase = this.currentPhase;
       this.currentPhase = this.getNextPhase();
+      commitPhaseTransition(previousPhase, this.currentPhase);
+      // Publish the phase before the epoch that announces it: a worker that reads the epoch and
+      // then the phase either sees the new phase or sees the epoch change after its transaction.
+      benchmarkState.advanceEpoch();
 
       // Clear the work from the previous phase.
       workQueue.clear();
+      wakeWorkers();
 
       // Determine how many workers need to sleep, then make sure they
       // do.
@@ -218,8 +405,25 @@ public class WorkloadState {
         }
       }
 
-      this.notifyAll();
+      phaseChanged.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static void commitPhaseTransition(Phase previous, Phase next) {
+    PhaseTransitionEvent event = new PhaseTransitionEvent();
+    if (!event.shouldCommit()) {
+      return;
+    }
+    Phase named = next != null ? next : previous;
+    event.benchmark = named == null ? null : named.getBenchmarkName();
+    if (next != null) {
+      event.phase = next.getId();
+      event.targetRate = next.isRateLimited() ? next.getRate() : 0;
+      event.activeTerminals = next.isDisabled() ? 0 : next.getActiveTerminals();
     }
+    event.commit();
   }
 
   /** Delegates pre-start blocking to the global state handler */
@@ -236,6 +440,13 @@ public class WorkloadState {
     return benchmarkState.getState();
   }
 
+  /**
+   * @see BenchmarkState#getEpoch()
+   */
+  public BenchmarkState.Epoch getEpoch() {
+    return benchmarkState.getEpoch();
+  }
+
   public void signalLatencyComplete() {
 
     benchmarkState.signalLatencyComplete();
@@ -251,6 +462,11 @@ public class WorkloadState {
     benchmarkState.startHotQuery();
   }
 
+  /** Returns the histograms of the measured latencies, or null if the workers keep every sample. */
+  public LatencyHistograms getLatencyHistograms() {
+    return latencyHistograms;
+  }
+
   public long getTestStartNs() {
     return benchmarkState.getTestStartNs();
   }
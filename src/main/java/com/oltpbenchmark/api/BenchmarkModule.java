@@ -15,8 +15,13 @@
 
 package com.oltpbenchmark.api;
 
+import com.oltpbenchmark.Phase;
 import com.oltpbenchmark.WorkloadConfiguration;
+import com.oltpbenchmark.WorkloadState;
 import com.oltpbenchmark.catalog.AbstractCatalog;
+import com.oltpbenchmark.jdbc.FaultInjector;
+import com.oltpbenchmark.jdbc.FaultProfile;
+import com.oltpbenchmark.jdbc.mock.MockDriver;
 import com.oltpbenchmark.types.DatabaseType;
 import com.oltpbenchmark.util.ClassUtil;
 import com.oltpbenchmark.util.SQLUtil;
@@ -53,6 +58,12 @@ public abstract class BenchmarkModule {
 
   private AbstractCatalog catalog = null;
 
+  /** Opens and keeps the workers' connections */
+  private final ConnectionManager connections;
+
+  /** Injects the faults of the current phase into the connections, if any phase has some */
+  private final FaultInjector faults = new FaultInjector(this::getCurrentFaults);
+
   /**
    * Constructor!
    *
@@ -61,6 +72,7 @@ public abstract class BenchmarkModule {
   public BenchmarkModule(WorkloadConfiguration workConf) {
     this.workConf = workConf;
     this.dialects = new StatementDialects(workConf);
+    this.connections = new ConnectionManager(this::makeConnection, workConf);
     // setClassLoader();
     this.classLoader = ClassLoader.getSystemClassLoader();
   }
@@ -78,13 +90,44 @@ public abstract class BenchmarkModule {
   // --------------------------------------------------------------------------
 
   public final Connection makeConnection() throws SQLException {
-
+    Connection conn;
     if (StringUtils.isEmpty(workConf.getUsername())) {
-      return DriverManager.getConnection(workConf.getUrl());
+      conn = DriverManager.getConnection(workConf.getUrl());
     } else {
-      return DriverManager.getConnection(
-          workConf.getUrl(), workConf.getUsername(), workConf.getPassword());
+      conn =
+          DriverManager.getConnection(
+              workConf.getUrl(), workConf.getUsername(), workConf.getPassword());
+    }
+    return hasFaults() ? faults.wrap(conn) : conn;
+  }
+
+  /** Returns the injector of this benchmark's faults, or null if none of its phases has any. */
+  public final FaultInjector getFaultInjector() {
+    return hasFaults() ? faults : null;
+  }
+
+  private boolean hasFaults() {
+    for (Phase phase : workConf.getPhases()) {
+      if (phase.getFaults() != null) {
+        return true;
+      }
     }
+    return false;
+  }
+
+  /** Faults are only injected while the workload runs, and not while the database is loaded. */
+  private FaultProfile getCurrentFaults() {
+    WorkloadState workloadState = workConf.getWorkloadState();
+    if (workloadState == null) {
+      return null;
+    }
+    Phase phase = workloadState.getCurrentPhase();
+    return phase == null ? null : phase.getFaults();
+  }
+
+  /** Returns the manager of the connections that the workers use. */
+  public final ConnectionManager getConnectionManager() {
+    return connections;
   }
 
   private String afterLoadScriptPath = null;
@@ -185,7 +228,15 @@ public abstract class BenchmarkModule {
   }
 
   public final List<Worker<? extends BenchmarkModule>> makeWorkers() throws IOException {
-    return (this.makeWorkersImpl());
+    // Open the workers' connections in parallel rather than one worker at a time
+    if (workConf.getNewConnectionPerTxn()) {
+      connections.warmUp(Math.min(workConf.getConnectionPoolSize(), workConf.getTerminals()));
+    } else {
+      connections.warmUp(workConf.getTerminals() + workConf.getConnectionPoolSize());
+    }
+    List<Worker<? extends BenchmarkModule>> workers = this.makeWorkersImpl();
+    connections.trim();
+    return (workers);
   }
 
   public final void refreshCatalog() throws SQLException {
@@ -196,6 +247,12 @@ public abstract class BenchmarkModule {
         LOG.error(throwables.getMessage(), throwables);
       }
     }
+    if (MockDriver.isMockUrl(workConf.getUrl())) {
+      // The mock database has no tables, so its result sets are shaped after the DDL
+      this.catalog = SQLUtil.getCatalog(this, DatabaseType.HSQLDB, null);
+      MockDriver.setCatalog(workConf.getUrl(), this.catalog);
+      return;
+    }
     try (Connection conn = this.makeConnection()) {
       this.catalog =
           SQLUtil.getCatalog(this, this.getWorkloadConfiguration().getDatabaseType(), conn);
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.api;
+
+import com.oltpbenchmark.DistributionStatistics;
+import com.oltpbenchmark.LatencyHistogram;
+import com.oltpbenchmark.WorkloadConfiguration;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opens the workers' connections to the database and keeps the spare ones. Before the workers are
+ * built, the connections they need are opened in parallel, so that the startup of many terminals is
+ * not one handshake after another. With a pool (connectionPool), connections that a worker lets go,
+ * with newConnectionPerTxn after every transaction, are kept for the next worker that needs one, up
+ * to the size of the pool; spare connections can be validated and are retired once they reach their
+ * maximum lifetime. Connections that a worker drops because of an error are closed, not pooled.
+ *
+ * <p>The time taken by every connection that is opened is counted, apart from the transactions that
+ * wait for it, see {@link #getStatistics()}.
+ *
+ * <p>Thread-safe.
+ */
+public final class ConnectionManager {
+  private static final Logger LOG = LoggerFactory.getLogger(ConnectionManager.class);
+
+  /** How long to wait for a spare connection to answer when it is validated, in seconds */
+  private static final int VALIDATION_TIMEOUT = 5;
+
+  /** Opens a new connection to the database. */
+  @FunctionalInterface
+  interface Factory {
+    Connection open() throws SQLException;
+  }
+
+  private final Factory factory;
+  private final WorkloadConfiguration workConf;
+
+  // Spare connections, the most recently released first
+  private final Deque<Pooled> idle = new ArrayDeque<>();
+  // When the connections in use were opened, if they can expire
+  private final Map<Connection, Long> openedNs = new IdentityHashMap<>();
+  private final Statistics statistics = new Statistics();
+
+  ConnectionManager(Factory factory, WorkloadConfiguration workConf) {
+    this.factory = factory;
+    this.workConf = workConf;
+  }
+
+  /**
+   * Open count connections, connectParallelism at a time, and keep them for the workers that are
+   * about to be built.
+   */
+  void warmUp(int count) {
+    if (count <= 0) {
+      return;
+    }
+    long start = System.nanoTime();
+    int parallelism = Math.max(1, Math.min(count, workConf.getConnectParallelism()));
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    try {
+      List<Future<Connection>> futures = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        futures.add(executor.submit(this::open));
+      }
+      List<Connection> opened = new ArrayList<>(count);
+      SQLException failure = null;
+      for (Future<Connection> future : futures) {
+        try {
+          opened.add(future.get());
+        } catch (ExecutionException ex) {
+          if (failure == null && ex.getCause() instanceof SQLException) {
+            failure = (SQLException) ex.getCause();
+          } else if (failure == null) {
+            throw new RuntimeException(ex.getCause());
+          }
+        }
+      }
+      if (failure != null) {
+        opened.forEach(ConnectionManager::closeQuietly);
+        throw new RuntimeException("Failed to connect to database", failure);
+      }
+      long now = System.nanoTime();
+      synchronized (this) {
+        for (Connection conn : opened) {
+          Long openedAt = openedNs.remove(conn);
+          idle.addLast(new Pooled(conn, openedAt != null ? openedAt : now));
+        }
+        statistics.warmupNanoseconds += now - start;
+      }
+      LOG.info(
+          "Opened {} connections {} at a time in {} ms",
+          count,
+          parallelism,
+          (now - start) / 1000000);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(ex);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /** Close the spare connections beyond the size of the pool. */
+  void trim() {
+    List<Connection> closing = new ArrayList<>();
+    synchronized (this) {
+      while (idle.size() > workConf.getConnectionPoolSize()) {
+        closing.add(idle.removeLast().connection);
+      }
+    }
+    closing.forEach(ConnectionManager::closeQuietly);
+  }
+
+  /**
+   * Returns a connection for a worker, without auto-commit and with the configured isolation. A
+   * spare connection is used if there is one that is still alive.
+   */
+  public Connection acquire() throws SQLException {
+    while (true) {
+      Pooled pooled;
+      synchronized (this) {
+        pooled = idle.pollFirst();
+      }
+      if (pooled == null) {
+        return open();
+      }
+      if (isExpired(pooled, System.nanoTime())) {
+        closeQuietly(pooled.connection);
+        synchronized (this) {
+          statistics.retired++;
+        }
+        continue;
+      }
+      if (workConf.getConnectionValidation() && !pooled.connection.isValid(VALIDATION_TIMEOUT)) {
+        closeQuietly(pooled.connection);
+        synchronized (this) {
+          statistics.invalid++;
+        }
+        continue;
+      }
+      synchronized (this) {
+        statistics.sparesUsed++;
+        if (workConf.getConnectionMaxLifetime() > 0) {
+          openedNs.put(pooled.connection, pooled.openedNs);
+        }
+      }
+      return pooled.connection;
+    }
+  }
+
+  /**
+   * Hand back a healthy connection that the worker no longer needs, after its transaction ended. It
+   * is kept if the pool has room, and closed otherwise.
+   */
+  public void release(Connection conn) throws SQLException {
+    synchronized (this) {
+      Long opened = openedNs.remove(conn);
+      Pooled pooled = new Pooled(conn, opened != null ? opened : System.nanoTime());
+      if (idle.size() < workConf.getConnectionPoolSize() && !isExpired(pooled, System.nanoTime())) {
+        idle.addFirst(pooled);
+        return;
+      }
+      if (opened != null && isExpired(pooled, System.nanoTime())) {
+        statistics.retired++;
+      }
+    }
+    conn.close();
+  }
+
+  /**
+   * Close a connection that the worker drops because of an error, rather than handing it back. It
+   * is never pooled.
+   */
+  public void discard(Connection conn) throws SQLException {
+    synchronized (this) {
+      openedNs.remove(conn);
+    }
+    conn.close();
+  }
+
+  /** Close all spare connections. */
+  public void close() {
+    List<Connection> closing = new ArrayList<>();
+    synchronized (this) {
+      while (!idle.isEmpty()) {
+        closing.add(idle.removeFirst().connection);
+      }
+      openedNs.clear();
+    }
+    closing.forEach(ConnectionManager::closeQuietly);
+  }
+
+  /** Returns a copy of the connection statistics so far. */
+  public synchronized Statistics getStatistics() {
+    Statistics copy = new Statistics();
+    copy.add(statistics);
+    return copy;
+  }
+
+  private Connection open() throws SQLException {
+    long start = System.nanoTime();
+    Connection conn;
+    try {
+      conn = factory.open();
+      conn.setAutoCommit(false);
+      conn.setTransactionIsolation(workConf.getIsolationMode());
+    } catch (SQLException ex) {
+      synchronized (this) {
+        statistics.failures++;
+      }
+      throw ex;
+    }
+    long now = System.nanoTime();
+    synchronized (this) {
+      statistics.connectTimes.record((int) Math.min(Integer.MAX_VALUE, (now - start) / 1000));
+      if (workConf.getConnectionMaxLifetime() > 0 && workConf.getConnectionPoolSize() > 0) {
+        openedNs.put(conn, start);
+      }
+    }
+    return conn;
+  }
+
+  private boolean isExpired(Pooled pooled, long now) {
+    long maxLifetime = workConf.getConnectionMaxLifetime();
+    return maxLifetime > 0 && now - pooled.openedNs > maxLifetime * 1000000000L;
+  }
+
+  private static void closeQuietly(Connection conn) {
+    try {
+      conn.close();
+    } catch (SQLException ex) {
+      LOG.debug("Could not close a spare connection", ex);
+    }
+  }
+
+  private static final class Pooled {
+    private final Connection connection;
+    private final long openedNs;
+
+    private Pooled(Connection connection, long openedNs) {
+      this.connection = connection;
+      this.openedNs = openedNs;
+    }
+  }
+
+  /** How many connections were opened, how long that took, and how often spares were used. */
+  public static final class Statistics {
+    private final LatencyHistogram connectTimes = new LatencyHistogram();
+    private long failures = 0;
+    private long sparesUsed = 0;
+    private long retired = 0;
+    private long invalid = 0;
+    private long warmupNanoseconds = 0;
+
+    /** Add the statistics of another connection manager to these. */
+    public void add(Statistics other) {
+      connectTimes.add(other.connectTimes);
+      failures += other.failures;
+      sparesUsed += other.sparesUsed;
+      retired += other.retired;
+      invalid += other.invalid;
+      warmupNanoseconds += other.warmupNanoseconds;
+    }
+
+    /** Returns the time each new connection took to open, in microseconds. */
+    public LatencyHistogram getConnectTimes() {
+      return connectTimes;
+    }
+
+    public long getFailures() {
+      return failures;
+    }
+
+    public long getSparesUsed() {
+      return sparesUsed;
+    }
+
+    public Map<String, Object> toMap() {
+      Map<String, Object> map = new LinkedHashMap<>();
+      map.put("Opened", connectTimes.getCount());
+      map.put("Failed", failures);
+      map.put("Spares Used", sparesUsed);
+      map.put("Retired (max lifetime)", retired);
+      map.put("Invalid", invalid);
+      map.put("Warmup Time (milliseconds)", warmupNanoseconds / 1000000);
+      map.put(
+          "Connect Time Distribution",
+          DistributionStatistics.computeStatistics(connectTimes).toMap("Connect Time"));
+      return map;
+    }
+  }
+}
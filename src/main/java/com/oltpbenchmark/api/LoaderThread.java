@@ -17,6 +17,7 @@
 
 package com.oltpbenchmark.api;
 
+import com.oltpbenchmark.jfr.LoadEvent;
 import java.sql.Connection;
 import java.sql.SQLException;
 import org.slf4j.Logger;
@@ -39,8 +40,11 @@ public abstract class LoaderThread implements Runnable {
   @Override
   public final void run() {
     beforeLoad();
+    LoadEvent event = new LoadEvent();
+    event.begin();
     try (Connection conn = benchmarkModule.makeConnection()) {
       load(conn);
+      event.succeeded = true;
     } catch (SQLException ex) {
       SQLException next_ex = ex.getNextException();
       String msg =
@@ -50,6 +54,12 @@ public abstract class LoaderThread implements Runnable {
       LOG.error(msg, next_ex);
       throw new RuntimeException(ex);
     } finally {
+      event.end();
+      if (event.shouldCommit()) {
+        event.benchmark = benchmarkModule.getBenchmarkName();
+        event.loader = getClass().getName();
+        event.commit();
+      }
       afterLoad();
     }
   }
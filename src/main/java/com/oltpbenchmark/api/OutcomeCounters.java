@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.api;
+
+import com.oltpbenchmark.types.TransactionStatus;
+import com.oltpbenchmark.util.Histogram;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A worker's count of transaction outcomes, kept in plain arrays indexed by {@link
+ * TransactionType#getId()} so that counting a transaction neither locks nor allocates.
+ *
+ * <p>Supplemental procedures use their class's hash code as id; the few types whose ids fall
+ * outside the dense range are counted in a map instead. Instances are not thread-safe: the owning
+ * worker counts, and the counts are read once it has finished. Only {@link #getIndexed} may be
+ * called while the worker runs, and its counts can lag behind.
+ */
+final class OutcomeCounters {
+  private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+  // Ids at or above this are counted in the map
+  private static final int MAX_INDEXED_ID = 1 << 16;
+
+  private final TransactionType[] typesById;
+  private final long[][] counts;
+  private final Map<TransactionType, long[]> sparseCounts = new HashMap<>();
+
+  OutcomeCounters(TransactionType[] typesById) {
+    this.typesById = typesById;
+    this.counts = new long[STATUSES.length][typesById.length];
+  }
+
+  /** Index the configured types by id. Supplemental procedures and odd ids are left out. */
+  static TransactionType[] indexById(Iterable<TransactionType> types) {
+    int length = 0;
+    for (TransactionType type : types) {
+      if (isIndexed(type)) {
+        length = Math.max(length, type.getId() + 1);
+      }
+    }
+    TransactionType[] typesById = new TransactionType[length];
+    for (TransactionType type : types) {
+      if (isIndexed(type)) {
+        typesById[type.getId()] = type;
+      }
+    }
+    return typesById;
+  }
+
+  private static boolean isIndexed(TransactionType type) {
+    return !type.isSupplemental() && type.getId() >= 0 && type.getId() < MAX_INDEXED_ID;
+  }
+
+  void add(TransactionStatus status, TransactionType type) {
+    int id = type.getId();
+    if (id >= 0 && id < typesById.length && typesById[id] == type) {
+      counts[status.ordinal()][id]++;
+    } else {
+      sparseCounts.computeIfAbsent(type, t -> new long[STATUSES.length])[status.ordinal()]++;
+    }
+  }
+
+  long get(TransactionStatus status, TransactionType type) {
+    int id = type.getId();
+    if (id >= 0 && id < typesById.length && typesById[id] == type) {
+      return counts[status.ordinal()][id];
+    }
+    long[] sparse = sparseCounts.get(type);
+    return sparse == null ? 0 : sparse[status.ordinal()];
+  }
+
+  /** Returns the count of a type in the dense range, or 0 for the types counted in the map. */
+  long getIndexed(TransactionStatus status, TransactionType type) {
+    int id = type.getId();
+    if (id >= 0 && id < typesById.length && typesById[id] == type) {
+      return counts[status.ordinal()][id];
+    }
+    return 0;
+  }
+
+  /** Returns the counts of one outcome as a histogram, as the results expect them. */
+  Histogram<TransactionType> toHistogram(TransactionStatus status) {
+    Histogram<TransactionType> histogram = new Histogram<>();
+    long[] byId = counts[status.ordinal()];
+    for (int id = 0; id < byId.length; id++) {
+      if (byId[id] > 0) {
+        histogram.put(typesById[id], Math.toIntExact(byId[id]));
+      }
+    }
+    for (Map.Entry<TransactionType, long[]> e : sparseCounts.entrySet()) {
+      long count = e.getValue()[status.ordinal()];
+      if (count > 0) {
+        histogram.put(e.getKey(), Math.toIntExact(count));
+      }
+    }
+    return histogram;
+  }
+}
@@ -18,6 +18,8 @@
 package com.oltpbenchmark.api;
 
 import com.oltpbenchmark.jdbc.AutoIncrementPreparedStatement;
+import com.oltpbenchmark.jdbc.InstrumentedPreparedStatement;
+import com.oltpbenchmark.jdbc.StatementStatistics;
 import com.oltpbenchmark.types.DatabaseType;
 import com.oltpbenchmark.util.MonitoringUtil;
 import java.lang.reflect.Field;
@@ -28,7 +30,9 @@ import java.sql.SQLException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,6 +48,14 @@ public abstract class Procedure {
 
   private Map<String, SQLStmt> name_stmt_xref;
 
+  // Set if the worker caches its statements; see setStatementCache
+  private StatementCache statementCache = null;
+  private Set<SQLStmt> cachedStatements = null;
+
+  // Set if the workload instruments its statements; see setStatementStatistics
+  private StatementStatistics statementStatistics = null;
+  private Map<SQLStmt, StatementStatistics.Statement> statementCounters = null;
+
   /** Constructor */
   protected Procedure() {
     this.procName = this.getClass().getSimpleName();
@@ -70,6 +82,29 @@ public abstract class Procedure {
     return ((T) this);
   }
 
+  /**
+   * Take the statements of this procedure from the given cache instead of preparing them for every
+   * call. Only the statements that are fields of the procedure are cached, so that procedures that
+   * build their SQL on the fly cannot fill the cache.
+   */
+  final void setStatementCache(StatementCache cache) {
+    this.statementCache = cache;
+    this.cachedStatements = Collections.newSetFromMap(new IdentityHashMap<>());
+    this.cachedStatements.addAll(this.name_stmt_xref.values());
+  }
+
+  /**
+   * Count the executions of this procedure's statements, and the time they take, in the given
+   * statistics. Statements that are not fields of the procedure are counted as "(unnamed)".
+   */
+  final void setStatementStatistics(StatementStatistics statistics) {
+    this.statementStatistics = statistics;
+    this.statementCounters = new IdentityHashMap<>();
+    for (Map.Entry<String, SQLStmt> e : this.name_stmt_xref.entrySet()) {
+      this.statementCounters.put(e.getValue(), statistics.get(this.procName, e.getKey()));
+    }
+  }
+
   /** Return the name of this Procedure */
   protected final String getProcedureName() {
     return (this.procName);
@@ -109,6 +144,31 @@ public abstract class Procedure {
       Connection conn, SQLStmt stmt, int[] is) throws SQLException {
 
     PreparedStatement pStmt = null;
+    boolean cached = this.statementCache != null && this.cachedStatements.contains(stmt);
+    if (cached) {
+      pStmt = this.statementCache.get(conn, stmt, is);
+    }
+
+    if (pStmt == null) {
+      pStmt = this.prepare(conn, stmt, is);
+      if (cached) {
+        pStmt = this.statementCache.put(stmt, is, pStmt);
+      }
+    }
+
+    if (this.statementStatistics != null) {
+      StatementStatistics.Statement counters = this.statementCounters.get(stmt);
+      if (counters == null) {
+        counters = this.statementStatistics.get(this.procName, "(unnamed)");
+      }
+      pStmt = new InstrumentedPreparedStatement(pStmt, counters);
+    }
+
+    return (pStmt);
+  }
+
+  private PreparedStatement prepare(Connection conn, SQLStmt stmt, int[] is) throws SQLException {
+    PreparedStatement pStmt;
 
     // HACK: If the target system is Postgres, wrap the PreparedStatement in a special
     //       one that fakes the getGeneratedKeys().
@@ -127,7 +187,6 @@ public abstract class Procedure {
     else {
       pStmt = conn.prepareStatement(stmt.getSQL());
     }
-
     return (pStmt);
   }
 
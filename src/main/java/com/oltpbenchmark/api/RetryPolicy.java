@@ -0,0 +1,316 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.api;
+
+import com.oltpbenchmark.Phase;
+import com.oltpbenchmark.types.DatabaseType;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.random.RandomGenerator;
+
+/**
+ * Decides how the workers react to the SQL errors of a transaction: which errors are retried, how
+ * long to wait before a retry or a reconnect, and how often a transaction may be attempted.
+ *
+ * <p>Errors are classified by the first rule that matches their SQL state and vendor error code.
+ * The configured rules come first, then the defaults for the database type (see {@link
+ * #defaultRules}). Waits use exponential backoff with decorrelated jitter: each wait is drawn
+ * between the base and three times the previous wait, and capped. A retry budget bounds the retries
+ * of a phase to a fraction of the transactions it started, so that a burst of conflicts does not
+ * turn into a retry storm.
+ *
+ * <p>In the configuration:
+ *
+ * <pre>{@code
+ * <retry defaults="true">
+ *   <backoff base="5" cap="1000"/>
+ *   <reconnectBackoff base="1000" cap="5000"/>
+ *   <budget ratio="0.1" minimum="10"/>
+ *   <retryable sqlState="40001" errorCode="1213"/>
+ *   <readOnly sqlState="25006"/>
+ *   <fatal sqlState="40001" errorCode="1205"/>
+ * </retry>
+ * }</pre>
+ *
+ * Times are in milliseconds and a rule without an error code matches any. By default retries do not
+ * wait, reconnects wait between 1 and 5 seconds and there is no budget. Each {@code
+ * <transactiontype>} may set its own {@code <maxRetries>}.
+ */
+public final class RetryPolicy {
+
+  /** What to do about an error that did not lose the connection. */
+  public enum Action {
+    /** Roll back and run the transaction again. */
+    RETRY,
+    /** The database no longer accepts writes: drop the connection. */
+    READ_ONLY,
+    /** Give up on the transaction. */
+    FAIL
+  }
+
+  /** A row of the classification table. */
+  public static final class Rule {
+    private final String sqlState;
+    private final Integer errorCode;
+    private final Action action;
+
+    /**
+     * @param errorCode the vendor error code to match, or null to match any
+     */
+    public Rule(String sqlState, Integer errorCode, Action action) {
+      if (sqlState == null) {
+        throw new IllegalArgumentException("A retry rule needs an SQL state");
+      }
+      this.sqlState = sqlState;
+      this.errorCode = errorCode;
+      this.action = action;
+    }
+
+    boolean matches(String sqlState, int errorCode) {
+      return this.sqlState.equals(sqlState)
+          && (this.errorCode == null || this.errorCode == errorCode);
+    }
+
+    public Action getAction() {
+      return action;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s/%s=%s", sqlState, errorCode == null ? "*" : errorCode, action);
+    }
+  }
+
+  /** Exponential backoff with decorrelated jitter. */
+  public static final class Backoff {
+    public static final Backoff NONE = new Backoff(0, 0);
+
+    private final long baseNanoseconds;
+    private final long capNanoseconds;
+
+    public Backoff(long baseMilliseconds, long capMilliseconds) {
+      if (capMilliseconds > 0 && (baseMilliseconds <= 0 || capMilliseconds < baseMilliseconds)) {
+        throw new IllegalArgumentException(
+            "The backoff base must be positive and the cap at least the base");
+      }
+      this.baseNanoseconds = baseMilliseconds * 1000000L;
+      this.capNanoseconds = capMilliseconds * 1000000L;
+    }
+
+    /**
+     * Returns the next wait in nanoseconds, given the previous one (0 before the first), drawn
+     * uniformly between the base and three times the previous wait and then capped.
+     */
+    public long next(long previousNanoseconds, RandomGenerator random) {
+      if (capNanoseconds == 0) {
+        return 0;
+      }
+      long upper = Math.max(baseNanoseconds, Math.min(capNanoseconds, previousNanoseconds) * 3);
+      long wait = baseNanoseconds + (long) (random.nextDouble() * (upper - baseNanoseconds));
+      return Math.min(capNanoseconds, wait);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("[%d, %d] ms", baseNanoseconds / 1000000, capNanoseconds / 1000000);
+    }
+  }
+
+  private final List<Rule> rules;
+  private final Backoff backoff;
+  private final Backoff reconnectBackoff;
+  private final int maxRetries;
+  private final Map<String, Integer> maxRetriesByType;
+  private final double budgetRatio;
+  private final long budgetMinimum;
+
+  // Kept for every phase, since workers may still retry a transaction of the last one
+  private final Map<Phase, Budget> budgets = new ConcurrentHashMap<>();
+  private final AtomicLong retriesDenied = new AtomicLong();
+
+  /**
+   * @param rules the classification table, checked in order
+   * @param backoff the waits before retrying a transaction
+   * @param reconnectBackoff the waits before reconnecting after the connection was lost
+   * @param maxRetries the number of attempts of a transaction, unless its type has its own
+   * @param maxRetriesByType the number of attempts of the transaction types with their own, by name
+   * @param budgetRatio the retries a phase may make per transaction it started, or a negative value
+   *     for no budget
+   * @param budgetMinimum the retries a phase may make in any case
+   */
+  public RetryPolicy(
+      List<Rule> rules,
+      Backoff backoff,
+      Backoff reconnectBackoff,
+      int maxRetries,
+      Map<String, Integer> maxRetriesByType,
+      double budgetRatio,
+      long budgetMinimum) {
+    this.rules = List.copyOf(rules);
+    this.backoff = backoff;
+    this.reconnectBackoff = reconnectBackoff;
+    this.maxRetries = maxRetries;
+    this.maxRetriesByType = Map.copyOf(maxRetriesByType);
+    this.budgetRatio = budgetRatio;
+    this.budgetMinimum = budgetMinimum;
+  }
+
+  /** Returns the default policy for a database type, which behaves as the workers always have. */
+  public static RetryPolicy defaults(DatabaseType databaseType, int maxRetries) {
+    return new RetryPolicy(
+        defaultRules(databaseType),
+        Backoff.NONE,
+        new Backoff(1000, 5000),
+        maxRetries,
+        Map.of(),
+        -1,
+        0);
+  }
+
+  /** Returns the default classification table for a database type. */
+  public static List<Rule> defaultRules(DatabaseType databaseType) {
+    List<Rule> rules = new ArrayList<>();
+
+    // The errors that the workers have always recognised, whatever the database
+    // ------------------
+    // SqlServer: "SELECT TOP 10 * FROM sys.messages"
+    // ------------------
+    rules.add(new Rule("S0002", 3906, Action.READ_ONLY));
+    // Lock request time out period exceeded.
+    rules.add(new Rule("S0051", 12222, Action.RETRY));
+    // The query has timed out.
+    rules.add(new Rule("HY008", 0, Action.RETRY));
+
+    // ------------------
+    // MYSQL:
+    // https://dev.mysql.com/doc/connector-j/8.0/en/connector-j-reference-error-sqlstates.html
+    // ------------------
+    // MySQL ER_LOCK_DEADLOCK
+    rules.add(new Rule("40001", 1213, Action.RETRY));
+    // MySQL ER_LOCK_WAIT_TIMEOUT
+    rules.add(new Rule("40001", 1205, Action.RETRY));
+
+    // ------------------
+    // POSTGRES: https://www.postgresql.org/docs/current/errcodes-appendix.html
+    // ------------------
+    // Postgres serialization_failure
+    rules.add(new Rule("40001", 0, Action.RETRY));
+    // read_only_sql_transaction, which MySQL (ER_CANT_EXECUTE_IN_READ_ONLY_TRANSACTION) shares
+    rules.add(new Rule("25006", null, Action.READ_ONLY));
+
+    switch (databaseType) {
+      case POSTGRES, COCKROACHDB -> {
+        // deadlock_detected
+        rules.add(new Rule("40P01", null, Action.RETRY));
+      }
+      case MYSQL, MARIADB, MYROCKS, AMAZONRDS, SINGLESTORE -> {
+        // ER_OPTION_PREVENTS_STATEMENT, as with --read-only or --super-read-only
+        rules.add(new Rule("HY000", 1290, Action.READ_ONLY));
+      }
+      default -> {}
+    }
+    return rules;
+  }
+
+  /** Classify an error that did not lose the connection. */
+  public Action classify(SQLException ex) {
+    String sqlState = ex.getSQLState();
+    int errorCode = ex.getErrorCode();
+    if (sqlState == null) {
+      return Action.FAIL;
+    }
+    for (Rule rule : rules) {
+      if (rule.matches(sqlState, errorCode)) {
+        return rule.action;
+      }
+    }
+    return ex instanceof SQLRecoverableException ? Action.RETRY : Action.FAIL;
+  }
+
+  /** Returns the number of times a transaction of the given type may be attempted. */
+  public int getMaxRetries(TransactionType type) {
+    return maxRetriesByType.getOrDefault(type.getName(), maxRetries);
+  }
+
+  public Backoff getBackoff() {
+    return backoff;
+  }
+
+  public Backoff getReconnectBackoff() {
+    return reconnectBackoff;
+  }
+
+  /** Count a transaction that the phase started, against which its retries are budgeted. */
+  public void startTransaction(Phase phase) {
+    if (budgetRatio >= 0 && phase != null) {
+      getBudget(phase).started.increment();
+    }
+  }
+
+  /** Returns true if the phase still has the budget for one more retry, and takes it. */
+  public boolean tryRetry(Phase phase) {
+    if (budgetRatio < 0 || phase == null) {
+      return true;
+    }
+    Budget b = getBudget(phase);
+    long allowed = budgetMinimum + (long) (budgetRatio * b.started.sum());
+    if (b.retries.incrementAndGet() > allowed) {
+      b.retries.decrementAndGet();
+      retriesDenied.incrementAndGet();
+      return false;
+    }
+    return true;
+  }
+
+  /** Returns the retries that were not made because their phase had used up its budget. */
+  public long getRetriesDenied() {
+    return retriesDenied.get();
+  }
+
+  /** Each phase has a budget of its own. */
+  private Budget getBudget(Phase phase) {
+    Budget b = budgets.get(phase);
+    if (b == null) {
+      b = budgets.computeIfAbsent(phase, p -> new Budget());
+    }
+    return b;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "[Backoff=%s, ReconnectBackoff=%s, MaxRetries=%d%s, Budget=%s, Rules=%s]",
+        backoff,
+        reconnectBackoff,
+        maxRetries,
+        maxRetriesByType.isEmpty() ? "" : " " + maxRetriesByType,
+        budgetRatio < 0 ? "none" : budgetRatio + "+" + budgetMinimum,
+        rules);
+  }
+
+  private static final class Budget {
+    private final LongAdder started = new LongAdder();
+    private final AtomicLong retries = new AtomicLong();
+  }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.api;
+
+import com.oltpbenchmark.DistributionStatistics;
+import com.oltpbenchmark.LatencyHistogram;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Splits the time a worker spends on each transaction into the stages of its loop, to tell whether
+ * the client or the database is the bottleneck: waiting for work, choosing the transaction type,
+ * opening and closing connections, generating its parameters, calls into the JDBC driver, the
+ * commit, the retries and rollbacks, the waits before retrying or reconnecting, and recording the
+ * result.
+ *
+ * <p>Profiling is turned on with the benchbase.profileStages system property. The flag is a
+ * constant, so when it is off the JIT drops the timing from the worker loop altogether. When it is
+ * on the worker hands the procedures a wrapper of its connection that times the calls that reach
+ * the database: preparing and executing statements and moving to the next row of a result set.
+ * Getters and setters go straight to the driver untimed, and the rest of executeWork, including
+ * them, is counted as parameter generation.
+ *
+ * <p>Each worker has its own profiler, which is not thread-safe. Only the transactions whose
+ * latency is measured are counted; the time spent on those that are not, for instance while
+ * fetching work that never came, is counted towards the next one. The distributions are in
+ * nanoseconds and count stages longer than about two seconds as two seconds; the totals are exact.
+ */
+public final class StageProfiler {
+  /** True if the workers profile their stages. */
+  public static final boolean ENABLED = Boolean.getBoolean("benchbase.profileStages");
+
+  public enum Stage {
+    FETCH_WORK("Fetch Work"),
+    CHOOSE_TRANSACTION("Choose Transaction"),
+    CONNECT("Connect and Close"),
+    PARAMETER_GENERATION("Parameter Generation"),
+    JDBC("JDBC"),
+    COMMIT("Commit"),
+    RETRY("Rollback and Retry"),
+    BACKOFF("Backoff"),
+    RECORD_RESULTS("Result Recording");
+
+    private final String label;
+
+    Stage(String label) {
+      this.label = label;
+    }
+
+    public String getLabel() {
+      return label;
+    }
+  }
+
+  private static final Stage[] STAGES = Stage.values();
+
+  // The stages of the transaction in progress, in nanoseconds
+  private final long[] current = new long[STAGES.length];
+  private final long[] totals = new long[STAGES.length];
+  private final Map<TransactionType, LatencyHistogram[]> byType = new TreeMap<>();
+  private long transactions = 0;
+  // The end of the last stage that was counted
+  private long markNs = 0;
+  private long executionJdbcNs = 0;
+  private Connection connection = null;
+  private Connection timed = null;
+
+  /** Start the next stage now without counting the time since the last one. */
+  public void mark() {
+    markNs = System.nanoTime();
+  }
+
+  /** Count the time since the last stage towards the given one, and start the next. */
+  public void lap(Stage stage) {
+    long now = System.nanoTime();
+    current[stage.ordinal()] += now - markNs;
+    markNs = now;
+  }
+
+  /** Count the given time towards a stage without starting the next. */
+  public void count(Stage stage, long nanoseconds) {
+    current[stage.ordinal()] += nanoseconds;
+  }
+
+  /** Called just before executeWork. */
+  public void startExecution() {
+    executionJdbcNs = current[Stage.JDBC.ordinal()];
+    mark();
+  }
+
+  /** Called when executeWork returns: whatever was not spent in the driver generated parameters. */
+  public void endExecution() {
+    long now = System.nanoTime();
+    long jdbcNs = current[Stage.JDBC.ordinal()] - executionJdbcNs;
+    current[Stage.PARAMETER_GENERATION.ordinal()] += Math.max(0, now - markNs - jdbcNs);
+    markNs = now;
+  }
+
+  /**
+   * Called when doWork returns after the given time; what was not counted so far went to rollbacks
+   * and failed attempts.
+   */
+  public void endTransaction(long nanoseconds) {
+    long counted =
+        current[Stage.CONNECT.ordinal()]
+            + current[Stage.PARAMETER_GENERATION.ordinal()]
+            + current[Stage.JDBC.ordinal()]
+            + current[Stage.COMMIT.ordinal()]
+            + current[Stage.BACKOFF.ordinal()];
+    current[Stage.RETRY.ordinal()] += Math.max(0, nanoseconds - counted);
+    mark();
+  }
+
+  /** Count the stages since the last call towards the given type, if it was measured. */
+  public void finish(TransactionType type, boolean measured) {
+    if (measured) {
+      LatencyHistogram[] histograms = byType.get(type);
+      if (histograms == null) {
+        histograms = newHistograms();
+        byType.put(type, histograms);
+      }
+      for (int i = 0; i < STAGES.length; i++) {
+        totals[i] += current[i];
+        histograms[i].record((int) Math.min(Integer.MAX_VALUE, current[i]));
+      }
+      transactions++;
+    }
+    Arrays.fill(current, 0);
+  }
+
+  /**
+   * Returns a wrapper of the connection whose round trips are counted as JDBC time. The same
+   * connection gets the same wrapper, so that the statement cache keeps its statements.
+   */
+  public Connection wrap(Connection conn) {
+    if (conn != connection) {
+      connection = conn;
+      timed = new TimedConnection(conn, this);
+    }
+    return timed;
+  }
+
+  /** Add everything counted by another profiler to this one. */
+  public void add(StageProfiler other) {
+    for (int i = 0; i < STAGES.length; i++) {
+      totals[i] += other.totals[i];
+    }
+    for (Map.Entry<TransactionType, LatencyHistogram[]> e : other.byType.entrySet()) {
+      LatencyHistogram[] histograms = byType.computeIfAbsent(e.getKey(), k -> newHistograms());
+      for (int i = 0; i < STAGES.length; i++) {
+        histograms[i].add(e.getValue()[i]);
+      }
+    }
+    transactions += other.transactions;
+  }
+
+  public long getTransactions() {
+    return transactions;
+  }
+
+  /** Returns the total time spent in the given stage by the measured transactions. */
+  public long getTotalNanoseconds(Stage stage) {
+    return totals[stage.ordinal()];
+  }
+
+  /** Returns the time spent in the given stage by each measured transaction of the given type. */
+  public LatencyHistogram getHistogram(TransactionType type, Stage stage) {
+    LatencyHistogram[] histograms = byType.get(type);
+    return histograms == null ? new LatencyHistogram() : histograms[stage.ordinal()];
+  }
+
+  /** Returns the total milliseconds spent in each stage. */
+  public Map<String, Object> totalsToMap() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    for (Stage stage : STAGES) {
+      map.put(stage.getLabel(), totals[stage.ordinal()] / 1e6);
+    }
+    return map;
+  }
+
+  public Map<String, Object> toMap() {
+    long sum = 0;
+    for (long total : totals) {
+      sum += total;
+    }
+    Map<String, Object> shares = new LinkedHashMap<>();
+    for (Stage stage : STAGES) {
+      shares.put(stage.getLabel(), sum == 0 ? 0 : 100.0 * totals[stage.ordinal()] / sum);
+    }
+    Map<String, Object> types = new LinkedHashMap<>();
+    for (Map.Entry<TransactionType, LatencyHistogram[]> e : byType.entrySet()) {
+      Map<String, Object> stages = new LinkedHashMap<>();
+      for (Stage stage : STAGES) {
+        DistributionStatistics stats =
+            DistributionStatistics.computeStatistics(e.getValue()[stage.ordinal()]);
+        Map<String, Object> dist = new LinkedHashMap<>();
+        dist.put("Average (nanoseconds)", (long) stats.getAverage());
+        dist.put("Median (nanoseconds)", (long) stats.getMedian());
+        dist.put("90th Percentile (nanoseconds)", (long) stats.get90thPercentile());
+        dist.put("99th Percentile (nanoseconds)", (long) stats.get99thPercentile());
+        dist.put("Maximum (nanoseconds)", (long) stats.getMaximum());
+        stages.put(stage.getLabel(), dist);
+      }
+      types.put(e.getKey().getName(), stages);
+    }
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("Measured Transactions", transactions);
+    map.put("Total Time (milliseconds)", totalsToMap());
+    map.put("Share of Time (%)", shares);
+    map.put("Transaction Types", types);
+    return map;
+  }
+
+  private static LatencyHistogram[] newHistograms() {
+    LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+    for (int i = 0; i < histograms.length; i++) {
+      histograms[i] = new LatencyHistogram();
+    }
+    return histograms;
+  }
+}
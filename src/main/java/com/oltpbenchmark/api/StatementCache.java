@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.api;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The prepared statements of one worker, so that procedures do not prepare the same SQL again for
+ * every transaction. Statements are cached by SQLStmt identity and the generated keys they return,
+ * and belong to the connection they were prepared on: asking for a statement on another connection
+ * closes everything prepared on the previous one.
+ *
+ * <p>Procedures keep closing their statements as before. Closing a cached statement clears its
+ * parameters and batch and hands it back to the cache instead. A statement that is asked for again
+ * before it was closed, for instance while its result set is still being read, is prepared afresh
+ * and not cached.
+ *
+ * <p>Not thread-safe, like the worker that owns it.
+ */
+final class StatementCache {
+  private static final Logger LOG = LoggerFactory.getLogger(StatementCache.class);
+
+  private Connection connection = null;
+  private final Map<SQLStmt, CachedPreparedStatement> statements = new IdentityHashMap<>();
+  private final Map<SQLStmt, CachedPreparedStatement> statementsWithKeys = new IdentityHashMap<>();
+  private long hits = 0;
+  private long prepares = 0;
+
+  /**
+   * Returns the cached statement for stmt on conn, or null if it has to be prepared and then handed
+   * to {@link #put}.
+   */
+  PreparedStatement get(Connection conn, SQLStmt stmt, int[] keys) {
+    if (conn != this.connection) {
+      invalidate();
+      this.connection = conn;
+    }
+    CachedPreparedStatement entry = (keys == null ? statements : statementsWithKeys).get(stmt);
+    if (entry == null
+        || entry.inUse
+        || entry.sql != stmt.getSQL()
+        || !Arrays.equals(entry.keys, keys)) {
+      return null;
+    }
+    entry.inUse = true;
+    hits++;
+    return entry;
+  }
+
+  /**
+   * Cache a statement that {@link #get} did not have. Returns the statement that the procedure
+   * should use, which is the given one if another statement is cached for stmt and still in use.
+   */
+  PreparedStatement put(SQLStmt stmt, int[] keys, PreparedStatement statement) {
+    prepares++;
+    Map<SQLStmt, CachedPreparedStatement> map = keys == null ? statements : statementsWithKeys;
+    CachedPreparedStatement previous = map.get(stmt);
+    if (previous != null) {
+      if (previous.inUse) {
+        return statement;
+      }
+      // Prepared with other SQL or generated keys
+      closeQuietly(previous.statement);
+    }
+    CachedPreparedStatement entry = new CachedPreparedStatement(statement, stmt.getSQL(), keys);
+    entry.inUse = true;
+    map.put(stmt, entry);
+    return entry;
+  }
+
+  /** Close every cached statement, for instance because their connection is gone. */
+  void invalidate() {
+    for (CachedPreparedStatement entry : statements.values()) {
+      closeQuietly(entry.statement);
+    }
+    for (CachedPreparedStatement entry : statementsWithKeys.values()) {
+      closeQuietly(entry.statement);
+    }
+    statements.clear();
+    statementsWithKeys.clear();
+    this.connection = null;
+  }
+
+  /** Returns the number of statements that were taken from the cache. */
+  long getHits() {
+    return hits;
+  }
+
+  /** Returns the number of statements that were prepared, whether or not they were cached. */
+  long getPrepares() {
+    return prepares;
+  }
+
+  private static void closeQuietly(PreparedStatement statement) {
+    try {
+      statement.close();
+    } catch (SQLException ex) {
+      // The connection may be gone already
+      LOG.debug("Could not close a cached statement", ex);
+    }
+  }
+}
@@ -0,0 +1,436 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.api;
+
+import java.sql.*;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+/**
+ * The connection a {@link StageProfiler} hands the procedures. Preparing a statement counts as JDBC
+ * time, and so do the executions of the statements it returns and the calls to next() on their
+ * result sets. Every other call goes straight to the connection untimed.
+ */
+final class TimedConnection implements Connection {
+  private final Connection connection;
+  private final StageProfiler profiler;
+
+  TimedConnection(Connection connection, StageProfiler profiler) {
+    this.connection = connection;
+    this.profiler = profiler;
+  }
+
+  @Override
+  public Statement createStatement() throws SQLException {
+    Statement statement;
+    long start = System.nanoTime();
+    try {
+      statement = connection.createStatement();
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+    return new TimedStatement(statement, profiler);
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql) throws SQLException {
+    PreparedStatement statement;
+    long start = System.nanoTime();
+    try {
+      statement = connection.prepareStatement(sql);
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+    return new TimedPreparedStatement(statement, profiler);
+  }
+
+  @Override
+  public CallableStatement prepareCall(String sql) throws SQLException {
+    CallableStatement statement;
+    long start = System.nanoTime();
+    try {
+      statement = connection.prepareCall(sql);
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+    return new TimedCallableStatement(statement, profiler);
+  }
+
+  @Override
+  public String nativeSQL(String sql) throws SQLException {
+    return connection.nativeSQL(sql);
+  }
+
+  @Override
+  public void setAutoCommit(boolean autoCommit) throws SQLException {
+    connection.setAutoCommit(autoCommit);
+  }
+
+  @Override
+  public boolean getAutoCommit() throws SQLException {
+    return connection.getAutoCommit();
+  }
+
+  @Override
+  public void commit() throws SQLException {
+    connection.commit();
+  }
+
+  @Override
+  public void rollback() throws SQLException {
+    connection.rollback();
+  }
+
+  @Override
+  public void close() throws SQLException {
+    connection.close();
+  }
+
+  @Override
+  public boolean isClosed() throws SQLException {
+    return connection.isClosed();
+  }
+
+  @Override
+  public DatabaseMetaData getMetaData() throws SQLException {
+    return connection.getMetaData();
+  }
+
+  @Override
+  public void setReadOnly(boolean readOnly) throws SQLException {
+    connection.setReadOnly(readOnly);
+  }
+
+  @Override
+  public boolean isReadOnly() throws SQLException {
+    return connection.isReadOnly();
+  }
+
+  @Override
+  public void setCatalog(String catalog) throws SQLException {
+    connection.setCatalog(catalog);
+  }
+
+  @Override
+  public String getCatalog() throws SQLException {
+    return connection.getCatalog();
+  }
+
+  @Override
+  public void setTransactionIsolation(int level) throws SQLException {
+    connection.setTransactionIsolation(level);
+  }
+
+  @Override
+  public int getTransactionIsolation() throws SQLException {
+    return connection.getTransactionIsolation();
+  }
+
+  @Override
+  public SQLWarning getWarnings() throws SQLException {
+    return connection.getWarnings();
+  }
+
+  @Override
+  public void clearWarnings() throws SQLException {
+    connection.clearWarnings();
+  }
+
+  @Override
+  public Statement createStatement(int resultSetType, int resultSetConcurrency)
+      throws SQLException {
+    Statement statement;
+    long start = System.nanoTime();
+    try {
+      statement = connection.createStatement(resultSetType, resultSetConcurrency);
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+    return new TimedStatement(statement, profiler);
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency)
+      throws SQLException {
+    PreparedStatement statement;
+    long start = System.nanoTime();
+    try {
+      statement = connection.prepareStatement(sql, resultSetType, resultSetConcurrency);
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+    return new TimedPreparedStatement(statement, profiler);
+  }
+
+  @Override
+  public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency)
+      throws SQLException {
+    CallableStatement statement;
+    long start = System.nanoTime();
+    try {
+      statement = connection.prepareCall(sql, resultSetType, resultSetConcurrency);
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+    return new TimedCallableStatement(statement, profiler);
+  }
+
+  @Override
+  public Map<String, Class<?>> getTypeMap() throws SQLException {
+    return connection.getTypeMap();
+  }
+
+  @Override
+  public void setHoldability(int holdability) throws SQLException {
+    connection.setHoldability(holdability);
+  }
+
+  @Override
+  public int getHoldability() throws SQLException {
+    return connection.getHoldability();
+  }
+
+  @Override
+  public Savepoint setSavepoint() throws SQLException {
+    return connection.setSavepoint();
+  }
+
+  @Override
+  public Savepoint setSavepoint(String name) throws SQLException {
+    return connection.setSavepoint(name);
+  }
+
+  @Override
+  public void rollback(Savepoint savepoint) throws SQLException {
+    connection.rollback(savepoint);
+  }
+
+  @Override
+  public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+    connection.releaseSavepoint(savepoint);
+  }
+
+  @Override
+  public Statement createStatement(
+      int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+    Statement statement;
+    long start = System.nanoTime();
+    try {
+      statement =
+          connection.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability);
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+    return new TimedStatement(statement, profiler);
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(
+      String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability)
+      throws SQLException {
+    PreparedStatement statement;
+    long start = System.nanoTime();
+    try {
+      statement =
+          connection.prepareStatement(
+              sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+    return new TimedPreparedStatement(statement, profiler);
+  }
+
+  @Override
+  public CallableStatement prepareCall(
+      String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability)
+      throws SQLException {
+    CallableStatement statement;
+    long start = System.nanoTime();
+    try {
+      statement =
+          connection.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+    return new TimedCallableStatement(statement, profiler);
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+    PreparedStatement statement;
+    long start = System.nanoTime();
+    try {
+      statement = connection.prepareStatement(sql, autoGeneratedKeys);
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+    return new TimedPreparedStatement(statement, profiler);
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+    PreparedStatement statement;
+    long start = System.nanoTime();
+    try {
+      statement = connection.prepareStatement(sql, columnIndexes);
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+    return new TimedPreparedStatement(statement, profiler);
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+    PreparedStatement statement;
+    long start = System.nanoTime();
+    try {
+      statement = connection.prepareStatement(sql, columnNames);
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+    return new TimedPreparedStatement(statement, profiler);
+  }
+
+  @Override
+  public Clob createClob() throws SQLException {
+    return connection.createClob();
+  }
+
+  @Override
+  public Blob createBlob() throws SQLException {
+    return connection.createBlob();
+  }
+
+  @Override
+  public NClob createNClob() throws SQLException {
+    return connection.createNClob();
+  }
+
+  @Override
+  public SQLXML createSQLXML() throws SQLException {
+    return connection.createSQLXML();
+  }
+
+  @Override
+  public boolean isValid(int timeout) throws SQLException {
+    return connection.isValid(timeout);
+  }
+
+  @Override
+  public void setClientInfo(String name, String value) throws SQLClientInfoException {
+    connection.setClientInfo(name, value);
+  }
+
+  @Override
+  public void setClientInfo(Properties properties) throws SQLClientInfoException {
+    connection.setClientInfo(properties);
+  }
+
+  @Override
+  public String getClientInfo(String name) throws SQLException {
+    return connection.getClientInfo(name);
+  }
+
+  @Override
+  public Properties getClientInfo() throws SQLException {
+    return connection.getClientInfo();
+  }
+
+  @Override
+  public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+    return connection.createArrayOf(typeName, elements);
+  }
+
+  @Override
+  public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+    return connection.createStruct(typeName, attributes);
+  }
+
+  @Override
+  public void setSchema(String schema) throws SQLException {
+    connection.setSchema(schema);
+  }
+
+  @Override
+  public String getSchema() throws SQLException {
+    return connection.getSchema();
+  }
+
+  @Override
+  public void abort(Executor executor) throws SQLException {
+    connection.abort(executor);
+  }
+
+  @Override
+  public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+    connection.setNetworkTimeout(executor, milliseconds);
+  }
+
+  @Override
+  public int getNetworkTimeout() throws SQLException {
+    return connection.getNetworkTimeout();
+  }
+
+  @Override
+  public void beginRequest() throws SQLException {
+    connection.beginRequest();
+  }
+
+  @Override
+  public void endRequest() throws SQLException {
+    connection.endRequest();
+  }
+
+  @Override
+  public boolean setShardingKeyIfValid(
+      ShardingKey shardingKey, ShardingKey superShardingKey, int timeout) throws SQLException {
+    return connection.setShardingKeyIfValid(shardingKey, superShardingKey, timeout);
+  }
+
+  @Override
+  public boolean setShardingKeyIfValid(ShardingKey shardingKey, int timeout) throws SQLException {
+    return connection.setShardingKeyIfValid(shardingKey, timeout);
+  }
+
+  @Override
+  public void setShardingKey(ShardingKey shardingKey, ShardingKey superShardingKey)
+      throws SQLException {
+    connection.setShardingKey(shardingKey, superShardingKey);
+  }
+
+  @Override
+  public void setShardingKey(ShardingKey shardingKey) throws SQLException {
+    connection.setShardingKey(shardingKey);
+  }
+
+  @Override
+  public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+    connection.setTypeMap(map);
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    return connection.unwrap(iface);
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    return connection.isWrapperFor(iface);
+  }
+}
@@ -0,0 +1,370 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.api;
+
+import java.sql.*;
+
+/** A statement of a {@link TimedConnection}, whose executions count as JDBC time. */
+class TimedStatement implements Statement {
+  private final Statement statement;
+  final StageProfiler profiler;
+
+  TimedStatement(Statement statement, StageProfiler profiler) {
+    this.statement = statement;
+    this.profiler = profiler;
+  }
+
+  @Override
+  public ResultSet executeQuery(String sql) throws SQLException {
+    ResultSet resultSet;
+    long start = System.nanoTime();
+    try {
+      resultSet = statement.executeQuery(sql);
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+    return new TimedResultSet(resultSet, profiler);
+  }
+
+  @Override
+  public int executeUpdate(String sql) throws SQLException {
+    long start = System.nanoTime();
+    try {
+      return statement.executeUpdate(sql);
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public void close() throws SQLException {
+    statement.close();
+  }
+
+  @Override
+  public int getMaxFieldSize() throws SQLException {
+    return statement.getMaxFieldSize();
+  }
+
+  @Override
+  public void setMaxFieldSize(int max) throws SQLException {
+    statement.setMaxFieldSize(max);
+  }
+
+  @Override
+  public int getMaxRows() throws SQLException {
+    return statement.getMaxRows();
+  }
+
+  @Override
+  public void setMaxRows(int max) throws SQLException {
+    statement.setMaxRows(max);
+  }
+
+  @Override
+  public void setEscapeProcessing(boolean enable) throws SQLException {
+    statement.setEscapeProcessing(enable);
+  }
+
+  @Override
+  public int getQueryTimeout() throws SQLException {
+    return statement.getQueryTimeout();
+  }
+
+  @Override
+  public void setQueryTimeout(int seconds) throws SQLException {
+    statement.setQueryTimeout(seconds);
+  }
+
+  @Override
+  public void cancel() throws SQLException {
+    statement.cancel();
+  }
+
+  @Override
+  public SQLWarning getWarnings() throws SQLException {
+    return statement.getWarnings();
+  }
+
+  @Override
+  public void clearWarnings() throws SQLException {
+    statement.clearWarnings();
+  }
+
+  @Override
+  public void setCursorName(String name) throws SQLException {
+    statement.setCursorName(name);
+  }
+
+  @Override
+  public boolean execute(String sql) throws SQLException {
+    long start = System.nanoTime();
+    try {
+      return statement.execute(sql);
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public ResultSet getResultSet() throws SQLException {
+    ResultSet resultSet = statement.getResultSet();
+    return resultSet == null ? null : new TimedResultSet(resultSet, profiler);
+  }
+
+  @Override
+  public int getUpdateCount() throws SQLException {
+    return statement.getUpdateCount();
+  }
+
+  @Override
+  public boolean getMoreResults() throws SQLException {
+    return statement.getMoreResults();
+  }
+
+  @Override
+  public void setFetchDirection(int direction) throws SQLException {
+    statement.setFetchDirection(direction);
+  }
+
+  @Override
+  public int getFetchDirection() throws SQLException {
+    return statement.getFetchDirection();
+  }
+
+  @Override
+  public void setFetchSize(int rows) throws SQLException {
+    statement.setFetchSize(rows);
+  }
+
+  @Override
+  public int getFetchSize() throws SQLException {
+    return statement.getFetchSize();
+  }
+
+  @Override
+  public int getResultSetConcurrency() throws SQLException {
+    return statement.getResultSetConcurrency();
+  }
+
+  @Override
+  public int getResultSetType() throws SQLException {
+    return statement.getResultSetType();
+  }
+
+  @Override
+  public void addBatch(String sql) throws SQLException {
+    statement.addBatch(sql);
+  }
+
+  @Override
+  public void clearBatch() throws SQLException {
+    statement.clearBatch();
+  }
+
+  @Override
+  public int[] executeBatch() throws SQLException {
+    long start = System.nanoTime();
+    try {
+      return statement.executeBatch();
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return statement.getConnection();
+  }
+
+  @Override
+  public boolean getMoreResults(int current) throws SQLException {
+    return statement.getMoreResults(current);
+  }
+
+  @Override
+  public ResultSet getGeneratedKeys() throws SQLException {
+    ResultSet resultSet = statement.getGeneratedKeys();
+    return resultSet == null ? null : new TimedResultSet(resultSet, profiler);
+  }
+
+  @Override
+  public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+    long start = System.nanoTime();
+    try {
+      return statement.executeUpdate(sql, autoGeneratedKeys);
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+    long start = System.nanoTime();
+    try {
+      return statement.executeUpdate(sql, columnIndexes);
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+    long start = System.nanoTime();
+    try {
+      return statement.executeUpdate(sql, columnNames);
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+    long start = System.nanoTime();
+    try {
+      return statement.execute(sql, autoGeneratedKeys);
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+    long start = System.nanoTime();
+    try {
+      return statement.execute(sql, columnIndexes);
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public boolean execute(String sql, String[] columnNames) throws SQLException {
+    long start = System.nanoTime();
+    try {
+      return statement.execute(sql, columnNames);
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public int getResultSetHoldability() throws SQLException {
+    return statement.getResultSetHoldability();
+  }
+
+  @Override
+  public boolean isClosed() throws SQLException {
+    return statement.isClosed();
+  }
+
+  @Override
+  public void setPoolable(boolean poolable) throws SQLException {
+    statement.setPoolable(poolable);
+  }
+
+  @Override
+  public boolean isPoolable() throws SQLException {
+    return statement.isPoolable();
+  }
+
+  @Override
+  public void closeOnCompletion() throws SQLException {
+    statement.closeOnCompletion();
+  }
+
+  @Override
+  public boolean isCloseOnCompletion() throws SQLException {
+    return statement.isCloseOnCompletion();
+  }
+
+  @Override
+  public long getLargeUpdateCount() throws SQLException {
+    return statement.getLargeUpdateCount();
+  }
+
+  @Override
+  public void setLargeMaxRows(long max) throws SQLException {
+    statement.setLargeMaxRows(max);
+  }
+
+  @Override
+  public long getLargeMaxRows() throws SQLException {
+    return statement.getLargeMaxRows();
+  }
+
+  @Override
+  public long[] executeLargeBatch() throws SQLException {
+    long start = System.nanoTime();
+    try {
+      return statement.executeLargeBatch();
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public long executeLargeUpdate(String sql) throws SQLException {
+    long start = System.nanoTime();
+    try {
+      return statement.executeLargeUpdate(sql);
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+    long start = System.nanoTime();
+    try {
+      return statement.executeLargeUpdate(sql, autoGeneratedKeys);
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException {
+    long start = System.nanoTime();
+    try {
+      return statement.executeLargeUpdate(sql, columnIndexes);
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public long executeLargeUpdate(String sql, String[] columnNames) throws SQLException {
+    long start = System.nanoTime();
+    try {
+      return statement.executeLargeUpdate(sql, columnNames);
+    } finally {
+      profiler.count(StageProfiler.Stage.JDBC, System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    return statement.unwrap(iface);
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    return statement.isWrapperFor(iface);
+  }
+}
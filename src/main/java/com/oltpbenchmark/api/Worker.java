@@ -17,25 +17,31 @@
 
 package com.oltpbenchmark.api;
 
-import static com.oltpbenchmark.types.State.MEASURE;
-
 import com.oltpbenchmark.*;
 import com.oltpbenchmark.api.Procedure.UserAbortException;
+import com.oltpbenchmark.jdbc.FaultInjector;
+import com.oltpbenchmark.jdbc.StatementStatistics;
+import com.oltpbenchmark.jfr.ReconnectEvent;
+import com.oltpbenchmark.jfr.RollbackEvent;
+import com.oltpbenchmark.jfr.TransactionEvent;
 import com.oltpbenchmark.types.DatabaseType;
 import com.oltpbenchmark.types.State;
 import com.oltpbenchmark.types.TransactionStatus;
 import com.oltpbenchmark.util.Histogram;
 import com.oltpbenchmark.util.SQLUtil;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.sql.SQLRecoverableException;
 import java.sql.Statement;
 import java.time.Duration;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,11 +51,23 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
       LoggerFactory.getLogger("com.oltpbenchmark.api.ABORT_LOG");
 
   private WorkloadState workloadState;
+  // Null if the workload only records histograms
   private LatencyRecord latencies;
+  private LatencyHistograms latencyHistograms;
+  private int measuredRequests = 0;
   private final Statement currStatement;
+  private final SubmittedProcedure pieceOfWorkSlot = new SubmittedProcedure();
+  private ArrivalSchedule arrivals = null;
 
   // Interval requests used by the monitor
   private final AtomicInteger intervalRequests = new AtomicInteger(0);
+  // Response times (microseconds) since the last drain; null unless a phase runs a saturation
+  // search
+  private final LiveHistogram intervalResponseTimes;
+  // Latencies by TransactionType id since the monitor last drained them; null until it asks
+  private volatile AtomicReferenceArray<LiveHistogram> intervalLatencies = null;
+  // Transaction events that passed the threshold, for sampling them
+  private long transactionEvents = 0;
 
   private final int id;
   private final T benchmark;
@@ -60,12 +78,25 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
   protected final Map<String, Procedure> name_procedures = new HashMap<>();
   protected final Map<Class<? extends Procedure>, Procedure> class_procedures = new HashMap<>();
 
-  private final Histogram<TransactionType> txnUnknown = new Histogram<>();
-  private final Histogram<TransactionType> txnSuccess = new Histogram<>();
-  private final Histogram<TransactionType> txnAbort = new Histogram<>();
-  private final Histogram<TransactionType> txnRetry = new Histogram<>();
-  private final Histogram<TransactionType> txnErrors = new Histogram<>();
-  private final Histogram<TransactionType> txtRetryDifferent = new Histogram<>();
+  // Array-indexed by TransactionType id for the transaction path; see OutcomeCounters
+  private final Procedure[] proceduresById;
+  private final OutcomeCounters outcomes;
+  // The attempts that failed with an injected fault, counted in outcomes as well
+  private final OutcomeCounters injectedOutcomes;
+  // Null unless the workload caches its statements
+  private final StatementCache statementCache;
+  // Null unless the workload instruments its statements
+  private final StatementStatistics statementStatistics;
+  private final RetryPolicy retryPolicy;
+  // The time the current transaction has spent waiting to retry or reconnect
+  private long retryWaitNs = 0;
+  // Of the measured transactions that waited, in microseconds
+  private final LatencyHistogram retryWait = new LatencyHistogram();
+  // Null unless the stages are profiled
+  private final StageProfiler stageProfiler = StageProfiler.ENABLED ? new StageProfiler() : null;
+
+  private long lateArrivals = 0;
+  private final long queueDelayBoundNs;
 
   private boolean seenDone = false;
 
@@ -76,12 +107,13 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
     this.workloadState = this.configuration.getWorkloadState();
     this.currStatement = null;
     this.transactionTypes = this.configuration.getTransTypes();
+    this.queueDelayBoundNs = this.configuration.getQueueDelayBound() * 1000000L;
+    this.intervalResponseTimes =
+        hasSaturationSearch(this.configuration) ? new LiveHistogram() : null;
 
     if (!this.configuration.getNewConnectionPerTxn()) {
       try {
-        this.conn = this.benchmark.makeConnection();
-        this.conn.setAutoCommit(false);
-        this.conn.setTransactionIsolation(this.configuration.getIsolationMode());
+        this.conn = this.benchmark.getConnectionManager().acquire();
       } catch (SQLException ex) {
         throw new RuntimeException("Failed to connect to database", ex);
       }
@@ -94,6 +126,59 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
       this.name_procedures.put(e.getKey().getName(), proc);
       this.class_procedures.put(proc.getClass(), proc);
     }
+
+    TransactionType[] typesById = OutcomeCounters.indexById(this.procedures.keySet());
+    this.proceduresById = new Procedure[typesById.length];
+    for (int i = 0; i < typesById.length; i++) {
+      if (typesById[i] != null) {
+        this.proceduresById[i] = this.procedures.get(typesById[i]);
+      }
+    }
+    this.outcomes = new OutcomeCounters(OutcomeCounters.indexById(this.transactionTypes));
+    this.retryPolicy =
+        this.configuration.getRetryPolicy() != null
+            ? this.configuration.getRetryPolicy()
+            : RetryPolicy.defaults(
+                this.configuration.getDatabaseType(), this.configuration.getMaxRetries());
+    this.injectedOutcomes = new OutcomeCounters(OutcomeCounters.indexById(this.transactionTypes));
+
+    if (this.configuration.getStatementCache() && !this.configuration.getNewConnectionPerTxn()) {
+      this.statementCache = new StatementCache();
+      for (Procedure proc : this.procedures.values()) {
+        proc.setStatementCache(this.statementCache);
+      }
+    } else {
+      this.statementCache = null;
+    }
+
+    if (this.configuration.getInstrumentStatements()) {
+      this.statementStatistics = new StatementStatistics();
+      for (Procedure proc : this.procedures.values()) {
+        proc.setStatementStatistics(this.statementStatistics);
+      }
+    } else {
+      this.statementStatistics = null;
+    }
+  }
+
+  /** Returns the number of statements taken from the statement cache, or -1 if there is none. */
+  public final long getStatementCacheHits() {
+    return statementCache == null ? -1 : statementCache.getHits();
+  }
+
+  /**
+   * Returns the number of statements prepared through the statement cache, or -1 if there is none.
+   */
+  public final long getStatementCachePrepares() {
+    return statementCache == null ? -1 : statementCache.getPrepares();
+  }
+
+  /**
+   * Returns the executions of each SQL statement, or null if the workload does not instrument them.
+   * Only read this once the worker has finished.
+   */
+  public final StatementStatistics getStatementStatistics() {
+    return statementStatistics;
   }
 
   /** Get the BenchmarkModule managing this Worker */
@@ -120,18 +205,113 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
   }
 
   public final int getRequests() {
-    return latencies.size();
+    return measuredRequests;
   }
 
   public final int getAndResetIntervalRequests() {
     return intervalRequests.getAndSet(0);
   }
 
+  /**
+   * Move the response times measured since the last call into the given snapshot. They are only
+   * recorded if a phase of this worker's workload runs a saturation search.
+   */
+  public final void drainIntervalResponseTimes(LiveHistogram.Snapshot into) {
+    if (intervalResponseTimes != null) {
+      intervalResponseTimes.drainInto(into);
+    }
+  }
+
+  private static boolean hasSaturationSearch(WorkloadConfiguration configuration) {
+    for (Phase phase : configuration.getPhases()) {
+      if (phase.getSaturationSearch() != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns how many transactions of the given type have ended with the given status. This may be
+   * called while the worker runs, in which case the count can lag behind and supplemental
+   * procedures are left out.
+   */
+  public final long getOutcomeCount(TransactionStatus status, TransactionType type) {
+    return outcomes.getIndexed(status, type);
+  }
+
+  /**
+   * Start recording the latency of each transaction type for {@link #drainIntervalLatencies}. The
+   * histograms are only allocated for the types that run.
+   */
+  public final void trackIntervalLatencies() {
+    if (intervalLatencies == null) {
+      intervalLatencies = new AtomicReferenceArray<>(proceduresById.length);
+    }
+  }
+
+  /**
+   * Move the latencies measured since the last call into the given snapshots, by transaction type
+   * id. Supplemental procedures are not tracked.
+   */
+  public final void drainIntervalLatencies(Map<Integer, LiveHistogram.Snapshot> into) {
+    AtomicReferenceArray<LiveHistogram> byType = intervalLatencies;
+    if (byType == null) {
+      return;
+    }
+    for (int id = 0; id < byType.length(); id++) {
+      LiveHistogram histogram = byType.get(id);
+      if (histogram != null) {
+        histogram.drainInto(into.computeIfAbsent(id, k -> new LiveHistogram.Snapshot()));
+      }
+    }
+  }
+
+  /**
+   * Returns the number of measured requests that waited in the work queue for longer than the
+   * configured queueDelayBound.
+   */
+  public final long getLateArrivals() {
+    return lateArrivals;
+  }
+
+  /**
+   * Returns how late this worker woke up for its scheduled arrivals, or null if the workload does
+   * not use worker pacing.
+   */
+  public final ScheduleSlip getScheduleSlip() {
+    return arrivals == null ? null : arrivals.getScheduleSlip();
+  }
+
+  /** Returns the measured samples; empty if the workload records histograms instead. */
   public final Iterable<LatencyRecord.Sample> getLatencyRecords() {
-    return latencies;
+    return latencies == null ? Collections.emptyList() : latencies;
+  }
+
+  private void recordIntervalLatency(int typeId, long latencyNanoseconds) {
+    AtomicReferenceArray<LiveHistogram> byType = intervalLatencies;
+    if (byType == null || typeId < 0 || typeId >= byType.length()) {
+      return;
+    }
+    // Only this worker creates its histograms, so they need no compare-and-set
+    LiveHistogram histogram = byType.get(typeId);
+    if (histogram == null) {
+      histogram = new LiveHistogram();
+      byType.set(typeId, histogram);
+    }
+    histogram.record((int) Math.min(Integer.MAX_VALUE, latencyNanoseconds / 1000));
+  }
+
+  /** Returns the log the measured samples were written to, or null if they are kept in memory. */
+  public final SampleLog getSampleLog() {
+    return latencies == null ? null : latencies.getSampleLog();
   }
 
   public final Procedure getProcedure(TransactionType type) {
+    int id = type.getId();
+    if (id >= 0 && id < proceduresById.length && proceduresById[id] != null) {
+      return proceduresById[id];
+    }
     return (this.procedures.get(type));
   }
 
@@ -146,27 +326,51 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
   }
 
   public final Histogram<TransactionType> getTransactionSuccessHistogram() {
-    return (this.txnSuccess);
+    return outcomes.toHistogram(TransactionStatus.SUCCESS);
   }
 
   public final Histogram<TransactionType> getTransactionUnknownHistogram() {
-    return (this.txnUnknown);
+    return outcomes.toHistogram(TransactionStatus.UNKNOWN);
   }
 
   public final Histogram<TransactionType> getTransactionRetryHistogram() {
-    return (this.txnRetry);
+    return outcomes.toHistogram(TransactionStatus.RETRY);
   }
 
   public final Histogram<TransactionType> getTransactionAbortHistogram() {
-    return (this.txnAbort);
+    return outcomes.toHistogram(TransactionStatus.USER_ABORTED);
   }
 
   public final Histogram<TransactionType> getTransactionErrorHistogram() {
-    return (this.txnErrors);
+    return outcomes.toHistogram(TransactionStatus.ERROR);
   }
 
   public final Histogram<TransactionType> getTransactionRetryDifferentHistogram() {
-    return (this.txtRetryDifferent);
+    return outcomes.toHistogram(TransactionStatus.RETRY_DIFFERENT);
+  }
+
+  /**
+   * Returns how long the measured transactions that had to wait before a retry or a reconnect
+   * waited, in microseconds.
+   */
+  public final LatencyHistogram getRetryWait() {
+    return retryWait;
+  }
+
+  /**
+   * Returns where the measured transactions spent their time, or null if the stages are not
+   * profiled. Only read this once the worker has finished.
+   */
+  public final StageProfiler getStageProfiler() {
+    return stageProfiler;
+  }
+
+  /**
+   * Returns the attempts that ended with the given status because of a fault injected by a {@link
+   * FaultInjector}.
+   */
+  public final Histogram<TransactionType> getInjectedFaultHistogram(TransactionStatus status) {
+    return injectedOutcomes.toHistogram(status);
   }
 
   /** Stop executing the current statement. */
@@ -186,7 +390,27 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
     t.setName(this.toString());
 
     // In case of reuse reset the measurements
-    latencies = new LatencyRecord(workloadState.getTestStartNs());
+    measuredRequests = 0;
+    LatencyHistograms sink = workloadState.getLatencyHistograms();
+    latencyHistograms =
+        sink == null
+            ? null
+            : new LatencyHistograms(workloadState.getTestStartNs(), sink.getWindowSeconds(), sink);
+    if (configuration.getSampleLogDirectory() != null) {
+      SampleLog log =
+          new SampleLog(
+              Paths.get(configuration.getSampleLogDirectory()),
+              configuration.getBenchmarkName() + "-" + id);
+      latencies =
+          new LatencyRecord(
+              workloadState.getTestStartNs(), configuration.getNanosecondLatencies(), log);
+    } else if (sink == null) {
+      latencies =
+          new LatencyRecord(workloadState.getTestStartNs(), configuration.getNanosecondLatencies());
+    } else {
+      latencies = null;
+    }
+    arrivals = workloadState.newArrivalSchedule();
 
     // Invoke initialize callback
     try {
@@ -197,6 +421,9 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
 
     // wait for start
     workloadState.blockForStart();
+    if (StageProfiler.ENABLED) {
+      stageProfiler.mark();
+    }
 
     while (true) {
 
@@ -229,14 +456,23 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
       // Grab some work and update the state, in case it changed while we
       // waited.
 
-      SubmittedProcedure pieceOfWork = workloadState.fetchWork();
+      SubmittedProcedure pieceOfWork = workloadState.fetchWork(pieceOfWorkSlot, arrivals);
+
+      // For rate-limited phases the request may have been due some time ago; the gap between
+      // its scheduled arrival and now is part of the response time the client would have seen.
+      long queueDelay = 0;
+      if (pieceOfWork != null) {
+        queueDelay = Math.max(0, System.nanoTime() - pieceOfWork.getStartTime());
+      }
 
+      // Read the epoch before the phase: see WorkloadState.switchToNextPhase
+      BenchmarkState.Epoch preEpoch = workloadState.getEpoch();
       prePhase = workloadState.getCurrentPhase();
       if (prePhase == null) {
         continue;
       }
 
-      preState = workloadState.getGlobalState();
+      preState = preEpoch.getState();
 
       switch (preState) {
         case DONE, EXIT, LATENCY_COMPLETE -> {
@@ -251,9 +487,17 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
 
       // PART 3: Execute work
 
+      if (StageProfiler.ENABLED) {
+        stageProfiler.lap(StageProfiler.Stage.FETCH_WORK);
+      }
+
       TransactionType transactionType =
           getTransactionType(pieceOfWork, prePhase, preState, workloadState);
 
+      if (StageProfiler.ENABLED) {
+        stageProfiler.lap(StageProfiler.Stage.CHOOSE_TRANSACTION);
+      }
+
       if (!transactionType.equals(TransactionType.INVALID)) {
 
         // TODO: Measuring latency when not rate limited is ... a little
@@ -285,30 +529,54 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
 
         // PART 4: Record results
 
-        State postState = workloadState.getGlobalState();
+        if (StageProfiler.ENABLED) {
+          stageProfiler.endTransaction(end - start);
+        }
+        boolean measured = false;
+
+        BenchmarkState.Epoch postEpoch = workloadState.getEpoch();
+        State postState = postEpoch.getState();
 
         switch (postState) {
           case MEASURE:
-            // Non-serial measurement. Only measure if the state both
-            // before and after was MEASURE, and the phase hasn't
-            // changed, otherwise we're recording results for a query
-            // that either started during the warmup phase or ended
-            // after the timer went off.
-            Phase postPhase = workloadState.getCurrentPhase();
-
-            if (postPhase == null) {
-              // Need a null check on postPhase since current phase being null is used in
-              // WorkloadState
-              // and ThreadBench as the indication that the benchmark is over. However, there's a
-              // race
-              // condition with postState not being changed from MEASURE to DONE yet, so we entered
-              // the
-              // switch. In this scenario, just break from the switch.
+            // Non-serial measurement. Only measure if nothing changed while the transaction ran:
+            // the same epoch means the state was MEASURE throughout and the phase is the same,
+            // otherwise we're recording results for a query that either started during the
+            // warmup phase or ended after the timer went off.
+            if (workloadState.getCurrentPhase() == null) {
+              // The benchmark is over, but the state has not been changed from MEASURE to DONE
+              // yet. Don't touch the state in this case.
               break;
             }
-            if (preState == MEASURE && postPhase.getId() == prePhase.getId()) {
-              latencies.addLatency(transactionType.getId(), start, end, this.id, prePhase.getId());
+            if (postEpoch == preEpoch) {
+              measured = true;
+              if (latencyHistograms != null) {
+                latencyHistograms.record(
+                    transactionType.getId(), start, end, queueDelay, retryWaitNs);
+              }
+              if (latencies != null) {
+                latencies.addLatency(
+                    transactionType.getId(),
+                    start,
+                    end,
+                    this.id,
+                    prePhase.getId(),
+                    queueDelay,
+                    retryWaitNs);
+              }
+              if (retryWaitNs > 0) {
+                retryWait.record((int) Math.min(Integer.MAX_VALUE, retryWaitNs / 1000));
+              }
+              measuredRequests++;
               intervalRequests.incrementAndGet();
+              if (intervalResponseTimes != null) {
+                intervalResponseTimes.record(
+                    (int) Math.min(Integer.MAX_VALUE, (end - start + queueDelay) / 1000));
+              }
+              recordIntervalLatency(transactionType.getId(), end - start);
+              if (queueDelay > queueDelayBoundNs) {
+                lateArrivals++;
+              }
             }
             if (prePhase.isLatencyRun()) {
               workloadState.startColdQuery();
@@ -325,6 +593,11 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
             // Do nothing
         }
 
+        if (StageProfiler.ENABLED) {
+          stageProfiler.lap(StageProfiler.Stage.RECORD_RESULTS);
+          stageProfiler.finish(transactionType, measured);
+        }
+
         // wait after transaction if specified
         long postExecutionWaitInMillis = getPostExecutionWaitInMillis(transactionType);
 
@@ -343,6 +616,18 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
       }
 
       workloadState.finishedWork();
+
+      if (StageProfiler.ENABLED) {
+        // Think time is not part of any stage
+        stageProfiler.mark();
+      }
+    }
+
+    if (latencyHistograms != null) {
+      latencyHistograms.flush();
+    }
+    if (latencies != null) {
+      latencies.close();
     }
 
     LOG.debug("worker calling teardown");
@@ -390,36 +675,62 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
    */
   protected final void doWork(DatabaseType databaseType, TransactionType transactionType) {
 
+    TransactionEvent event = new TransactionEvent();
+    event.begin();
+    TransactionStatus finalStatus = TransactionStatus.UNKNOWN;
+
     try {
       int retryCount = 0;
-      int maxRetryCount = configuration.getMaxRetries();
+      int maxRetryCount = retryPolicy.getMaxRetries(transactionType);
+      Phase phase = workloadState.getCurrentPhase();
+      retryPolicy.startTransaction(phase);
+      retryWaitNs = 0;
+      // The previous waits, from which the next are drawn
+      long retryBackoffNs = 0;
+      long reconnectBackoffNs = 0;
 
       while (retryCount < maxRetryCount && this.workloadState.getGlobalState() != State.DONE) {
 
         TransactionStatus status = TransactionStatus.UNKNOWN;
+        boolean injected = false;
+        long backoffNs = 0;
 
         if (this.conn == null) {
+          if (statementCache != null) {
+            // The statements went with the connection
+            statementCache.invalidate();
+          }
+          ReconnectEvent reconnect = new ReconnectEvent();
+          reconnect.begin();
           try {
             if (!this.configuration.getNewConnectionPerTxn()) {
               if (retryCount > 0) {
-                Duration delay = Duration.ofSeconds(Math.min(retryCount, 5));
-                LOG.info("Backing off {} seconds before reconnecting.", delay.toSeconds());
-                try {
-                  Thread.sleep(delay);
-                } catch (InterruptedException ex) {
-                  // pass
-                }
+                reconnectBackoffNs =
+                    retryPolicy
+                        .getReconnectBackoff()
+                        .next(reconnectBackoffNs, ThreadLocalRandom.current());
+                LOG.info(
+                    "Backing off {} milliseconds before reconnecting.",
+                    reconnectBackoffNs / 1000000);
+                backOff(reconnectBackoffNs);
               } else {
                 LOG.info("(Re)connecting to database.");
               }
             }
-            this.conn = this.benchmark.makeConnection();
-            this.conn.setAutoCommit(false);
-            this.conn.setTransactionIsolation(this.configuration.getIsolationMode());
+            long connectStart = System.nanoTime();
+            try {
+              this.conn = this.benchmark.getConnectionManager().acquire();
+            } finally {
+              if (StageProfiler.ENABLED) {
+                stageProfiler.count(StageProfiler.Stage.CONNECT, System.nanoTime() - connectStart);
+              }
+            }
+            commitReconnect(reconnect, retryCount, true);
           } catch (SQLException ex) {
             if (LOG.isDebugEnabled()) {
               LOG.debug(String.format("%s failed to open a connection...", this));
             }
+            commitReconnect(reconnect, retryCount, false);
             retryCount++;
             continue;
           }
@@ -431,7 +742,13 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
             LOG.debug(String.format("%s %s attempting...", this, transactionType));
           }
 
-          status = this.executeWork(conn, transactionType);
+          if (StageProfiler.ENABLED) {
+            stageProfiler.startExecution();
+            status = this.executeWork(stageProfiler.wrap(conn), transactionType);
+            stageProfiler.endExecution();
+          } else {
+            status = this.executeWork(conn, transactionType);
+          }
 
           if (LOG.isDebugEnabled()) {
             LOG.debug(
@@ -445,15 +762,19 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
 
           conn.commit();
 
+          if (StageProfiler.ENABLED) {
+            stageProfiler.lap(StageProfiler.Stage.COMMIT);
+          }
+
           break;
 
         } catch (UserAbortException ex) {
           try {
-            conn.rollback();
+            rollback(transactionType, null);
           } catch (SQLException ex2) {
             LOG.error("SQLException caught while rolling back transaction.", ex2);
             // force a reconnection
-            conn = null;
+            discardConnection();
           }
 
           ABORT_LOG.debug(String.format("%s Aborted", transactionType), ex);
@@ -463,10 +784,12 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
           break;
 
         } catch (SQLException ex) {
+          injected = FaultInjector.isInjected(ex);
           // check if we should attempt to ignore connection errors and reconnect
           boolean isConnectionErrorException = SQLUtil.isConnectionErrorException(ex);
+          RetryPolicy.Action action = retryPolicy.classify(ex);
 
-          if (indicatesReadOnly(ex)) {
+          if (action == RetryPolicy.Action.READ_ONLY) {
             if (SQLUtil.isConnectionOK(conn)) {
               conn.setReadOnly(true);
             }
@@ -488,7 +811,7 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
                       ex.getErrorCode()),
                   ex);
               try {
-                conn.close();
+                this.benchmark.getConnectionManager().discard(conn);
               } catch (SQLException ex2) {
                 LOG.error("SQLException caught while closing connection.", ex2);
               }
@@ -507,11 +830,11 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
                       ex.getErrorCode()),
                   ex);
               try {
-                conn.rollback();
+                rollback(transactionType, ex);
               } catch (SQLException ex2) {
                 LOG.error("SQLException caught while attempting to rollback transaction.", ex2);
                 // force a reconnection
-                conn = null;
+                discardConnection();
               }
             }
           }
@@ -540,11 +863,11 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
                       ex.getErrorCode()),
                   ex);
               try {
-                conn.rollback();
+                rollback(transactionType, ex);
               } catch (SQLException ex2) {
                 LOG.error("SQLException caught while attempting to rollback transaction.", ex2);
                 // force a reconnection
-                conn = null;
+                discardConnection();
               }
             }
           }
@@ -565,7 +888,7 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
             // force a reconnection
             try {
               if (conn != null) {
-                conn.close();
+                this.benchmark.getConnectionManager().discard(conn);
               }
             } catch (Exception e) {
               LOG.warn("Failed to close faulty connection (somewhat expected).", e);
@@ -576,7 +899,12 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
             status = TransactionStatus.RETRY_DIFFERENT;
 
             retryCount++;
-          } else if (isRetryable(ex)) {
+            if (retryCount < maxRetryCount && !retryPolicy.tryRetry(phase)) {
+              LOG.debug(
+                  "The retry budget of the phase is used up, giving up on [{}]", transactionType);
+              break;
+            }
+          } else if (action == RetryPolicy.Action.RETRY) {
             LOG.debug(
                 String.format(
                     "Retryable SQLException occurred during [%s]... current retry attempt [%d], max retry attempts [%d], sql state [%s], error code [%d].",
@@ -590,6 +918,16 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
             status = TransactionStatus.RETRY;
 
             retryCount++;
+            if (retryCount < maxRetryCount) {
+              if (!retryPolicy.tryRetry(phase)) {
+                LOG.debug(
+                    "The retry budget of the phase is used up, giving up on [{}]", transactionType);
+                break;
+              }
+              retryBackoffNs =
+                  retryPolicy.getBackoff().next(retryBackoffNs, ThreadLocalRandom.current());
+              backoffNs = retryBackoffNs;
+            }
           } else {
             LOG.warn(
                 String.format(
@@ -603,25 +941,41 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
           }
         } finally {
           if (this.configuration.getNewConnectionPerTxn() && this.conn != null) {
+            long releaseStart = System.nanoTime();
             try {
-              this.conn.close();
+              this.benchmark.getConnectionManager().release(this.conn);
               this.conn = null;
             } catch (SQLException e) {
               LOG.error("Connection couldn't be closed.", e);
             }
+            if (StageProfiler.ENABLED) {
+              stageProfiler.count(StageProfiler.Stage.CONNECT, System.nanoTime() - releaseStart);
+            }
           } else if (this.conn == null) {
             LOG.warn("Connection error detected.");
           }
 
-          switch (status) {
-            case UNKNOWN -> this.txnUnknown.put(transactionType);
-            case SUCCESS -> this.txnSuccess.put(transactionType);
-            case USER_ABORTED -> this.txnAbort.put(transactionType);
-            case RETRY -> this.txnRetry.put(transactionType);
-            case RETRY_DIFFERENT -> this.txtRetryDifferent.put(transactionType);
-            case ERROR -> this.txnErrors.put(transactionType);
+          outcomes.add(status, transactionType);
+          if (injected) {
+            injectedOutcomes.add(status, transactionType);
           }
+          finalStatus = status;
         }
+
+        // Wait outside the try, so that a new connection per transaction is not held meanwhile
+        if (backoffNs > 0 && this.workloadState.getGlobalState() != State.DONE) {
+          backOff(backoffNs);
+        }
+      }
+
+      event.end();
+      if (event.shouldCommit() && ++transactionEvents % TransactionEvent.SAMPLING == 0) {
+        event.benchmark = configuration.getBenchmarkName();
+        event.transactionType = transactionType.getName();
+        event.status = finalStatus.name();
+        event.retries = retryCount;
+        event.workerId = id;
+        event.commit();
       }
     } catch (SQLException ex) {
       String msg =
@@ -633,86 +987,62 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
     }
   }
 
-  /**
-   * Checks to see if the exception indicates that the current connection is read-only.
-   *
-   * @param ex
-   * @return
-   */
-  private boolean indicatesReadOnly(SQLException ex) {
-    String sqlState = ex.getSQLState();
-    int errorCode = ex.getErrorCode();
-
-    LOG.debug("sql state [{}] and error code [{}]", sqlState, errorCode);
-
-    if (sqlState == null) {
-      return false;
+  /** Roll back the current transaction; the cause is null if the transaction aborted itself. */
+  private void rollback(TransactionType transactionType, SQLException cause) throws SQLException {
+    RollbackEvent event = new RollbackEvent();
+    event.begin();
+    conn.rollback();
+    event.end();
+    if (event.shouldCommit()) {
+      event.transactionType = transactionType.getName();
+      event.userAbort = cause == null;
+      if (cause != null) {
+        event.sqlState = cause.getSQLState();
+        event.errorCode = cause.getErrorCode();
+      }
+      event.workerId = id;
+      event.commit();
     }
+  }
 
-    // ------------------
-    // SqlServer: "SELECT TOP 10 * FROM sys.messages"
-    // ------------------
-    if (errorCode == 3906 && sqlState.equals("S0002")) {
-      return true;
+  /** Close a connection that could not be rolled back, and reconnect for the next attempt. */
+  private void discardConnection() {
+    try {
+      this.benchmark.getConnectionManager().discard(conn);
+    } catch (SQLException ex) {
+      LOG.debug("Failed to close faulty connection (somewhat expected).", ex);
+    } finally {
+      conn = null;
     }
-
-    // ------------------
-    // MYSQL:
-    // https://dev.mysql.com/doc/connector-j/8.0/en/connector-j-reference-error-sqlstates.html
-    // ------------------
-    // TODO
-
-    // ------------------
-    // POSTGRES: https://www.postgresql.org/docs/current/errcodes-appendix.html
-    // ------------------
-    // TODO
-
-    return false;
   }
 
-  private boolean isRetryable(SQLException ex) {
-
-    String sqlState = ex.getSQLState();
-    int errorCode = ex.getErrorCode();
-
-    LOG.debug("sql state [{}] and error code [{}]", sqlState, errorCode);
-
-    if (sqlState == null) {
-      return false;
+  /** Wait before a retry or a reconnect, and count the time as the transaction's retry wait. */
+  private void backOff(long nanoseconds) {
+    if (nanoseconds <= 0) {
+      return;
     }
-
-    if (ex instanceof SQLRecoverableException) {
-      return true;
+    long start = System.nanoTime();
+    try {
+      Thread.sleep(Duration.ofNanos(nanoseconds));
+    } catch (InterruptedException ex) {
+      // pass
     }
-
-    // ------------------
-    // SqlServer: "SELECT TOP 10 * FROM sys.messages"
-    // ------------------
-    if (errorCode == 12222 && sqlState.equals("S0051")) {
-      // Lock request time out period exceeded.
-      return true;
-    } else if (errorCode == 0 && sqlState.equals("HY008")) {
-      // The query has timed out.
-      return true;
+    long waited = System.nanoTime() - start;
+    retryWaitNs += waited;
+    if (StageProfiler.ENABLED) {
+      stageProfiler.count(StageProfiler.Stage.BACKOFF, waited);
     }
+  }
 
-    // ------------------
-    // MYSQL:
-    // https://dev.mysql.com/doc/connector-j/8.0/en/connector-j-reference-error-sqlstates.html
-    // ------------------
-    if (errorCode == 1213 && sqlState.equals("40001")) {
-      // MySQL ER_LOCK_DEADLOCK
-      return true;
-    } else if (errorCode == 1205 && sqlState.equals("40001")) {
-      // MySQL ER_LOCK_WAIT_TIMEOUT
-      return true;
+  private void commitReconnect(ReconnectEvent event, int attempt, boolean succeeded) {
+    event.end();
+    // With a new connection per transaction, connecting is not a reconnect
+    if (!configuration.getNewConnectionPerTxn() && event.shouldCommit()) {
+      event.workerId = id;
+      event.attempt = attempt;
+      event.succeeded = succeeded;
+      event.commit();
     }
-
-    // ------------------
-    // POSTGRES: https://www.postgresql.org/docs/current/errcodes-appendix.html
-    // ------------------
-    // Postgres serialization_failure
-    return errorCode == 0 && sqlState.equals("40001");
   }
 
   /**
@@ -737,11 +1067,17 @@ public abstract class Worker<T extends BenchmarkModule> implements Runnable {
 
   /** Called at the end of the test to do any clean up that may be required. */
   public void tearDown() {
+    if (statementCache != null) {
+      statementCache.invalidate();
+    }
     if (!this.configuration.getNewConnectionPerTxn() && this.conn != null) {
+      // The manager closes it, now or when its pool is closed at the end of the run
       try {
-        conn.close();
+        this.benchmark.getConnectionManager().release(this.conn);
       } catch (SQLException e) {
         LOG.error("Connection couldn't be closed.", e);
+      } finally {
+        this.conn = null;
       }
     }
   }
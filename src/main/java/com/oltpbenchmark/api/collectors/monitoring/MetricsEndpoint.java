@@ -0,0 +1,237 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.api.collectors.monitoring;
+
+import com.oltpbenchmark.BenchmarkState;
+import com.oltpbenchmark.LiveHistogram;
+import com.oltpbenchmark.Phase;
+import com.oltpbenchmark.WorkloadConfiguration;
+import com.oltpbenchmark.WorkloadState;
+import com.oltpbenchmark.api.TransactionType;
+import com.oltpbenchmark.api.Worker;
+import com.oltpbenchmark.types.State;
+import com.oltpbenchmark.types.TransactionStatus;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Serves the live metrics of a run at /metrics in the Prometheus text format: the benchmark state,
+ * the current phase and queue depth of each workload, the outcome counts and last-interval
+ * throughput of each transaction type, and its latency histogram.
+ *
+ * <p>Scraping never touches the transaction path. Outcome counts are read from the workers without
+ * synchronization, and latencies are the ones the {@link Monitor} drains every interval, so the
+ * histograms are as recent as the last interval.
+ */
+final class MetricsEndpoint {
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+  private static final double MICROSECONDS_PER_SECOND = 1e6;
+  // Bucket bounds in microseconds, from 100 us to 10 s
+  private static final long[] LATENCY_BOUNDS = {
+    100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000, 100000, 250000, 500000, 1000000, 2500000,
+    5000000, 10000000
+  };
+  private static final String[] LATENCY_LABELS = new String[LATENCY_BOUNDS.length];
+  private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+
+  static {
+    for (int i = 0; i < LATENCY_BOUNDS.length; i++) {
+      LATENCY_LABELS[i] =
+          BigDecimal.valueOf(LATENCY_BOUNDS[i], 6).stripTrailingZeros().toPlainString();
+    }
+  }
+
+  private final HttpServer server;
+  private final BenchmarkState testState;
+  private final List<? extends Worker<?>> workers;
+  private final Map<WorkloadState, String> workloads = new LinkedHashMap<>();
+  private final Map<Integer, TransactionType> types = new HashMap<>();
+  private final Map<Integer, String> benchmarkByType = new HashMap<>();
+
+  // Updated by the monitor, read by the server's thread; both hold the lock on this
+  private final Map<Integer, LiveHistogram.Snapshot> latencies = new HashMap<>();
+  private final Map<Integer, Double> throughput = new HashMap<>();
+  private final StringBuilder text = new StringBuilder(16384);
+  private final long[] cumulative = new long[LATENCY_BOUNDS.length];
+
+  MetricsEndpoint(int port, BenchmarkState testState, List<? extends Worker<?>> workers)
+      throws IOException {
+    this.testState = testState;
+    this.workers = workers;
+    for (Worker<?> w : workers) {
+      WorkloadConfiguration conf = w.getWorkloadConfiguration();
+      workloads.putIfAbsent(conf.getWorkloadState(), conf.getBenchmarkName());
+      for (TransactionType type : conf.getTransTypes()) {
+        if (type.getId() != TransactionType.INVALID_ID && !type.isSupplemental()) {
+          types.put(type.getId(), type);
+          benchmarkByType.put(type.getId(), conf.getBenchmarkName());
+        }
+      }
+    }
+    this.server = HttpServer.create(new InetSocketAddress(port), 0);
+    this.server.createContext("/metrics", this::handle);
+  }
+
+  void start() {
+    server.start();
+  }
+
+  void stop() {
+    server.stop(0);
+  }
+
+  int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /** Add the latencies of the last interval, which lasted the given number of seconds. */
+  synchronized void update(Map<Integer, LiveHistogram.Snapshot> interval, double seconds) {
+    for (Map.Entry<Integer, LiveHistogram.Snapshot> e : interval.entrySet()) {
+      latencies.computeIfAbsent(e.getKey(), k -> new LiveHistogram.Snapshot()).add(e.getValue());
+      throughput.put(e.getKey(), e.getValue().getCount() / seconds);
+    }
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    byte[] body;
+    synchronized (this) {
+      text.setLength(0);
+      format(text);
+      body = text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+    exchange.sendResponseHeaders(200, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  /** Append every metric in the text format. */
+  synchronized void format(StringBuilder out) {
+    header(out, "benchbase_state", "gauge", "The state of the benchmark (1 for the current one).");
+    State current = testState.getState();
+    for (State state : State.values()) {
+      out.append("benchbase_state{state=\"").append(state.name()).append("\"} ");
+      out.append(state == current ? 1 : 0).append('\n');
+    }
+
+    header(out, "benchbase_phase", "gauge", "The id of the current phase, or 0 between phases.");
+    for (Map.Entry<WorkloadState, String> e : workloads.entrySet()) {
+      Phase phase = e.getKey().getCurrentPhase();
+      label(out, "benchbase_phase", "benchmark", e.getValue());
+      out.append("} ").append(phase == null ? 0 : phase.getId()).append('\n');
+    }
+
+    header(out, "benchbase_queue_depth", "gauge", "Requests waiting in the work queue.");
+    for (Map.Entry<WorkloadState, String> e : workloads.entrySet()) {
+      label(out, "benchbase_queue_depth", "benchmark", e.getValue());
+      out.append("} ").append(e.getKey().getQueueDepth()).append('\n');
+    }
+
+    header(
+        out,
+        "benchbase_transactions_total",
+        "counter",
+        "Transactions by type and outcome, including the warmup, counted as they end.");
+    for (TransactionType type : types.values()) {
+      for (TransactionStatus status : STATUSES) {
+        long count = 0;
+        for (Worker<?> w : workers) {
+          count += w.getOutcomeCount(status, type);
+        }
+        typeLabels(out, "benchbase_transactions_total", type);
+        out.append(",status=\"").append(status.name().toLowerCase(Locale.ROOT)).append("\"} ");
+        out.append(count).append('\n');
+      }
+    }
+
+    header(
+        out,
+        "benchbase_throughput",
+        "gauge",
+        "Measured requests per second of each type in the last monitoring interval.");
+    for (Map.Entry<Integer, Double> e : throughput.entrySet()) {
+      TransactionType type = types.get(e.getKey());
+      if (type != null) {
+        typeLabels(out, "benchbase_throughput", type);
+        out.append("} ").append(e.getValue()).append('\n');
+      }
+    }
+
+    header(
+        out,
+        "benchbase_latency_seconds",
+        "histogram",
+        "Latency of the measured requests of each type, as of the last monitoring interval.");
+    for (Map.Entry<Integer, LiveHistogram.Snapshot> e : latencies.entrySet()) {
+      TransactionType type = types.get(e.getKey());
+      if (type == null) {
+        continue;
+      }
+      LiveHistogram.Snapshot snapshot = e.getValue();
+      snapshot.getCumulativeCounts(LATENCY_BOUNDS, cumulative);
+      for (int i = 0; i < LATENCY_BOUNDS.length; i++) {
+        typeLabels(out, "benchbase_latency_seconds_bucket", type);
+        out.append(",le=\"").append(LATENCY_LABELS[i]).append("\"} ");
+        out.append(cumulative[i]).append('\n');
+      }
+      typeLabels(out, "benchbase_latency_seconds_bucket", type);
+      out.append(",le=\"+Inf\"} ").append(snapshot.getCount()).append('\n');
+      typeLabels(out, "benchbase_latency_seconds_sum", type);
+      out.append("} ").append(snapshot.getApproximateSum() / MICROSECONDS_PER_SECOND).append('\n');
+      typeLabels(out, "benchbase_latency_seconds_count", type);
+      out.append("} ").append(snapshot.getCount()).append('\n');
+    }
+  }
+
+  private static void header(StringBuilder out, String name, String type, String help) {
+    out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  private static void label(StringBuilder out, String name, String label, String value) {
+    out.append(name).append('{').append(label).append("=\"");
+    // Escape as the text format requires
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '\\' || c == '"') {
+        out.append('\\').append(c);
+      } else if (c == '\n') {
+        out.append("\\n");
+      } else {
+        out.append(c);
+      }
+    }
+    out.append('"');
+  }
+
+  private void typeLabels(StringBuilder out, String name, TransactionType type) {
+    label(out, name, "benchmark", benchmarkByType.get(type.getId()));
+    out.append(",type=\"").append(type.getName()).append('"');
+  }
+}
@@ -1,24 +1,42 @@
 package com.oltpbenchmark.api.collectors.monitoring;
 
 import com.oltpbenchmark.BenchmarkState;
+import com.oltpbenchmark.LiveHistogram;
 import com.oltpbenchmark.api.BenchmarkModule;
+import com.oltpbenchmark.api.TransactionType;
 import com.oltpbenchmark.api.Worker;
+import com.oltpbenchmark.util.FileUtil;
 import com.oltpbenchmark.util.MonitorInfo;
+import com.oltpbenchmark.util.StringUtil;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Generic monitoring class that reports the throughput of the executing workers while the benchmark
- * is being executed.
+ * is being executed, along with the latency percentiles of each transaction type over the last
+ * interval. These are also appended to the interval file, if there is one.
  */
 public class Monitor extends Thread {
   protected static final Logger LOG = LoggerFactory.getLogger(DatabaseMonitor.class);
 
+  private static final double MILLISECONDS_FACTOR = 1e3;
+
   protected final MonitorInfo monitorInfo;
   protected final BenchmarkState testState;
   protected final List<? extends Worker<? extends BenchmarkModule>> workers;
 
+  private final Map<Integer, LiveHistogram.Snapshot> intervalLatencies = new TreeMap<>();
+  private PrintStream intervalFile = null;
+  private MetricsEndpoint metrics = null;
+
   {
     this.setDaemon(true);
   }
@@ -38,8 +56,15 @@ public class Monitor extends Thread {
   @Override
   public void run() {
     int interval = this.monitorInfo.getMonitoringInterval();
+    Map<Integer, String> typeNames = getTypeNames();
+    openIntervalFile();
+    startMetrics();
+    for (Worker<?> w : this.workers) {
+      w.trackIntervalLatencies();
+    }
 
     LOG.info("Starting MonitorThread Interval [{}ms]", interval);
+    long startNs = System.nanoTime();
     while (!Thread.currentThread().isInterrupted()) {
       // Compute the last throughput
       long measuredRequests = 0;
@@ -51,6 +76,7 @@ public class Monitor extends Thread {
       double seconds = interval / 1000d;
       double tps = (double) measuredRequests / seconds;
       LOG.info("Throughput: {} txn/sec", tps);
+      reportIntervalLatencies((System.nanoTime() - startNs) / 1000000000d, seconds, typeNames);
 
       try {
         Thread.sleep(interval);
@@ -59,6 +85,105 @@ public class Monitor extends Thread {
         Thread.currentThread().interrupt();
       }
     }
+    if (intervalFile != null) {
+      intervalFile.close();
+    }
+    if (metrics != null) {
+      metrics.stop();
+    }
+  }
+
+  /** Log and write the latency percentiles of every type that ran since the last interval. */
+  private void reportIntervalLatencies(
+      double elapsedSeconds, double seconds, Map<Integer, String> typeNames) {
+    for (LiveHistogram.Snapshot snapshot : intervalLatencies.values()) {
+      snapshot.clear();
+    }
+    for (Worker<?> w : this.workers) {
+      w.drainIntervalLatencies(intervalLatencies);
+    }
+    if (metrics != null) {
+      metrics.update(intervalLatencies, seconds);
+    }
+    for (Map.Entry<Integer, LiveHistogram.Snapshot> e : intervalLatencies.entrySet()) {
+      LiveHistogram.Snapshot s = e.getValue();
+      if (s.getCount() == 0) {
+        continue;
+      }
+      String name = typeNames.getOrDefault(e.getKey(), Integer.toString(e.getKey()));
+      LOG.info(
+          String.format(
+              "  %-24s %10.1f txn/sec  p50 %8.3f ms  p95 %8.3f ms  p99 %8.3f ms",
+              name,
+              s.getCount() / seconds,
+              s.getPercentile(50) / MILLISECONDS_FACTOR,
+              s.getPercentile(95) / MILLISECONDS_FACTOR,
+              s.getPercentile(99) / MILLISECONDS_FACTOR));
+      if (intervalFile != null) {
+        intervalFile.printf(
+            "%.3f,%s,%d,%.3f,%.3f,%.3f,%.3f\n",
+            elapsedSeconds,
+            name,
+            s.getCount(),
+            s.getCount() / seconds,
+            s.getPercentile(50) / MILLISECONDS_FACTOR,
+            s.getPercentile(95) / MILLISECONDS_FACTOR,
+            s.getPercentile(99) / MILLISECONDS_FACTOR);
+      }
+    }
+    if (intervalFile != null) {
+      intervalFile.flush();
+    }
+  }
+
+  private void startMetrics() {
+    if (monitorInfo.getMetricsPort().isEmpty()) {
+      return;
+    }
+    try {
+      metrics = new MetricsEndpoint(monitorInfo.getMetricsPort().get(), testState, workers);
+    } catch (IOException e) {
+      LOG.error("Could not serve metrics on port {}", monitorInfo.getMetricsPort().get(), e);
+      return;
+    }
+    metrics.start();
+    LOG.info("Serving metrics at http://localhost:{}/metrics", metrics.getPort());
+  }
+
+  private Map<Integer, String> getTypeNames() {
+    Map<Integer, String> names = new HashMap<>();
+    for (Worker<?> w : this.workers) {
+      for (TransactionType type : w.getWorkloadConfiguration().getTransTypes()) {
+        names.put(type.getId(), type.getName());
+      }
+    }
+    return names;
+  }
+
+  private void openIntervalFile() {
+    if (monitorInfo.getIntervalFile().isEmpty()) {
+      return;
+    }
+    String path = monitorInfo.getIntervalFile().get();
+    File parent = new File(path).getAbsoluteFile().getParentFile();
+    FileUtil.makeDirIfNotExists(parent.getPath());
+    try {
+      intervalFile = new PrintStream(path);
+    } catch (FileNotFoundException e) {
+      LOG.error("Could not open interval file {}", path, e);
+      return;
+    }
+    LOG.info("Output interval results into file: {}", path);
+    String[] header = {
+      "Time (seconds)",
+      "Transaction Name",
+      "Requests",
+      "Throughput (requests/second)",
+      "Median Latency (millisecond)",
+      "95th Percentile Latency (millisecond)",
+      "99th Percentile Latency (millisecond)"
+    };
+    intervalFile.println(StringUtil.join(",", header));
   }
 
   /** Called at the end of the test to do any clean up that may be required. */
@@ -34,7 +34,7 @@ public final class CHBenCHmarkWorker extends Worker<CHBenCHmark> {
   protected TransactionStatus executeWork(Connection conn, TransactionType nextTransaction)
       throws UserAbortException, SQLException {
     try {
-      GenericQuery proc = (GenericQuery) this.getProcedure(nextTransaction.getProcedureClass());
+      GenericQuery proc = (GenericQuery) this.getProcedure(nextTransaction);
       proc.run(conn);
     } catch (ClassCastException e) {
       throw new RuntimeException(e);
@@ -45,7 +45,7 @@ public final class TemplatedWorker extends Worker<TemplatedBenchmark> {
       throws UserAbortException, SQLException {
     try {
       Class<? extends Procedure> clazz = nextTransaction.getProcedureClass();
-      GenericQuery proc = (GenericQuery) this.getProcedure(clazz);
+      GenericQuery proc = (GenericQuery) this.getProcedure(nextTransaction);
       if (!generators.get(clazz).isEmpty()) {
         // If there is a generator available use it to create a
         // parameter binding.
@@ -63,7 +63,7 @@ public final class TPCCWorker extends Worker<TPCCBenchmark> {
   protected TransactionStatus executeWork(Connection conn, TransactionType nextTransaction)
       throws UserAbortException, SQLException {
     try {
-      TPCCProcedure proc = (TPCCProcedure) this.getProcedure(nextTransaction.getProcedureClass());
+      TPCCProcedure proc = (TPCCProcedure) this.getProcedure(nextTransaction);
       proc.run(
           conn,
           gen,
@@ -40,7 +40,7 @@ public final class TPCHWorker extends Worker<TPCHBenchmark> {
   protected TransactionStatus executeWork(Connection conn, TransactionType nextTransaction)
       throws UserAbortException, SQLException {
     try {
-      GenericQuery proc = (GenericQuery) this.getProcedure(nextTransaction.getProcedureClass());
+      GenericQuery proc = (GenericQuery) this.getProcedure(nextTransaction);
       proc.run(conn, rand, this.configuration.getScaleFactor());
     } catch (ClassCastException e) {
       throw new RuntimeException(e);
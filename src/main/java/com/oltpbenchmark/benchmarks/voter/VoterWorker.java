@@ -41,7 +41,7 @@ public final class VoterWorker extends Worker<VoterBenchmark> {
       throws UserAbortException, SQLException {
 
     PhoneCall call = switchboard.receive();
-    Vote proc = getProcedure(Vote.class);
+    Vote proc = (Vote) getProcedure(txnType);
 
     proc.run(conn, call.voteId, call.phoneNumber, call.contestantNumber, VoterConstants.MAX_VOTES);
     return TransactionStatus.SUCCESS;
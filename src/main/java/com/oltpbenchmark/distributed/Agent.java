@@ -0,0 +1,189 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.distributed;
+
+import com.oltpbenchmark.DBWorkload;
+import com.oltpbenchmark.LatencyHistograms;
+import com.oltpbenchmark.PhaseSync;
+import com.oltpbenchmark.Results;
+import com.oltpbenchmark.api.BenchmarkModule;
+import com.oltpbenchmark.api.TransactionType;
+import com.oltpbenchmark.util.MonitorInfo;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.apache.commons.configuration2.XMLConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the terminals of one driver in a distributed benchmark. The agent receives the workload
+ * configuration from the {@link Coordinator}, follows its start, warmup and phase signals, and
+ * sends back its results with the latencies summarised as {@link LatencyHistograms}, with windows
+ * counted from the end of the warmup.
+ */
+public final class Agent {
+  private static final Logger LOG = LoggerFactory.getLogger(Agent.class);
+
+  private final String host;
+  private final int port;
+
+  /**
+   * @param address the coordinator to connect to, as host:port
+   */
+  public Agent(String address) {
+    int sep = address.lastIndexOf(':');
+    if (sep < 0) {
+      throw new IllegalArgumentException("Coordinator address must be host:port: " + address);
+    }
+    this.host = address.substring(0, sep);
+    this.port = Integer.parseInt(address.substring(sep + 1));
+  }
+
+  /** Run the benchmark the coordinator sends, and send the results back. */
+  public void run(XMLConfiguration pluginConfig, MonitorInfo monitorInfo) throws Exception {
+    try (Socket socket = new Socket(host, port)) {
+      socket.setTcpNoDelay(true);
+      DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+      Protocol.expect(in, Protocol.CONFIG);
+      int agentId = in.readInt();
+      String targetBenchmarks = Protocol.readString(in);
+      String configXml = Protocol.readString(in);
+      LOG.info("Connected to coordinator {}:{} as agent {}", host, port, agentId);
+
+      // Parse the configuration exactly the way the coordinator did
+      Path configFile = Files.createTempFile("agent-" + agentId + "-", ".xml");
+      configFile.toFile().deleteOnExit();
+      Files.writeString(configFile, configXml, StandardCharsets.UTF_8);
+      XMLConfiguration xmlConfig = DBWorkload.buildConfiguration(configFile.toString());
+      List<TransactionType> activeTXTypes = new ArrayList<>();
+      List<BenchmarkModule> benchList =
+          DBWorkload.loadBenchmarks(
+              pluginConfig,
+              targetBenchmarks,
+              configFile.toString(),
+              xmlConfig,
+              monitorInfo,
+              activeTXTypes);
+      for (BenchmarkModule benchmark : benchList) {
+        benchmark.refreshCatalog();
+        // Only histograms are sent back, so there is no point in keeping every sample
+        benchmark.getWorkloadConfiguration().setLatencyHistograms(true);
+      }
+
+      int numPhases = benchList.get(0).getWorkloadConfiguration().getNumberOfPhases();
+      RemotePhaseSync phaseSync = new RemotePhaseSync(in, out, numPhases);
+      Results results = DBWorkload.runWorkload(benchList, monitorInfo, phaseSync);
+
+      LOG.info(
+          "Sending the histograms of {} requests back to the coordinator",
+          results.getMeasuredRequests());
+
+      out.writeByte(Protocol.RESULTS);
+      Protocol.writeString(out, results.getState().name());
+      out.writeInt(results.getMeasuredRequests());
+      out.writeLong(results.getDroppedArrivals());
+      out.writeLong(results.getLateArrivals());
+      out.writeDouble(results.getCarrierUtilization());
+      Protocol.writeOutcomes(out, results);
+      results.getLatencyHistograms().write(out, phaseSync.getMeasureStartNanosecond());
+      out.flush();
+    }
+  }
+
+  /** Follows the coordinator's signals, which a background thread reads off the socket. */
+  private static final class RemotePhaseSync implements PhaseSync, Runnable {
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final int numPhases;
+    private final CountDownLatch started = new CountDownLatch(1);
+    private volatile boolean warmupComplete = false;
+    private volatile int completedPhases = 0;
+    private volatile long measureStartNanosecond = System.nanoTime();
+
+    private RemotePhaseSync(DataInputStream in, DataOutputStream out, int numPhases) {
+      this.in = in;
+      this.out = out;
+      this.numPhases = numPhases;
+    }
+
+    @Override
+    public void awaitStart() throws InterruptedException {
+      try {
+        out.writeByte(Protocol.READY);
+        out.flush();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      Thread reader = new Thread(this, "AgentPhaseSync");
+      reader.setDaemon(true);
+      reader.start();
+      started.await();
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (completedPhases < numPhases) {
+          byte type = in.readByte();
+          switch (type) {
+            case Protocol.START -> started.countDown();
+            case Protocol.WARMUP_END -> {
+              measureStartNanosecond = System.nanoTime();
+              warmupComplete = true;
+            }
+            case Protocol.PHASE_END -> completedPhases = in.readInt();
+            default -> throw new IOException("Unexpected message " + type);
+          }
+        }
+      } catch (IOException e) {
+        // Without the coordinator there is nobody to wait for: wind the run down
+        LOG.error("Lost the connection to the coordinator: {}", e.getMessage());
+        warmupComplete = true;
+        completedPhases = Integer.MAX_VALUE;
+        started.countDown();
+      }
+    }
+
+    @Override
+    public boolean isWarmupComplete() {
+      return warmupComplete;
+    }
+
+    @Override
+    public int getCompletedPhases() {
+      return completedPhases;
+    }
+
+    long getMeasureStartNanosecond() {
+      return measureStartNanosecond;
+    }
+  }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.distributed;
+
+import com.oltpbenchmark.LatencyHistograms;
+import com.oltpbenchmark.OfferedLoad;
+import com.oltpbenchmark.Phase;
+import com.oltpbenchmark.Results;
+import com.oltpbenchmark.WorkloadConfiguration;
+import com.oltpbenchmark.api.TransactionType;
+import com.oltpbenchmark.types.State;
+import com.oltpbenchmark.util.Histogram;
+import com.oltpbenchmark.util.StringUtil;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.configuration2.XMLConfiguration;
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import org.apache.commons.configuration2.io.FileHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Drives a benchmark that is executed by several {@link Agent} processes, so that the load is not
+ * limited to what a single JVM can generate. The coordinator does not run any terminals itself: it
+ * sends the workload configuration to every agent, decides when the run starts, when the warmup
+ * ends and when each phase is over, and merges the agents' results.
+ *
+ * <p>Every agent runs the full configuration, so the total load is the configured load times the
+ * number of agents. Phase times are taken from the first workload, and latency (serial, untimed)
+ * phases are not supported because they end when their queries run out rather than on a timer.
+ *
+ * <p>Agents send back latency histograms rather than samples, so the coordinator needs memory for
+ * the windows of the run but not for its requests. The merged results therefore have no raw
+ * samples, and are reported in whole histogram windows as with the latencyHistograms option.
+ */
+public final class Coordinator implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(Coordinator.class);
+
+  private final ServerSocket serverSocket;
+  private final int numAgents;
+  private final List<Connection> agents = new ArrayList<>();
+
+  /**
+   * @param port the port to listen on for agents, or 0 to pick a free one
+   * @param numAgents the number of agents to wait for before starting
+   */
+  public Coordinator(int port, int numAgents) throws IOException {
+    this.serverSocket = new ServerSocket(port);
+    this.numAgents = numAgents;
+  }
+
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  /** Run the benchmark on the agents and return their merged results. */
+  public Results run(
+      String targetBenchmarks, XMLConfiguration xmlConfig, List<WorkloadConfiguration> workConfs)
+      throws IOException, InterruptedException {
+    List<Phase> phases = workConfs.get(0).getPhases();
+    for (Phase phase : phases) {
+      if (phase.isLatencyRun()) {
+        throw new RuntimeException(
+            "Latency runs (serial phases without a time) cannot be distributed");
+      }
+      if (phase.getSaturationSearch() != null) {
+        throw new RuntimeException("Saturation searches cannot be distributed");
+      }
+      if (phase.getFaults() != null) {
+        throw new RuntimeException("Fault injection cannot be distributed");
+      }
+    }
+    for (WorkloadConfiguration workConf : workConfs) {
+      if (workConf.getSampleLogDirectory() != null) {
+        throw new RuntimeException("Sample logs cannot be distributed");
+      }
+      if (workConf.getInstrumentStatements()) {
+        throw new RuntimeException("Statement instrumentation cannot be distributed");
+      }
+    }
+
+    String configXml = serializeConfig(xmlConfig);
+
+    LOG.info("Waiting for {} agents on port {} ..", numAgents, getPort());
+    for (int agentId = 0; agentId < numAgents; agentId++) {
+      Connection agent = new Connection(serverSocket.accept());
+      agents.add(agent);
+      agent.out.writeByte(Protocol.CONFIG);
+      agent.out.writeInt(agentId);
+      Protocol.writeString(agent.out, targetBenchmarks);
+      Protocol.writeString(agent.out, configXml);
+      agent.out.flush();
+      LOG.info("Agent {} connected from {}", agentId, agent.socket.getRemoteSocketAddress());
+    }
+    for (Connection agent : agents) {
+      Protocol.expect(agent.in, Protocol.READY);
+    }
+
+    // Same timeline as ThreadBench: the warmup of the first phase, then each phase back to back
+    long startTs = System.currentTimeMillis();
+    long startNs = System.nanoTime();
+    broadcast(Protocol.START, -1);
+    LOG.info("{} :: All {} agents are ready, starting.", StringUtil.bold("START"), numAgents);
+
+    sleepUntil(startNs + phases.get(0).getWarmupTime() * 1000000000L);
+    long measureStartNs = System.nanoTime();
+    broadcast(Protocol.WARMUP_END, -1);
+    LOG.info("{} :: Warmup complete, starting measurements.", StringUtil.bold("MEASURE"));
+
+    // Every agent offers the full configured load
+    OfferedLoad offeredLoad = new OfferedLoad(numAgents);
+    long phaseEndNs = measureStartNs;
+    for (int i = 0; i < phases.size(); i++) {
+      LOG.info(phases.get(i).currentPhaseString());
+      for (int w = 0; w < workConfs.size(); w++) {
+        List<Phase> workPhases = workConfs.get(w).getPhases();
+        if (i <= workPhases.size()) {
+          offeredLoad.startPhase(w, phaseEndNs, i < workPhases.size() ? workPhases.get(i) : null);
+        }
+      }
+      phaseEndNs += phases.get(i).getTime() * 1000000000L;
+      sleepUntil(phaseEndNs);
+      broadcast(Protocol.PHASE_END, i + 1);
+    }
+    long measureEndNs = System.nanoTime();
+    offeredLoad.end(measureEndNs);
+    LOG.info("{} :: Waiting for all agents to finish ..", StringUtil.bold("TERMINATE"));
+
+    Results results = collectResults(workConfs, startTs, measureStartNs, measureEndNs);
+    results.setOfferedLoad(offeredLoad);
+    return results;
+  }
+
+  private Results collectResults(
+      List<WorkloadConfiguration> workConfs, long startTs, long measureStartNs, long measureEndNs)
+      throws IOException {
+    Map<Integer, TransactionType> types = new HashMap<>();
+    Set<TransactionType> txnTypes = new HashSet<>();
+    for (WorkloadConfiguration workConf : workConfs) {
+      for (TransactionType type : workConf.getTransTypes()) {
+        types.put(type.getId(), type);
+        txnTypes.add(type);
+      }
+    }
+    txnTypes.remove(TransactionType.INVALID);
+
+    // Read everything before building the Results, since its statistics are final
+    State state = State.EXIT;
+    int measuredRequests = 0;
+    long droppedArrivals = 0;
+    long lateArrivals = 0;
+    double carrierUtilization = 0;
+    int carrierAgents = 0;
+    // Agents count their windows from the end of their warmup, which is when ours ends too
+    LatencyHistograms histograms =
+        new LatencyHistograms(measureStartNs, workConfs.get(0).getLatencyHistogramWindow());
+    List<Histogram<TransactionType>> outcomes = new ArrayList<>();
+    for (int i = 0; i < Protocol.NUM_OUTCOMES; i++) {
+      outcomes.add(new Histogram<>(false));
+    }
+
+    for (int agentId = 0; agentId < agents.size(); agentId++) {
+      DataInputStream in = agents.get(agentId).in;
+      Protocol.expect(in, Protocol.RESULTS);
+      State agentState = State.valueOf(Protocol.readString(in));
+      if (agentState == State.ERROR) {
+        LOG.error("Agent {} finished with errors", agentId);
+        state = State.ERROR;
+      }
+      measuredRequests += in.readInt();
+      droppedArrivals += in.readLong();
+      lateArrivals += in.readLong();
+      double agentCarrierUtilization = in.readDouble();
+      if (agentCarrierUtilization >= 0) {
+        carrierUtilization += agentCarrierUtilization;
+        carrierAgents++;
+      }
+      Protocol.readOutcomes(in, outcomes, types);
+      histograms.readAndMerge(in);
+    }
+
+    // There are no samples, so everything is computed from the histograms
+    Results results =
+        new Results(
+            state,
+            startTs,
+            measureEndNs - measureStartNs,
+            measuredRequests,
+            histograms.getStatistics(false),
+            histograms.getStatistics(true),
+            null);
+    results.setLatencyHistograms(histograms);
+    results.setRetryWaitStatistics(histograms.getRetryWaitStatistics());
+    results.setDroppedArrivals(droppedArrivals);
+    results.setLateArrivals(lateArrivals);
+    results.setQueueDelayBound(workConfs.get(0).getQueueDelayBound());
+    if (carrierAgents > 0) {
+      results.setCarrierUtilization(carrierUtilization / carrierAgents);
+    }
+
+    List<Histogram<TransactionType>> merged = Protocol.outcomes(results);
+    for (int i = 0; i < merged.size(); i++) {
+      merged.get(i).putAll(txnTypes, 0);
+      merged.get(i).putHistogram(outcomes.get(i));
+    }
+    return results;
+  }
+
+  /** Send a signal to every agent. Agents that have gone away are skipped. */
+  private void broadcast(byte type, int phase) {
+    for (Connection agent : agents) {
+      try {
+        agent.out.writeByte(type);
+        if (type == Protocol.PHASE_END) {
+          agent.out.writeInt(phase);
+        }
+        agent.out.flush();
+      } catch (IOException e) {
+        LOG.warn(
+            "Could not reach agent {}: {}", agent.socket.getRemoteSocketAddress(), e.getMessage());
+      }
+    }
+  }
+
+  private static void sleepUntil(long deadlineNs) throws InterruptedException {
+    long diff = deadlineNs - System.nanoTime();
+    while (diff > 0) {
+      Thread.sleep(diff / 1000000, (int) (diff % 1000000));
+      diff = deadlineNs - System.nanoTime();
+    }
+  }
+
+  private static String serializeConfig(XMLConfiguration xmlConfig) {
+    StringWriter writer = new StringWriter();
+    try {
+      new FileHandler(xmlConfig).save(writer);
+    } catch (ConfigurationException e) {
+      throw new RuntimeException(e);
+    }
+    return writer.toString();
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (Connection agent : agents) {
+      agent.socket.close();
+    }
+    serverSocket.close();
+  }
+
+  private static final class Connection {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    private Connection(Socket socket) throws IOException {
+      this.socket = socket;
+      socket.setTcpNoDelay(true);
+      this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+  }
+}
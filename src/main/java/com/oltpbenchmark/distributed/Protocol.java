@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.distributed;
+
+import com.oltpbenchmark.Results;
+import com.oltpbenchmark.api.TransactionType;
+import com.oltpbenchmark.util.Histogram;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Messages exchanged between the coordinator and its agents. Every message starts with one of the
+ * type bytes below.
+ *
+ * <pre>
+ * coordinator -> agent   CONFIG agentId benchmarks config-xml
+ * agent -> coordinator   READY
+ * coordinator -> agent   START
+ * coordinator -> agent   WARMUP_END
+ * coordinator -> agent   PHASE_END completed-phases       (one per phase)
+ * agent -> coordinator   RESULTS summary outcome-counts histograms
+ * </pre>
+ */
+final class Protocol {
+
+  static final byte CONFIG = 1;
+  static final byte READY = 2;
+  static final byte START = 3;
+  static final byte WARMUP_END = 4;
+  static final byte PHASE_END = 5;
+  static final byte RESULTS = 6;
+
+  private Protocol() {}
+
+  static void writeString(DataOutput out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  static String readString(DataInput in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  static void expect(DataInput in, byte type) throws IOException {
+    byte actual = in.readByte();
+    if (actual != type) {
+      throw new IOException(String.format("Expected message %d but got %d", type, actual));
+    }
+  }
+
+  static final int NUM_OUTCOMES = 6;
+
+  /** The per-transaction outcome histograms of a Results, in the order they are sent. */
+  static List<Histogram<TransactionType>> outcomes(Results results) {
+    return List.of(
+        results.getUnknown(),
+        results.getSuccess(),
+        results.getRetry(),
+        results.getAbort(),
+        results.getError(),
+        results.getRetryDifferent());
+  }
+
+  static void writeOutcomes(DataOutput out, Results results) throws IOException {
+    for (Histogram<TransactionType> histogram : outcomes(results)) {
+      out.writeInt(histogram.getValueCount());
+      for (TransactionType type : histogram.values()) {
+        out.writeInt(type.getId());
+        out.writeInt(histogram.get(type, 0));
+      }
+    }
+  }
+
+  static void readOutcomes(
+      DataInput in, List<Histogram<TransactionType>> into, Map<Integer, TransactionType> types)
+      throws IOException {
+    for (Histogram<TransactionType> histogram : into) {
+      int size = in.readInt();
+      for (int i = 0; i < size; i++) {
+        TransactionType type = types.get(in.readInt());
+        int count = in.readInt();
+        if (type != null) {
+          histogram.put(type, count);
+        }
+      }
+    }
+  }
+}
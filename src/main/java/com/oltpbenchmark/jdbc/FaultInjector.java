@@ -0,0 +1,181 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Wraps connections to any database so that their statement executions and commits suffer the
+ * faults of the current {@link FaultProfile}: delays, SQL errors, lost connections and read-only
+ * errors. This exercises the workers' rollback, retry and reconnect handling without breaking the
+ * database itself.
+ *
+ * <p>The injected exceptions look like the driver's own, so the workers handle them as they would
+ * handle real ones, but {@link #isInjected} tells them apart. A lost connection is also closed, as
+ * it would be after a real one. Rollbacks and everything else pass straight through, and nothing is
+ * injected while there is no profile, such as while the database is loaded.
+ */
+public final class FaultInjector {
+  private static final String MESSAGE_PREFIX = "Injected fault: ";
+
+  private final Supplier<FaultProfile> profiles;
+  private final Statistics statistics = new Statistics();
+  // Each worker runs on its own thread, whichever connection it holds
+  private final ThreadLocal<Stream> streams = ThreadLocal.withInitial(Stream::new);
+
+  /**
+   * @param profiles supplies the profile to inject, or null to inject nothing; it is asked on every
+   *     call
+   */
+  public FaultInjector(Supplier<FaultProfile> profiles) {
+    this.profiles = profiles;
+  }
+
+  /** Returns a connection that injects faults into the calls to the given one. */
+  public Connection wrap(Connection connection) {
+    return new FaultConnection(connection, this);
+  }
+
+  /** Returns true if the exception was thrown by a fault injector rather than the database. */
+  public static boolean isInjected(SQLException ex) {
+    return ex instanceof InjectedException || ex instanceof InjectedConnectionException;
+  }
+
+  /** Returns the faults injected so far. */
+  public Statistics getStatistics() {
+    return statistics;
+  }
+
+  /** Draw the faults of one call on the connection, and delay or fail it accordingly. */
+  void inject(Connection connection) throws SQLException {
+    FaultProfile profile = profiles.get();
+    if (profile == null) {
+      return;
+    }
+    SplittableRandom random = streams.get().get(profile);
+    if (random.nextDouble() < profile.getDelayProbability()) {
+      statistics.delays.incrementAndGet();
+      profile.getDelay().await(random);
+    }
+    double r = random.nextDouble();
+    if (r < profile.getDropProbability()) {
+      statistics.drops.incrementAndGet();
+      try {
+        connection.close();
+      } catch (SQLException ex) {
+        // The connection is lost either way
+      }
+      throw new InjectedConnectionException();
+    }
+    r -= profile.getDropProbability();
+    if (r < profile.getReadOnlyProbability()) {
+      statistics.readOnlyErrors.incrementAndGet();
+      throw new InjectedException("cannot execute in a read-only transaction", "25006", 0);
+    }
+    r -= profile.getReadOnlyProbability();
+    for (FaultProfile.SqlError error : profile.getErrors()) {
+      if (r < error.getProbability()) {
+        statistics.errors.incrementAndGet();
+        throw new InjectedException(
+            "SQL error " + error.getErrorCode(), error.getSqlState(), error.getErrorCode());
+      }
+      r -= error.getProbability();
+    }
+  }
+
+  /** A worker's generator, which starts over from the seed whenever the profile changes. */
+  private static final class Stream {
+    private FaultProfile profile;
+    private SplittableRandom random;
+
+    private SplittableRandom get(FaultProfile profile) {
+      if (profile != this.profile) {
+        this.profile = profile;
+        this.random =
+            new SplittableRandom(
+                profile.getSeed() * 31 + Thread.currentThread().getName().hashCode());
+      }
+      return random;
+    }
+  }
+
+  private static final class InjectedException extends SQLException {
+    private static final long serialVersionUID = 1L;
+
+    private InjectedException(String reason, String sqlState, int errorCode) {
+      super(MESSAGE_PREFIX + reason, sqlState, errorCode);
+    }
+  }
+
+  private static final class InjectedConnectionException
+      extends SQLNonTransientConnectionException {
+    private static final long serialVersionUID = 1L;
+
+    private InjectedConnectionException() {
+      super(MESSAGE_PREFIX + "connection lost", "08006");
+    }
+  }
+
+  /** Counts of the injected faults. */
+  public static final class Statistics {
+    private final AtomicLong delays = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong drops = new AtomicLong();
+    private final AtomicLong readOnlyErrors = new AtomicLong();
+
+    /** Add the counts of another fault injector to these. */
+    public void add(Statistics other) {
+      delays.addAndGet(other.delays.get());
+      errors.addAndGet(other.errors.get());
+      drops.addAndGet(other.drops.get());
+      readOnlyErrors.addAndGet(other.readOnlyErrors.get());
+    }
+
+    public long getDelays() {
+      return delays.get();
+    }
+
+    public long getErrors() {
+      return errors.get();
+    }
+
+    public long getDrops() {
+      return drops.get();
+    }
+
+    public long getReadOnlyErrors() {
+      return readOnlyErrors.get();
+    }
+
+    public Map<String, Object> toMap() {
+      Map<String, Object> map = new LinkedHashMap<>();
+      map.put("Delays", getDelays());
+      map.put("SQL Errors", getErrors());
+      map.put("Dropped Connections", getDrops());
+      map.put("Read-Only Errors", getReadOnlyErrors());
+      return map;
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.jdbc;
+
+import java.util.List;
+
+/**
+ * The faults that a {@link FaultInjector} injects during one phase. They are drawn for every
+ * statement execution and every commit: the call may first be delayed, and then fail in at most one
+ * way, by losing the connection, with a read-only error or with one of the given SQL errors. The
+ * probabilities of the failures must add up to at most 1.
+ *
+ * <p>In the configuration, a {@code <work>} element may hold
+ *
+ * <pre>{@code
+ * <faults seed="42">
+ *   <delay probability="0.05" latency="exponential:2000"/>
+ *   <error probability="0.01" sqlState="40001" errorCode="1213"/>
+ *   <drop probability="0.001"/>
+ *   <readOnly probability="0.001"/>
+ * </faults>
+ * }</pre>
+ *
+ * with any number of errors. Each worker draws from its own generator, seeded from the seed and the
+ * worker's name, so a run with the same seed injects the same faults into the same workers.
+ */
+public final class FaultProfile {
+
+  /** An SQL error to inject, with the SQL state and vendor error code the driver would give. */
+  public static final class SqlError {
+    private final double probability;
+    private final String sqlState;
+    private final int errorCode;
+
+    public SqlError(double probability, String sqlState, int errorCode) {
+      if (sqlState == null) {
+        throw new IllegalArgumentException("An injected error needs an SQL state");
+      }
+      this.probability = checkProbability(probability);
+      this.sqlState = sqlState;
+      this.errorCode = errorCode;
+    }
+
+    public double getProbability() {
+      return probability;
+    }
+
+    public String getSqlState() {
+      return sqlState;
+    }
+
+    public int getErrorCode() {
+      return errorCode;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s/%d@%s", sqlState, errorCode, probability);
+    }
+  }
+
+  private final long seed;
+  private final double delayProbability;
+  private final Latency delay;
+  private final double dropProbability;
+  private final double readOnlyProbability;
+  private final List<SqlError> errors;
+
+  /**
+   * @param seed the seed of the workers' generators
+   * @param delayProbability the probability that a call is delayed
+   * @param delay the distribution of the delays
+   * @param dropProbability the probability that a call loses the connection
+   * @param readOnlyProbability the probability that a call fails because the database went
+   *     read-only
+   * @param errors the SQL errors to inject
+   */
+  public FaultProfile(
+      long seed,
+      double delayProbability,
+      Latency delay,
+      double dropProbability,
+      double readOnlyProbability,
+      List<SqlError> errors) {
+    this.seed = seed;
+    this.delayProbability = checkProbability(delayProbability);
+    this.delay = delay;
+    this.dropProbability = checkProbability(dropProbability);
+    this.readOnlyProbability = checkProbability(readOnlyProbability);
+    this.errors = List.copyOf(errors);
+    double total = dropProbability + readOnlyProbability;
+    for (SqlError error : errors) {
+      total += error.probability;
+    }
+    if (total > 1) {
+      throw new IllegalArgumentException("The probabilities of the failures add up to more than 1");
+    }
+  }
+
+  private static double checkProbability(double probability) {
+    if (probability < 0 || probability > 1) {
+      throw new IllegalArgumentException("Invalid fault probability " + probability);
+    }
+    return probability;
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  public double getDelayProbability() {
+    return delayProbability;
+  }
+
+  public Latency getDelay() {
+    return delay;
+  }
+
+  public double getDropProbability() {
+    return dropProbability;
+  }
+
+  public double getReadOnlyProbability() {
+    return readOnlyProbability;
+  }
+
+  public List<SqlError> getErrors() {
+    return errors;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "[Seed=%d, Delays=%s, Drops=%s, ReadOnly=%s, Errors=%s]",
+        seed, delayProbability, dropProbability, readOnlyProbability, errors);
+  }
+}
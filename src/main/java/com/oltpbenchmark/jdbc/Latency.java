@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.jdbc;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.random.RandomGenerator;
+
+/**
+ * A distribution of simulated latencies, given in microseconds as one of {@code 200} or {@code
+ * constant:200}, {@code uniform:100:300} and {@code exponential:200} (the mean).
+ */
+public final class Latency {
+  public static final Latency NONE = new Latency(Kind.CONSTANT, 0, 0);
+
+  private enum Kind {
+    CONSTANT,
+    UNIFORM,
+    EXPONENTIAL
+  }
+
+  private final Kind kind;
+  private final double a;
+  private final double b;
+
+  private Latency(Kind kind, double a, double b) {
+    this.kind = kind;
+    this.a = a;
+    this.b = b;
+  }
+
+  public static Latency parse(String spec) {
+    String[] parts = spec.split(":");
+    try {
+      if (parts.length == 1) {
+        return new Latency(Kind.CONSTANT, Double.parseDouble(parts[0]), 0);
+      }
+      switch (parts[0].toLowerCase()) {
+        case "constant":
+          if (parts.length == 2) {
+            return new Latency(Kind.CONSTANT, Double.parseDouble(parts[1]), 0);
+          }
+          break;
+        case "uniform":
+          if (parts.length == 3) {
+            return new Latency(
+                Kind.UNIFORM, Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+          }
+          break;
+        case "exponential":
+          if (parts.length == 2) {
+            return new Latency(Kind.EXPONENTIAL, Double.parseDouble(parts[1]), 0);
+          }
+          break;
+        default:
+          break;
+      }
+    } catch (NumberFormatException ex) {
+      throw new IllegalArgumentException("Invalid latency distribution '" + spec + "'", ex);
+    }
+    throw new IllegalArgumentException("Invalid latency distribution '" + spec + "'");
+  }
+
+  /** Returns a latency drawn from the distribution with the given generator, in nanoseconds. */
+  public long sample(RandomGenerator random) {
+    double micros =
+        switch (kind) {
+          case CONSTANT -> a;
+          case UNIFORM -> a + random.nextDouble() * (b - a);
+          case EXPONENTIAL -> -a * Math.log(1 - random.nextDouble());
+        };
+    return (long) (micros * 1000);
+  }
+
+  /** Wait for a latency drawn from the distribution. */
+  public void await() {
+    await(ThreadLocalRandom.current());
+  }
+
+  /** Wait for a latency drawn from the distribution with the given generator. */
+  public void await(RandomGenerator random) {
+    if (this == NONE) {
+      return;
+    }
+    long deadline = System.nanoTime() + sample(random);
+    for (long left = deadline - System.nanoTime(); left > 0; left = deadline - System.nanoTime()) {
+      LockSupport.parkNanos(left);
+    }
+  }
+}
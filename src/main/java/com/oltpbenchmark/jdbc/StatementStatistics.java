@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.jdbc;
+
+import com.oltpbenchmark.LatencyHistogram;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * How often each SQL statement of each procedure ran and how long it took, for finding the
+ * statement that dominates a transaction. Each worker keeps its own, which are added together once
+ * the run is over.
+ *
+ * <p>Every execute call is one execution, whether or not it fails, which is one round trip to the
+ * database as far as the client can tell; a batch counts once, with its statements counted
+ * separately. The fetch time is the time spent reading one result set, counted when it has been
+ * read to the end or closed. Times are kept in microseconds. Not thread-safe.
+ */
+public final class StatementStatistics {
+  // By procedure, then by statement name
+  private final Map<String, Map<String, Statement>> statements = new TreeMap<>();
+
+  /** Returns the counters of one statement, creating them the first time. */
+  public Statement get(String procedure, String statement) {
+    return statements
+        .computeIfAbsent(procedure, k -> new TreeMap<>())
+        .computeIfAbsent(statement, k -> new Statement());
+  }
+
+  /** Add everything counted by another instance to this one. */
+  public void add(StatementStatistics other) {
+    for (Map.Entry<String, Map<String, Statement>> procedure : other.statements.entrySet()) {
+      for (Map.Entry<String, Statement> e : procedure.getValue().entrySet()) {
+        get(procedure.getKey(), e.getKey()).add(e.getValue());
+      }
+    }
+  }
+
+  /** Returns the counters by procedure and statement name, both in alphabetical order. */
+  public Map<String, Map<String, Statement>> getStatements() {
+    return statements;
+  }
+
+  /** The counters of one statement. */
+  public static final class Statement {
+    private long executions = 0;
+    private long batchedStatements = 0;
+    private long rows = 0;
+    private final LatencyHistogram executeTimes = new LatencyHistogram();
+    private final LatencyHistogram fetchTimes = new LatencyHistogram();
+
+    void recordExecution(long nanoseconds) {
+      executions++;
+      executeTimes.record(toMicroseconds(nanoseconds));
+    }
+
+    void recordBatchedStatement() {
+      batchedStatements++;
+    }
+
+    void recordFetch(long rowCount, long nanoseconds) {
+      rows += rowCount;
+      fetchTimes.record(toMicroseconds(nanoseconds));
+    }
+
+    private void add(Statement other) {
+      executions += other.executions;
+      batchedStatements += other.batchedStatements;
+      rows += other.rows;
+      executeTimes.add(other.executeTimes);
+      fetchTimes.add(other.fetchTimes);
+    }
+
+    private static int toMicroseconds(long nanoseconds) {
+      return (int) Math.min(Integer.MAX_VALUE, nanoseconds / 1000);
+    }
+
+    public long getExecutions() {
+      return executions;
+    }
+
+    public long getBatchedStatements() {
+      return batchedStatements;
+    }
+
+    public long getRows() {
+      return rows;
+    }
+
+    /** Returns the time of each execute call, in microseconds. */
+    public LatencyHistogram getExecuteTimes() {
+      return executeTimes;
+    }
+
+    /** Returns the time spent reading each result set, in microseconds. */
+    public LatencyHistogram getFetchTimes() {
+      return fetchTimes;
+    }
+  }
+}
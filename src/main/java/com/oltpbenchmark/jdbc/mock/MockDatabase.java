@@ -0,0 +1,126 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.jdbc.mock;
+
+import com.oltpbenchmark.catalog.AbstractCatalog;
+import com.oltpbenchmark.jdbc.Latency;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The simulated database behind one mock URL: how long statements and commits take, how often they
+ * fail, how many rows queries return, and the catalog that gives the result sets their columns.
+ */
+final class MockDatabase {
+  private final Latency latency;
+  private final Latency commitLatency;
+  private final double drops;
+  private final double serializationFailures;
+  private final double aborts;
+  private final int rows;
+
+  private volatile AbstractCatalog catalog = null;
+  private final Map<String, ResultShape> shapes = new ConcurrentHashMap<>();
+
+  MockDatabase(String url) {
+    Map<String, String> options = new ConcurrentHashMap<>();
+    int query = url.indexOf('?');
+    if (query >= 0) {
+      for (String option : url.substring(query + 1).split("&")) {
+        if (option.isEmpty()) {
+          continue;
+        }
+        int eq = option.indexOf('=');
+        if (eq < 0) {
+          throw new IllegalArgumentException("Invalid mock database option '" + option + "'");
+        }
+        options.put(
+            option.substring(0, eq),
+            URLDecoder.decode(option.substring(eq + 1), StandardCharsets.UTF_8));
+      }
+    }
+    this.latency = parseLatency(options.remove("latency"));
+    this.commitLatency = parseLatency(options.remove("commitLatency"));
+    this.drops = parseRate(options.remove("drops"));
+    this.serializationFailures = parseRate(options.remove("serializationFailures"));
+    this.aborts = parseRate(options.remove("aborts"));
+    this.rows = Integer.parseInt(options.getOrDefault("rows", "1"));
+    options.remove("rows");
+    if (!options.isEmpty()) {
+      throw new IllegalArgumentException("Unknown mock database options " + options.keySet());
+    }
+  }
+
+  private static Latency parseLatency(String spec) {
+    return spec == null ? Latency.NONE : Latency.parse(spec);
+  }
+
+  private static double parseRate(String rate) {
+    return rate == null ? 0 : Double.parseDouble(rate);
+  }
+
+  void setCatalog(AbstractCatalog catalog) {
+    this.catalog = catalog;
+    this.shapes.clear();
+  }
+
+  /** Returns the columns of the results of the given SQL. */
+  ResultShape getShape(String sql) {
+    return shapes.computeIfAbsent(sql, s -> ResultShape.of(s, catalog));
+  }
+
+  int getRows() {
+    return rows;
+  }
+
+  /**
+   * Wait for one statement to run on the database and draw its outcome: it may fail with a
+   * serialization failure, abort, or lose the connection.
+   */
+  void execute(MockConnection connection) throws SQLException {
+    connection.checkOpen();
+    latency.await();
+    if (drops == 0 && serializationFailures == 0 && aborts == 0) {
+      return;
+    }
+    double r = ThreadLocalRandom.current().nextDouble();
+    if (r < drops) {
+      connection.drop();
+      throw new SQLNonTransientConnectionException("Connection reset", "08006");
+    }
+    r -= drops;
+    if (r < serializationFailures) {
+      throw new SQLException(
+          "could not serialize access due to concurrent update (mock)", "40001", 0);
+    }
+    r -= serializationFailures;
+    if (r < aborts) {
+      throw new SQLException("transaction aborted (mock)", "40000", 0);
+    }
+  }
+
+  void commit(MockConnection connection) throws SQLException {
+    connection.checkOpen();
+    commitLatency.await();
+  }
+}
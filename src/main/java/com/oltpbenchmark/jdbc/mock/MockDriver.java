@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.jdbc.mock;
+
+import com.oltpbenchmark.catalog.AbstractCatalog;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * A JDBC driver for a simulated database that lives in the benchmark process, for measuring how
+ * fast BenchBase itself can go. It accepts any SQL: updates change one row, and queries return
+ * synthetic rows whose columns come from the benchmark's catalog (see {@link #setCatalog}).
+ *
+ * <p>URLs look like {@code jdbc:mock:name?option=value&...}, with the options
+ *
+ * <ul>
+ *   <li>{@code latency}: how long each execute call takes, in microseconds, e.g. {@code 200},
+ *       {@code uniform:100:300} or {@code exponential:200}; no time by default
+ *   <li>{@code commitLatency}: the same for commits
+ *   <li>{@code rows}: how many rows queries return, 1 by default
+ *   <li>{@code serializationFailures}: the fraction of execute calls that fail with SQL state
+ *       40001, which the workers retry
+ *   <li>{@code aborts}: the fraction that fail with SQL state 40000, which they do not
+ *   <li>{@code drops}: the fraction that lose the connection
+ * </ul>
+ *
+ * Failures are drawn for every execute call, including those of the loader, which has nothing to
+ * load into a mock database anyway. Connections with the same URL share a database.
+ */
+public final class MockDriver implements Driver {
+  public static final String URL_PREFIX = "jdbc:mock:";
+  static final String VERSION = "1.0";
+
+  private static final Map<String, MockDatabase> DATABASES = new ConcurrentHashMap<>();
+
+  static {
+    try {
+      DriverManager.registerDriver(new MockDriver());
+    } catch (SQLException ex) {
+      throw new ExceptionInInitializerError(ex);
+    }
+  }
+
+  /** Returns true if the URL is one of a mock database. */
+  public static boolean isMockUrl(String url) {
+    return url != null && url.startsWith(URL_PREFIX);
+  }
+
+  /** Shape the result sets of the database with the given URL after the tables of a catalog. */
+  public static void setCatalog(String url, AbstractCatalog catalog) {
+    getDatabase(url).setCatalog(catalog);
+  }
+
+  private static MockDatabase getDatabase(String url) {
+    return DATABASES.computeIfAbsent(url, MockDatabase::new);
+  }
+
+  @Override
+  public Connection connect(String url, Properties info) throws SQLException {
+    if (!acceptsURL(url)) {
+      return null;
+    }
+    MockDatabase database;
+    try {
+      database = getDatabase(url);
+    } catch (IllegalArgumentException ex) {
+      throw new SQLException(ex.getMessage(), ex);
+    }
+    return new MockConnection(database);
+  }
+
+  @Override
+  public boolean acceptsURL(String url) {
+    return isMockUrl(url);
+  }
+
+  @Override
+  public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+    return new DriverPropertyInfo[0];
+  }
+
+  @Override
+  public int getMajorVersion() {
+    return 1;
+  }
+
+  @Override
+  public int getMinorVersion() {
+    return 0;
+  }
+
+  @Override
+  public boolean jdbcCompliant() {
+    return false;
+  }
+
+  @Override
+  public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+    throw new SQLFeatureNotSupportedException();
+  }
+}
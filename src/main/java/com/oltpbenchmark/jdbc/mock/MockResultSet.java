@@ -0,0 +1,1272 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.jdbc.mock;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.*;
+import java.util.Calendar;
+import java.util.Map;
+
+/**
+ * Synthetic rows. Every value of row n (counting from 1) is n in the type it is read as: numbers
+ * are n, strings are "n", times are n milliseconds past a fixed instant, and booleans are false.
+ * getObject() picks the type from the column's type in the catalog. Columns that are not in the
+ * catalog can still be read by name. Calls that the benchmarks do not need do nothing and return
+ * zero, false or null.
+ */
+final class MockResultSet implements ResultSet {
+  private static final long EPOCH = Timestamp.valueOf("2020-01-01 00:00:00").getTime();
+
+  private final Statement statement;
+  private final ResultShape shape;
+  private final int rows;
+  private int row = 0;
+  private boolean closed = false;
+
+  MockResultSet(Statement statement, ResultShape shape, int rows) {
+    this.statement = statement;
+    this.shape = shape;
+    this.rows = rows;
+  }
+
+  private void checkOpen() throws SQLException {
+    if (closed) {
+      throw new SQLException("ResultSet is closed");
+    }
+  }
+
+  private void checkRow() throws SQLException {
+    checkOpen();
+    if (row < 1 || row > rows) {
+      throw new SQLException("The result set is not on a row");
+    }
+  }
+
+  /** Returns the value of the current row in the given type, or null if it has none. */
+  private Object value(Class<?> type) {
+    if (type == int.class || type == Integer.class) {
+      return row;
+    } else if (type == long.class || type == Long.class) {
+      return (long) row;
+    } else if (type == short.class || type == Short.class) {
+      return (short) row;
+    } else if (type == byte.class || type == Byte.class) {
+      return (byte) row;
+    } else if (type == double.class || type == Double.class) {
+      return (double) row;
+    } else if (type == float.class || type == Float.class) {
+      return (float) row;
+    } else if (type == boolean.class || type == Boolean.class) {
+      return false;
+    } else if (type == BigDecimal.class) {
+      return BigDecimal.valueOf(row);
+    } else if (type == String.class) {
+      return String.valueOf(row);
+    } else if (type == Timestamp.class) {
+      return new Timestamp(EPOCH + row);
+    } else if (type == Date.class) {
+      return new Date(EPOCH + row);
+    } else if (type == Time.class) {
+      return new Time(EPOCH + row);
+    } else if (type == byte[].class) {
+      return String.valueOf(row).getBytes();
+    }
+    return null;
+  }
+
+  private static Class<?> classOf(int sqlType) {
+    return switch (sqlType) {
+      case Types.INTEGER, Types.SMALLINT, Types.TINYINT -> Integer.class;
+      case Types.DECIMAL, Types.NUMERIC -> BigDecimal.class;
+      case Types.DOUBLE, Types.FLOAT, Types.REAL -> Double.class;
+      case Types.CHAR,
+              Types.VARCHAR,
+              Types.LONGVARCHAR,
+              Types.NCHAR,
+              Types.NVARCHAR,
+              Types.LONGNVARCHAR,
+              Types.CLOB ->
+          String.class;
+      case Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE -> Timestamp.class;
+      case Types.DATE -> Date.class;
+      case Types.TIME -> Time.class;
+      case Types.BOOLEAN, Types.BIT -> Boolean.class;
+      case Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY, Types.BLOB -> byte[].class;
+      default -> Long.class;
+    };
+  }
+
+  @Override
+  public boolean next() throws SQLException {
+    checkOpen();
+    if (row <= rows) {
+      row++;
+    }
+    return row <= rows;
+  }
+
+  @Override
+  public void close() throws SQLException {
+    closed = true;
+  }
+
+  @Override
+  public boolean wasNull() throws SQLException {
+    checkOpen();
+    return false;
+  }
+
+  @Override
+  public String getString(int columnIndex) throws SQLException {
+    checkRow();
+    return String.valueOf(row);
+  }
+
+  @Override
+  public boolean getBoolean(int columnIndex) throws SQLException {
+    checkRow();
+    return false;
+  }
+
+  @Override
+  public byte getByte(int columnIndex) throws SQLException {
+    checkRow();
+    return (byte) row;
+  }
+
+  @Override
+  public short getShort(int columnIndex) throws SQLException {
+    checkRow();
+    return (short) row;
+  }
+
+  @Override
+  public int getInt(int columnIndex) throws SQLException {
+    checkRow();
+    return row;
+  }
+
+  @Override
+  public long getLong(int columnIndex) throws SQLException {
+    checkRow();
+    return row;
+  }
+
+  @Override
+  public float getFloat(int columnIndex) throws SQLException {
+    checkRow();
+    return row;
+  }
+
+  @Override
+  public double getDouble(int columnIndex) throws SQLException {
+    checkRow();
+    return row;
+  }
+
+  @Override
+  @Deprecated
+  public BigDecimal getBigDecimal(int columnIndex, int scale) throws SQLException {
+    checkRow();
+    return BigDecimal.valueOf(row);
+  }
+
+  @Override
+  public byte[] getBytes(int columnIndex) throws SQLException {
+    checkRow();
+    return String.valueOf(row).getBytes();
+  }
+
+  @Override
+  public Date getDate(int columnIndex) throws SQLException {
+    checkRow();
+    return new Date(EPOCH + row);
+  }
+
+  @Override
+  public Time getTime(int columnIndex) throws SQLException {
+    checkRow();
+    return new Time(EPOCH + row);
+  }
+
+  @Override
+  public Timestamp getTimestamp(int columnIndex) throws SQLException {
+    checkRow();
+    return new Timestamp(EPOCH + row);
+  }
+
+  @Override
+  public InputStream getAsciiStream(int columnIndex) throws SQLException {
+    checkRow();
+    return null;
+  }
+
+  @Override
+  @Deprecated
+  public InputStream getUnicodeStream(int columnIndex) throws SQLException {
+    checkRow();
+    return null;
+  }
+
+  @Override
+  public InputStream getBinaryStream(int columnIndex) throws SQLException {
+    checkRow();
+    return null;
+  }
+
+  @Override
+  public String getString(String columnLabel) throws SQLException {
+    return getString(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public boolean getBoolean(String columnLabel) throws SQLException {
+    return getBoolean(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public byte getByte(String columnLabel) throws SQLException {
+    return getByte(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public short getShort(String columnLabel) throws SQLException {
+    return getShort(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public int getInt(String columnLabel) throws SQLException {
+    return getInt(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public long getLong(String columnLabel) throws SQLException {
+    return getLong(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public float getFloat(String columnLabel) throws SQLException {
+    return getFloat(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public double getDouble(String columnLabel) throws SQLException {
+    return getDouble(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  @Deprecated
+  public BigDecimal getBigDecimal(String columnLabel, int scale) throws SQLException {
+    return getBigDecimal(shape.findColumn(columnLabel), scale);
+  }
+
+  @Override
+  public byte[] getBytes(String columnLabel) throws SQLException {
+    return getBytes(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public Date getDate(String columnLabel) throws SQLException {
+    return getDate(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public Time getTime(String columnLabel) throws SQLException {
+    return getTime(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public Timestamp getTimestamp(String columnLabel) throws SQLException {
+    return getTimestamp(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public InputStream getAsciiStream(String columnLabel) throws SQLException {
+    return getAsciiStream(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  @Deprecated
+  public InputStream getUnicodeStream(String columnLabel) throws SQLException {
+    return getUnicodeStream(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public InputStream getBinaryStream(String columnLabel) throws SQLException {
+    return getBinaryStream(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public SQLWarning getWarnings() throws SQLException {
+    checkOpen();
+    return null;
+  }
+
+  @Override
+  public void clearWarnings() throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public String getCursorName() throws SQLException {
+    checkOpen();
+    return null;
+  }
+
+  @Override
+  public ResultSetMetaData getMetaData() throws SQLException {
+    checkOpen();
+    return new MetaData();
+  }
+
+  @Override
+  public Object getObject(int columnIndex) throws SQLException {
+    checkRow();
+    return value(classOf(shape.getColumnType(columnIndex)));
+  }
+
+  @Override
+  public Object getObject(String columnLabel) throws SQLException {
+    return getObject(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public int findColumn(String columnLabel) throws SQLException {
+    checkOpen();
+    int column = shape.findColumn(columnLabel);
+    if (column == 0) {
+      throw new SQLException("No column named " + columnLabel);
+    }
+    return column;
+  }
+
+  @Override
+  public Reader getCharacterStream(int columnIndex) throws SQLException {
+    checkRow();
+    return null;
+  }
+
+  @Override
+  public Reader getCharacterStream(String columnLabel) throws SQLException {
+    return getCharacterStream(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
+    checkRow();
+    return BigDecimal.valueOf(row);
+  }
+
+  @Override
+  public BigDecimal getBigDecimal(String columnLabel) throws SQLException {
+    return getBigDecimal(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public boolean isBeforeFirst() throws SQLException {
+    checkOpen();
+    return row == 0 && rows > 0;
+  }
+
+  @Override
+  public boolean isAfterLast() throws SQLException {
+    checkOpen();
+    return row > rows && rows > 0;
+  }
+
+  @Override
+  public boolean isFirst() throws SQLException {
+    checkOpen();
+    return row == 1;
+  }
+
+  @Override
+  public boolean isLast() throws SQLException {
+    checkOpen();
+    return row == rows;
+  }
+
+  @Override
+  public void beforeFirst() throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void afterLast() throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public boolean first() throws SQLException {
+    checkOpen();
+    return false;
+  }
+
+  @Override
+  public boolean last() throws SQLException {
+    checkOpen();
+    return false;
+  }
+
+  @Override
+  public int getRow() throws SQLException {
+    checkOpen();
+    return row <= rows ? row : 0;
+  }
+
+  @Override
+  public boolean absolute(int row) throws SQLException {
+    checkOpen();
+    return false;
+  }
+
+  @Override
+  public boolean relative(int rows) throws SQLException {
+    checkOpen();
+    return false;
+  }
+
+  @Override
+  public boolean previous() throws SQLException {
+    checkOpen();
+    return false;
+  }
+
+  @Override
+  public void setFetchDirection(int direction) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public int getFetchDirection() throws SQLException {
+    checkOpen();
+    return 0;
+  }
+
+  @Override
+  public void setFetchSize(int rows) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public int getFetchSize() throws SQLException {
+    checkOpen();
+    return 0;
+  }
+
+  @Override
+  public int getType() throws SQLException {
+    checkOpen();
+    return 0;
+  }
+
+  @Override
+  public int getConcurrency() throws SQLException {
+    checkOpen();
+    return 0;
+  }
+
+  @Override
+  public boolean rowUpdated() throws SQLException {
+    checkOpen();
+    return false;
+  }
+
+  @Override
+  public boolean rowInserted() throws SQLException {
+    checkOpen();
+    return false;
+  }
+
+  @Override
+  public boolean rowDeleted() throws SQLException {
+    checkOpen();
+    return false;
+  }
+
+  @Override
+  public void updateNull(int columnIndex) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateBoolean(int columnIndex, boolean x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateByte(int columnIndex, byte x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateShort(int columnIndex, short x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateInt(int columnIndex, int x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateLong(int columnIndex, long x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateFloat(int columnIndex, float x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateDouble(int columnIndex, double x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateBigDecimal(int columnIndex, BigDecimal x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateString(int columnIndex, String x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateBytes(int columnIndex, byte[] x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateDate(int columnIndex, Date x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateTime(int columnIndex, Time x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateTimestamp(int columnIndex, Timestamp x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateAsciiStream(int columnIndex, InputStream x, int length) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateBinaryStream(int columnIndex, InputStream x, int length) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateCharacterStream(int columnIndex, Reader x, int length) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateObject(int columnIndex, Object x, int scaleOrLength) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateObject(int columnIndex, Object x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateNull(String columnLabel) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateBoolean(String columnLabel, boolean x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateByte(String columnLabel, byte x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateShort(String columnLabel, short x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateInt(String columnLabel, int x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateLong(String columnLabel, long x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateFloat(String columnLabel, float x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateDouble(String columnLabel, double x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateBigDecimal(String columnLabel, BigDecimal x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateString(String columnLabel, String x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateBytes(String columnLabel, byte[] x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateDate(String columnLabel, Date x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateTime(String columnLabel, Time x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateTimestamp(String columnLabel, Timestamp x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateAsciiStream(String columnLabel, InputStream x, int length) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateBinaryStream(String columnLabel, InputStream x, int length)
+      throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateCharacterStream(String columnLabel, Reader reader, int length)
+      throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateObject(String columnLabel, Object x, int scaleOrLength) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateObject(String columnLabel, Object x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void insertRow() throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateRow() throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void deleteRow() throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void refreshRow() throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void cancelRowUpdates() throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void moveToInsertRow() throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void moveToCurrentRow() throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public Statement getStatement() throws SQLException {
+    return statement;
+  }
+
+  @Override
+  public Ref getRef(int columnIndex) throws SQLException {
+    checkRow();
+    return null;
+  }
+
+  @Override
+  public Blob getBlob(int columnIndex) throws SQLException {
+    checkRow();
+    return null;
+  }
+
+  @Override
+  public Clob getClob(int columnIndex) throws SQLException {
+    checkRow();
+    return null;
+  }
+
+  @Override
+  public Array getArray(int columnIndex) throws SQLException {
+    checkRow();
+    return null;
+  }
+
+  @Override
+  public Ref getRef(String columnLabel) throws SQLException {
+    return getRef(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public Blob getBlob(String columnLabel) throws SQLException {
+    return getBlob(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public Clob getClob(String columnLabel) throws SQLException {
+    return getClob(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public Array getArray(String columnLabel) throws SQLException {
+    return getArray(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public Date getDate(int columnIndex, Calendar cal) throws SQLException {
+    checkRow();
+    return new Date(EPOCH + row);
+  }
+
+  @Override
+  public Date getDate(String columnLabel, Calendar cal) throws SQLException {
+    return getDate(shape.findColumn(columnLabel), cal);
+  }
+
+  @Override
+  public Time getTime(int columnIndex, Calendar cal) throws SQLException {
+    checkRow();
+    return new Time(EPOCH + row);
+  }
+
+  @Override
+  public Time getTime(String columnLabel, Calendar cal) throws SQLException {
+    return getTime(shape.findColumn(columnLabel), cal);
+  }
+
+  @Override
+  public Timestamp getTimestamp(int columnIndex, Calendar cal) throws SQLException {
+    checkRow();
+    return new Timestamp(EPOCH + row);
+  }
+
+  @Override
+  public Timestamp getTimestamp(String columnLabel, Calendar cal) throws SQLException {
+    return getTimestamp(shape.findColumn(columnLabel), cal);
+  }
+
+  @Override
+  public URL getURL(int columnIndex) throws SQLException {
+    checkRow();
+    return null;
+  }
+
+  @Override
+  public URL getURL(String columnLabel) throws SQLException {
+    return getURL(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public void updateRef(int columnIndex, Ref x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateRef(String columnLabel, Ref x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateBlob(int columnIndex, Blob x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateBlob(String columnLabel, Blob x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateClob(int columnIndex, Clob x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateClob(String columnLabel, Clob x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateArray(int columnIndex, Array x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateArray(String columnLabel, Array x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public RowId getRowId(int columnIndex) throws SQLException {
+    checkRow();
+    return null;
+  }
+
+  @Override
+  public RowId getRowId(String columnLabel) throws SQLException {
+    return getRowId(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public void updateRowId(int columnIndex, RowId x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateRowId(String columnLabel, RowId x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public int getHoldability() throws SQLException {
+    checkOpen();
+    return 0;
+  }
+
+  @Override
+  public boolean isClosed() throws SQLException {
+    return closed;
+  }
+
+  @Override
+  public void updateNString(int columnIndex, String nString) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateNString(String columnLabel, String nString) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateNClob(int columnIndex, NClob nClob) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateNClob(String columnLabel, NClob nClob) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public NClob getNClob(int columnIndex) throws SQLException {
+    checkRow();
+    return null;
+  }
+
+  @Override
+  public NClob getNClob(String columnLabel) throws SQLException {
+    return getNClob(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public SQLXML getSQLXML(int columnIndex) throws SQLException {
+    checkRow();
+    return null;
+  }
+
+  @Override
+  public SQLXML getSQLXML(String columnLabel) throws SQLException {
+    return getSQLXML(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public void updateSQLXML(int columnIndex, SQLXML xmlObject) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateSQLXML(String columnLabel, SQLXML xmlObject) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public String getNString(int columnIndex) throws SQLException {
+    checkRow();
+    return String.valueOf(row);
+  }
+
+  @Override
+  public String getNString(String columnLabel) throws SQLException {
+    return getNString(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public Reader getNCharacterStream(int columnIndex) throws SQLException {
+    checkRow();
+    return null;
+  }
+
+  @Override
+  public Reader getNCharacterStream(String columnLabel) throws SQLException {
+    return getNCharacterStream(shape.findColumn(columnLabel));
+  }
+
+  @Override
+  public void updateNCharacterStream(int columnIndex, Reader x, long length) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateNCharacterStream(String columnLabel, Reader reader, long length)
+      throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateAsciiStream(int columnIndex, InputStream x, long length) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateBinaryStream(int columnIndex, InputStream x, long length) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateCharacterStream(int columnIndex, Reader x, long length) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateAsciiStream(String columnLabel, InputStream x, long length)
+      throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateBinaryStream(String columnLabel, InputStream x, long length)
+      throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateCharacterStream(String columnLabel, Reader reader, long length)
+      throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateBlob(int columnIndex, InputStream inputStream, long length)
+      throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateBlob(String columnLabel, InputStream inputStream, long length)
+      throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateClob(int columnIndex, Reader reader, long length) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateClob(String columnLabel, Reader reader, long length) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateNClob(int columnIndex, Reader reader, long length) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateNClob(String columnLabel, Reader reader, long length) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateNCharacterStream(int columnIndex, Reader x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateNCharacterStream(String columnLabel, Reader reader) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateAsciiStream(int columnIndex, InputStream x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateBinaryStream(int columnIndex, InputStream x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateCharacterStream(int columnIndex, Reader x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateAsciiStream(String columnLabel, InputStream x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateBinaryStream(String columnLabel, InputStream x) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateCharacterStream(String columnLabel, Reader reader) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateBlob(int columnIndex, InputStream inputStream) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateBlob(String columnLabel, InputStream inputStream) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateClob(int columnIndex, Reader reader) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateClob(String columnLabel, Reader reader) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateNClob(int columnIndex, Reader reader) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  public void updateNClob(String columnLabel, Reader reader) throws SQLException {
+    checkOpen();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
+    checkRow();
+    return (T) value(type);
+  }
+
+  @Override
+  public <T> T getObject(String columnLabel, Class<T> type) throws SQLException {
+    return getObject(shape.findColumn(columnLabel), type);
+  }
+
+  @Override
+  public Object getObject(int columnIndex, Map<String, Class<?>> map) throws SQLException {
+    checkRow();
+    return value(classOf(shape.getColumnType(columnIndex)));
+  }
+
+  @Override
+  public Object getObject(String columnLabel, Map<String, Class<?>> map) throws SQLException {
+    return getObject(shape.findColumn(columnLabel), map);
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    if (iface.isInstance(this)) {
+      return iface.cast(this);
+    }
+    throw new SQLException("Not a wrapper for " + iface);
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    return iface.isInstance(this);
+  }
+
+  private final class MetaData implements ResultSetMetaData {
+    @Override
+    public int getColumnCount() throws SQLException {
+      return shape.getColumnCount();
+    }
+
+    @Override
+    public boolean isAutoIncrement(int column) throws SQLException {
+      return false;
+    }
+
+    @Override
+    public boolean isCaseSensitive(int column) throws SQLException {
+      return false;
+    }
+
+    @Override
+    public boolean isSearchable(int column) throws SQLException {
+      return false;
+    }
+
+    @Override
+    public boolean isCurrency(int column) throws SQLException {
+      return false;
+    }
+
+    @Override
+    public int isNullable(int column) throws SQLException {
+      return 0;
+    }
+
+    @Override
+    public boolean isSigned(int column) throws SQLException {
+      return false;
+    }
+
+    @Override
+    public int getColumnDisplaySize(int column) throws SQLException {
+      return 0;
+    }
+
+    @Override
+    public String getColumnLabel(int column) throws SQLException {
+      return shape.getColumnName(column);
+    }
+
+    @Override
+    public String getColumnName(int column) throws SQLException {
+      return shape.getColumnName(column);
+    }
+
+    @Override
+    public String getSchemaName(int column) throws SQLException {
+      return null;
+    }
+
+    @Override
+    public int getPrecision(int column) throws SQLException {
+      return 0;
+    }
+
+    @Override
+    public int getScale(int column) throws SQLException {
+      return 0;
+    }
+
+    @Override
+    public String getTableName(int column) throws SQLException {
+      return null;
+    }
+
+    @Override
+    public String getCatalogName(int column) throws SQLException {
+      return null;
+    }
+
+    @Override
+    public int getColumnType(int column) throws SQLException {
+      return shape.getColumnType(column);
+    }
+
+    @Override
+    public String getColumnTypeName(int column) throws SQLException {
+      return null;
+    }
+
+    @Override
+    public boolean isReadOnly(int column) throws SQLException {
+      return false;
+    }
+
+    @Override
+    public boolean isWritable(int column) throws SQLException {
+      return false;
+    }
+
+    @Override
+    public boolean isDefinitelyWritable(int column) throws SQLException {
+      return false;
+    }
+
+    @Override
+    public String getColumnClassName(int column) throws SQLException {
+      return classOf(shape.getColumnType(column)).getName();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+      if (iface.isInstance(this)) {
+        return iface.cast(this);
+      }
+      throw new SQLException("Not a wrapper for " + iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+      return iface.isInstance(this);
+    }
+  }
+}
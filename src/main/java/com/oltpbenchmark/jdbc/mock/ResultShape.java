@@ -0,0 +1,409 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.jdbc.mock;
+
+import com.oltpbenchmark.catalog.AbstractCatalog;
+import com.oltpbenchmark.catalog.Column;
+import com.oltpbenchmark.catalog.Table;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The columns of the result of a statement, worked out from its select list (or RETURNING clause)
+ * and the types of the tables' columns in the catalog. The parsing is shallow: it is enough for the
+ * statements of the benchmarks, and a column it cannot work out gets the type OTHER, which the
+ * result sets treat as a number.
+ */
+final class ResultShape {
+  private static final Pattern FUNCTION = Pattern.compile("(?s)(\\w+)\\s*\\((.*)\\)");
+  private static final Pattern IDENTIFIER = Pattern.compile("[\\w\"`\\[\\]]+(\\.[\\w\"`\\[\\]]+)*");
+  private static final Pattern NUMBER = Pattern.compile("-?\\d+");
+  private static final Pattern DECIMAL = Pattern.compile("-?\\d*\\.\\d+");
+
+  private static final Set<String> END_OF_FROM =
+      Set.of(
+          "WHERE", "GROUP", "ORDER", "LIMIT", "HAVING", "FOR", "UNION", "OFFSET", "FETCH",
+          "WINDOW");
+  private static final Set<String> JOIN_WORDS =
+      Set.of("JOIN", "INNER", "LEFT", "RIGHT", "FULL", "OUTER", "CROSS", "NATURAL");
+
+  private final boolean query;
+  private final String[] names;
+  private final int[] types;
+  // Upper case name to 1-based index
+  private final Map<String, Integer> indexes = new HashMap<>();
+
+  private ResultShape(boolean query, List<String> names, List<Integer> types) {
+    this.query = query;
+    this.names = names.toArray(new String[0]);
+    this.types = new int[types.size()];
+    for (int i = 0; i < this.types.length; i++) {
+      this.types[i] = types.get(i);
+      indexes.putIfAbsent(this.names[i].toUpperCase(Locale.ROOT), i + 1);
+    }
+  }
+
+  /** The shape of the generated keys that inserts return */
+  static final ResultShape GENERATED_KEYS =
+      new ResultShape(true, List.of("GENERATED_KEY"), List.of(Types.BIGINT));
+
+  /** Returns true if executing the statement produces a result set rather than an update count. */
+  boolean isQuery() {
+    return query;
+  }
+
+  int getColumnCount() {
+    return names.length;
+  }
+
+  String getColumnName(int column) {
+    return names[column - 1];
+  }
+
+  /** Returns the type of a column (see {@link Types}), or OTHER if there is no such column. */
+  int getColumnType(int column) {
+    return column >= 1 && column <= types.length ? types[column - 1] : Types.OTHER;
+  }
+
+  /** Returns the 1-based index of the named column, or 0 if there is none. */
+  int findColumn(String name) {
+    return indexes.getOrDefault(name.toUpperCase(Locale.ROOT), 0);
+  }
+
+  static ResultShape of(String sql, AbstractCatalog catalog) {
+    String text = sql.trim();
+    while (text.startsWith("(")) {
+      text = text.substring(1).trim();
+    }
+    String upper = text.toUpperCase(Locale.ROOT);
+
+    int start;
+    int end;
+    boolean query;
+    int returning = indexOfKeyword(upper, "RETURNING", 0);
+    if (upper.startsWith("SELECT") || upper.startsWith("WITH")) {
+      start = indexOfKeyword(upper, "SELECT", 0) + "SELECT".length();
+      end = indexOfKeyword(upper, "FROM", start);
+      query = true;
+    } else if (returning >= 0) {
+      start = returning + "RETURNING".length();
+      end = -1;
+      query = true;
+    } else {
+      query = upper.startsWith("VALUES") || upper.startsWith("SHOW") || upper.startsWith("CALL");
+      return new ResultShape(query, List.of("C1"), List.of(Types.OTHER));
+    }
+    if (end < 0) {
+      end = text.length();
+    }
+
+    Map<String, Table> tables = new LinkedHashMap<>();
+    if (catalog != null && end < text.length()) {
+      findTables(text, upper, end + "FROM".length(), catalog, tables);
+    }
+
+    List<String> names = new ArrayList<>();
+    List<Integer> types = new ArrayList<>();
+    String list = text.substring(start, end).trim();
+    if (list.toUpperCase(Locale.ROOT).startsWith("DISTINCT ")) {
+      list = list.substring("DISTINCT ".length());
+    }
+    for (String item : split(list)) {
+      addItem(item.trim(), tables, names, types);
+    }
+    return new ResultShape(query, names, types);
+  }
+
+  private static void addItem(
+      String item, Map<String, Table> tables, List<String> names, List<Integer> types) {
+    String expr = item;
+    String alias = null;
+    String upper = item.toUpperCase(Locale.ROOT);
+    int as = lastIndexOfKeyword(upper, "AS");
+    if (as > 0) {
+      alias = unquote(item.substring(as + 2).trim());
+      expr = item.substring(0, as).trim();
+    } else {
+      // An alias without AS follows an identifier or a closing parenthesis
+      int space = item.length() - 1;
+      while (space > 0 && !Character.isWhitespace(item.charAt(space))) {
+        space--;
+      }
+      String last = item.substring(space + 1);
+      String before = item.substring(0, space).trim();
+      if (space > 0
+          && depth(item, space) == 0
+          && IDENTIFIER.matcher(last).matches()
+          && !before.isEmpty()
+          && (Character.isLetterOrDigit(before.charAt(before.length() - 1))
+              || before.endsWith(")")
+              || before.endsWith("\""))) {
+        alias = unquote(last);
+        expr = before;
+      }
+    }
+
+    if (expr.equals("*") || expr.endsWith(".*")) {
+      String qualifier = expr.equals("*") ? null : unquote(expr.substring(0, expr.length() - 2));
+      for (Map.Entry<String, Table> e : tables.entrySet()) {
+        if (qualifier == null || e.getKey().equalsIgnoreCase(qualifier)) {
+          for (Column column : e.getValue().getColumns()) {
+            names.add(column.getName());
+            types.add(column.getType());
+          }
+          if (qualifier != null) {
+            break;
+          }
+        }
+      }
+      return;
+    }
+
+    String name = alias;
+    if (name == null) {
+      name = IDENTIFIER.matcher(expr).matches() ? unquote(lastPart(expr)) : expr;
+    }
+    names.add(name);
+    types.add(typeOf(expr, tables));
+  }
+
+  private static int typeOf(String expr, Map<String, Table> tables) {
+    expr = expr.trim();
+    Matcher function = FUNCTION.matcher(expr);
+    if (function.matches()) {
+      String argument = split(function.group(2)).get(0).trim();
+      if (argument.toUpperCase(Locale.ROOT).startsWith("DISTINCT ")) {
+        argument = argument.substring("DISTINCT ".length());
+      }
+      return switch (function.group(1).toUpperCase(Locale.ROOT)) {
+        case "COUNT" -> Types.BIGINT;
+        case "SUM" -> isInteger(typeOf(argument, tables)) ? Types.BIGINT : Types.DECIMAL;
+        case "AVG" -> Types.DECIMAL;
+        case "MIN", "MAX", "COALESCE", "ABS", "UPPER", "LOWER", "TRIM" -> typeOf(argument, tables);
+        default -> Types.OTHER;
+      };
+    }
+    if (NUMBER.matcher(expr).matches()) {
+      return Types.INTEGER;
+    }
+    if (DECIMAL.matcher(expr).matches()) {
+      return Types.DECIMAL;
+    }
+    if (expr.startsWith("'")) {
+      return Types.VARCHAR;
+    }
+    if (IDENTIFIER.matcher(expr).matches()) {
+      String columnName = unquote(lastPart(expr));
+      int dot = expr.lastIndexOf('.');
+      String qualifier = dot > 0 ? unquote(expr.substring(0, dot)) : null;
+      for (Map.Entry<String, Table> e : tables.entrySet()) {
+        if (qualifier == null || e.getKey().equalsIgnoreCase(qualifier)) {
+          Column column = e.getValue().getColumnByName(columnName);
+          if (column != null) {
+            return column.getType();
+          }
+        }
+      }
+    }
+    return Types.OTHER;
+  }
+
+  private static boolean isInteger(int type) {
+    return type == Types.INTEGER
+        || type == Types.BIGINT
+        || type == Types.SMALLINT
+        || type == Types.TINYINT;
+  }
+
+  /** Find the tables after FROM, by alias (or name if they have none). */
+  private static void findTables(
+      String text, String upper, int from, AbstractCatalog catalog, Map<String, Table> tables) {
+    int end = text.length();
+    for (String word : END_OF_FROM) {
+      int i = indexOfKeyword(upper, word, from);
+      if (i >= 0 && i < end) {
+        end = i;
+      }
+    }
+    String clause = text.substring(from, end);
+    for (String ref : split(clause)) {
+      // Each reference may hold several joined tables
+      List<String> tokens = tokens(ref);
+      for (int i = 0; i < tokens.size(); i++) {
+        String token = tokens.get(i);
+        String upperToken = token.toUpperCase(Locale.ROOT);
+        boolean startsTable = i == 0 || upperToken.equals("JOIN");
+        if (!startsTable) {
+          continue;
+        }
+        int t = upperToken.equals("JOIN") ? i + 1 : i;
+        if (t >= tokens.size() || tokens.get(t).startsWith("(")) {
+          continue;
+        }
+        String tableName = unquote(lastPart(tokens.get(t)));
+        Table table = catalog.getTable(tableName);
+        if (table == null) {
+          continue;
+        }
+        String alias = tableName;
+        int a = t + 1;
+        if (a < tokens.size() && tokens.get(a).equalsIgnoreCase("AS")) {
+          a++;
+        }
+        if (a < tokens.size()) {
+          String candidate = tokens.get(a).toUpperCase(Locale.ROOT);
+          if (!candidate.equals("ON")
+              && !candidate.equals("USING")
+              && !JOIN_WORDS.contains(candidate)
+              && IDENTIFIER.matcher(tokens.get(a)).matches()) {
+            alias = unquote(tokens.get(a));
+          }
+        }
+        tables.putIfAbsent(alias, table);
+      }
+    }
+  }
+
+  /** Split on the whitespace that is not inside parentheses or quotes. */
+  private static List<String> tokens(String text) {
+    List<String> tokens = new ArrayList<>();
+    int depth = 0;
+    boolean quoted = false;
+    StringBuilder token = new StringBuilder();
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '\'') {
+        quoted = !quoted;
+      } else if (!quoted && c == '(') {
+        depth++;
+      } else if (!quoted && c == ')') {
+        depth--;
+      }
+      if (!quoted && depth == 0 && Character.isWhitespace(c)) {
+        if (token.length() > 0) {
+          tokens.add(token.toString());
+          token.setLength(0);
+        }
+      } else {
+        token.append(c);
+      }
+    }
+    if (token.length() > 0) {
+      tokens.add(token.toString());
+    }
+    return tokens;
+  }
+
+  /** Split on the commas that are not inside parentheses or quotes. */
+  private static List<String> split(String text) {
+    List<String> parts = new ArrayList<>();
+    int depth = 0;
+    boolean quoted = false;
+    int start = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '\'') {
+        quoted = !quoted;
+      } else if (!quoted && c == '(') {
+        depth++;
+      } else if (!quoted && c == ')') {
+        depth--;
+      } else if (!quoted && depth == 0 && c == ',') {
+        parts.add(text.substring(start, i));
+        start = i + 1;
+      }
+    }
+    parts.add(text.substring(start));
+    return parts;
+  }
+
+  /** Returns the parenthesis depth at the given position. */
+  private static int depth(String text, int position) {
+    int depth = 0;
+    boolean quoted = false;
+    for (int i = 0; i < position; i++) {
+      char c = text.charAt(i);
+      if (c == '\'') {
+        quoted = !quoted;
+      } else if (!quoted && c == '(') {
+        depth++;
+      } else if (!quoted && c == ')') {
+        depth--;
+      }
+    }
+    return depth;
+  }
+
+  /** Returns the position of a keyword outside parentheses and quotes, or -1. */
+  private static int indexOfKeyword(String upper, String keyword, int from) {
+    int depth = 0;
+    boolean quoted = false;
+    for (int i = 0; i < upper.length(); i++) {
+      char c = upper.charAt(i);
+      if (c == '\'') {
+        quoted = !quoted;
+      } else if (!quoted && c == '(') {
+        depth++;
+      } else if (!quoted && c == ')') {
+        depth--;
+      } else if (!quoted
+          && depth == 0
+          && i >= from
+          && upper.startsWith(keyword, i)
+          && isBoundary(upper, i - 1)
+          && isBoundary(upper, i + keyword.length())) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int lastIndexOfKeyword(String upper, String keyword) {
+    int last = -1;
+    for (int i = indexOfKeyword(upper, keyword, 0);
+        i >= 0;
+        i = indexOfKeyword(upper, keyword, i + 1)) {
+      last = i;
+    }
+    return last;
+  }
+
+  private static boolean isBoundary(String text, int i) {
+    if (i < 0 || i >= text.length()) {
+      return true;
+    }
+    char c = text.charAt(i);
+    return !Character.isLetterOrDigit(c) && c != '_';
+  }
+
+  private static String lastPart(String identifier) {
+    return identifier.substring(identifier.lastIndexOf('.') + 1);
+  }
+
+  private static String unquote(String identifier) {
+    return identifier.replaceAll("[\"`\\[\\]]", "");
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** One loader thread loading its portion of a benchmark's database. */
+@Name("benchbase.Load")
+@Label("Load")
+@Category("BenchBase")
+@Description("A loader thread loading its portion of the database")
+@StackTrace(false)
+public final class LoadEvent extends jdk.jfr.Event {
+  @Label("Benchmark")
+  public String benchmark;
+
+  @Label("Loader")
+  public String loader;
+
+  @Label("Succeeded")
+  public boolean succeeded;
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A workload starting its next phase, or finishing its last one. */
+@Name("benchbase.PhaseTransition")
+@Label("Phase Transition")
+@Category("BenchBase")
+@Description("A workload switching to its next phase")
+@StackTrace(false)
+public final class PhaseTransitionEvent extends jdk.jfr.Event {
+  @Label("Benchmark")
+  public String benchmark;
+
+  @Label("Phase")
+  @Description("The id of the new phase, or 0 once the last phase is over")
+  public int phase;
+
+  @Label("Target Rate")
+  @Description("The requests per second of the new phase, or 0 if it is not rate limited")
+  public double targetRate;
+
+  @Label("Active Terminals")
+  public int activeTerminals;
+}
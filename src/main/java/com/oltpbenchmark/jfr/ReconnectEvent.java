@@ -0,0 +1,42 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A worker opening a new connection after losing one, including the back-off before it. */
+@Name("benchbase.Reconnect")
+@Label("Reconnect")
+@Category("BenchBase")
+@Description("A worker reconnecting to the database, including the back-off")
+@StackTrace(false)
+public final class ReconnectEvent extends jdk.jfr.Event {
+  @Label("Worker Id")
+  public int workerId;
+
+  @Label("Attempt")
+  @Description("The retry of the transaction the reconnect is for")
+  public int attempt;
+
+  @Label("Succeeded")
+  public boolean succeeded;
+}
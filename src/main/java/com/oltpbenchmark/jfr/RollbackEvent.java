@@ -0,0 +1,48 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A worker rolling back a transaction, either because it aborted or because of an error. */
+@Name("benchbase.Rollback")
+@Label("Rollback")
+@Category("BenchBase")
+@Description("A worker rolling back a transaction")
+@StackTrace(false)
+public final class RollbackEvent extends jdk.jfr.Event {
+  @Label("Transaction Type")
+  public String transactionType;
+
+  @Label("User Abort")
+  @Description("Whether the transaction aborted itself rather than failed")
+  public boolean userAbort;
+
+  @Label("SQL State")
+  public String sqlState;
+
+  @Label("Error Code")
+  public int errorCode;
+
+  @Label("Worker Id")
+  public int workerId;
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** The benchmark moving from one state to another, such as from the warmup to measuring. */
+@Name("benchbase.StateTransition")
+@Label("State Transition")
+@Category("BenchBase")
+@Description("The benchmark changing state")
+@StackTrace(false)
+public final class StateTransitionEvent extends jdk.jfr.Event {
+  @Label("From")
+  public String from;
+
+  @Label("To")
+  public String to;
+}
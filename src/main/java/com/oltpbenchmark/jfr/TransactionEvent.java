@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A transaction executed by a worker, from its first attempt to its final outcome, including the
+ * retries and reconnects in between. By default only transactions that take at least 10 ms are
+ * recorded; the threshold can be changed in the recording settings, and the events can be sampled
+ * further with the benchbase.jfr.transactionSampling system property.
+ */
+@Name("benchbase.Transaction")
+@Label("Transaction")
+@Category("BenchBase")
+@Description("A transaction executed by a worker, including its retries")
+@StackTrace(false)
+@Threshold("10 ms")
+public final class TransactionEvent extends jdk.jfr.Event {
+  /** Record only one in this many of the transactions that pass the threshold. */
+  public static final int SAMPLING =
+      Math.max(1, Integer.getInteger("benchbase.jfr.transactionSampling", 1));
+
+  @Label("Benchmark")
+  public String benchmark;
+
+  @Label("Transaction Type")
+  public String transactionType;
+
+  @Label("Status")
+  public String status;
+
+  @Label("Retries")
+  public int retries;
+
+  @Label("Worker Id")
+  public int workerId;
+}
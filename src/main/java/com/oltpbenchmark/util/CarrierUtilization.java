@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Measures how busy the carrier threads that run virtual threads are over a window of time.
+ *
+ * <p>The JDK does not expose the virtual thread scheduler, so this sums the CPU time of the
+ * platform threads in the carrier thread group and divides it by the elapsed time multiplied by the
+ * scheduler's parallelism. Carriers that exit before the end of the window are not counted, so the
+ * result is a lower bound.
+ */
+public final class CarrierUtilization {
+
+  private static final String CARRIER_THREAD_GROUP = "CarrierThreads";
+
+  private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+  private final Map<Long, Long> startCpuNs = new HashMap<>();
+  private long startNs = -1;
+
+  /** Returns the number of carrier threads the virtual thread scheduler will use. */
+  public static int getParallelism() {
+    return Integer.getInteger(
+        "jdk.virtualThreadScheduler.parallelism", ThreadUtil.availableProcessors());
+  }
+
+  public boolean isSupported() {
+    return threadBean.isThreadCpuTimeSupported() && threadBean.isThreadCpuTimeEnabled();
+  }
+
+  /** Start a new measurement window. */
+  public void start() {
+    startCpuNs.clear();
+    startCpuNs.putAll(sampleCarriers());
+    startNs = System.nanoTime();
+  }
+
+  /**
+   * End the current measurement window.
+   *
+   * @return the fraction of the available carrier time spent running virtual threads, or -1 if
+   *     {@link #start()} was not called or thread CPU time is not available
+   */
+  public double stop() {
+    long elapsedNs = System.nanoTime() - startNs;
+    if (startNs < 0 || elapsedNs <= 0 || !isSupported()) {
+      return -1;
+    }
+
+    long busyNs = 0;
+    for (Map.Entry<Long, Long> e : sampleCarriers().entrySet()) {
+      busyNs += e.getValue() - startCpuNs.getOrDefault(e.getKey(), 0L);
+    }
+    return (double) busyNs / ((double) elapsedNs * getParallelism());
+  }
+
+  private Map<Long, Long> sampleCarriers() {
+    Map<Long, Long> cpuNs = new HashMap<>();
+    if (!isSupported()) {
+      return cpuNs;
+    }
+    for (Thread t : Thread.getAllStackTraces().keySet()) {
+      ThreadGroup group = t.getThreadGroup();
+      if (group == null || !CARRIER_THREAD_GROUP.equals(group.getName())) {
+        continue;
+      }
+      long cpu = threadBean.getThreadCpuTime(t.threadId());
+      if (cpu >= 0) {
+        cpuNs.put(t.threadId(), cpu);
+      }
+    }
+    return cpuNs;
+  }
+}
@@ -177,4 +177,69 @@ public abstract class CollectionUtil {
     }
     return (t);
   }
+
+  /**
+   * Merge sequences that are each sorted into one sorted sequence, reading them one element at a
+   * time. Equal elements keep the order of the sequences they came from.
+   *
+   * @param sorted the sequences, each in the order of comparator
+   */
+  public static <T> Iterable<T> mergeSorted(
+      List<? extends Iterable<? extends T>> sorted, Comparator<? super T> comparator) {
+    return () -> new MergeIterator<>(sorted, comparator);
+  }
+
+  private static final class MergeIterator<T> implements Iterator<T> {
+    private final Comparator<? super T> comparator;
+    // The next element of each sequence that has one, smallest first
+    private final PriorityQueue<Head<T>> heads;
+
+    private MergeIterator(
+        List<? extends Iterable<? extends T>> sorted, Comparator<? super T> comparator) {
+      this.comparator = comparator;
+      this.heads = new PriorityQueue<>(Math.max(1, sorted.size()), this::compare);
+      for (int i = 0; i < sorted.size(); i++) {
+        Iterator<? extends T> it = sorted.get(i).iterator();
+        if (it.hasNext()) {
+          heads.add(new Head<>(i, it.next(), it));
+        }
+      }
+    }
+
+    private int compare(Head<T> a, Head<T> b) {
+      int c = comparator.compare(a.value, b.value);
+      return c != 0 ? c : Integer.compare(a.source, b.source);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !heads.isEmpty();
+    }
+
+    @Override
+    public T next() {
+      Head<T> head = heads.poll();
+      if (head == null) {
+        throw new NoSuchElementException();
+      }
+      T value = head.value;
+      if (head.rest.hasNext()) {
+        head.value = head.rest.next();
+        heads.add(head);
+      }
+      return value;
+    }
+  }
+
+  private static final class Head<T> {
+    private final int source;
+    private T value;
+    private final Iterator<? extends T> rest;
+
+    private Head(int source, T value, Iterator<? extends T> rest) {
+      this.source = source;
+      this.value = value;
+      this.rest = rest;
+    }
+  }
 }
@@ -15,6 +15,7 @@
 
 package com.oltpbenchmark.util;
 
+import java.util.Optional;
 import org.immutables.value.Value;
 
 @Value.Immutable
@@ -36,4 +37,10 @@ public interface MonitorInfo {
   public default MonitoringType getMonitoringType() {
     return MonitoringType.THROUGHPUT;
   }
+
+  /** CSV file the throughput monitor appends the statistics of each interval to. */
+  public Optional<String> getIntervalFile();
+
+  /** Port the throughput monitor serves live metrics on in the Prometheus text format. */
+  public Optional<Integer> getMetricsPort();
 }
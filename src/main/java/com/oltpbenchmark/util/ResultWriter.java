@@ -19,12 +19,17 @@ package com.oltpbenchmark.util;
 
 import com.oltpbenchmark.DistributionStatistics;
 import com.oltpbenchmark.LatencyRecord;
+import com.oltpbenchmark.OfferedLoad;
+import com.oltpbenchmark.Phase;
 import com.oltpbenchmark.Results;
-import com.oltpbenchmark.ThreadBench;
+import com.oltpbenchmark.WindowedStatistics;
+import com.oltpbenchmark.api.StageProfiler;
 import com.oltpbenchmark.api.TransactionType;
 import com.oltpbenchmark.api.collectors.DBParameterCollector;
 import com.oltpbenchmark.api.collectors.DBParameterCollectorGen;
+import com.oltpbenchmark.jdbc.StatementStatistics;
 import com.oltpbenchmark.types.DatabaseType;
+import com.oltpbenchmark.types.TransactionStatus;
 import java.io.PrintStream;
 import java.util.*;
 import org.apache.commons.cli.CommandLine;
@@ -45,6 +50,8 @@ public class ResultWriter {
   private final Results results;
   private final DatabaseType dbType;
   private final String benchType;
+  // The windowed statistics of the samples by window size; every CSV with that size shares them
+  private final Map<Integer, WindowedStatistics> windowed = new HashMap<>();
 
   public ResultWriter(Results r, XMLConfiguration conf, CommandLine argsLine) {
     this.expConf = conf;
@@ -99,6 +106,68 @@ public class ResultWriter {
       summaryMap.put(field, expConf.getString(field));
     }
     summaryMap.put("Latency Distribution", results.getDistributionStatistics().toMap());
+    summaryMap.put(
+        "Response Time Distribution", results.getResponseTimeStatistics().toMap("Response Time"));
+    if (results.getRetryWaitStatistics() != null) {
+      summaryMap.put(
+          "Retry Wait Distribution", results.getRetryWaitStatistics().toMap("Retry Wait"));
+    }
+    if (results.getRetryWait().getCount() > 0 || results.getRetriesDenied() > 0) {
+      Map<String, Object> retryMap = new LinkedHashMap<>();
+      retryMap.put("Transactions That Waited", results.getRetryWait().getCount());
+      retryMap.put("Denied by Budget", results.getRetriesDenied());
+      retryMap.put(
+          "Wait Time Distribution",
+          DistributionStatistics.computeStatistics(results.getRetryWait()).toMap("Retry Wait"));
+      summaryMap.put("Retries", retryMap);
+    }
+    if (results.getStageProfile() != null) {
+      Map<String, Object> stageMap = results.getStageProfile().toMap();
+      Map<String, Object> workerMap = new LinkedHashMap<>();
+      for (Map.Entry<String, StageProfiler> e : results.getWorkerStageProfiles().entrySet()) {
+        workerMap.put(e.getKey(), e.getValue().totalsToMap());
+      }
+      stageMap.put("Worker Total Time (milliseconds)", workerMap);
+      summaryMap.put("Client Stages", stageMap);
+    }
+    summaryMap.put("Dropped Arrivals", results.getDroppedArrivals());
+    summaryMap.put(
+        "Late Arrivals (queue delay > " + results.getQueueDelayBound() + " ms)",
+        results.getLateArrivals());
+    if (results.getCarrierUtilization() >= 0) {
+      summaryMap.put("Carrier Thread Utilization", results.getCarrierUtilization());
+    }
+    if (results.getClientCpuNanoseconds() >= 0 && results.getMeasuredRequests() > 0) {
+      summaryMap.put(
+          "Client CPU per Request (microseconds)",
+          results.getClientCpuNanoseconds() / 1000.0 / results.getMeasuredRequests());
+    }
+    if (results.getConnectionStatistics() != null) {
+      summaryMap.put("Connections", results.getConnectionStatistics().toMap());
+    }
+    if (results.getFaultStatistics() != null) {
+      Map<String, Object> faultMap = results.getFaultStatistics().toMap();
+      Map<String, Object> attemptsMap = new LinkedHashMap<>();
+      attemptsMap.put(
+          "Server Retry", results.getInjectedFaults(TransactionStatus.RETRY).getSampleCount());
+      attemptsMap.put(
+          "Retry Different",
+          results.getInjectedFaults(TransactionStatus.RETRY_DIFFERENT).getSampleCount());
+      attemptsMap.put(
+          "Unexpected SQL Errors",
+          results.getInjectedFaults(TransactionStatus.ERROR).getSampleCount());
+      faultMap.put("Failed Attempts", attemptsMap);
+      summaryMap.put("Injected Faults", faultMap);
+    }
+    if (results.getStatementCacheHits() >= 0) {
+      Map<String, Object> cacheMap = new LinkedHashMap<>();
+      cacheMap.put("Hits", results.getStatementCacheHits());
+      cacheMap.put("Prepares", results.getStatementCachePrepares());
+      summaryMap.put("Statement Cache", cacheMap);
+    }
+    if (results.getScheduleSlip().getCount() > 0) {
+      summaryMap.put("Schedule Slip", results.getScheduleSlip().toMap());
+    }
     summaryMap.put("Throughput (requests/second)", results.requestsPerSecondThroughput());
     summaryMap.put("Goodput (requests/second)", results.requestsPerSecondGoodput());
     os.println(JSONUtil.format(JSONUtil.toJSONString(summaryMap)));
@@ -109,25 +178,38 @@ public class ResultWriter {
   }
 
   public void writeResults(int windowSizeSeconds, PrintStream out, TransactionType txType) {
+    writeResults(windowSizeSeconds, out, txType, false);
+  }
+
+  /**
+   * Same as {@link #writeResults(int, PrintStream)}, but over response times: the time from each
+   * request's scheduled arrival until it completed, including the time spent queued.
+   */
+  public void writeResponseTimes(int windowSizeSeconds, PrintStream out) {
+    writeResults(windowSizeSeconds, out, TransactionType.INVALID, true);
+  }
+
+  private void writeResults(
+      int windowSizeSeconds, PrintStream out, TransactionType txType, boolean responseTimes) {
+    String metric = responseTimes ? "Response Time" : "Latency";
     String[] header = {
       "Time (seconds)",
       "Throughput (requests/second)",
-      "Average Latency (millisecond)",
-      "Minimum Latency (millisecond)",
-      "25th Percentile Latency (millisecond)",
-      "Median Latency (millisecond)",
-      "75th Percentile Latency (millisecond)",
-      "90th Percentile Latency (millisecond)",
-      "95th Percentile Latency (millisecond)",
-      "99th Percentile Latency (millisecond)",
-      "Maximum Latency (millisecond)",
+      "Average " + metric + " (millisecond)",
+      "Minimum " + metric + " (millisecond)",
+      "25th Percentile " + metric + " (millisecond)",
+      "Median " + metric + " (millisecond)",
+      "75th Percentile " + metric + " (millisecond)",
+      "90th Percentile " + metric + " (millisecond)",
+      "95th Percentile " + metric + " (millisecond)",
+      "99th Percentile " + metric + " (millisecond)",
+      "Maximum " + metric + " (millisecond)",
       "tp (req/s) scaled"
     };
     out.println(StringUtil.join(",", header));
+    windowSizeSeconds = getWindowSeconds(windowSizeSeconds);
     int i = 0;
-    for (DistributionStatistics s :
-        new ThreadBench.TimeBucketIterable(
-            results.getLatencySamples(), windowSizeSeconds, txType)) {
+    for (DistributionStatistics s : windows(windowSizeSeconds, txType, responseTimes)) {
       out.printf(
           "%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f\n",
           i * windowSizeSeconds,
@@ -146,6 +228,166 @@ public class ResultWriter {
     }
   }
 
+  /**
+   * Returns the window length the results are reported in: the requested one, or with latency
+   * histograms only the nearest that is a whole number of histogram windows.
+   */
+  private int getWindowSeconds(int requestedSeconds) {
+    if (results.hasSamples()) {
+      return requestedSeconds;
+    }
+    return results.getLatencyHistograms().getReportedWindowSeconds(requestedSeconds);
+  }
+
+  private Iterable<DistributionStatistics> windows(
+      int windowSizeSeconds, TransactionType txType, boolean responseTimes) {
+    if (!results.hasSamples()) {
+      return results
+          .getLatencyHistograms()
+          .getWindowStatistics(windowSizeSeconds, txType, responseTimes);
+    }
+    return windowed
+        .computeIfAbsent(
+            windowSizeSeconds,
+            size -> WindowedStatistics.compute(results.getLatencySamples(), size))
+        .get(txType, responseTimes);
+  }
+
+  /** Write the probes and the outcome of each saturation search. */
+  public void writeSaturationSearches(PrintStream os) {
+    List<Map<String, Object>> searches = new ArrayList<>();
+    for (Phase phase : results.getSearchedPhases()) {
+      Map<String, Object> searchMap = new LinkedHashMap<>();
+      searchMap.put("Workload", phase.getBenchmarkName());
+      searchMap.put("Phase", phase.getId());
+      searchMap.putAll(phase.getSaturationSearch().toMap());
+      searches.add(searchMap);
+    }
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("Saturation Searches", searches);
+    os.println(JSONUtil.format(JSONUtil.toJSONString(map)));
+  }
+
+  /**
+   * Write the results grouped by the target rate offered when each request was scheduled, so that
+   * latency can be plotted against offered load from a single run with a load profile.
+   */
+  public void writeOfferedLoad(PrintStream out) {
+    String[] header = {
+      "Target Rate (requests/second)",
+      "Time (seconds)",
+      "Requests",
+      "Throughput (requests/second)",
+      "Average Latency (millisecond)",
+      "Median Latency (millisecond)",
+      "95th Percentile Latency (millisecond)",
+      "99th Percentile Latency (millisecond)",
+      "Maximum Latency (millisecond)",
+      "Average Response Time (millisecond)",
+      "Median Response Time (millisecond)",
+      "95th Percentile Response Time (millisecond)",
+      "99th Percentile Response Time (millisecond)",
+      "Maximum Response Time (millisecond)"
+    };
+    out.println(StringUtil.join(",", header));
+    SortedMap<Double, OfferedLoad.Bucket> buckets =
+        results.getLatencyHistograms() != null
+            ? results.getOfferedLoad().bucket(results.getLatencyHistograms())
+            : results.getOfferedLoad().bucket(results.getLatencySamples());
+    for (OfferedLoad.Bucket b : buckets.values()) {
+      if (b.getCount() == 0) {
+        continue;
+      }
+      DistributionStatistics l = b.getLatencyStatistics();
+      DistributionStatistics r = b.getResponseTimeStatistics();
+      out.printf(
+          "%.3f,%.2f,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f\n",
+          b.getRate(),
+          b.getSeconds(),
+          b.getCount(),
+          b.getSeconds() > 0 ? b.getCount() / b.getSeconds() : 0,
+          l.getAverage() / MILLISECONDS_FACTOR,
+          l.getMedian() / MILLISECONDS_FACTOR,
+          l.get95thPercentile() / MILLISECONDS_FACTOR,
+          l.get99thPercentile() / MILLISECONDS_FACTOR,
+          l.getMaximum() / MILLISECONDS_FACTOR,
+          r.getAverage() / MILLISECONDS_FACTOR,
+          r.getMedian() / MILLISECONDS_FACTOR,
+          r.get95thPercentile() / MILLISECONDS_FACTOR,
+          r.get99thPercentile() / MILLISECONDS_FACTOR,
+          r.getMaximum() / MILLISECONDS_FACTOR);
+    }
+  }
+
+  /**
+   * Write the executions and times of each SQL statement that ran. Executions per transaction
+   * divides by every attempt of the procedure's transaction type, whatever its outcome. Like the
+   * statement counters, the attempts include those made during the warmup.
+   */
+  public void writeStatements(PrintStream out) {
+    String[] header = {
+      "Procedure",
+      "Statement",
+      "Executions",
+      "Executions per Transaction",
+      "Batched Statements",
+      "Rows Fetched",
+      "Average Execute Time (millisecond)",
+      "Median Execute Time (millisecond)",
+      "95th Percentile Execute Time (millisecond)",
+      "99th Percentile Execute Time (millisecond)",
+      "Maximum Execute Time (millisecond)",
+      "Average Fetch Time (millisecond)",
+      "95th Percentile Fetch Time (millisecond)",
+      "Total Execute Time (millisecond)"
+    };
+    out.println(StringUtil.join(",", header));
+    Map<String, Long> attempts = new HashMap<>();
+    for (Histogram<TransactionType> outcome :
+        List.of(
+            results.getSuccess(),
+            results.getAbort(),
+            results.getRetry(),
+            results.getError(),
+            results.getRetryDifferent(),
+            results.getUnknown())) {
+      for (TransactionType type : outcome.values()) {
+        attempts.merge(type.getName(), (long) outcome.get(type, 0), Long::sum);
+      }
+    }
+    for (Map.Entry<String, Map<String, StatementStatistics.Statement>> procedure :
+        results.getStatementStatistics().getStatements().entrySet()) {
+      long transactions = attempts.getOrDefault(procedure.getKey(), 0L);
+      for (Map.Entry<String, StatementStatistics.Statement> e : procedure.getValue().entrySet()) {
+        StatementStatistics.Statement stmt = e.getValue();
+        if (stmt.getExecutions() == 0) {
+          continue;
+        }
+        DistributionStatistics execute =
+            DistributionStatistics.computeStatistics(stmt.getExecuteTimes());
+        DistributionStatistics fetch =
+            DistributionStatistics.computeStatistics(stmt.getFetchTimes());
+        boolean fetched = fetch.getCount() > 0;
+        out.printf(
+            "%s,%s,%d,%.3f,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f\n",
+            procedure.getKey(),
+            e.getKey(),
+            stmt.getExecutions(),
+            transactions > 0 ? (double) stmt.getExecutions() / transactions : 0,
+            stmt.getBatchedStatements(),
+            stmt.getRows(),
+            execute.getAverage() / MILLISECONDS_FACTOR,
+            execute.getMedian() / MILLISECONDS_FACTOR,
+            execute.get95thPercentile() / MILLISECONDS_FACTOR,
+            execute.get99thPercentile() / MILLISECONDS_FACTOR,
+            execute.getMaximum() / MILLISECONDS_FACTOR,
+            fetched ? fetch.getAverage() / MILLISECONDS_FACTOR : 0,
+            fetched ? fetch.get95thPercentile() / MILLISECONDS_FACTOR : 0,
+            execute.getAverage() * stmt.getExecutions() / MILLISECONDS_FACTOR);
+      }
+    }
+  }
+
   public void writeSamples(PrintStream out) {
     writeSamples(1, out, TransactionType.INVALID);
   }
@@ -166,10 +408,9 @@ public class ResultWriter {
       "Maximum Latency (microseconds)"
     };
     out.println(StringUtil.join(",", header));
+    windowSizeSeconds = getWindowSeconds(windowSizeSeconds);
     int i = 0;
-    for (DistributionStatistics s :
-        new ThreadBench.TimeBucketIterable(
-            results.getLatencySamples(), windowSizeSeconds, txType)) {
+    for (DistributionStatistics s : windows(windowSizeSeconds, txType, false)) {
       out.printf(
           "%d,%d,%.3f,%d,%d,%d,%d,%d,%d,%d,%d,%d\n",
           i * windowSizeSeconds,
@@ -203,8 +444,15 @@ public class ResultWriter {
       "Start Time (microseconds)",
       "Latency (microseconds)",
       "Worker Id (start number)",
-      "Phase Id (index in config file)"
+      "Phase Id (index in config file)",
+      "Queue Delay (microseconds)",
+      "Retry Wait (microseconds)"
     };
+    boolean nanosecondLatencies = expConf.getBoolean("nanosecondLatencies", false);
+    if (nanosecondLatencies) {
+      header = Arrays.copyOf(header, header.length + 1);
+      header[header.length - 1] = "Latency (nanoseconds)";
+    }
     out.println(StringUtil.join(",", header));
     for (LatencyRecord.Sample s : results.getLatencySamples()) {
       double startUs = ((double) s.getStartNanosecond() / (double) 1000000000);
@@ -217,7 +465,13 @@ public class ResultWriter {
         Integer.toString(s.getLatencyMicrosecond()),
         Integer.toString(s.getWorkerId()),
         Integer.toString(s.getPhaseId()),
+        Integer.toString(s.getQueueDelayMicrosecond()),
+        Integer.toString(s.getRetryWaitMicrosecond()),
       };
+      if (nanosecondLatencies) {
+        row = Arrays.copyOf(row, row.length + 1);
+        row[row.length - 1] = Long.toString(s.getLatencyNanosecond());
+      }
       out.println(StringUtil.join(",", row));
     }
   }
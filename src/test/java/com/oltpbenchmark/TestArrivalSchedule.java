@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.oltpbenchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+public class TestArrivalSchedule {
+
+  private static WorkloadState workloadState(BenchmarkState benchmarkState, double rate) {
+    Phase phase =
+        new Phase(
+            "test",
+            1,
+            10,
+            0,
+            rate,
+            List.of(100.0),
+            true,
+            false,
+            false,
+            true,
+            1,
+            Phase.Arrival.REGULAR);
+    WorkloadState workloadState =
+        new WorkloadState(
+            benchmarkState,
+            List.of(phase),
+            1,
+            WorkQueue.Type.LOCKFREE,
+            ArrivalSchedule.Pacing.WORKER);
+    workloadState.switchToNextPhase();
+    return workloadState;
+  }
+
+  /** testCentralPacing */
+  @Test
+  public void testCentralPacing() {
+    WorkloadState workloadState =
+        new WorkloadState(new BenchmarkState(1), List.of(), 1, WorkQueue.Type.LOCKFREE);
+    assertNull(workloadState.newArrivalSchedule());
+  }
+
+  /** testRegularArrivals */
+  @Test
+  public void testRegularArrivals() {
+    WorkloadState workloadState = workloadState(new BenchmarkState(1), 1000);
+    long startNs = System.nanoTime() - 5000000;
+    workloadState.resetPhaseStart(startNs);
+    ArrivalSchedule schedule = workloadState.newArrivalSchedule();
+    assertNotNull(schedule);
+
+    // Arrivals are spaced by exactly the interval from the phase start, however late we are
+    SubmittedProcedure slot = new SubmittedProcedure();
+    long first = 0;
+    for (int i = 0; i < 20; i++) {
+      assertTrue(schedule.next(workloadState.getCurrentPhase(), slot));
+      assertEquals(1, slot.getType());
+      if (i == 0) {
+        first = slot.getStartTime();
+        assertTrue(first >= startNs && first < startNs + 1000000);
+      }
+      assertEquals(first + i * 1000000L, slot.getStartTime(), 1);
+    }
+    assertTrue(System.nanoTime() >= slot.getStartTime());
+  }
+
+  /** testBacklogLimit */
+  @Test
+  public void testBacklogLimit() {
+    BenchmarkState benchmarkState = new BenchmarkState(1);
+    benchmarkState.startMeasure();
+    WorkloadState workloadState = workloadState(benchmarkState, 1000);
+    workloadState.resetPhaseStart(System.nanoTime() - 100000000000L);
+    ArrivalSchedule schedule = workloadState.newArrivalSchedule();
+
+    // 100 seconds behind at 1000/s, but a single terminal keeps at most the queue limit
+    SubmittedProcedure slot = new SubmittedProcedure();
+    assertTrue(schedule.next(workloadState.getCurrentPhase(), slot));
+    long behindNs = System.nanoTime() - slot.getStartTime();
+    assertTrue(behindNs > 9900000000L && behindNs < 10100000000L);
+    assertEquals(90000, workloadState.getDroppedArrivals(), 500);
+  }
+
+  /** testWake */
+  @Test
+  public void testWake() throws Exception {
+    WorkloadState workloadState = workloadState(new BenchmarkState(1), 0.001);
+    final ArrivalSchedule schedule = workloadState.newArrivalSchedule();
+    final Phase phase = workloadState.getCurrentPhase();
+    final AtomicBoolean result = new AtomicBoolean(true);
+
+    // The next arrival is hours away, so only the phase change can end the wait
+    Thread waiter = new Thread(() -> result.set(schedule.next(phase, new SubmittedProcedure())));
+    waiter.start();
+    Thread.sleep(100);
+    workloadState.switchToNextPhase();
+    waiter.join(10000);
+    assertFalse(waiter.isAlive());
+    assertFalse(result.get());
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.oltpbenchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.oltpbenchmark.types.State;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class TestBenchmarkState {
+
+  private static Phase phase(int id) {
+    return new Phase(
+        "test",
+        id,
+        10,
+        0,
+        1000,
+        List.of(100.0),
+        true,
+        false,
+        false,
+        true,
+        1,
+        Phase.Arrival.REGULAR);
+  }
+
+  /** testPhaseChangeAdvancesEpoch */
+  @Test
+  public void testPhaseChangeAdvancesEpoch() {
+    BenchmarkState benchmarkState = new BenchmarkState(1);
+    WorkloadState workloadState = new WorkloadState(benchmarkState, List.of(phase(1), phase(2)), 1);
+
+    BenchmarkState.Epoch warmup = workloadState.getEpoch();
+    assertEquals(State.WARMUP, warmup.getState());
+    assertSame(warmup, workloadState.getEpoch());
+
+    workloadState.switchToNextPhase();
+    BenchmarkState.Epoch first = workloadState.getEpoch();
+    assertEquals(State.WARMUP, first.getState());
+    assertTrue(first.getNumber() > warmup.getNumber());
+
+    benchmarkState.startMeasure();
+    BenchmarkState.Epoch measure = workloadState.getEpoch();
+    assertEquals(State.MEASURE, measure.getState());
+
+    // A transaction that spans a phase change sees a different epoch in the same state
+    workloadState.switchToNextPhase();
+    BenchmarkState.Epoch second = workloadState.getEpoch();
+    assertEquals(State.MEASURE, second.getState());
+    assertNotSame(measure, second);
+    assertEquals(2, workloadState.getCurrentPhase().getId());
+
+    workloadState.switchToNextPhase();
+    assertNull(workloadState.getCurrentPhase());
+    assertTrue(workloadState.getEpoch().getNumber() > second.getNumber());
+  }
+
+  /** Many threads reading while the state changes always see consistent, increasing epochs. */
+  @Test
+  public void testConcurrentReaders() throws Exception {
+    final BenchmarkState benchmarkState = new BenchmarkState(1);
+    final Map<Long, State> published = new ConcurrentHashMap<>();
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    final int numReaders = 1000;
+
+    List<Thread> readers = new ArrayList<>();
+    for (int i = 0; i < numReaders; i++) {
+      Thread reader =
+          Thread.ofVirtual()
+              .unstarted(
+                  () -> {
+                    long last = -1;
+                    List<BenchmarkState.Epoch> seen = new ArrayList<>();
+                    BenchmarkState.Epoch epoch;
+                    do {
+                      epoch = benchmarkState.getEpoch();
+                      if (epoch.getNumber() < last) {
+                        failure.set(new AssertionError("Epochs went backwards"));
+                      }
+                      if (epoch.getNumber() != last) {
+                        seen.add(epoch);
+                        last = epoch.getNumber();
+                      }
+                      Thread.yield();
+                    } while (epoch.getState() != State.EXIT);
+                    for (BenchmarkState.Epoch e : seen) {
+                      State expected =
+                          e.getNumber() == 0 ? State.WARMUP : published.get(e.getNumber());
+                      if (expected != e.getState()) {
+                        failure.set(new AssertionError("Torn epoch " + e.getNumber()));
+                      }
+                    }
+                  });
+      reader.start();
+      readers.add(reader);
+    }
+
+    State[] cycle = {State.MEASURE, State.COLD_QUERY, State.LATENCY_COMPLETE};
+    for (int i = 0; i < 3000; i++) {
+      // Record what each epoch should hold before anyone can see it
+      long next = benchmarkState.getEpoch().getNumber() + 1;
+      if (i % 4 == 3) {
+        published.put(next, benchmarkState.getState());
+        benchmarkState.advanceEpoch();
+      } else {
+        State state = cycle[i % 3];
+        published.put(next, state);
+        switch (state) {
+          case MEASURE -> benchmarkState.startMeasure();
+          case COLD_QUERY -> benchmarkState.startColdQuery();
+          default -> benchmarkState.signalLatencyComplete();
+        }
+      }
+    }
+    published.put(benchmarkState.getEpoch().getNumber() + 1, State.DONE);
+    published.put(benchmarkState.getEpoch().getNumber() + 2, State.EXIT);
+    benchmarkState.startCoolDown();
+
+    for (Thread reader : readers) {
+      reader.join(60000);
+    }
+    if (failure.get() != null) {
+      throw new AssertionError(failure.get());
+    }
+    assertEquals(State.EXIT, benchmarkState.getState());
+  }
+}
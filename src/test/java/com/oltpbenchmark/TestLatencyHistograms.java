@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark;
+
+import static org.junit.Assert.assertEquals;
+
+import com.oltpbenchmark.api.TransactionType;
+import com.oltpbenchmark.benchmarks.noop.procedures.NoOp;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class TestLatencyHistograms {
+
+  private static final long SECOND = 1000000000L;
+
+  private static void assertClose(double expected, double actual) {
+    assertEquals(expected, actual, expected / 32 + 1);
+  }
+
+  /** testStatisticsMatchSamples */
+  @Test
+  public void testStatisticsMatchSamples() {
+    Random rng = new Random(7);
+    int[] values = new int[100000];
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < values.length; i++) {
+      values[i] = (int) Math.exp(rng.nextGaussian() * 1.5 + 7);
+      histogram.record(values[i]);
+    }
+    DistributionStatistics exact = DistributionStatistics.computeStatistics(values);
+    DistributionStatistics approximate = DistributionStatistics.computeStatistics(histogram);
+
+    assertEquals(exact.getCount(), approximate.getCount());
+    assertEquals(exact.getMinimum(), approximate.getMinimum(), 0);
+    assertEquals(exact.getMaximum(), approximate.getMaximum(), 0);
+    assertEquals(exact.getAverage(), approximate.getAverage(), 1e-6);
+    assertEquals(exact.getStandardDeviation(), approximate.getStandardDeviation(), 1e-3);
+    assertClose(exact.get25thPercentile(), approximate.get25thPercentile());
+    assertClose(exact.getMedian(), approximate.getMedian());
+    assertClose(exact.get90thPercentile(), approximate.get90thPercentile());
+    assertClose(exact.get99thPercentile(), approximate.get99thPercentile());
+  }
+
+  /** testAdd */
+  @Test
+  public void testAdd() {
+    LatencyHistogram low = new LatencyHistogram();
+    LatencyHistogram high = new LatencyHistogram();
+    for (int i = 0; i < 100; i++) {
+      low.record(10 + i);
+      high.record(1000000 + i * 1000);
+    }
+    LatencyHistogram merged = new LatencyHistogram();
+    merged.add(high);
+    merged.add(low);
+    merged.trim();
+    assertEquals(200, merged.getCount());
+    assertEquals(10, merged.getMinimum());
+    assertEquals(1099000, merged.getMaximum());
+    assertEquals(109, merged.getValueAtRank(99));
+    assertClose(1000000, merged.getValueAtRank(100));
+  }
+
+  /** testWindows */
+  @Test
+  public void testWindows() {
+    LatencyHistograms sink = new LatencyHistograms(0, 1);
+    LatencyHistograms worker1 = new LatencyHistograms(0, 1, sink);
+    LatencyHistograms worker2 = new LatencyHistograms(0, 1, sink);
+
+    // Two workers over seconds 2 to 5, with latencies of 2 to 5 ms; type 2 only runs in second 4
+    for (int second = 2; second < 6; second++) {
+      for (int i = 0; i < 10; i++) {
+        long start = second * SECOND + i * 1000;
+        worker1.record(1, start, start + 1000000L * second, 0);
+        worker2.record(second == 4 ? 2 : 1, start, start + 1000000L * second, 5000000);
+      }
+    }
+    // The window each worker is in is only moved once it moves on or flushes
+    assertEquals(60, sink.getCount());
+    worker1.flush();
+    worker2.flush();
+    assertEquals(80, sink.getCount());
+
+    // The constructor is protected
+    TransactionType type2 = new TransactionType(NoOp.class, 2, false, 0, 0) {};
+    List<DistributionStatistics> all = sink.getWindowStatistics(1, TransactionType.INVALID, false);
+    assertEquals(4, all.size());
+    assertEquals(20, all.get(0).getCount());
+    assertEquals(2000, all.get(0).getMedian(), 0);
+    List<DistributionStatistics> type2Only = sink.getWindowStatistics(1, type2, false);
+    assertEquals(0, type2Only.get(1).getCount());
+    assertEquals(10, type2Only.get(2).getCount());
+
+    // Two windows per report, and response times include the queue delay
+    assertEquals(2, sink.getReportedWindowSeconds(2));
+    List<DistributionStatistics> pairs = sink.getWindowStatistics(2, TransactionType.INVALID, true);
+    assertEquals(2, pairs.size());
+    assertEquals(40, pairs.get(1).getCount());
+    assertEquals(10000, pairs.get(1).getMaximum(), 0);
+
+    DistributionStatistics total = sink.getStatistics(false);
+    assertEquals(80, total.getCount());
+    assertEquals(5000, total.getMaximum(), 0);
+  }
+
+  /** testWriteAndMerge */
+  @Test
+  public void testWriteAndMerge() throws IOException {
+    // Two drivers whose clocks differ, each measuring from its own second 3
+    long[] origins = {0, 700 * 1000000L};
+    LatencyHistograms merged = new LatencyHistograms(100 * SECOND, 1);
+    LatencyHistograms direct = new LatencyHistograms(0, 1);
+    for (long origin : origins) {
+      LatencyHistograms driver = new LatencyHistograms(origin, 1);
+      for (int second = 0; second < 4; second++) {
+        for (int i = 0; i < 5; i++) {
+          long start = origin + (3 + second) * SECOND + i * 1000;
+          driver.record(1, start, start + 1000000L * (second + 1), 1000000, i * 100000L);
+          direct.record(
+              1, second * SECOND + i * 1000, second * SECOND + 1000000L * (second + 1), 0);
+        }
+      }
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      driver.write(new DataOutputStream(bytes), origin + 3 * SECOND);
+      merged.readAndMerge(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+    assertEquals(40, merged.getCount());
+
+    // Each window lines up with the same second of the other driver
+    List<DistributionStatistics> windows =
+        merged.getWindowStatistics(1, TransactionType.INVALID, false);
+    assertEquals(4, windows.size());
+    for (int second = 0; second < 4; second++) {
+      assertEquals(10, windows.get(second).getCount());
+      assertEquals(1000 * (second + 1), windows.get(second).getMaximum(), 0);
+    }
+    assertEquals(
+        direct.getStatistics(false).getMedian(), merged.getStatistics(false).getMedian(), 0);
+    assertEquals(5000, merged.getStatistics(true).getMaximum(), 0);
+    DistributionStatistics retryWaits = merged.getRetryWaitStatistics();
+    assertEquals(40, retryWaits.getCount());
+    assertEquals(0, retryWaits.getMinimum(), 0);
+    assertEquals(400, retryWaits.getMaximum(), 0);
+  }
+
+  /** testReportedWindowSeconds */
+  @Test
+  public void testReportedWindowSeconds() {
+    LatencyHistograms histograms = new LatencyHistograms(0, 10);
+    assertEquals(10, histograms.getReportedWindowSeconds(1));
+    assertEquals(10, histograms.getReportedWindowSeconds(14));
+    assertEquals(20, histograms.getReportedWindowSeconds(16));
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+import org.junit.Test;
+
+public class TestLatencyRecord {
+
+  private static void checkRecord(int numSamples) {
+    LatencyRecord record = new LatencyRecord(0);
+    for (int i = 0; i < numSamples; i++) {
+      record.addLatency(1, i * 1000L, i * 1000L + 2000, 0, 0);
+    }
+    assertEquals(numSamples, record.size());
+
+    // Start times are stored rounded, so only check the spacing between them
+    Iterator<LatencyRecord.Sample> it = record.iterator();
+    long first = 0;
+    for (int i = 0; i < numSamples; i++) {
+      LatencyRecord.Sample s = it.next();
+      if (i == 0) {
+        first = s.getStartNanosecond();
+      }
+      assertEquals(first + i * 1000L, s.getStartNanosecond());
+      assertEquals(2, s.getLatencyMicrosecond());
+    }
+    assertFalse(it.hasNext());
+  }
+
+  /** testChunkBoundaries */
+  @Test
+  public void testChunkBoundaries() {
+    int size = LatencyRecord.INITIAL_ALLOC_SIZE;
+    checkRecord(0);
+    checkRecord(size - 1);
+    checkRecord(size);
+    checkRecord(size + 1);
+    checkRecord(size + 2 * size);
+    checkRecord(size + 2 * size + 1);
+  }
+
+  /** testLongGaps */
+  @Test
+  public void testLongGaps() {
+    // Gaps of an hour overflow a 32-bit increment in microseconds, and 3 seconds one in nanoseconds
+    long[] starts = {5000L, 3600L * 1000000000L, 3603L * 1000000000L, 7300L * 1000000000L};
+    for (boolean nanosecondPrecision : new boolean[] {false, true}) {
+      LatencyRecord record = new LatencyRecord(0, nanosecondPrecision);
+      for (long start : starts) {
+        record.addLatency(1, start, start + 1000, 0, 0);
+      }
+      LatencyRecord.Cursor cursor = record.cursor();
+      for (long start : starts) {
+        assertTrue(cursor.next());
+        assertEquals(start, cursor.getStartNanosecond());
+      }
+      assertFalse(cursor.next());
+    }
+  }
+
+  /** testNanosecondPrecision */
+  @Test
+  public void testNanosecondPrecision() {
+    LatencyRecord rounded = new LatencyRecord(100, false);
+    LatencyRecord precise = new LatencyRecord(100, true);
+    for (LatencyRecord record : new LatencyRecord[] {rounded, precise}) {
+      record.addLatency(1, 1234567, 1234567 + 2700, 3, 4, 1600, 1200);
+      record.addLatency(2, 1234999, 1234999 + 1499, 3, 4);
+    }
+
+    // Rounded start times stay on a microsecond grid that starts at the record's start
+    LatencyRecord.Cursor cursor = rounded.cursor();
+    assertTrue(cursor.next());
+    assertEquals(1234100, cursor.getStartNanosecond());
+    assertEquals(3, cursor.getLatencyMicrosecond());
+    assertEquals(3000, cursor.getLatencyNanosecond());
+    assertEquals(2, cursor.getQueueDelayMicrosecond());
+    assertEquals(5, cursor.getResponseTimeMicrosecond());
+    assertEquals(1, cursor.getRetryWaitMicrosecond());
+    assertTrue(cursor.next());
+    assertEquals(1235100, cursor.getStartNanosecond());
+    assertEquals(1, cursor.getLatencyMicrosecond());
+    assertEquals(1000, cursor.getLatencyNanosecond());
+
+    cursor = precise.cursor();
+    assertTrue(cursor.next());
+    assertEquals(1, cursor.getTransactionType());
+    assertEquals(1234567, cursor.getStartNanosecond());
+    assertEquals(3, cursor.getLatencyMicrosecond());
+    assertEquals(2700, cursor.getLatencyNanosecond());
+    assertEquals(3, cursor.getWorkerId());
+    assertEquals(4, cursor.getPhaseId());
+    assertTrue(cursor.next());
+    assertEquals(2, cursor.getTransactionType());
+    assertEquals(1234999, cursor.getStartNanosecond());
+    assertEquals(1499, cursor.getLatencyNanosecond());
+    assertFalse(cursor.next());
+
+    // Iterating builds the same samples, and does not change the record
+    for (int i = 0; i < 2; i++) {
+      Iterator<LatencyRecord.Sample> it = precise.iterator();
+      LatencyRecord.Sample s = it.next();
+      assertEquals(1234567, s.getStartNanosecond());
+      assertEquals(2700, s.getLatencyNanosecond());
+      assertEquals(1499, it.next().getLatencyNanosecond());
+      assertFalse(it.hasNext());
+    }
+  }
+}
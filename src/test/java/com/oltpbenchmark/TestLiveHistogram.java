@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TestLiveHistogram {
+
+  /** testCumulativeCounts */
+  @Test
+  public void testCumulativeCounts() {
+    LiveHistogram histogram = new LiveHistogram();
+    for (int value : new int[] {5, 31, 100, 1000, 1000, 50000}) {
+      histogram.record(value);
+    }
+    LiveHistogram.Snapshot snapshot = new LiveHistogram.Snapshot();
+    histogram.drainInto(snapshot);
+
+    // 100 and 1000 are counted in buckets that reach 101 and 1007
+    long[] bounds = {0, 31, 100, 101, 1023, 100000};
+    long[] counts = new long[bounds.length];
+    snapshot.getCumulativeCounts(bounds, counts);
+    assertArrayEquals(new long[] {0, 2, 2, 3, 5, 6}, counts);
+
+    LiveHistogram.Snapshot merged = new LiveHistogram.Snapshot();
+    merged.add(snapshot);
+    merged.add(snapshot);
+    assertEquals(12, merged.getCount());
+    assertEquals(2 * 52136, merged.getApproximateSum(), 2 * 52136 / 32.0);
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.oltpbenchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.SplittableRandom;
+import org.junit.Test;
+
+public class TestLoadProfile {
+
+  private static Phase phase(Phase.Arrival arrival, double shape, LoadProfile profile) {
+    return new Phase(
+        "test",
+        1,
+        10,
+        0,
+        profile.getRate(0),
+        List.of(100.0),
+        true,
+        false,
+        false,
+        true,
+        1,
+        arrival,
+        shape,
+        profile,
+        null,
+        null);
+  }
+
+  /** testProfiles */
+  @Test
+  public void testProfiles() {
+    LoadProfile ramp = LoadProfile.ramp(100, 300, 10);
+    assertEquals(100, ramp.getRate(0), 0.001);
+    assertEquals(200, ramp.getRate(5), 0.001);
+    assertEquals(300, ramp.getRate(20), 0.001);
+    assertEquals(300, ramp.getMaxRate(10), 0.001);
+
+    LoadProfile step = LoadProfile.step(100, 50, 2);
+    assertEquals(100, step.getRate(1.9), 0.001);
+    assertEquals(150, step.getRate(2), 0.001);
+    assertEquals(300, step.getRate(9), 0.001);
+
+    LoadProfile sine = LoadProfile.sine(100, 150, 4);
+    assertEquals(100, sine.getRate(0), 0.001);
+    assertEquals(250, sine.getRate(1), 0.001);
+    // Never negative
+    assertEquals(0, sine.getRate(3), 0.001);
+
+    LoadProfile onOff = LoadProfile.onOff(10, 1000, 1, 2);
+    assertEquals(1000, onOff.getRate(0.5), 0.001);
+    assertEquals(10, onOff.getRate(1.5), 0.001);
+    assertEquals(1000, onOff.getRate(3.5), 0.001);
+
+    assertTrue(LoadProfile.constant(5).isConstant());
+    assertEquals(LoadProfile.Type.ONOFF, LoadProfile.Type.get("onoff"));
+  }
+
+  /** testParetoGaps */
+  @Test
+  public void testParetoGaps() {
+    Phase phase = phase(Phase.Arrival.PARETO, 2.5, LoadProfile.constant(100));
+    SplittableRandom rng = new SplittableRandom(1);
+    double sum = 0;
+    int n = 1000000;
+    for (int i = 0; i < n; i++) {
+      double gap = phase.nextArrivalGap(rng);
+      assertTrue(gap > 0);
+      sum += gap;
+    }
+    // Gaps are scaled to a mean of one interval
+    assertEquals(1, sum / n, 0.05);
+  }
+
+  /** testBucketWidth */
+  @Test
+  public void testBucketWidth() {
+    assertEquals(1, OfferedLoad.bucketWidth(50), 0.001);
+    assertEquals(2, OfferedLoad.bucketWidth(75), 0.001);
+    assertEquals(500, OfferedLoad.bucketWidth(20000), 0.001);
+    assertEquals(1000, OfferedLoad.bucketWidth(40000), 0.001);
+  }
+
+  /** testBucketByOfferedLoad */
+  @Test
+  public void testBucketByOfferedLoad() {
+    // Four seconds of 100/s followed by two seconds of 1000/s
+    OfferedLoad offeredLoad = new OfferedLoad(2);
+    Phase phase = phase(Phase.Arrival.REGULAR, 0, LoadProfile.onOff(50, 500, 2, 4));
+    offeredLoad.startPhase(0, 0, phase);
+    offeredLoad.end(6000000000L);
+
+    List<LatencyRecord.Sample> samples = new ArrayList<>();
+    for (int i = 0; i < 60; i++) {
+      // Started 1 ms after the scheduled arrival
+      samples.add(new LatencyRecord.Sample(1, i * 100000000L + 1000000L, 50, 0, 1, 1000));
+    }
+
+    SortedMap<Double, OfferedLoad.Bucket> buckets = offeredLoad.bucket(samples);
+    assertEquals(2, buckets.size());
+    OfferedLoad.Bucket low = buckets.get(buckets.firstKey());
+    OfferedLoad.Bucket high = buckets.get(buckets.lastKey());
+    assertEquals(100, low.getRate(), 0.001);
+    assertEquals(1000, high.getRate(), 0.001);
+    assertEquals(4, low.getSeconds(), 0.05);
+    assertEquals(2, high.getSeconds(), 0.05);
+    assertEquals(40, low.getCount());
+    assertEquals(20, high.getCount());
+    assertEquals(1050, high.getResponseTimeStatistics().getMedian(), 0.001);
+  }
+
+  /** testRestartOnlySwitchedWorkload */
+  @Test
+  public void testRestartOnlySwitchedWorkload() {
+    OfferedLoad offeredLoad = new OfferedLoad();
+    offeredLoad.startPhase(0, 0, phase(Phase.Arrival.REGULAR, 0, LoadProfile.ramp(0, 100, 10)));
+    offeredLoad.startPhase(1, 0, phase(Phase.Arrival.REGULAR, 0, LoadProfile.constant(50)));
+    // Only the second workload moves on; the first keeps ramping from its own start
+    offeredLoad.startPhase(
+        1, 5000000000L, phase(Phase.Arrival.REGULAR, 0, LoadProfile.constant(10)));
+    offeredLoad.end(10000000000L);
+
+    assertEquals(20 + 50, offeredLoad.getTargetRate(2000000000L), 0.001);
+    assertEquals(70 + 10, offeredLoad.getTargetRate(7000000000L), 0.001);
+
+    double seconds = 0;
+    for (OfferedLoad.Bucket bucket : offeredLoad.bucket(new ArrayList<>()).values()) {
+      seconds += bucket.getSeconds();
+    }
+    assertEquals(10, seconds, 0.001);
+  }
+}
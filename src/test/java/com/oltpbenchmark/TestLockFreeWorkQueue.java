@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class TestLockFreeWorkQueue {
+
+  private static Phase phase(int numTxnTypes) {
+    List<Double> weights = new ArrayList<>();
+    for (int i = 0; i < numTxnTypes; i++) {
+      weights.add(100.0 / numTxnTypes);
+    }
+    return new Phase(
+        "test", 1, 10, 0, 1000, weights, true, false, false, true, 1, Phase.Arrival.REGULAR);
+  }
+
+  /** testLimit */
+  @Test
+  public void testLimit() {
+    LockFreeWorkQueue queue = new LockFreeWorkQueue(100);
+    assertEquals(60, queue.add(phase(1), 60, 0, 0));
+    assertEquals(40, queue.add(phase(1), 60, 0, 0));
+    assertEquals(0, queue.add(phase(1), 1, 0, 0));
+    assertEquals(100, queue.size());
+
+    SubmittedProcedure slot = new SubmittedProcedure();
+    assertTrue(queue.poll(slot));
+    assertEquals(1, slot.getType());
+    assertEquals(1, queue.add(phase(1), 10, 0, 0));
+
+    queue.clear();
+    assertEquals(0, queue.size());
+    assertFalse(queue.poll(slot));
+  }
+
+  /** testScheduledArrivals */
+  @Test
+  public void testScheduledArrivals() {
+    LockFreeWorkQueue queue = new LockFreeWorkQueue(100);
+    assertEquals(3, queue.add(phase(1), 3, 1000, 10));
+
+    SubmittedProcedure slot = new SubmittedProcedure();
+    for (int i = 0; i < 3; i++) {
+      assertTrue(queue.poll(slot));
+      assertEquals(1000 + i * 10, slot.getStartTime());
+    }
+  }
+
+  /** testWakeAll */
+  @Test
+  public void testWakeAll() throws Exception {
+    final LockFreeWorkQueue queue = new LockFreeWorkQueue(100);
+    final BenchmarkState state = new BenchmarkState(1);
+    final AtomicLong returned = new AtomicLong();
+
+    Thread consumer =
+        new Thread(
+            () -> {
+              if (queue.take(new SubmittedProcedure(), state) == null) {
+                returned.incrementAndGet();
+              }
+            });
+    consumer.start();
+
+    // The benchmark is still running, but a phase change must release the consumer
+    Thread.sleep(50);
+    queue.wakeAll();
+    consumer.join(10000);
+    assertFalse(consumer.isAlive());
+    assertEquals(1, returned.get());
+  }
+
+  /** testConcurrentConsumers */
+  @Test
+  public void testConcurrentConsumers() throws Exception {
+    final int numConsumers = 8;
+    final int total = 200000;
+    final LockFreeWorkQueue queue = new LockFreeWorkQueue(1000);
+    final BenchmarkState state = new BenchmarkState(1);
+    final AtomicLong consumed = new AtomicLong();
+    final AtomicLong typeSum = new AtomicLong();
+
+    List<Thread> consumers = new ArrayList<>();
+    for (int i = 0; i < numConsumers; i++) {
+      Thread t =
+          new Thread(
+              () -> {
+                SubmittedProcedure slot = new SubmittedProcedure();
+                while (queue.take(slot, state) != null) {
+                  typeSum.addAndGet(slot.getType());
+                  consumed.incrementAndGet();
+                }
+              });
+      t.start();
+      consumers.add(t);
+    }
+
+    Phase phase = phase(4);
+    int produced = 0;
+    while (produced < total) {
+      produced += queue.add(phase, Math.min(50, total - produced), System.nanoTime(), 0);
+      Thread.onSpinWait();
+    }
+    while (consumed.get() < total) {
+      Thread.sleep(1);
+    }
+
+    // Let the consumers go
+    state.startCoolDown();
+    queue.wakeAll();
+    for (Thread t : consumers) {
+      t.join(10000);
+      assertFalse(t.isAlive());
+    }
+
+    assertEquals(total, consumed.get());
+    assertTrue(typeSum.get() >= total && typeSum.get() <= 4L * total);
+    assertNull(queue.take(new SubmittedProcedure(), state));
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.oltpbenchmark;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.Test;
+
+public class TestPhase {
+
+  private static Phase phase(List<Double> weights) {
+    return new Phase(
+        "test", 1, 10, 0, 1000, weights, true, false, false, true, 1, Phase.Arrival.REGULAR);
+  }
+
+  private static double[] frequencies(Phase phase, int numTypes, int draws) {
+    SplittableRandom rng = new SplittableRandom(42);
+    double[] counts = new double[numTypes + 1];
+    for (int i = 0; i < draws; i++) {
+      counts[phase.chooseTransaction(false, rng)]++;
+    }
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] /= draws;
+    }
+    return counts;
+  }
+
+  /** testFractionalWeights */
+  @Test
+  public void testFractionalWeights() {
+    // These used to be truncated to a total of 100 and drawn by integer percentage
+    Phase phase = phase(List.of(0.5, 45.0, 0.0, 54.9));
+    assertEquals(100.4, phase.totalWeight(), 1e-9);
+    double[] f = frequencies(phase, 4, 2000000);
+    assertEquals(0, f[0], 0);
+    assertEquals(0.5 / 100.4, f[1], 0.0005);
+    assertEquals(45.0 / 100.4, f[2], 0.002);
+    assertEquals(0, f[3], 0);
+    assertEquals(54.9 / 100.4, f[4], 0.002);
+  }
+
+  /** testSingleAndEqualWeights */
+  @Test
+  public void testSingleAndEqualWeights() {
+    assertEquals(1, frequencies(phase(List.of(100.0)), 1, 1000)[1], 0);
+
+    double[] f = frequencies(phase(List.of(1.0, 1.0, 1.0, 1.0, 1.0, 1.0, 1.0)), 7, 700000);
+    for (int i = 1; i <= 7; i++) {
+      assertEquals(1.0 / 7, f[i], 0.002);
+    }
+  }
+
+  /** testNoWeight */
+  @Test
+  public void testNoWeight() {
+    assertEquals(-1, phase(List.of(0.0, 0.0)).chooseTransaction());
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.oltpbenchmark.util.CollectionUtil;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestSampleLog {
+
+  private Path directory;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("samples");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    for (Path file : SampleLog.findSegments(directory, "test")) {
+      Files.delete(file);
+    }
+    Files.delete(directory);
+  }
+
+  /** testRoundTrip */
+  @Test
+  public void testRoundTrip() {
+    SampleLog log = new SampleLog(directory, "test", 10);
+    LatencyRecord record = new LatencyRecord(1000, true, log);
+    for (int i = 0; i < 25; i++) {
+      long start = 1000 + i * 1000000L;
+      record.addLatency(i % 3 + 1, start, start + 1500 + i, 7, 2, 100 * i, 1000 * i);
+    }
+    record.close();
+
+    assertEquals(25, record.size());
+    assertEquals(3, log.getSegments().size());
+    assertEquals(log.getSegments(), SampleLog.findSegments(directory, "test"));
+
+    int i = 0;
+    for (LatencyRecord.Sample s : record) {
+      assertEquals(i % 3 + 1, s.getTransactionType());
+      assertEquals(1000 + i * 1000000L, s.getStartNanosecond());
+      assertEquals(1500 + i, s.getLatencyNanosecond());
+      assertEquals(7, s.getWorkerId());
+      assertEquals(2, s.getPhaseId());
+      assertEquals((100 * i + 500) / 1000, s.getQueueDelayMicrosecond());
+      assertEquals(i, s.getRetryWaitMicrosecond());
+      i++;
+    }
+    assertEquals(25, i);
+  }
+
+  /** testReadWhileOpen */
+  @Test
+  public void testReadWhileOpen() {
+    SampleLog log = new SampleLog(directory, "test", 4);
+    for (int i = 0; i < 6; i++) {
+      log.append(1, i * 1000L, i, 0, 0, 0, 0, 0);
+    }
+
+    // Samples that were appended are readable even if the log was never closed
+    SampleLog.Reader reader = SampleLog.read(SampleLog.findSegments(directory, "test"));
+    for (int i = 0; i < 6; i++) {
+      assertTrue(reader.next());
+      assertEquals(i * 1000L, reader.getStartNanosecond());
+      assertEquals(i, reader.getLatencyMicrosecond());
+    }
+    assertFalse(reader.next());
+    log.close();
+  }
+
+  /** testMergeSorted */
+  @Test
+  public void testMergeSorted() {
+    List<List<Integer>> sources =
+        Arrays.asList(
+            Arrays.asList(1, 4, 9), Arrays.asList(), Arrays.asList(2, 3, 10, 11), Arrays.asList(4));
+    List<Integer> merged = new ArrayList<>();
+    for (int value : CollectionUtil.mergeSorted(sources, Comparator.<Integer>naturalOrder())) {
+      merged.add(value);
+    }
+    assertEquals(Arrays.asList(1, 2, 3, 4, 4, 9, 10, 11), merged);
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.oltpbenchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestSaturationSearch {
+
+  /** Simulates probes against a system that meets a 10 ms SLO up to the given capacity. */
+  private static SaturationSearch search(double capacity) {
+    SaturationSearch search = new SaturationSearch(100, 99, 10, 5, 1, 0.05);
+    LiveHistogram histogram = new LiveHistogram();
+    double seconds = 0;
+    while (!search.isConverged() && seconds < 1000) {
+      seconds = search.getNextUpdateSeconds();
+      double rate = search.getRate(seconds - 0.001);
+      for (int i = 0; i < rate * 4; i++) {
+        histogram.record(rate <= capacity ? 2000 : 50000);
+      }
+      LiveHistogram.Snapshot snapshot = new LiveHistogram.Snapshot();
+      histogram.drainInto(snapshot);
+      search.update(seconds, snapshot);
+    }
+    return search;
+  }
+
+  /** testConverges */
+  @Test
+  public void testConverges() {
+    SaturationSearch search = search(5000);
+    assertTrue(search.isConverged());
+    assertTrue(search.getSustainableRate() <= 5000);
+    assertTrue(search.getSustainableRate() >= 5000 * 0.95);
+    assertEquals(search.getSustainableRate(), search.getSustainableProbe().getRate(), 0.001);
+    // Doubles from 100 to 6400, then bisects
+    assertEquals(200, search.getProbes().get(1).getRate(), 0.001);
+    assertFalse(search.getProbes().get(6).isPassed());
+
+    // The rate over time follows the probes
+    SaturationSearch.Probe second = search.getProbes().get(1);
+    assertEquals(100, search.getRate(0), 0.001);
+    assertEquals(second.getRate(), search.getRate(5.5), 0.001);
+  }
+
+  /** testNothingSustainable */
+  @Test
+  public void testNothingSustainable() {
+    SaturationSearch search = search(0);
+    assertTrue(search.isConverged());
+    assertEquals(0, search.getSustainableRate(), 0.001);
+    assertNull(search.getSustainableProbe());
+  }
+
+  /** testLiveHistogram */
+  @Test
+  public void testLiveHistogram() {
+    LiveHistogram histogram = new LiveHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i * 100);
+    }
+    LiveHistogram.Snapshot snapshot = new LiveHistogram.Snapshot();
+    assertEquals(-1, snapshot.getPercentile(50));
+    histogram.drainInto(snapshot);
+    assertEquals(1000, snapshot.getCount());
+    // Within the 1/32 precision of the buckets, never below the exact value
+    assertTrue(snapshot.getPercentile(50) >= 50000);
+    assertTrue(snapshot.getPercentile(50) <= 50000 * 33 / 32);
+    assertTrue(snapshot.getPercentile(99) >= 99000);
+    assertTrue(snapshot.getPercentile(99) <= 99000 * 33 / 32);
+
+    // Drained histograms start over
+    LiveHistogram.Snapshot empty = new LiveHistogram.Snapshot();
+    histogram.drainInto(empty);
+    assertEquals(0, empty.getCount());
+
+    for (int v : new int[] {0, 1, 31, 32, 33, 1000, 123456, Integer.MAX_VALUE}) {
+      int index = LiveHistogram.index(v);
+      assertTrue(index < LiveHistogram.NUM_BUCKETS);
+      assertTrue(LiveHistogram.highestValue(index) >= v);
+      assertTrue(index == 0 || LiveHistogram.highestValue(index - 1) < v);
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark;
+
+import static org.junit.Assert.assertEquals;
+
+import com.oltpbenchmark.api.TransactionType;
+import com.oltpbenchmark.benchmarks.noop.procedures.NoOp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+
+public class TestWindowedStatistics {
+
+  private static final long SECOND = 1000000000L;
+
+  private static void assertSame(DistributionStatistics expected, DistributionStatistics actual) {
+    assertEquals(expected.getCount(), actual.getCount());
+    assertEquals(expected.getAverage(), actual.getAverage(), 1e-9);
+    assertEquals(expected.getMinimum(), actual.getMinimum(), 0);
+    assertEquals(expected.get25thPercentile(), actual.get25thPercentile(), 0);
+    assertEquals(expected.getMedian(), actual.getMedian(), 0);
+    assertEquals(expected.get99thPercentile(), actual.get99thPercentile(), 0);
+    assertEquals(expected.getMaximum(), actual.getMaximum(), 0);
+  }
+
+  /** Summarise each window one at a time, the way the windows are laid out. */
+  private static List<DistributionStatistics> expectedWindows(
+      List<LatencyRecord.Sample> samples,
+      int windowSize,
+      TransactionType type,
+      boolean responseTimes) {
+    List<DistributionStatistics> windows = new ArrayList<>();
+    if (samples.isEmpty()) {
+      return windows;
+    }
+    long windowStart = samples.get(0).getStartNanosecond();
+    int i = 0;
+    while (i < samples.size()) {
+      long windowEnd = windowStart + windowSize * SECOND;
+      List<Integer> values = new ArrayList<>();
+      for (; i < samples.size() && samples.get(i).getStartNanosecond() < windowEnd; i++) {
+        LatencyRecord.Sample sample = samples.get(i);
+        if (type.equals(TransactionType.INVALID) || type.getId() == sample.getTransactionType()) {
+          values.add(
+              responseTimes ? sample.getResponseTimeMicrosecond() : sample.getLatencyMicrosecond());
+        }
+      }
+      windows.add(
+          DistributionStatistics.computeStatistics(
+              values.stream().mapToInt(Integer::intValue).toArray()));
+      windowStart = windowEnd;
+    }
+    return windows;
+  }
+
+  /** testMatchesTimeBuckets */
+  @Test
+  public void testMatchesTimeBuckets() {
+    // Three types over 20 seconds, with a gap of a few seconds in which nothing ran
+    Random rng = new Random(11);
+    List<LatencyRecord.Sample> samples = new ArrayList<>();
+    long start = 5 * SECOND + 123;
+    while (start < 25 * SECOND) {
+      samples.add(
+          new LatencyRecord.Sample(
+              1 + rng.nextInt(3), start, rng.nextInt(10000), 0, 0, rng.nextInt(500)));
+      start += rng.nextInt(1000000);
+      if (start > 12 * SECOND && start < 16 * SECOND) {
+        start = 16 * SECOND;
+      }
+    }
+
+    // The constructor is protected
+    List<TransactionType> types = new ArrayList<>();
+    types.add(TransactionType.INVALID);
+    for (int id = 1; id <= 4; id++) {
+      types.add(new TransactionType(NoOp.class, id, false, 0, 0) {});
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(3);
+    try {
+      for (int windowSize : new int[] {1, 3}) {
+        WindowedStatistics windowed = WindowedStatistics.compute(samples, windowSize, pool);
+        for (TransactionType type : types) {
+          for (boolean responseTimes : new boolean[] {false, true}) {
+            List<DistributionStatistics> actual = windowed.get(type, responseTimes);
+            List<DistributionStatistics> expected =
+                expectedWindows(samples, windowSize, type, responseTimes);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+              assertSame(expected.get(i), actual.get(i));
+            }
+          }
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /** testEmpty */
+  @Test
+  public void testEmpty() {
+    WindowedStatistics windowed = WindowedStatistics.compute(new ArrayList<>(), 5);
+    assertEquals(0, windowed.size());
+    assertEquals(0, windowed.get(TransactionType.INVALID, false).size());
+  }
+}
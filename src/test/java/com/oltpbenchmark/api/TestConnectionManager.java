@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.oltpbenchmark.WorkloadConfiguration;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class TestConnectionManager {
+
+  /** Returns a manager whose connections only know whether they were closed */
+  private static ConnectionManager manager(WorkloadConfiguration workConf, List<boolean[]> opened) {
+    return new ConnectionManager(
+        () -> {
+          boolean[] closed = {false};
+          synchronized (opened) {
+            opened.add(closed);
+          }
+          return (Connection)
+              Proxy.newProxyInstance(
+                  Connection.class.getClassLoader(),
+                  new Class<?>[] {Connection.class},
+                  (proxy, method, args) -> {
+                    switch (method.getName()) {
+                      case "close" -> closed[0] = true;
+                      case "isValid" -> {
+                        return !closed[0];
+                      }
+                      default -> {}
+                    }
+                    return null;
+                  });
+        },
+        workConf);
+  }
+
+  /** testWarmUp */
+  @Test
+  public void testWarmUp() throws Exception {
+    WorkloadConfiguration workConf = new WorkloadConfiguration();
+    workConf.setConnectionPoolSize(2);
+    List<boolean[]> opened = new ArrayList<>();
+    ConnectionManager manager = manager(workConf, opened);
+
+    manager.warmUp(5);
+    assertEquals(5, opened.size());
+    manager.acquire();
+    manager.acquire();
+    manager.acquire();
+    assertEquals(5, opened.size());
+
+    // Two spares are kept for reconnects
+    manager.trim();
+    manager.acquire();
+    manager.acquire();
+    assertEquals(5, opened.size());
+    manager.acquire();
+    assertEquals(6, opened.size());
+
+    ConnectionManager.Statistics statistics = manager.getStatistics();
+    assertEquals(6, statistics.getConnectTimes().getCount());
+    assertEquals(5, statistics.getSparesUsed());
+  }
+
+  /** testPool */
+  @Test
+  public void testPool() throws Exception {
+    WorkloadConfiguration workConf = new WorkloadConfiguration();
+    workConf.setConnectionPoolSize(1);
+    workConf.setConnectionValidation(true);
+    List<boolean[]> opened = new ArrayList<>();
+    ConnectionManager manager = manager(workConf, opened);
+
+    Connection first = manager.acquire();
+    Connection second = manager.acquire();
+    manager.release(first);
+    // The pool is full
+    manager.release(second);
+    assertTrue(opened.get(1)[0]);
+    assertSame(first, manager.acquire());
+
+    // Spares that are no longer valid are replaced
+    manager.release(first);
+    first.close();
+    assertNotSame(first, manager.acquire());
+    assertEquals(3, opened.size());
+
+    manager.close();
+    assertEquals(0, manager.getStatistics().getFailures());
+  }
+
+  /** testDiscard */
+  @Test
+  public void testDiscard() throws Exception {
+    WorkloadConfiguration workConf = new WorkloadConfiguration();
+    workConf.setConnectionPoolSize(1);
+    List<boolean[]> opened = new ArrayList<>();
+    ConnectionManager manager = manager(workConf, opened);
+
+    Connection conn = manager.acquire();
+    manager.discard(conn);
+    assertTrue(opened.get(0)[0]);
+    // A discarded connection is not pooled
+    assertNotSame(conn, manager.acquire());
+    assertEquals(2, opened.size());
+  }
+}
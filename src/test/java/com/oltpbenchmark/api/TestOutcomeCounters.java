@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.oltpbenchmark.benchmarks.tpcc.procedures.Delivery;
+import com.oltpbenchmark.benchmarks.tpcc.procedures.NewOrder;
+import com.oltpbenchmark.benchmarks.tpcc.procedures.Payment;
+import com.oltpbenchmark.types.TransactionStatus;
+import com.oltpbenchmark.util.Histogram;
+import java.util.List;
+import org.junit.Test;
+
+public class TestOutcomeCounters {
+
+  private final TransactionType newOrder = new TransactionType(NewOrder.class, 1, false, 0, 0);
+  private final TransactionType payment = new TransactionType(Payment.class, 3, false, 0, 0);
+  private final TransactionType supplemental =
+      new TransactionType(Delivery.class, Delivery.class.hashCode(), true, 0, 0);
+
+  /** testIndexById */
+  @Test
+  public void testIndexById() {
+    TransactionType[] typesById =
+        OutcomeCounters.indexById(
+            List.of(TransactionType.INVALID, newOrder, payment, supplemental));
+    assertEquals(4, typesById.length);
+    assertEquals(TransactionType.INVALID, typesById[0]);
+    assertEquals(newOrder, typesById[1]);
+    assertNull(typesById[2]);
+    assertEquals(payment, typesById[3]);
+  }
+
+  /** testCounts */
+  @Test
+  public void testCounts() {
+    OutcomeCounters counters =
+        new OutcomeCounters(OutcomeCounters.indexById(List.of(newOrder, payment, supplemental)));
+    for (int i = 0; i < 5; i++) {
+      counters.add(TransactionStatus.SUCCESS, newOrder);
+    }
+    counters.add(TransactionStatus.RETRY, newOrder);
+    counters.add(TransactionStatus.SUCCESS, supplemental);
+    counters.add(TransactionStatus.SUCCESS, supplemental);
+
+    assertEquals(5, counters.get(TransactionStatus.SUCCESS, newOrder));
+    assertEquals(1, counters.get(TransactionStatus.RETRY, newOrder));
+    assertEquals(0, counters.get(TransactionStatus.SUCCESS, payment));
+    assertEquals(2, counters.get(TransactionStatus.SUCCESS, supplemental));
+    assertEquals(0, counters.get(TransactionStatus.ERROR, supplemental));
+  }
+
+  /** testToHistogram */
+  @Test
+  public void testToHistogram() {
+    OutcomeCounters counters =
+        new OutcomeCounters(OutcomeCounters.indexById(List.of(newOrder, payment, supplemental)));
+    counters.add(TransactionStatus.SUCCESS, newOrder);
+    counters.add(TransactionStatus.SUCCESS, newOrder);
+    counters.add(TransactionStatus.SUCCESS, supplemental);
+    counters.add(TransactionStatus.ERROR, payment);
+
+    Histogram<TransactionType> success = counters.toHistogram(TransactionStatus.SUCCESS);
+    assertEquals(2, success.getValueCount());
+    assertEquals(2, success.get(newOrder, 0));
+    assertEquals(1, success.get(supplemental, 0));
+    assertEquals(0, success.get(payment, 0));
+
+    Histogram<TransactionType> errors = counters.toHistogram(TransactionStatus.ERROR);
+    assertEquals(1, errors.getSampleCount());
+    assertEquals(1, errors.get(payment, 0));
+  }
+}
@@ -17,10 +17,19 @@
 package com.oltpbenchmark.api;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import com.oltpbenchmark.benchmarks.tatp.procedures.DeleteCallForwarding;
 import com.oltpbenchmark.types.DatabaseType;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import org.junit.Before;
 import org.junit.Test;
@@ -65,4 +74,72 @@ public class TestProcedure {
     assertEquals(expected.size(), actual.size());
     assertEquals(expected, actual);
   }
+
+  /** A connection that only prepares statements, which only know whether they were closed */
+  private static Connection connection(List<boolean[]> closed) {
+    return (Connection)
+        Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+              if (!method.getName().equals("prepareStatement")) {
+                return null;
+              }
+              boolean[] isClosed = {false};
+              closed.add(isClosed);
+              return Proxy.newProxyInstance(
+                  PreparedStatement.class.getClassLoader(),
+                  new Class<?>[] {PreparedStatement.class},
+                  (p, m, a) -> {
+                    switch (m.getName()) {
+                      case "close" -> isClosed[0] = true;
+                      case "isClosed" -> {
+                        return isClosed[0];
+                      }
+                      default -> {}
+                    }
+                    return null;
+                  });
+            });
+  }
+
+  /** testStatementCache */
+  @Test
+  public void testStatementCache() throws Exception {
+    Procedure proc = new DeleteCallForwarding();
+    proc.initialize(DatabaseType.HSQLDB);
+    StatementCache cache = new StatementCache();
+    proc.setStatementCache(cache);
+    SQLStmt stmt = proc.getStatements().values().iterator().next();
+    List<boolean[]> prepared = new ArrayList<>();
+    Connection conn = connection(prepared);
+
+    PreparedStatement first = proc.getPreparedStatement(conn, stmt);
+    // Still in use, so the same SQL is prepared again and not cached
+    try (PreparedStatement nested = proc.getPreparedStatement(conn, stmt)) {
+      assertNotSame(first, nested);
+    }
+    assertTrue(prepared.get(1)[0]);
+    first.close();
+    assertTrue(first.isClosed());
+    assertFalse(prepared.get(0)[0]);
+
+    PreparedStatement second = proc.getPreparedStatement(conn, stmt);
+    assertSame(first, second);
+    assertFalse(second.isClosed());
+    second.close();
+    assertEquals(2, prepared.size());
+    assertEquals(1, cache.getHits());
+
+    // Statements that are not fields of the procedure are never cached
+    SQLStmt dynamic = new SQLStmt(stmt.getSQL());
+    proc.getPreparedStatement(conn, dynamic).close();
+    assertTrue(prepared.get(2)[0]);
+
+    // Another connection closes the statements of the previous one
+    proc.getPreparedStatement(connection(prepared), stmt).close();
+    assertTrue(prepared.get(0)[0]);
+    assertFalse(prepared.get(3)[0]);
+    assertEquals(3, cache.getPrepares());
+  }
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.oltpbenchmark.Phase;
+import com.oltpbenchmark.WorkloadConfiguration;
+import com.oltpbenchmark.types.DatabaseType;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import org.junit.Test;
+
+public class TestRetryPolicy {
+
+  private static List<Phase> phases(int count) {
+    WorkloadConfiguration workConf = new WorkloadConfiguration();
+    for (int i = 0; i < count; i++) {
+      workConf.addPhase(
+          i, 10, 0, 100, List.of(100.0), true, false, false, true, 1, Phase.Arrival.REGULAR);
+    }
+    return workConf.getPhases();
+  }
+
+  /** testClassify */
+  @Test
+  public void testClassify() {
+    RetryPolicy mysql = RetryPolicy.defaults(DatabaseType.MYSQL, 3);
+    RetryPolicy postgres = RetryPolicy.defaults(DatabaseType.POSTGRES, 3);
+
+    SQLException deadlock = new SQLException("deadlock", "40001", 1213);
+    assertEquals(RetryPolicy.Action.RETRY, mysql.classify(deadlock));
+    assertEquals(RetryPolicy.Action.RETRY, postgres.classify(deadlock));
+
+    SQLException readOnly = new SQLException("read-only", "HY000", 1290);
+    assertEquals(RetryPolicy.Action.READ_ONLY, mysql.classify(readOnly));
+    assertEquals(RetryPolicy.Action.FAIL, postgres.classify(readOnly));
+
+    SQLException pgDeadlock = new SQLException("deadlock detected", "40P01", 0);
+    assertEquals(RetryPolicy.Action.RETRY, postgres.classify(pgDeadlock));
+    assertEquals(RetryPolicy.Action.FAIL, mysql.classify(pgDeadlock));
+
+    assertEquals(RetryPolicy.Action.FAIL, mysql.classify(new SQLException("no state")));
+    assertEquals(
+        RetryPolicy.Action.RETRY, mysql.classify(new SQLRecoverableException("x", "08000")));
+
+    // Configured rules come before the defaults
+    List<RetryPolicy.Rule> rules =
+        List.of(new RetryPolicy.Rule("40001", 1213, RetryPolicy.Action.FAIL));
+    RetryPolicy custom =
+        new RetryPolicy(
+            rules, RetryPolicy.Backoff.NONE, RetryPolicy.Backoff.NONE, 3, Map.of(), -1, 0);
+    assertEquals(RetryPolicy.Action.FAIL, custom.classify(deadlock));
+  }
+
+  /** testBackoff */
+  @Test
+  public void testBackoff() {
+    RetryPolicy.Backoff backoff = new RetryPolicy.Backoff(10, 1000);
+    SplittableRandom random = new SplittableRandom(1);
+    long previous = 0;
+    long largest = 0;
+    for (int i = 0; i < 100; i++) {
+      long next = backoff.next(previous, random);
+      assertTrue(next >= 10000000L && next <= 1000000000L);
+      assertTrue(next <= Math.max(10000000L, previous * 3));
+      largest = Math.max(largest, next);
+      previous = next;
+    }
+    // The waits grow towards the cap
+    assertTrue(largest > 100000000L);
+    assertEquals(0, RetryPolicy.Backoff.NONE.next(previous, random));
+  }
+
+  /** testBudget */
+  @Test
+  public void testBudget() {
+    List<Phase> phases = phases(2);
+    RetryPolicy policy =
+        new RetryPolicy(
+            List.of(), RetryPolicy.Backoff.NONE, RetryPolicy.Backoff.NONE, 3, Map.of(), 0.5, 1);
+    for (int i = 0; i < 4; i++) {
+      policy.startTransaction(phases.get(0));
+    }
+    // 1 + 0.5 * 4
+    assertTrue(policy.tryRetry(phases.get(0)));
+    assertTrue(policy.tryRetry(phases.get(0)));
+    assertTrue(policy.tryRetry(phases.get(0)));
+    assertFalse(policy.tryRetry(phases.get(0)));
+    assertEquals(1, policy.getRetriesDenied());
+
+    // A new phase has a new budget
+    assertTrue(policy.tryRetry(phases.get(1)));
+    assertFalse(policy.tryRetry(phases.get(1)));
+
+    // A late retry of the last phase neither resets its budget nor the new one's
+    assertFalse(policy.tryRetry(phases.get(0)));
+    policy.startTransaction(phases.get(1));
+    policy.startTransaction(phases.get(1));
+    assertTrue(policy.tryRetry(phases.get(1)));
+    assertFalse(policy.tryRetry(phases.get(1)));
+    assertEquals(4, policy.getRetriesDenied());
+  }
+
+  /** testMaxRetries */
+  @Test
+  public void testMaxRetries() {
+    TransactionType newOrder = new TransactionType(Procedure.class, 1, false, 0, 0);
+    TransactionType other = new TransactionType(TransactionType.Invalid.class, 2, false, 0, 0);
+    RetryPolicy policy =
+        new RetryPolicy(
+            List.of(),
+            RetryPolicy.Backoff.NONE,
+            RetryPolicy.Backoff.NONE,
+            3,
+            Map.of(newOrder.getName(), 7),
+            -1,
+            0);
+    assertEquals(7, policy.getMaxRetries(newOrder));
+    assertEquals(3, policy.getMaxRetries(other));
+  }
+}
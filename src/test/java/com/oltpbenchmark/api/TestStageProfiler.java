@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import org.junit.Test;
+
+public class TestStageProfiler {
+
+  private static final TransactionType TYPE = new TransactionType(Procedure.class, 1, false, 0, 0);
+
+  /** testExecution */
+  @Test
+  public void testExecution() throws Exception {
+    StageProfiler profiler = new StageProfiler();
+    try (Connection conn = DriverManager.getConnection("jdbc:mock:testExecution?latency=2000")) {
+      Connection wrapped = profiler.wrap(conn);
+      assertSame(wrapped, profiler.wrap(conn));
+
+      long start = System.nanoTime();
+      profiler.startExecution();
+      Thread.sleep(5);
+      PreparedStatement stmt = wrapped.prepareStatement("SELECT a FROM t WHERE b = ?");
+      stmt.setInt(1, 7);
+      try (ResultSet rs = stmt.executeQuery()) {
+        assertTrue(rs.next());
+      }
+      profiler.endExecution();
+      profiler.endTransaction(System.nanoTime() - start);
+      long elapsed = System.nanoTime() - start;
+      profiler.finish(TYPE, true);
+
+      long jdbc = profiler.getTotalNanoseconds(StageProfiler.Stage.JDBC);
+      long generation = profiler.getTotalNanoseconds(StageProfiler.Stage.PARAMETER_GENERATION);
+      assertTrue(jdbc >= 2000000);
+      assertTrue(generation >= 5000000);
+      assertTrue(jdbc + generation <= elapsed);
+      assertEquals(1, profiler.getTransactions());
+      assertEquals(1, profiler.getHistogram(TYPE, StageProfiler.Stage.JDBC).getCount());
+    }
+  }
+
+  /** testFinish */
+  @Test
+  public void testFinish() throws Exception {
+    StageProfiler profiler = new StageProfiler();
+    profiler.mark();
+    Thread.sleep(1);
+    profiler.lap(StageProfiler.Stage.FETCH_WORK);
+    profiler.finish(TYPE, false);
+    assertEquals(0, profiler.getTransactions());
+    assertEquals(0, profiler.getTotalNanoseconds(StageProfiler.Stage.FETCH_WORK));
+
+    Thread.sleep(1);
+    profiler.lap(StageProfiler.Stage.FETCH_WORK);
+    profiler.finish(TYPE, true);
+    long fetch = profiler.getTotalNanoseconds(StageProfiler.Stage.FETCH_WORK);
+    assertTrue(fetch >= 1000000);
+
+    StageProfiler merged = new StageProfiler();
+    merged.add(profiler);
+    merged.add(profiler);
+    assertEquals(2, merged.getTransactions());
+    assertEquals(2 * fetch, merged.getTotalNanoseconds(StageProfiler.Stage.FETCH_WORK));
+    assertEquals(2, merged.getHistogram(TYPE, StageProfiler.Stage.FETCH_WORK).getCount());
+  }
+
+  /** testEndTransaction */
+  @Test
+  public void testEndTransaction() {
+    StageProfiler profiler = new StageProfiler();
+    profiler.count(StageProfiler.Stage.CONNECT, 3000000);
+    profiler.count(StageProfiler.Stage.BACKOFF, 20000000);
+    profiler.count(StageProfiler.Stage.COMMIT, 1000000);
+    profiler.endTransaction(30000000);
+    profiler.finish(TYPE, true);
+
+    // Connecting and backing off are not counted as rolling back and retrying
+    assertEquals(3000000, profiler.getTotalNanoseconds(StageProfiler.Stage.CONNECT));
+    assertEquals(20000000, profiler.getTotalNanoseconds(StageProfiler.Stage.BACKOFF));
+    assertEquals(6000000, profiler.getTotalNanoseconds(StageProfiler.Stage.RETRY));
+  }
+
+  /** testReconnect */
+  @Test
+  public void testReconnect() throws Exception {
+    StageProfiler profiler = new StageProfiler();
+    try (Connection first = DriverManager.getConnection("jdbc:mock:testReconnect");
+        Connection second = DriverManager.getConnection("jdbc:mock:testReconnect")) {
+      assertNotSame(profiler.wrap(first), profiler.wrap(second));
+    }
+  }
+}
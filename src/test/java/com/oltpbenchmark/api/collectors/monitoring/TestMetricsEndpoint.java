@@ -0,0 +1,179 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.api.collectors.monitoring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.oltpbenchmark.BenchmarkState;
+import com.oltpbenchmark.DBWorkload;
+import com.oltpbenchmark.LiveHistogram;
+import com.oltpbenchmark.WorkloadConfiguration;
+import com.oltpbenchmark.api.BenchmarkModule;
+import com.oltpbenchmark.api.TransactionType;
+import com.oltpbenchmark.api.Worker;
+import com.oltpbenchmark.util.ImmutableMonitorInfo;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.configuration2.XMLConfiguration;
+import org.junit.Test;
+
+public class TestMetricsEndpoint {
+
+  private static final String CONFIG =
+      "<?xml version=\"1.0\"?>\n"
+          + "<parameters>\n"
+          + "  <type>POSTGRES</type>\n"
+          + "  <driver>com.oltpbenchmark.jdbc.mock.MockDriver</driver>\n"
+          + "  <url>jdbc:mock:testMetricsEndpoint</url>\n"
+          + "  <username>user</username>\n"
+          + "  <password>password</password>\n"
+          + "  <isolation>TRANSACTION_SERIALIZABLE</isolation>\n"
+          + "  <scalefactor>1</scalefactor>\n"
+          + "  <terminals>1</terminals>\n"
+          + "  <works>\n"
+          + "    <work>\n"
+          + "      <time>1</time>\n"
+          + "      <rate>unlimited</rate>\n"
+          + "      <weights>100</weights>\n"
+          + "    </work>\n"
+          + "  </works>\n"
+          + "  <transactiontypes>\n"
+          + "    <transactiontype>\n"
+          + "      <name>NoOp</name>\n"
+          + "    </transactiontype>\n"
+          + "  </transactiontypes>\n"
+          + "</parameters>\n";
+
+  private static String scrape(int port) throws Exception {
+    HttpURLConnection conn =
+        (HttpURLConnection)
+            new URI("http://localhost:" + port + "/metrics").toURL().openConnection();
+    try {
+      assertEquals(200, conn.getResponseCode());
+      assertTrue(conn.getContentType().startsWith("text/plain; version=0.0.4"));
+      try (InputStream in = conn.getInputStream()) {
+        return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+      }
+    } finally {
+      conn.disconnect();
+    }
+  }
+
+  /** Returns the value of each sample line by its name and labels. */
+  private static Map<String, String> samples(String text) {
+    Map<String, String> samples = new HashMap<>();
+    for (String line : text.split("\n")) {
+      if (!line.startsWith("#")) {
+        int space = line.lastIndexOf(' ');
+        samples.put(line.substring(0, space), line.substring(space + 1));
+      }
+    }
+    return samples;
+  }
+
+  /** testScrape */
+  @Test
+  public void testScrape() throws Exception {
+    Path configFile = Files.createTempFile("metrics-", ".xml");
+    configFile.toFile().deleteOnExit();
+    Files.writeString(configFile, CONFIG);
+    XMLConfiguration pluginConfig =
+        DBWorkload.buildConfiguration(Paths.get("config", "plugin.xml").toString());
+    XMLConfiguration xmlConfig = DBWorkload.buildConfiguration(configFile.toString());
+    BenchmarkModule bench =
+        DBWorkload.loadBenchmarks(
+                pluginConfig,
+                "noop",
+                configFile.toString(),
+                xmlConfig,
+                ImmutableMonitorInfo.builder().build(),
+                new ArrayList<>())
+            .get(0);
+    WorkloadConfiguration workConf = bench.getWorkloadConfiguration();
+    BenchmarkState testState = new BenchmarkState(1);
+    workConf.initializeState(testState);
+    List<Worker<? extends BenchmarkModule>> workers = bench.makeWorkers();
+    workConf.getWorkloadState().switchToNextPhase();
+    TransactionType noop = workConf.getTransTypes().getType("NoOp");
+
+    // Latencies of 50 us, twice 800 us and 3 s in one interval of two seconds
+    LiveHistogram histogram = new LiveHistogram();
+    for (int latency : new int[] {50, 800, 800, 3000000}) {
+      histogram.record(latency);
+    }
+    LiveHistogram.Snapshot snapshot = new LiveHistogram.Snapshot();
+    histogram.drainInto(snapshot);
+    Map<Integer, LiveHistogram.Snapshot> interval = new HashMap<>();
+    interval.put(noop.getId(), snapshot);
+
+    MetricsEndpoint endpoint = new MetricsEndpoint(0, testState, workers);
+    endpoint.update(interval, 2);
+    endpoint.start();
+    String text;
+    try {
+      text = scrape(endpoint.getPort());
+    } finally {
+      endpoint.stop();
+      bench.getConnectionManager().close();
+    }
+
+    assertTrue(text.contains("# TYPE benchbase_state gauge\n"));
+    assertTrue(text.contains("# TYPE benchbase_phase gauge\n"));
+    assertTrue(text.contains("# TYPE benchbase_queue_depth gauge\n"));
+    assertTrue(text.contains("# TYPE benchbase_transactions_total counter\n"));
+    assertTrue(text.contains("# TYPE benchbase_throughput gauge\n"));
+    assertTrue(text.contains("# TYPE benchbase_latency_seconds histogram\n"));
+
+    Map<String, String> samples = samples(text);
+    assertEquals("1", samples.get("benchbase_state{state=\"WARMUP\"}"));
+    assertEquals("0", samples.get("benchbase_state{state=\"MEASURE\"}"));
+    assertEquals("1", samples.get("benchbase_phase{benchmark=\"noop\"}"));
+    assertEquals("0", samples.get("benchbase_queue_depth{benchmark=\"noop\"}"));
+    assertEquals(
+        "0",
+        samples.get(
+            "benchbase_transactions_total{benchmark=\"noop\",type=\"NoOp\",status=\"success\"}"));
+    assertEquals("2.0", samples.get("benchbase_throughput{benchmark=\"noop\",type=\"NoOp\"}"));
+
+    // Bucket counts are cumulative up to +Inf, which equals the count
+    String bucket = "benchbase_latency_seconds_bucket{benchmark=\"noop\",type=\"NoOp\",le=";
+    assertEquals("1", samples.get(bucket + "\"0.0001\"}"));
+    assertEquals("1", samples.get(bucket + "\"0.0005\"}"));
+    assertEquals("3", samples.get(bucket + "\"0.001\"}"));
+    assertEquals("3", samples.get(bucket + "\"2.5\"}"));
+    assertEquals("4", samples.get(bucket + "\"5\"}"));
+    assertEquals("4", samples.get(bucket + "\"10\"}"));
+    assertEquals("4", samples.get(bucket + "\"+Inf\"}"));
+    assertEquals(
+        "4", samples.get("benchbase_latency_seconds_count{benchmark=\"noop\",type=\"NoOp\"}"));
+    double sum =
+        Double.parseDouble(
+            samples.get("benchbase_latency_seconds_sum{benchmark=\"noop\",type=\"NoOp\"}"));
+    assertEquals(3.00165, sum, 3.00165 / 32);
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.distributed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.oltpbenchmark.DBWorkload;
+import com.oltpbenchmark.DistributionStatistics;
+import com.oltpbenchmark.Results;
+import com.oltpbenchmark.WorkloadConfiguration;
+import com.oltpbenchmark.api.BenchmarkModule;
+import com.oltpbenchmark.api.TransactionType;
+import com.oltpbenchmark.types.State;
+import com.oltpbenchmark.util.ImmutableMonitorInfo;
+import com.oltpbenchmark.util.MonitorInfo;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.configuration2.XMLConfiguration;
+import org.junit.Test;
+
+public class TestDistributedRun {
+
+  private static final int AGENTS = 2;
+  private static final int RATE = 200;
+  private static final int TIME = 3;
+
+  private static final String CONFIG =
+      "<?xml version=\"1.0\"?>\n"
+          + "<parameters>\n"
+          + "  <type>POSTGRES</type>\n"
+          + "  <driver>com.oltpbenchmark.jdbc.mock.MockDriver</driver>\n"
+          + "  <url>jdbc:mock:testDistributedRun?latency=2000</url>\n"
+          + "  <username>user</username>\n"
+          + "  <password>password</password>\n"
+          + "  <isolation>TRANSACTION_SERIALIZABLE</isolation>\n"
+          + "  <scalefactor>1</scalefactor>\n"
+          + "  <terminals>2</terminals>\n"
+          + "  <works>\n"
+          + "    <work>\n"
+          + "      <time>"
+          + TIME
+          + "</time>\n"
+          + "      <rate>"
+          + RATE
+          + "</rate>\n"
+          + "      <weights>100</weights>\n"
+          + "    </work>\n"
+          + "  </works>\n"
+          + "  <transactiontypes>\n"
+          + "    <transactiontype>\n"
+          + "      <name>NoOp</name>\n"
+          + "    </transactiontype>\n"
+          + "  </transactiontypes>\n"
+          + "</parameters>\n";
+
+  /** testCoordinatorAndAgents */
+  @Test
+  public void testCoordinatorAndAgents() throws Exception {
+    Path configFile = Files.createTempFile("distributed-", ".xml");
+    configFile.toFile().deleteOnExit();
+    Files.writeString(configFile, CONFIG);
+    XMLConfiguration pluginConfig =
+        DBWorkload.buildConfiguration(Paths.get("config", "plugin.xml").toString());
+    XMLConfiguration xmlConfig = DBWorkload.buildConfiguration(configFile.toString());
+    MonitorInfo monitorInfo = ImmutableMonitorInfo.builder().build();
+    List<BenchmarkModule> benchList =
+        DBWorkload.loadBenchmarks(
+            pluginConfig, "noop", configFile.toString(), xmlConfig, monitorInfo, new ArrayList<>());
+    List<WorkloadConfiguration> workConfs = new ArrayList<>();
+    for (BenchmarkModule bench : benchList) {
+      workConfs.add(bench.getWorkloadConfiguration());
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(AGENTS);
+    Results results;
+    try (Coordinator coordinator = new Coordinator(0, AGENTS)) {
+      List<Future<?>> agents = new ArrayList<>();
+      for (int i = 0; i < AGENTS; i++) {
+        Agent agent = new Agent("localhost:" + coordinator.getPort());
+        agents.add(
+            executor.submit(
+                () -> {
+                  agent.run(pluginConfig, monitorInfo);
+                  return null;
+                }));
+      }
+      results = coordinator.run("noop", xmlConfig, workConfs);
+      for (Future<?> agent : agents) {
+        agent.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertEquals(State.EXIT, results.getState());
+    assertFalse(results.hasSamples());
+    assertNotNull(results.getLatencyHistograms());
+
+    // Every agent offers the configured rate
+    int requests = results.getMeasuredRequests();
+    int offered = AGENTS * RATE * TIME;
+    assertTrue("requests " + requests, requests > offered / 2 && requests <= offered * 11 / 10);
+    assertEquals(requests, results.getLatencyHistograms().getCount());
+    TransactionType noop = workConfs.get(0).getTransTypes().getType("NoOp");
+    // Transactions that straddle the end of the phase succeed without being measured
+    assertTrue(results.getSuccess().get(noop, 0) >= requests);
+
+    DistributionStatistics latencies = results.getDistributionStatistics();
+    assertEquals(requests, latencies.getCount());
+    assertTrue(latencies.getMedian() >= 2000);
+    assertTrue(latencies.getMedian() <= latencies.get99thPercentile());
+    assertTrue(latencies.get99thPercentile() <= latencies.getMaximum());
+    DistributionStatistics responseTimes = results.getResponseTimeStatistics();
+    assertEquals(requests, responseTimes.getCount());
+    assertTrue(responseTimes.getMedian() >= latencies.getMedian());
+
+    // The windows of both agents line up with the coordinator's measurement
+    List<DistributionStatistics> windows =
+        results.getLatencyHistograms().getWindowStatistics(1, TransactionType.INVALID, false);
+    assertTrue("windows " + windows.size(), windows.size() <= TIME + 1);
+  }
+}
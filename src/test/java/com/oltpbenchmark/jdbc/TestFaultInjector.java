@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.oltpbenchmark.util.SQLUtil;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class TestFaultInjector {
+
+  private static FaultProfile errors(double probability) {
+    return new FaultProfile(
+        42, 0, Latency.NONE, 0, 0, List.of(new FaultProfile.SqlError(probability, "40001", 1213)));
+  }
+
+  /** Execute a statement many times and return the error codes, 0 for the executions that worked */
+  private static List<Integer> run(FaultInjector injector) throws SQLException {
+    List<Integer> codes = new ArrayList<>();
+    try (Connection conn = injector.wrap(DriverManager.getConnection("jdbc:mock:faults"))) {
+      PreparedStatement stmt = conn.prepareStatement("UPDATE t SET a = 1");
+      assertEquals(conn, stmt.getConnection());
+      for (int i = 0; i < 200; i++) {
+        try {
+          stmt.executeUpdate();
+          codes.add(0);
+        } catch (SQLException ex) {
+          assertTrue(FaultInjector.isInjected(ex));
+          assertEquals("40001", ex.getSQLState());
+          codes.add(ex.getErrorCode());
+        }
+      }
+    }
+    return codes;
+  }
+
+  /** testSeed */
+  @Test
+  public void testSeed() throws Exception {
+    FaultProfile profile = errors(0.25);
+    FaultInjector injector = new FaultInjector(() -> profile);
+    List<Integer> codes = run(injector);
+    long failures = codes.stream().filter(c -> c == 1213).count();
+    assertEquals(failures, injector.getStatistics().getErrors());
+    assertTrue(failures > 20 && failures < 80);
+
+    // The same seed injects the same faults
+    FaultProfile same = errors(0.25);
+    assertEquals(codes, run(new FaultInjector(() -> same)));
+  }
+
+  /** testDrop */
+  @Test
+  public void testDrop() throws Exception {
+    FaultProfile profile = new FaultProfile(1, 0, Latency.NONE, 1, 0, List.of());
+    FaultInjector injector = new FaultInjector(() -> profile);
+    Connection conn = injector.wrap(DriverManager.getConnection("jdbc:mock:faults"));
+    try {
+      conn.createStatement().execute("SELECT 1");
+      fail("Expected the connection to be dropped");
+    } catch (SQLException ex) {
+      assertTrue(FaultInjector.isInjected(ex));
+      assertTrue(SQLUtil.isConnectionErrorException(ex));
+    }
+    assertTrue(conn.isClosed());
+    assertEquals(1, injector.getStatistics().getDrops());
+  }
+
+  /** testNoProfile */
+  @Test
+  public void testNoProfile() throws Exception {
+    FaultInjector injector = new FaultInjector(() -> null);
+    try (Connection conn = injector.wrap(DriverManager.getConnection("jdbc:mock:faults"))) {
+      conn.prepareStatement("UPDATE t SET a = 1").executeUpdate();
+      conn.commit();
+      assertFalse(conn.isClosed());
+    }
+    assertEquals(0, injector.getStatistics().getErrors());
+  }
+
+  /** testInvalidProfile */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidProfile() {
+    new FaultProfile(0, 0, Latency.NONE, 0.5, 0.6, List.of());
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import org.junit.Test;
+
+public class TestInstrumentedPreparedStatement {
+
+  /** A result set with the given number of rows that only supports next() and close() */
+  private static ResultSet rows(int count) {
+    int[] remaining = {count};
+    return (ResultSet)
+        Proxy.newProxyInstance(
+            ResultSet.class.getClassLoader(),
+            new Class<?>[] {ResultSet.class},
+            (proxy, method, args) -> method.getName().equals("next") ? remaining[0]-- > 0 : null);
+  }
+
+  /** testCounts */
+  @Test
+  public void testCounts() throws Exception {
+    PreparedStatement target =
+        (PreparedStatement)
+            Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] {PreparedStatement.class},
+                (proxy, method, args) -> {
+                  switch (method.getName()) {
+                    case "executeQuery":
+                      return rows(3);
+                    case "executeBatch":
+                      return new int[] {1, 1};
+                    default:
+                      return null;
+                  }
+                });
+    StatementStatistics statistics = new StatementStatistics();
+    StatementStatistics.Statement counters = statistics.get("Proc", "stmt");
+    PreparedStatement stmt = new InstrumentedPreparedStatement(target, counters);
+
+    // Read to the end, then closed: the fetch is only counted once
+    try (ResultSet rs = stmt.executeQuery()) {
+      while (rs.next()) {}
+      assertFalse(rs.next());
+    }
+    // Closed early
+    try (ResultSet rs = stmt.executeQuery()) {
+      assertTrue(rs.next());
+    }
+    stmt.addBatch();
+    stmt.addBatch();
+    assertEquals(2, stmt.executeBatch().length);
+
+    assertEquals(3, counters.getExecutions());
+    assertEquals(2, counters.getBatchedStatements());
+    assertEquals(4, counters.getRows());
+    assertEquals(3, counters.getExecuteTimes().getCount());
+    assertEquals(2, counters.getFetchTimes().getCount());
+
+    StatementStatistics merged = new StatementStatistics();
+    merged.add(statistics);
+    merged.add(statistics);
+    assertEquals(6, merged.get("Proc", "stmt").getExecutions());
+  }
+}
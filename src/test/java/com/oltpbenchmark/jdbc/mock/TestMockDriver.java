@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.jdbc.mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.junit.Test;
+
+public class TestMockDriver {
+
+  /** testQuery */
+  @Test
+  public void testQuery() throws Exception {
+    try (Connection conn = DriverManager.getConnection("jdbc:mock:testQuery?rows=2")) {
+      PreparedStatement stmt = conn.prepareStatement("SELECT a, COUNT(*) AS n FROM t WHERE b = ?");
+      stmt.setInt(1, 7);
+      try (ResultSet rs = stmt.executeQuery()) {
+        assertEquals(2, rs.getMetaData().getColumnCount());
+        assertEquals(2, rs.findColumn("n"));
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt("n"));
+        assertTrue(rs.next());
+        assertEquals(2, rs.getLong(1));
+        assertFalse(rs.next());
+      }
+      assertEquals(1, conn.prepareStatement("UPDATE t SET a = 1").executeUpdate());
+      conn.commit();
+    }
+  }
+
+  /** testDrops */
+  @Test
+  public void testDrops() throws Exception {
+    Connection conn = DriverManager.getConnection("jdbc:mock:testDrops?drops=1");
+    try {
+      conn.prepareStatement("UPDATE t SET a = 1").executeUpdate();
+      fail("Expected the connection to be dropped");
+    } catch (SQLException ex) {
+      assertEquals("08006", ex.getSQLState());
+    }
+    assertTrue(conn.isClosed());
+  }
+
+  /** testBadOption */
+  @Test(expected = SQLException.class)
+  public void testBadOption() throws Exception {
+    DriverManager.getConnection("jdbc:mock:testBadOption?latncy=5");
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 by OLTPBenchmark Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.oltpbenchmark.jfr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.oltpbenchmark.DBWorkload;
+import com.oltpbenchmark.api.BenchmarkModule;
+import com.oltpbenchmark.types.State;
+import com.oltpbenchmark.types.TransactionStatus;
+import com.oltpbenchmark.util.ImmutableMonitorInfo;
+import com.oltpbenchmark.util.MonitorInfo;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.apache.commons.configuration2.XMLConfiguration;
+import org.junit.Test;
+
+public class TestEvents {
+
+  private static final String CONFIG =
+      "<?xml version=\"1.0\"?>\n"
+          + "<parameters>\n"
+          + "  <type>POSTGRES</type>\n"
+          + "  <driver>com.oltpbenchmark.jdbc.mock.MockDriver</driver>\n"
+          + "  <url>jdbc:mock:testEvents?latency=500</url>\n"
+          + "  <username>user</username>\n"
+          + "  <password>password</password>\n"
+          + "  <isolation>TRANSACTION_SERIALIZABLE</isolation>\n"
+          + "  <scalefactor>1</scalefactor>\n"
+          + "  <terminals>2</terminals>\n"
+          + "  <works>\n"
+          + "    <work>\n"
+          + "      <time>2</time>\n"
+          + "      <rate>200</rate>\n"
+          + "      <weights>100</weights>\n"
+          + "      <faults seed=\"7\">\n"
+          + "        <drop probability=\"0.02\"/>\n"
+          + "        <error probability=\"0.05\" sqlState=\"40001\"/>\n"
+          + "      </faults>\n"
+          + "    </work>\n"
+          + "  </works>\n"
+          + "  <transactiontypes>\n"
+          + "    <transactiontype>\n"
+          + "      <name>NoOp</name>\n"
+          + "    </transactiontype>\n"
+          + "  </transactiontypes>\n"
+          + "</parameters>\n";
+
+  /** testWorkloadEvents */
+  @Test
+  public void testWorkloadEvents() throws Exception {
+    Path configFile = Files.createTempFile("jfr-", ".xml");
+    configFile.toFile().deleteOnExit();
+    Files.writeString(configFile, CONFIG);
+    XMLConfiguration pluginConfig =
+        DBWorkload.buildConfiguration(Paths.get("config", "plugin.xml").toString());
+    XMLConfiguration xmlConfig = DBWorkload.buildConfiguration(configFile.toString());
+    MonitorInfo monitorInfo = ImmutableMonitorInfo.builder().build();
+    List<BenchmarkModule> benchList =
+        DBWorkload.loadBenchmarks(
+            pluginConfig, "noop", configFile.toString(), xmlConfig, monitorInfo, new ArrayList<>());
+
+    Path dump = Files.createTempFile("events-", ".jfr");
+    dump.toFile().deleteOnExit();
+    try (Recording recording = new Recording()) {
+      // Every transaction, not only the slow ones
+      recording.enable(TransactionEvent.class).withThreshold(null);
+      recording.enable(RollbackEvent.class);
+      recording.enable(ReconnectEvent.class);
+      recording.enable(StateTransitionEvent.class);
+      recording.start();
+      DBWorkload.runWorkload(benchList, monitorInfo, null);
+      recording.stop();
+      recording.dump(dump);
+    }
+
+    int transactions = 0;
+    int rollbacks = 0;
+    int reconnects = 0;
+    int retried = 0;
+    Set<String> statuses = new HashSet<>();
+    Set<String> states = new HashSet<>();
+    for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+      switch (event.getEventType().getName()) {
+        case "benchbase.Transaction":
+          transactions++;
+          assertEquals("noop", event.getString("benchmark"));
+          assertEquals("NoOp", event.getString("transactionType"));
+          statuses.add(event.getString("status"));
+          if (event.getInt("retries") > 0) {
+            retried++;
+          }
+          assertTrue(event.getInt("workerId") >= 0 && event.getInt("workerId") < 2);
+          break;
+        case "benchbase.Rollback":
+          rollbacks++;
+          assertEquals("NoOp", event.getString("transactionType"));
+          assertFalse(event.getBoolean("userAbort"));
+          assertEquals("40001", event.getString("sqlState"));
+          break;
+        case "benchbase.Reconnect":
+          reconnects++;
+          assertTrue(event.getInt("attempt") >= 0);
+          assertTrue(event.getBoolean("succeeded"));
+          assertTrue(event.getInt("workerId") >= 0 && event.getInt("workerId") < 2);
+          break;
+        case "benchbase.StateTransition":
+          states.add(event.getString("to"));
+          break;
+        default:
+          break;
+      }
+    }
+
+    // About 400 transactions, a few percent of whose attempts fail
+    assertTrue("transactions " + transactions, transactions > 100);
+    assertTrue(statuses.contains(TransactionStatus.SUCCESS.name()));
+    assertTrue("retried " + retried, retried > 0);
+    assertTrue("rollbacks " + rollbacks, rollbacks > 0);
+    assertTrue("reconnects " + reconnects, reconnects > 0);
+    assertTrue(states.contains(State.MEASURE.name()));
+    assertTrue(states.contains(State.DONE.name()));
+  }
+}